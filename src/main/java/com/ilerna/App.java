@@ -25,6 +25,8 @@ import java.time.LocalDate;
  * - Service: Lógica de negocio
  * - Controller: Lógica de presentación
  * - Factory: Creación de objetos complejos
+ * - Cache: Cachés en memoria delante de la base de datos
+ * - Analitica: Consultas analíticas en memoria sobre columnas de asistencias
  * - Config: Configuración (DB, Hibernate)
  * - App: Punto de entrada (main)
  */
@@ -40,6 +42,9 @@ public class App {
         
         // Sistema JDBC original
         sistemaJDBC();
+        
+        // Cerrar el pool de conexiones
+        DataBaseConnection.shutdown();
     }
 
     /**
@@ -52,14 +57,10 @@ public class App {
         System.out.println("║   Tipos Compuestos (Composite Types)              ║");
         System.out.println("╚═══════════════════════════════════════════════════╝\n");
         
-        try (Connection connection = DataBaseConnection.getConnection()) {
-            
-            if (connection == null) {
-                System.out.println("✗ Error: No se pudo establecer conexión con la base de datos\n");
-                return;
-            }
+        try {
             
-            ObjetoRelacionalService service = new ObjetoRelacionalService(connection);
+            // Cada operación del servicio toma su conexión del pool
+            ObjetoRelacionalService service = new ObjetoRelacionalService(DataBaseConnection.getDataSource());
             
             // 1. Crear estructura (tipo compuesto + tabla)
             service.crearEstructuraObjetoRelacional();
@@ -190,14 +191,19 @@ public class App {
      * Sistema original con JDBC
      */
     private static void sistemaJDBC() {
-        try (Connection connection = DataBaseConnection.getConnection();
-                Scanner scanner = new Scanner(System.in)) {
+        try (Scanner scanner = new Scanner(System.in)) {
+
+            // Comprobar que el pool puede entregar conexiones antes de mostrar el menú
+            boolean conectado;
+            try (Connection connection = DataBaseConnection.getConnection()) {
+                conectado = connection.isValid(5);
+            }
 
-            if (connection != null) {
+            if (conectado) {
                 System.out.println("✓ Conexión exitosa a la base de datos\n");
 
                 // Usar factory para crear el controlador con todas las dependencias
-                GimnasioController controller = GimnasioControllerFactory.crear(connection, scanner);
+                GimnasioController controller = GimnasioControllerFactory.crear(DataBaseConnection.getDataSource(), scanner);
 
                 // Ejecutar menú interactivo
                 mostrarMenu(controller, scanner);
@@ -226,6 +232,9 @@ public class App {
             System.out.println("5. Eliminar cliente");
             System.out.println("6. [DEMO] Transacción: Registrar entrenador + clientes");
             System.out.println("7. [STORED PROC] Insertar entrenador y clase");
+            System.out.println("8. Estadísticas del pool de conexiones");
+            System.out.println("9. Reservar plaza en una clase");
+            System.out.println("10. Fichar en el torno");
             System.out.println("0. Salir\n");
             System.out.print("Seleccione una opción: ");
 
@@ -257,6 +266,15 @@ public class App {
                     case 7:
                         controller.ejecutarProcedimientoInsertarEntrenadorYClase();
                         break;
+                    case 8:
+                        controller.mostrarEstadisticasPool();
+                        break;
+                    case 9:
+                        controller.reservarPlaza();
+                        break;
+                    case 10:
+                        controller.ficharEnTorno();
+                        break;
                     case 0:
                         System.out.println("Ta luego my friend");
                         break;
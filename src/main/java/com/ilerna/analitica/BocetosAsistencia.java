@@ -0,0 +1,302 @@
+package com.ilerna.analitica;
+
+import com.ilerna.dto.Periodo;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Bocetos de asistencia por día para el panel en vivo, en memoria fija sea cual sea el volumen
+ *
+ * Cada día guarda:
+ * - un {@link HyperLogLog} de clientes distintos, y otro por clase
+ * - un {@link ContadorFrecuentes} con los clientes más activos
+ * - un {@link CountMin} con la frecuencia aproximada de cualquier cliente
+ * Las semanas, los meses o cualquier rango se obtienen fusionando los días: no se guarda nada más.
+ *
+ * Solo se conservan los últimos diasRetenidos días (contando desde el más reciente visto); las
+ * asistencias más antiguas se ignoran. La memoria es, como mucho,
+ * diasRetenidos x (clases + 1) x 2^precision bytes de HyperLogLog más los contadores por día.
+ *
+ * Un escritor y varios lectores a la vez (ReadWriteLock); las consultas devuelven copias.
+ */
+public class BocetosAsistencia {
+
+    private final int precisionDistintos;
+    private final double epsilonFrecuencia;
+    private final double deltaFrecuencia;
+    private final int capacidadFrecuentes;
+    private final int diasRetenidos;
+
+    private final NavigableMap<Integer, Dia> dias = new TreeMap<>();
+    private final ReadWriteLock cerrojo = new ReentrantReadWriteLock();
+
+    /**
+     * Valores por defecto: 2 % de error en distintos, frecuencias con un error de 0,1 % del total
+     * (99 % de confianza), 200 clientes frecuentes por día y 92 días
+     */
+    public BocetosAsistencia() {
+        this(0.02, 0.001, 0.01, 200, 92);
+    }
+
+    /**
+     * @param errorDistintos Error típico relativo de los conteos de distintos (p. ej. 0.02)
+     * @param epsilonFrecuencia Error de las frecuencias, relativo a las asistencias del rango
+     * @param deltaFrecuencia Probabilidad de superar ese error
+     * @param capacidadFrecuentes Clientes frecuentes que se siguen por día (el top-K debe ser bastante menor)
+     * @param diasRetenidos Días que se conservan
+     */
+    public BocetosAsistencia(double errorDistintos, double epsilonFrecuencia, double deltaFrecuencia,
+                             int capacidadFrecuentes, int diasRetenidos) {
+        if (diasRetenidos <= 0) {
+            throw new IllegalArgumentException("Hay que conservar al menos un día");
+        }
+        this.precisionDistintos = HyperLogLog.precisionPara(errorDistintos);
+        // Se valida creando uno de prueba, como el resto de parámetros
+        new CountMin(epsilonFrecuencia, deltaFrecuencia);
+        new ContadorFrecuentes(capacidadFrecuentes);
+        this.epsilonFrecuencia = epsilonFrecuencia;
+        this.deltaFrecuencia = deltaFrecuencia;
+        this.capacidadFrecuentes = capacidadFrecuentes;
+        this.diasRetenidos = diasRetenidos;
+    }
+
+    private BocetosAsistencia(BocetosAsistencia modelo) {
+        this.precisionDistintos = modelo.precisionDistintos;
+        this.epsilonFrecuencia = modelo.epsilonFrecuencia;
+        this.deltaFrecuencia = modelo.deltaFrecuencia;
+        this.capacidadFrecuentes = modelo.capacidadFrecuentes;
+        this.diasRetenidos = modelo.diasRetenidos;
+    }
+
+    /**
+     * Bocetos vacíos con los mismos márgenes de error y días retenidos que estos
+     */
+    public BocetosAsistencia vacios() {
+        return new BocetosAsistencia(this);
+    }
+
+    /**
+     * Anota una asistencia
+     */
+    public void anadir(int idCliente, int idClase, LocalDate fecha) {
+        cerrojo.writeLock().lock();
+        try {
+            anadirSinBloquear(idCliente, idClase, (int) fecha.toEpochDay());
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Anota varias asistencias con una sola toma del cerrojo (fechas en días desde la época)
+     */
+    public void anadirTodas(int[] idsCliente, int[] idsClase, int[] diasEpoca, int desde, int hasta) {
+        cerrojo.writeLock().lock();
+        try {
+            for (int i = desde; i < hasta; i++) {
+                anadirSinBloquear(idsCliente[i], idsClase[i], diasEpoca[i]);
+            }
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Clientes distintos entre dos fechas (ambas incluidas), en todas las clases
+     */
+    public long clientesDistintos(LocalDate desde, LocalDate hasta) {
+        return distintos(null, desde, hasta);
+    }
+
+    /**
+     * Clientes distintos de una clase entre dos fechas (ambas incluidas)
+     */
+    public long clientesDistintos(int idClase, LocalDate desde, LocalDate hasta) {
+        return distintos(idClase, desde, hasta);
+    }
+
+    /**
+     * Clientes distintos de una clase (o de todas con idClase null) en cada día, semana o mes
+     * del rango, por fecha de inicio del periodo. Los periodos sin asistencias no aparecen.
+     */
+    public NavigableMap<LocalDate, Long> clientesDistintosPorPeriodo(Integer idClase, Periodo periodo,
+                                                                    LocalDate desde, LocalDate hasta) {
+        validarRango(desde, hasta);
+        cerrojo.readLock().lock();
+        try {
+            Map<LocalDate, HyperLogLog> porPeriodo = new HashMap<>();
+            for (Map.Entry<Integer, Dia> entrada : rango(desde, hasta).entrySet()) {
+                HyperLogLog distintos = entrada.getValue().distintos(idClase);
+                if (distintos == null) {
+                    continue;
+                }
+                LocalDate inicio = periodo.inicio(LocalDate.ofEpochDay(entrada.getKey()));
+                HyperLogLog acumulado = porPeriodo.get(inicio);
+                if (acumulado == null) {
+                    porPeriodo.put(inicio, distintos.copia());
+                } else {
+                    acumulado.fusionar(distintos);
+                }
+            }
+            NavigableMap<LocalDate, Long> resultado = new TreeMap<>();
+            for (Map.Entry<LocalDate, HyperLogLog> entrada : porPeriodo.entrySet()) {
+                resultado.put(entrada.getKey(), entrada.getValue().estimar());
+            }
+            return resultado;
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Los k clientes más activos entre dos fechas, de más a menos
+     * Clave = id de cliente; cuenta y error según {@link ContadorFrecuentes}
+     */
+    public List<ContadorFrecuentes.Frecuente> clientesMasActivos(int k, LocalDate desde, LocalDate hasta) {
+        validarRango(desde, hasta);
+        if (k <= 0) {
+            throw new IllegalArgumentException("k debe ser mayor que 0");
+        }
+        cerrojo.readLock().lock();
+        try {
+            ContadorFrecuentes acumulado = new ContadorFrecuentes(capacidadFrecuentes);
+            for (Dia dia : rango(desde, hasta).values()) {
+                acumulado.fusionar(dia.frecuentes);
+            }
+            return acumulado.top(k);
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Asistencias estimadas de un cliente entre dos fechas (nunca menos que las reales)
+     */
+    public long asistenciasEstimadas(int idCliente, LocalDate desde, LocalDate hasta) {
+        validarRango(desde, hasta);
+        cerrojo.readLock().lock();
+        try {
+            long total = 0;
+            for (Dia dia : rango(desde, hasta).values()) {
+                total += dia.frecuencias.estimar(idCliente);
+            }
+            return total;
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Asistencias anotadas entre dos fechas (exacto)
+     */
+    public long asistencias(LocalDate desde, LocalDate hasta) {
+        validarRango(desde, hasta);
+        cerrojo.readLock().lock();
+        try {
+            long total = 0;
+            for (Dia dia : rango(desde, hasta).values()) {
+                total += dia.frecuencias.getTotal();
+            }
+            return total;
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    public int getDiasRetenidos() {
+        return diasRetenidos;
+    }
+
+    /**
+     * Memoria aproximada de los bocetos
+     */
+    public long getBytes() {
+        cerrojo.readLock().lock();
+        try {
+            long total = 0;
+            for (Dia dia : dias.values()) {
+                total += dia.getBytes();
+            }
+            return total;
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    private void anadirSinBloquear(int idCliente, int idClase, int diaEpoca) {
+        Dia dia = dias.get(diaEpoca);
+        if (dia == null) {
+            if (!dias.isEmpty() && diaEpoca <= dias.lastKey() - diasRetenidos) {
+                // Fuera de la ventana
+                return;
+            }
+            dia = new Dia();
+            dias.put(diaEpoca, dia);
+            // El día nuevo puede desplazar la ventana: se descartan los que se salen
+            dias.headMap(dias.lastKey() - diasRetenidos, true).clear();
+        }
+        dia.anadir(idCliente, idClase);
+    }
+
+    private long distintos(Integer idClase, LocalDate desde, LocalDate hasta) {
+        validarRango(desde, hasta);
+        cerrojo.readLock().lock();
+        try {
+            HyperLogLog acumulado = new HyperLogLog(precisionDistintos);
+            for (Dia dia : rango(desde, hasta).values()) {
+                HyperLogLog distintos = dia.distintos(idClase);
+                if (distintos != null) {
+                    acumulado.fusionar(distintos);
+                }
+            }
+            return acumulado.estimar();
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    private NavigableMap<Integer, Dia> rango(LocalDate desde, LocalDate hasta) {
+        return dias.subMap((int) desde.toEpochDay(), true, (int) hasta.toEpochDay(), true);
+    }
+
+    private static void validarRango(LocalDate desde, LocalDate hasta) {
+        if (desde.isAfter(hasta)) {
+            throw new IllegalArgumentException("La fecha inicial no puede ser posterior a la final");
+        }
+    }
+
+    /**
+     * Bocetos de un día
+     */
+    private final class Dia {
+        final HyperLogLog clientes = new HyperLogLog(precisionDistintos);
+        final Map<Integer, HyperLogLog> clientesPorClase = new HashMap<>();
+        final ContadorFrecuentes frecuentes = new ContadorFrecuentes(capacidadFrecuentes);
+        final CountMin frecuencias = new CountMin(epsilonFrecuencia, deltaFrecuencia);
+
+        void anadir(int idCliente, int idClase) {
+            clientes.anadir(idCliente);
+            clientesPorClase.computeIfAbsent(idClase, k -> new HyperLogLog(precisionDistintos)).anadir(idCliente);
+            frecuentes.anadir(idCliente, 1);
+            frecuencias.anadir(idCliente, 1);
+        }
+
+        /** Distintos de una clase, o de todas con null (null si la clase no tuvo asistencias) */
+        HyperLogLog distintos(Integer idClase) {
+            return idClase == null ? clientes : clientesPorClase.get(idClase);
+        }
+
+        long getBytes() {
+            // Unos 48 bytes por contador frecuente (objeto y entradas de mapa y árbol)
+            return clientes.getBytes() * (1L + clientesPorClase.size()) + frecuencias.getBytes() +
+                    48L * capacidadFrecuentes;
+        }
+    }
+}
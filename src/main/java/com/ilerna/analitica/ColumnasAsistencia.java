@@ -0,0 +1,169 @@
+package com.ilerna.analitica;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Asistencias guardadas por columnas en arrays de int: 12 bytes por fila, sin un objeto por fila
+ *
+ * - cliente y clase: código denso (0, 1, 2...) en lugar del id. Los ids salen de secuencias con
+ *   INCREMENT BY 50 y están muy dispersos; con códigos densos, los conteos por cliente o por clase
+ *   son arrays indexados por código en lugar de mapas.
+ * - fecha: día desde la época (LocalDate.toEpochDay)
+ *
+ * Un único escritor añade filas (los métodos de escritura son synchronized). Los lectores trabajan
+ * sobre una {@link Vista}: una foto inmutable que no ve las filas añadidas después y que no
+ * necesita cerrojos, porque las filas ya publicadas nunca se modifican.
+ */
+public class ColumnasAsistencia {
+
+    private int[] clientes;
+    private int[] clases;
+    private int[] fechas;
+    private int filas;
+
+    private final Diccionario diccionarioClientes = new Diccionario();
+    private final Diccionario diccionarioClases = new Diccionario();
+
+    private volatile Vista vista;
+
+    public ColumnasAsistencia() {
+        this(1024);
+    }
+
+    /**
+     * @param capacidadInicial Filas previstas (los arrays crecen si se superan)
+     */
+    public ColumnasAsistencia(int capacidadInicial) {
+        int capacidad = Math.max(16, capacidadInicial);
+        clientes = new int[capacidad];
+        clases = new int[capacidad];
+        fechas = new int[capacidad];
+        vista = publicar();
+    }
+
+    /**
+     * Añade una asistencia
+     */
+    public synchronized void anadir(int idCliente, int idClase, LocalDate fecha) {
+        anadirSinPublicar(idCliente, idClase, (int) fecha.toEpochDay());
+        vista = publicar();
+    }
+
+    /**
+     * Añade varias asistencias de una vez (columnas del mismo tamaño; fechas en días desde la época)
+     * Los lectores ven todas las filas nuevas a la vez, al terminar
+     */
+    public synchronized void anadirTodas(int[] idsCliente, int[] idsClase, int[] diasEpoca, int desde, int hasta) {
+        asegurarCapacidad(filas + (hasta - desde));
+        for (int i = desde; i < hasta; i++) {
+            anadirSinPublicar(idsCliente[i], idsClase[i], diasEpoca[i]);
+        }
+        vista = publicar();
+    }
+
+    /**
+     * Foto actual de las columnas
+     */
+    public Vista getVista() {
+        return vista;
+    }
+
+    private void anadirSinPublicar(int idCliente, int idClase, int diaEpoca) {
+        asegurarCapacidad(filas + 1);
+        clientes[filas] = diccionarioClientes.codificar(idCliente);
+        clases[filas] = diccionarioClases.codificar(idClase);
+        fechas[filas] = diaEpoca;
+        filas++;
+    }
+
+    private void asegurarCapacidad(int necesaria) {
+        if (necesaria <= clientes.length) {
+            return;
+        }
+        // Las vistas anteriores se quedan con los arrays viejos, que ya no se tocan
+        int capacidad = Math.max(necesaria, clientes.length + (clientes.length >> 1));
+        clientes = Arrays.copyOf(clientes, capacidad);
+        clases = Arrays.copyOf(clases, capacidad);
+        fechas = Arrays.copyOf(fechas, capacidad);
+    }
+
+    private Vista publicar() {
+        return new Vista(clientes, clases, fechas, filas,
+                diccionarioClientes.idPorCodigo, diccionarioClientes.size(),
+                diccionarioClases.idPorCodigo, diccionarioClases.size());
+    }
+
+    /**
+     * Foto inmutable de las columnas: solo se leen las posiciones [0, filas)
+     */
+    public static final class Vista {
+        final int[] clientes;
+        final int[] clases;
+        final int[] fechas;
+        final int filas;
+        final int[] idsCliente;
+        final int numeroClientes;
+        final int[] idsClase;
+        final int numeroClases;
+
+        Vista(int[] clientes, int[] clases, int[] fechas, int filas,
+              int[] idsCliente, int numeroClientes, int[] idsClase, int numeroClases) {
+            this.clientes = clientes;
+            this.clases = clases;
+            this.fechas = fechas;
+            this.filas = filas;
+            this.idsCliente = idsCliente;
+            this.numeroClientes = numeroClientes;
+            this.idsClase = idsClase;
+            this.numeroClases = numeroClases;
+        }
+
+        /** Número de filas */
+        public int getFilas() {
+            return filas;
+        }
+
+        /** Número de clientes distintos */
+        public int getNumeroClientes() {
+            return numeroClientes;
+        }
+
+        /** Número de clases distintas */
+        public int getNumeroClases() {
+            return numeroClases;
+        }
+
+        /** Memoria aproximada de las columnas (sin contar la capacidad libre) */
+        public long getBytesColumnas() {
+            return 12L * filas;
+        }
+    }
+
+    /**
+     * Códigos densos de ids: el código es el orden de aparición
+     * Como las columnas, idPorCodigo solo se amplía: las vistas guardan el array y cuántos códigos ven
+     */
+    private static final class Diccionario {
+        private final MapaIntInt codigoPorId = new MapaIntInt();
+        private int[] idPorCodigo = new int[16];
+
+        int codificar(int id) {
+            int codigo = codigoPorId.get(id);
+            if (codigo != MapaIntInt.AUSENTE) {
+                return codigo;
+            }
+            codigo = codigoPorId.size();
+            codigoPorId.put(id, codigo);
+            if (codigo == idPorCodigo.length) {
+                idPorCodigo = Arrays.copyOf(idPorCodigo, codigo * 2);
+            }
+            idPorCodigo[codigo] = id;
+            return codigo;
+        }
+
+        int size() {
+            return codigoPorId.size();
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.ilerna.analitica;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Claves más frecuentes de un flujo en memoria fija (algoritmo Space-Saving)
+ *
+ * Guarda como mucho capacidad contadores. Una clave nueva con todos ocupados sustituye a la de
+ * menor cuenta y hereda esa cuenta como error. Así:
+ * - la cuenta de cada clave guardada nunca es menor que la real, y la real es al menos cuenta - error
+ * - toda clave con más de total / capacidad apariciones está guardada
+ * Dos contadores se fusionan sumando cuentas; a una clave que falta en uno lleno se le suma la
+ * menor cuenta de ese como error (podría haber estado y haber sido desplazada).
+ *
+ * No es seguro entre hilos.
+ */
+public final class ContadorFrecuentes {
+
+    private static final Comparator<Contador> POR_CUENTA = Comparator
+            .comparingLong((Contador c) -> c.cuenta)
+            .thenComparingInt(c -> c.clave);
+
+    private final int capacidad;
+    private final Map<Integer, Contador> porClave;
+    private final TreeSet<Contador> porCuenta = new TreeSet<>(POR_CUENTA);
+    private long total;
+
+    /**
+     * @param capacidad Contadores máximos (garantiza las claves con más de total / capacidad apariciones)
+     */
+    public ContadorFrecuentes(int capacidad) {
+        if (capacidad <= 0) {
+            throw new IllegalArgumentException("La capacidad debe ser mayor que 0");
+        }
+        this.capacidad = capacidad;
+        this.porClave = new HashMap<>(capacidad * 4 / 3 + 1);
+    }
+
+    public void anadir(int clave, long veces) {
+        if (veces < 0) {
+            throw new IllegalArgumentException("No se pueden restar apariciones");
+        }
+        total += veces;
+        Contador contador = porClave.get(clave);
+        if (contador != null) {
+            sumar(contador, veces);
+            return;
+        }
+        if (porClave.size() < capacidad) {
+            guardar(new Contador(clave, veces, 0));
+            return;
+        }
+        // Sustituye al de menor cuenta y hereda su cuenta como posible error
+        Contador menor = porCuenta.pollFirst();
+        porClave.remove(menor.clave);
+        guardar(new Contador(clave, menor.cuenta + veces, menor.cuenta));
+    }
+
+    /**
+     * Las k claves con más cuenta, de más a menos
+     */
+    public List<Frecuente> top(int k) {
+        List<Frecuente> resultado = new ArrayList<>(Math.min(k, porCuenta.size()));
+        for (Contador contador : porCuenta.descendingSet()) {
+            if (resultado.size() == k) {
+                break;
+            }
+            resultado.add(new Frecuente(contador.clave, contador.cuenta, contador.error));
+        }
+        return resultado;
+    }
+
+    /**
+     * Añade a este contador las apariciones del otro (la capacidad se mantiene)
+     */
+    public void fusionar(ContadorFrecuentes otro) {
+        long menorEste = estaLleno() ? porCuenta.first().cuenta : 0;
+        long menorOtro = otro.estaLleno() ? otro.porCuenta.first().cuenta : 0;
+
+        Set<Integer> claves = new HashSet<>(porClave.keySet());
+        claves.addAll(otro.porClave.keySet());
+        List<Contador> unidos = new ArrayList<>(claves.size());
+        for (Integer clave : claves) {
+            Contador a = porClave.get(clave);
+            Contador b = otro.porClave.get(clave);
+            long cuenta = (a != null ? a.cuenta : menorEste) + (b != null ? b.cuenta : menorOtro);
+            long error = (a != null ? a.error : menorEste) + (b != null ? b.error : menorOtro);
+            unidos.add(new Contador(clave, cuenta, error));
+        }
+        unidos.sort(POR_CUENTA.reversed());
+
+        porClave.clear();
+        porCuenta.clear();
+        for (int i = 0; i < unidos.size() && i < capacidad; i++) {
+            guardar(unidos.get(i));
+        }
+        total += otro.total;
+    }
+
+    public ContadorFrecuentes copia() {
+        ContadorFrecuentes copia = new ContadorFrecuentes(capacidad);
+        for (Contador contador : porClave.values()) {
+            copia.guardar(new Contador(contador.clave, contador.cuenta, contador.error));
+        }
+        copia.total = total;
+        return copia;
+    }
+
+    /** Apariciones añadidas en total */
+    public long getTotal() {
+        return total;
+    }
+
+    public int getCapacidad() {
+        return capacidad;
+    }
+
+    private boolean estaLleno() {
+        return porClave.size() >= capacidad;
+    }
+
+    private void guardar(Contador contador) {
+        porClave.put(contador.clave, contador);
+        porCuenta.add(contador);
+    }
+
+    private void sumar(Contador contador, long veces) {
+        // La cuenta es parte del orden: se saca y se vuelve a meter
+        porCuenta.remove(contador);
+        contador.cuenta += veces;
+        porCuenta.add(contador);
+    }
+
+    private static final class Contador {
+        final int clave;
+        long cuenta;
+        long error;
+
+        Contador(int clave, long cuenta, long error) {
+            this.clave = clave;
+            this.cuenta = cuenta;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Clave frecuente con su cuenta estimada y el error máximo de esa cuenta
+     */
+    public static final class Frecuente {
+        private final int clave;
+        private final long cuenta;
+        private final long error;
+
+        Frecuente(int clave, long cuenta, long error) {
+            this.clave = clave;
+            this.cuenta = cuenta;
+            this.error = error;
+        }
+
+        public int getClave() {
+            return clave;
+        }
+
+        /** Cuenta estimada (nunca menor que la real) */
+        public long getCuenta() {
+            return cuenta;
+        }
+
+        /** Cuánto puede sobrar en la cuenta */
+        public long getError() {
+            return error;
+        }
+
+        /** Apariciones garantizadas */
+        public long getMinimo() {
+            return cuenta - error;
+        }
+
+        @Override
+        public String toString() {
+            return "Frecuente{" +
+                    "clave=" + clave +
+                    ", cuenta=" + cuenta +
+                    ", error=" + error +
+                    '}';
+        }
+    }
+}
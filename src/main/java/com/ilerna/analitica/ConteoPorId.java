@@ -0,0 +1,30 @@
+package com.ilerna.analitica;
+
+/**
+ * Resultado de una agregación: id de cliente o de clase y su número de asistencias
+ */
+public final class ConteoPorId {
+    private final int id;
+    private final long total;
+
+    public ConteoPorId(int id, long total) {
+        this.id = id;
+        this.total = total;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        return "ConteoPorId{" +
+                "id=" + id +
+                ", total=" + total +
+                '}';
+    }
+}
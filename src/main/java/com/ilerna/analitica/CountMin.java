@@ -0,0 +1,96 @@
+package com.ilerna.analitica;
+
+/**
+ * Frecuencia aproximada de cada clave en memoria fija (Count-Min sketch)
+ *
+ * Una tabla de filas x ancho contadores; cada clave suma en una casilla por fila y su frecuencia
+ * es el mínimo de esas casillas. Nunca se queda corta, y con probabilidad 1 - delta se pasa como
+ * mucho en epsilon * total:
+ * - ancho = e / epsilon
+ * - filas = ln(1 / delta)
+ * Dos tablas con las mismas dimensiones se fusionan sumando casilla a casilla.
+ *
+ * No es seguro entre hilos.
+ */
+public final class CountMin {
+
+    private final int ancho;
+    private final int filas;
+    private final long[] tabla;
+    private long total;
+
+    /**
+     * @param epsilon Error máximo relativo al total (p. ej. 0.001)
+     * @param delta Probabilidad de superarlo (p. ej. 0.01)
+     */
+    public CountMin(double epsilon, double delta) {
+        if (epsilon <= 0 || epsilon >= 1 || delta <= 0 || delta >= 1) {
+            throw new IllegalArgumentException("epsilon y delta deben estar entre 0 y 1");
+        }
+        this.ancho = (int) Math.ceil(Math.E / epsilon);
+        this.filas = (int) Math.ceil(Math.log(1 / delta));
+        this.tabla = new long[ancho * filas];
+    }
+
+    private CountMin(int ancho, int filas, long[] tabla, long total) {
+        this.ancho = ancho;
+        this.filas = filas;
+        this.tabla = tabla;
+        this.total = total;
+    }
+
+    public void anadir(long clave, long veces) {
+        if (veces < 0) {
+            throw new IllegalArgumentException("No se pueden restar apariciones");
+        }
+        long hash = Mezcla.mezclar(clave);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        // Una función por fila a partir de dos (Kirsch y Mitzenmacher)
+        for (int fila = 0; fila < filas; fila++) {
+            tabla[fila * ancho + Math.floorMod(h1 + fila * h2, ancho)] += veces;
+        }
+        total += veces;
+    }
+
+    /**
+     * Apariciones estimadas de la clave (nunca menos que las reales)
+     */
+    public long estimar(long clave) {
+        long hash = Mezcla.mezclar(clave);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long minimo = Long.MAX_VALUE;
+        for (int fila = 0; fila < filas; fila++) {
+            minimo = Math.min(minimo, tabla[fila * ancho + Math.floorMod(h1 + fila * h2, ancho)]);
+        }
+        return minimo;
+    }
+
+    /**
+     * Suma a esta tabla las apariciones de la otra
+     */
+    public void fusionar(CountMin otra) {
+        if (otra.ancho != ancho || otra.filas != filas) {
+            throw new IllegalArgumentException("Solo se pueden fusionar tablas con las mismas dimensiones");
+        }
+        for (int i = 0; i < tabla.length; i++) {
+            tabla[i] += otra.tabla[i];
+        }
+        total += otra.total;
+    }
+
+    public CountMin copia() {
+        return new CountMin(ancho, filas, tabla.clone(), total);
+    }
+
+    /** Apariciones añadidas en total */
+    public long getTotal() {
+        return total;
+    }
+
+    /** Memoria de la tabla */
+    public long getBytes() {
+        return 8L * tabla.length;
+    }
+}
@@ -0,0 +1,291 @@
+package com.ilerna.analitica;
+
+import com.ilerna.dto.ActividadCliente;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Actividad de cada cliente (última visita, visitas totales y visitas de los últimos 30 días)
+ * actualizada asistencia a asistencia, para detectar los que dejan de venir
+ *
+ * - Cada cliente tiene un código denso ({@link MapaIntInt}); sus datos van en arrays de primitivos
+ * - Las visitas por día de los últimos {@link #DIAS_VENTANA} días van en un anillo de short por
+ *   cliente, indexado por día módulo 30; cuando llega un día nuevo se vacían las casillas de los
+ *   días que salen de la ventana
+ * - Los clientes se agrupan por día de última visita en un TreeMap de {@link MapaBits}: "sin venir
+ *   desde X" une los grupos anteriores a X en lugar de recorrer todos los clientes
+ *
+ * Fechas en días desde la época. Un escritor y varios lectores a la vez (ReadWriteLock).
+ */
+public class IndiceActividad {
+
+    /** Días de la ventana de visitas recientes */
+    public static final int DIAS_VENTANA = 30;
+
+    private final MapaIntInt codigos;
+    private int[] ultimaVisita;
+    private long[] visitas;
+    private short[] ventana;
+    private int numeroClientes;
+
+    /** Día más reciente de la ventana (las casillas valen para los 30 días que acaban en él) */
+    private int ultimoDiaVentana = Integer.MIN_VALUE;
+
+    private final NavigableMap<Integer, MapaBits> porUltimaVisita = new TreeMap<>();
+    private final ReadWriteLock cerrojo = new ReentrantReadWriteLock();
+
+    public IndiceActividad() {
+        this(1024);
+    }
+
+    /**
+     * @param clientesPrevistos Clientes previstos (crece solo si se superan)
+     */
+    public IndiceActividad(int clientesPrevistos) {
+        int capacidad = Math.max(16, clientesPrevistos);
+        codigos = new MapaIntInt(capacidad);
+        ultimaVisita = new int[capacidad];
+        visitas = new long[capacidad];
+        ventana = new short[capacidad * DIAS_VENTANA];
+    }
+
+    /**
+     * Anota una visita: suma una al total, adelanta la última visita y entra en la ventana
+     */
+    public void registrar(int idCliente, LocalDate fecha) {
+        cerrojo.writeLock().lock();
+        try {
+            registrarSinBloquear(idCliente, (int) fecha.toEpochDay());
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Anota varias visitas con una sola toma del cerrojo (idsClase no se usa; mismas columnas
+     * que ColumnasAsistencia.anadirTodas)
+     */
+    public void registrarTodas(int[] idsCliente, int[] idsClase, int[] diasEpoca, int desde, int hasta) {
+        cerrojo.writeLock().lock();
+        try {
+            for (int i = desde; i < hasta; i++) {
+                registrarSinBloquear(idsCliente[i], diasEpoca[i]);
+            }
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Fija la última visita y el total de un cliente leídos del resumen (cliente_actividad),
+     * sin tocar la ventana
+     */
+    public void fijarResumen(int idCliente, LocalDate ultima, long totalVisitas) {
+        if (totalVisitas <= 0) {
+            throw new IllegalArgumentException("Un cliente del resumen tiene al menos una visita");
+        }
+        cerrojo.writeLock().lock();
+        try {
+            int codigo = codigo(idCliente);
+            mover(idCliente, codigo, (int) ultima.toEpochDay());
+            visitas[codigo] = totalVisitas;
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Anota visitas solo en la ventana de 30 días (el total y la última visita vienen del resumen)
+     */
+    public void anadirVentanaTodas(int[] idsCliente, int[] idsClase, int[] diasEpoca, int desde, int hasta) {
+        cerrojo.writeLock().lock();
+        try {
+            for (int i = desde; i < hasta; i++) {
+                anadirVentana(codigo(idsCliente[i]), diasEpoca[i]);
+            }
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Actividad de un cliente a fecha de hoy (null si nunca ha venido)
+     * Las visitas recientes son las de los 30 días que acaban en hoy; hoy no debería ser anterior
+     * al último día anotado, porque la ventana no guarda días más antiguos.
+     */
+    public ActividadCliente getActividad(int idCliente, LocalDate hoy) {
+        cerrojo.readLock().lock();
+        try {
+            int codigo = codigos.get(idCliente);
+            // Sin visitas: solo estaba en la ventana, todavía sin resumen
+            if (codigo == MapaIntInt.AUSENTE || visitas[codigo] == 0) {
+                return null;
+            }
+            return new ActividadCliente(idCliente, LocalDate.ofEpochDay(ultimaVisita[codigo]), visitas[codigo],
+                    visitasRecientes(codigo, (int) hoy.toEpochDay()));
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Clientes cuya última visita es anterior a la fecha (los que nunca han venido no están)
+     */
+    public MapaBits inactivosDesde(LocalDate fecha) {
+        cerrojo.readLock().lock();
+        try {
+            MapaBits resultado = new MapaBits();
+            for (MapaBits grupo : porUltimaVisita.headMap((int) fecha.toEpochDay(), false).values()) {
+                resultado.anadirTodos(grupo);
+            }
+            return resultado;
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Número de clientes cuya última visita es anterior a la fecha
+     */
+    public long contarInactivosDesde(LocalDate fecha) {
+        cerrojo.readLock().lock();
+        try {
+            long total = 0;
+            for (MapaBits grupo : porUltimaVisita.headMap((int) fecha.toEpochDay(), false).values()) {
+                total += grupo.cardinalidad();
+            }
+            return total;
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Clientes con código en el índice
+     */
+    public int getNumeroClientes() {
+        cerrojo.readLock().lock();
+        try {
+            return numeroClientes;
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Memoria aproximada del índice (arrays, mapa de códigos y grupos por última visita)
+     */
+    public long getBytes() {
+        cerrojo.readLock().lock();
+        try {
+            long bytes = 4L * ultimaVisita.length + 8L * visitas.length + 2L * ventana.length +
+                    // Mapa de códigos: dos int por casilla con factor de carga 0,5
+                    16L * numeroClientes;
+            for (MapaBits grupo : porUltimaVisita.values()) {
+                bytes += grupo.getBytes();
+            }
+            return bytes;
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    private void registrarSinBloquear(int idCliente, int dia) {
+        int codigo = codigo(idCliente);
+        if (visitas[codigo] == 0 || dia > ultimaVisita[codigo]) {
+            mover(idCliente, codigo, dia);
+        }
+        visitas[codigo]++;
+        anadirVentana(codigo, dia);
+    }
+
+    /**
+     * Código denso del cliente (lo crea si es nuevo, sin visitas)
+     */
+    private int codigo(int idCliente) {
+        int codigo = codigos.get(idCliente);
+        if (codigo != MapaIntInt.AUSENTE) {
+            return codigo;
+        }
+        if (numeroClientes == visitas.length) {
+            int capacidad = visitas.length * 2;
+            ultimaVisita = Arrays.copyOf(ultimaVisita, capacidad);
+            visitas = Arrays.copyOf(visitas, capacidad);
+            ventana = Arrays.copyOf(ventana, capacidad * DIAS_VENTANA);
+        }
+        codigo = numeroClientes++;
+        codigos.put(idCliente, codigo);
+        return codigo;
+    }
+
+    /**
+     * Cambia la última visita del cliente y lo pasa al grupo de ese día
+     */
+    private void mover(int idCliente, int codigo, int dia) {
+        if (visitas[codigo] > 0) {
+            int anterior = ultimaVisita[codigo];
+            if (anterior == dia) {
+                return;
+            }
+            MapaBits grupo = porUltimaVisita.get(anterior);
+            grupo.quitar(idCliente);
+            if (grupo.isEmpty()) {
+                porUltimaVisita.remove(anterior);
+            }
+        }
+        ultimaVisita[codigo] = dia;
+        porUltimaVisita.computeIfAbsent(dia, k -> new MapaBits()).anadir(idCliente);
+    }
+
+    private void anadirVentana(int codigo, int dia) {
+        if (dia > ultimoDiaVentana) {
+            avanzarVentana(dia);
+        } else if (dia <= ultimoDiaVentana - DIAS_VENTANA) {
+            // Demasiado antigua para la ventana
+            return;
+        }
+        int casilla = codigo * DIAS_VENTANA + Math.floorMod(dia, DIAS_VENTANA);
+        if (ventana[casilla] < Short.MAX_VALUE) {
+            ventana[casilla]++;
+        }
+    }
+
+    /**
+     * Vacía, para todos los clientes, las casillas de los días que entran nuevos en la ventana
+     * (son las de los días que salen). Pasa como mucho una vez al día.
+     */
+    private void avanzarVentana(int dia) {
+        if (ultimoDiaVentana != Integer.MIN_VALUE) {
+            int dias = (int) Math.min(DIAS_VENTANA, (long) dia - ultimoDiaVentana);
+            for (int d = 1; d <= dias; d++) {
+                int posicion = Math.floorMod(ultimoDiaVentana + d, DIAS_VENTANA);
+                for (int codigo = 0; codigo < numeroClientes; codigo++) {
+                    ventana[codigo * DIAS_VENTANA + posicion] = 0;
+                }
+            }
+        }
+        ultimoDiaVentana = dia;
+    }
+
+    /**
+     * Visitas en los 30 días que acaban en hoy, contando solo los que siguen en la ventana
+     */
+    private int visitasRecientes(int codigo, int hoy) {
+        if (ultimoDiaVentana == Integer.MIN_VALUE) {
+            return 0;
+        }
+        // Los días posteriores al último anotado no tienen visitas
+        int hasta = Math.min(hoy, ultimoDiaVentana);
+        int desde = Math.max(hoy, ultimoDiaVentana) - DIAS_VENTANA + 1;
+        int total = 0;
+        for (int d = desde; d <= hasta; d++) {
+            total += ventana[codigo * DIAS_VENTANA + Math.floorMod(d, DIAS_VENTANA)];
+        }
+        return total;
+    }
+}
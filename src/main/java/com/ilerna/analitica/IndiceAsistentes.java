@@ -0,0 +1,314 @@
+package com.ilerna.analitica;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice de asistentes: para cada clase y día, el conjunto de clientes que asistieron ({@link MapaBits})
+ *
+ * Responde en memoria preguntas de conjuntos entre clases y rangos de fechas:
+ * - asistentesDeTodas: fueron a todas las clases (Yoga y Crossfit este mes)
+ * - asistentesDeAlguna: fueron a alguna
+ * - asistentesSinIr: fueron a unas pero nunca a otras (Pilates y no Cardio)
+ * Los conjuntos devueltos son copias: se pueden seguir combinando con y / o / menos.
+ *
+ * Añadir una asistencia que ya está no cambia nada, así que reaplicar un tramo de asistencia
+ * (p. ej. al ponerse al día tras cargar el archivo) es seguro. Como asistencia no admite dos
+ * filas del mismo cliente, clase y día (migración 008), quitar() deshace un borrado sin dudas.
+ *
+ * El archivo guarda además el último id de asistencia que había leído quien llenó el índice,
+ * para leer solo lo posterior al volver a arrancar.
+ *
+ * Varios lectores a la vez; las escrituras son exclusivas (ReadWriteLock).
+ */
+public class IndiceAsistentes {
+
+    // "IAS3": identifica el archivo y su versión (la 3 guarda el último id leído)
+    private static final int CABECERA = 0x49415333;
+
+    private final Map<Integer, NavigableMap<Integer, MapaBits>> porClase = new HashMap<>();
+    private final ReadWriteLock cerrojo = new ReentrantReadWriteLock();
+    private int ultimoDia = Integer.MIN_VALUE;
+    private volatile long ultimoId;
+
+    /**
+     * Anota que el cliente asistió a la clase ese día
+     */
+    public void anadir(int idCliente, int idClase, LocalDate fecha) {
+        cerrojo.writeLock().lock();
+        try {
+            anadirSinBloquear(idCliente, idClase, (int) fecha.toEpochDay());
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Anota varias asistencias con una sola toma del cerrojo (fechas en días desde la época)
+     */
+    public void anadirTodas(int[] idsCliente, int[] idsClase, int[] diasEpoca, int desde, int hasta) {
+        cerrojo.writeLock().lock();
+        try {
+            for (int i = desde; i < hasta; i++) {
+                anadirSinBloquear(idsCliente[i], idsClase[i], diasEpoca[i]);
+            }
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Quita la asistencia del cliente a la clase ese día
+     * @return true si estaba
+     */
+    public boolean quitar(int idCliente, int idClase, LocalDate fecha) {
+        int dia = (int) fecha.toEpochDay();
+        cerrojo.writeLock().lock();
+        try {
+            NavigableMap<Integer, MapaBits> dias = porClase.get(idClase);
+            MapaBits asistentes = dias != null ? dias.get(dia) : null;
+            if (asistentes == null || !asistentes.quitar(idCliente)) {
+                return false;
+            }
+            if (asistentes.isEmpty()) {
+                dias.remove(dia);
+                if (dias.isEmpty()) {
+                    porClase.remove(idClase);
+                }
+            }
+            return true;
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Clientes que asistieron a la clase entre dos fechas (ambas incluidas)
+     */
+    public MapaBits asistentes(int idClase, LocalDate desde, LocalDate hasta) {
+        validarRango(desde, hasta);
+        cerrojo.readLock().lock();
+        try {
+            return unionDeClase(idClase, desde, hasta);
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Clientes que asistieron a alguna de las clases entre dos fechas
+     */
+    public MapaBits asistentesDeAlguna(Collection<Integer> idsClase, LocalDate desde, LocalDate hasta) {
+        validarRango(desde, hasta);
+        cerrojo.readLock().lock();
+        try {
+            return unionDeClases(idsClase, desde, hasta);
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Clientes que asistieron a todas las clases entre dos fechas (no necesariamente el mismo día)
+     */
+    public MapaBits asistentesDeTodas(Collection<Integer> idsClase, LocalDate desde, LocalDate hasta) {
+        validarRango(desde, hasta);
+        if (idsClase.isEmpty()) {
+            throw new IllegalArgumentException("Hay que indicar al menos una clase");
+        }
+        cerrojo.readLock().lock();
+        try {
+            MapaBits resultado = null;
+            for (Integer idClase : idsClase) {
+                MapaBits asistentes = unionDeClase(idClase, desde, hasta);
+                resultado = resultado == null ? asistentes : resultado.y(asistentes);
+                if (resultado.isEmpty()) {
+                    break;
+                }
+            }
+            return resultado;
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Clientes que asistieron a alguna de las clases incluidas y a ninguna de las excluidas
+     */
+    public MapaBits asistentesSinIr(Collection<Integer> incluidas, Collection<Integer> excluidas,
+                                    LocalDate desde, LocalDate hasta) {
+        validarRango(desde, hasta);
+        cerrojo.readLock().lock();
+        try {
+            return unionDeClases(incluidas, desde, hasta).menos(unionDeClases(excluidas, desde, hasta));
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Día más reciente con alguna asistencia (null si el índice está vacío)
+     * No retrocede al quitar asistencias.
+     */
+    public LocalDate getUltimoDia() {
+        cerrojo.readLock().lock();
+        try {
+            return ultimoDia == Integer.MIN_VALUE ? null : LocalDate.ofEpochDay(ultimoDia);
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Último id de asistencia leído de la base de datos; se guarda y se carga con el archivo
+     */
+    public long getUltimoId() {
+        return ultimoId;
+    }
+
+    public void setUltimoId(long ultimoId) {
+        this.ultimoId = ultimoId;
+    }
+
+    /**
+     * Número de conjuntos (clase, día)
+     */
+    public int getNumeroConjuntos() {
+        cerrojo.readLock().lock();
+        try {
+            int total = 0;
+            for (NavigableMap<Integer, MapaBits> dias : porClase.values()) {
+                total += dias.size();
+            }
+            return total;
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Memoria aproximada de los conjuntos
+     */
+    public long getBytes() {
+        cerrojo.readLock().lock();
+        try {
+            long total = 0;
+            for (NavigableMap<Integer, MapaBits> dias : porClase.values()) {
+                for (MapaBits asistentes : dias.values()) {
+                    total += 8 + asistentes.getBytes();
+                }
+            }
+            return total;
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Guarda el índice en un archivo
+     * Se escribe en un temporal y se renombra: si falla a medias, el archivo anterior sigue intacto
+     */
+    public void guardar(Path archivo) throws IOException {
+        Path temporal = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+        cerrojo.readLock().lock();
+        try (DataOutputStream salida = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporal)))) {
+            salida.writeInt(CABECERA);
+            salida.writeLong(ultimoId);
+            salida.writeInt(ultimoDia);
+            salida.writeInt(porClase.size());
+            for (Map.Entry<Integer, NavigableMap<Integer, MapaBits>> clase : porClase.entrySet()) {
+                salida.writeInt(clase.getKey());
+                salida.writeInt(clase.getValue().size());
+                for (Map.Entry<Integer, MapaBits> dia : clase.getValue().entrySet()) {
+                    salida.writeInt(dia.getKey());
+                    dia.getValue().escribir(salida);
+                }
+            }
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+        Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Lee un índice guardado con {@link #guardar(Path)}
+     * @throws IOException Si no se puede leer o no es un archivo de índice válido
+     */
+    public static IndiceAsistentes cargar(Path archivo) throws IOException {
+        IndiceAsistentes indice = new IndiceAsistentes();
+        try (DataInputStream entrada = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(archivo)))) {
+            if (entrada.readInt() != CABECERA) {
+                throw new IOException("El archivo " + archivo + " no es un índice de asistentes de esta versión");
+            }
+            indice.ultimoId = entrada.readLong();
+            indice.ultimoDia = entrada.readInt();
+            int clases = entrada.readInt();
+            for (int c = 0; c < clases; c++) {
+                int idClase = entrada.readInt();
+                int dias = entrada.readInt();
+                NavigableMap<Integer, MapaBits> porDia = new TreeMap<>();
+                for (int d = 0; d < dias; d++) {
+                    int dia = entrada.readInt();
+                    porDia.put(dia, MapaBits.leer(entrada));
+                }
+                indice.porClase.put(idClase, porDia);
+            }
+        }
+        return indice;
+    }
+
+    private void anadirSinBloquear(int idCliente, int idClase, int dia) {
+        porClase.computeIfAbsent(idClase, k -> new TreeMap<>())
+                .computeIfAbsent(dia, k -> new MapaBits())
+                .anadir(idCliente);
+        if (dia > ultimoDia) {
+            ultimoDia = dia;
+        }
+    }
+
+    private MapaBits unionDeClases(Collection<Integer> idsClase, LocalDate desde, LocalDate hasta) {
+        MapaBits resultado = new MapaBits();
+        for (Integer idClase : idsClase) {
+            anadirDias(resultado, idClase, desde, hasta);
+        }
+        return resultado;
+    }
+
+    private MapaBits unionDeClase(int idClase, LocalDate desde, LocalDate hasta) {
+        MapaBits resultado = new MapaBits();
+        anadirDias(resultado, idClase, desde, hasta);
+        return resultado;
+    }
+
+    private void anadirDias(MapaBits resultado, int idClase, LocalDate desde, LocalDate hasta) {
+        NavigableMap<Integer, MapaBits> dias = porClase.get(idClase);
+        if (dias == null) {
+            return;
+        }
+        for (MapaBits asistentes : dias.subMap((int) desde.toEpochDay(), true, (int) hasta.toEpochDay(), true).values()) {
+            resultado.anadirTodos(asistentes);
+        }
+    }
+
+    private static void validarRango(LocalDate desde, LocalDate hasta) {
+        if (desde.isAfter(hasta)) {
+            throw new IllegalArgumentException("La fecha inicial no puede ser posterior a la final");
+        }
+    }
+}
@@ -0,0 +1,653 @@
+package com.ilerna.analitica;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Conjunto de ints comprimido al estilo de los roaring bitmaps
+ *
+ * Los valores se agrupan por sus 16 bits altos. Cada grupo guarda los 16 bits bajos en:
+ * - un array ordenado de char si tiene pocos valores (hasta 4096: 2 bytes por valor)
+ * - un mapa de 65536 bits (8 KB) si tiene más
+ * Así un conjunto disperso ocupa poco y uno denso se opera palabra a palabra.
+ *
+ * Las operaciones y / o / menos devuelven un conjunto nuevo y no modifican los operandos.
+ * No es seguro entre hilos. Los valores se ordenan como enteros sin signo (los ids son positivos).
+ */
+public final class MapaBits {
+
+    /** Valores por grupo a partir de los cuales compensa el mapa de bits */
+    static final int MAX_ARRAY = 4096;
+
+    private int[] claves;
+    private Contenedor[] contenedores;
+    private int tamano;
+
+    public MapaBits() {
+        this(4);
+    }
+
+    private MapaBits(int capacidad) {
+        claves = new int[capacidad];
+        contenedores = new Contenedor[capacidad];
+    }
+
+    /**
+     * Conjunto con los valores indicados
+     */
+    public static MapaBits de(int... valores) {
+        MapaBits mapa = new MapaBits();
+        for (int valor : valores) {
+            mapa.anadir(valor);
+        }
+        return mapa;
+    }
+
+    /**
+     * Añade un valor
+     * @return true si no estaba
+     */
+    public boolean anadir(int valor) {
+        int alta = valor >>> 16;
+        int baja = valor & 0xFFFF;
+        int i = buscar(alta);
+        if (i >= 0) {
+            Contenedor c = contenedores[i];
+            if (c.contiene(baja)) {
+                return false;
+            }
+            contenedores[i] = c.anadir(baja);
+            return true;
+        }
+        insertar(-i - 1, alta, new ContenedorArray(new char[] {(char) baja}, 1));
+        return true;
+    }
+
+    /**
+     * Quita un valor
+     * @return true si estaba
+     */
+    public boolean quitar(int valor) {
+        int baja = valor & 0xFFFF;
+        int i = buscar(valor >>> 16);
+        if (i < 0 || !contenedores[i].contiene(baja)) {
+            return false;
+        }
+        Contenedor resto = contenedores[i].quitar(baja);
+        if (resto != null) {
+            contenedores[i] = resto;
+        } else {
+            System.arraycopy(claves, i + 1, claves, i, tamano - i - 1);
+            System.arraycopy(contenedores, i + 1, contenedores, i, tamano - i - 1);
+            contenedores[--tamano] = null;
+        }
+        return true;
+    }
+
+    public boolean contiene(int valor) {
+        int i = buscar(valor >>> 16);
+        return i >= 0 && contenedores[i].contiene(valor & 0xFFFF);
+    }
+
+    /**
+     * Número de valores
+     */
+    public long cardinalidad() {
+        long total = 0;
+        for (int i = 0; i < tamano; i++) {
+            total += contenedores[i].cardinalidad();
+        }
+        return total;
+    }
+
+    public boolean isEmpty() {
+        return tamano == 0;
+    }
+
+    /**
+     * Intersección: valores que están en los dos
+     */
+    public MapaBits y(MapaBits otro) {
+        MapaBits resultado = new MapaBits(Math.max(1, Math.min(tamano, otro.tamano)));
+        int i = 0;
+        int j = 0;
+        while (i < tamano && j < otro.tamano) {
+            if (claves[i] < otro.claves[j]) {
+                i++;
+            } else if (claves[i] > otro.claves[j]) {
+                j++;
+            } else {
+                resultado.anadirAlFinal(claves[i], contenedores[i].y(otro.contenedores[j]));
+                i++;
+                j++;
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Unión: valores que están en alguno de los dos
+     */
+    public MapaBits o(MapaBits otro) {
+        MapaBits resultado = copia();
+        resultado.anadirTodos(otro);
+        return resultado;
+    }
+
+    /**
+     * Diferencia: valores de este que no están en el otro
+     */
+    public MapaBits menos(MapaBits otro) {
+        MapaBits resultado = new MapaBits(Math.max(1, tamano));
+        int j = 0;
+        for (int i = 0; i < tamano; i++) {
+            while (j < otro.tamano && otro.claves[j] < claves[i]) {
+                j++;
+            }
+            if (j < otro.tamano && otro.claves[j] == claves[i]) {
+                resultado.anadirAlFinal(claves[i], contenedores[i].menos(otro.contenedores[j]));
+            } else {
+                resultado.anadirAlFinal(claves[i], contenedores[i].copia());
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Añade a este conjunto todos los valores del otro (unión sin crear un conjunto nuevo)
+     */
+    public void anadirTodos(MapaBits otro) {
+        for (int j = 0; j < otro.tamano; j++) {
+            int i = buscar(otro.claves[j]);
+            if (i >= 0) {
+                contenedores[i] = contenedores[i].o(otro.contenedores[j]);
+            } else {
+                insertar(-i - 1, otro.claves[j], otro.contenedores[j].copia());
+            }
+        }
+    }
+
+    /**
+     * Recorre los valores en orden
+     */
+    public void paraCada(IntConsumer accion) {
+        for (int i = 0; i < tamano; i++) {
+            contenedores[i].paraCada(claves[i] << 16, accion);
+        }
+    }
+
+    /**
+     * Valores en orden
+     */
+    public int[] toArray() {
+        int[] valores = new int[(int) cardinalidad()];
+        int[] n = new int[1];
+        paraCada(v -> valores[n[0]++] = v);
+        return valores;
+    }
+
+    /**
+     * Copia independiente
+     */
+    public MapaBits copia() {
+        MapaBits copia = new MapaBits(Math.max(1, tamano));
+        for (int i = 0; i < tamano; i++) {
+            copia.claves[i] = claves[i];
+            copia.contenedores[i] = contenedores[i].copia();
+        }
+        copia.tamano = tamano;
+        return copia;
+    }
+
+    /**
+     * Memoria aproximada de los valores (sin cabeceras de objetos)
+     */
+    public long getBytes() {
+        long bytes = 0;
+        for (int i = 0; i < tamano; i++) {
+            bytes += 4 + contenedores[i].bytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Escribe el conjunto en formato binario (lo lee {@link #leer(DataInput)})
+     */
+    public void escribir(DataOutput salida) throws IOException {
+        salida.writeInt(tamano);
+        for (int i = 0; i < tamano; i++) {
+            salida.writeChar(claves[i]);
+            contenedores[i].escribir(salida);
+        }
+    }
+
+    /**
+     * Lee un conjunto escrito con {@link #escribir(DataOutput)}
+     */
+    public static MapaBits leer(DataInput entrada) throws IOException {
+        int tamano = entrada.readInt();
+        if (tamano < 0 || tamano > 65536) {
+            throw new IOException("Número de grupos no válido: " + tamano);
+        }
+        MapaBits mapa = new MapaBits(Math.max(1, tamano));
+        for (int i = 0; i < tamano; i++) {
+            int alta = entrada.readChar();
+            if (i > 0 && alta <= mapa.claves[i - 1]) {
+                throw new IOException("Grupos desordenados en el archivo");
+            }
+            mapa.claves[i] = alta;
+            mapa.contenedores[i] = Contenedor.leer(entrada);
+        }
+        mapa.tamano = tamano;
+        return mapa;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MapaBits)) {
+            return false;
+        }
+        MapaBits otro = (MapaBits) o;
+        return cardinalidad() == otro.cardinalidad() && y(otro).cardinalidad() == cardinalidad();
+    }
+
+    @Override
+    public int hashCode() {
+        int[] h = {1};
+        paraCada(v -> h[0] = 31 * h[0] + v);
+        return h[0];
+    }
+
+    @Override
+    public String toString() {
+        return "MapaBits{cardinalidad=" + cardinalidad() + ", grupos=" + tamano + '}';
+    }
+
+    private int buscar(int alta) {
+        return Arrays.binarySearch(claves, 0, tamano, alta);
+    }
+
+    private void insertar(int posicion, int alta, Contenedor contenedor) {
+        if (tamano == claves.length) {
+            claves = Arrays.copyOf(claves, tamano * 2);
+            contenedores = Arrays.copyOf(contenedores, tamano * 2);
+        }
+        System.arraycopy(claves, posicion, claves, posicion + 1, tamano - posicion);
+        System.arraycopy(contenedores, posicion, contenedores, posicion + 1, tamano - posicion);
+        claves[posicion] = alta;
+        contenedores[posicion] = contenedor;
+        tamano++;
+    }
+
+    /**
+     * Añade un grupo mayor que todos los actuales (se ignora si quedó vacío)
+     */
+    private void anadirAlFinal(int alta, Contenedor contenedor) {
+        if (contenedor != null) {
+            insertar(tamano, alta, contenedor);
+        }
+    }
+
+    /**
+     * Valores de un grupo (16 bits bajos)
+     * Las operaciones devuelven null cuando el resultado queda vacío
+     */
+    private abstract static class Contenedor {
+        static final byte TIPO_ARRAY = 0;
+        static final byte TIPO_BITS = 1;
+
+        abstract boolean contiene(int baja);
+
+        /** Añade un valor que no está; puede devolver un contenedor de otro tipo */
+        abstract Contenedor anadir(int baja);
+
+        /** Quita un valor que está; puede devolver un contenedor de otro tipo, o null si queda vacío */
+        abstract Contenedor quitar(int baja);
+
+        abstract int cardinalidad();
+
+        abstract Contenedor y(Contenedor otro);
+
+        abstract Contenedor o(Contenedor otro);
+
+        abstract Contenedor menos(Contenedor otro);
+
+        abstract Contenedor copia();
+
+        abstract void paraCada(int base, IntConsumer accion);
+
+        abstract long bytes();
+
+        abstract void escribir(DataOutput salida) throws IOException;
+
+        static Contenedor leer(DataInput entrada) throws IOException {
+            byte tipo = entrada.readByte();
+            if (tipo == TIPO_ARRAY) {
+                int n = entrada.readChar();
+                if (n == 0 || n > MAX_ARRAY) {
+                    throw new IOException("Tamaño de grupo no válido: " + n);
+                }
+                char[] valores = new char[n];
+                for (int i = 0; i < n; i++) {
+                    valores[i] = entrada.readChar();
+                    if (i > 0 && valores[i] <= valores[i - 1]) {
+                        throw new IOException("Valores desordenados en el archivo");
+                    }
+                }
+                return new ContenedorArray(valores, n);
+            }
+            if (tipo == TIPO_BITS) {
+                long[] palabras = new long[ContenedorBits.PALABRAS];
+                for (int i = 0; i < palabras.length; i++) {
+                    palabras[i] = entrada.readLong();
+                }
+                Contenedor bits = new ContenedorBits(palabras).normalizar();
+                if (bits == null) {
+                    throw new IOException("Grupo vacío en el archivo");
+                }
+                return bits;
+            }
+            throw new IOException("Tipo de grupo desconocido: " + tipo);
+        }
+    }
+
+    /**
+     * Grupo con pocos valores: array ordenado de los 16 bits bajos
+     */
+    private static final class ContenedorArray extends Contenedor {
+        private char[] valores;
+        private int n;
+
+        ContenedorArray(char[] valores, int n) {
+            this.valores = valores;
+            this.n = n;
+        }
+
+        @Override
+        boolean contiene(int baja) {
+            return Arrays.binarySearch(valores, 0, n, (char) baja) >= 0;
+        }
+
+        @Override
+        Contenedor anadir(int baja) {
+            if (n == MAX_ARRAY) {
+                return aBits().anadir(baja);
+            }
+            int posicion = -Arrays.binarySearch(valores, 0, n, (char) baja) - 1;
+            if (n == valores.length) {
+                valores = Arrays.copyOf(valores, Math.min(MAX_ARRAY, n * 2));
+            }
+            System.arraycopy(valores, posicion, valores, posicion + 1, n - posicion);
+            valores[posicion] = (char) baja;
+            n++;
+            return this;
+        }
+
+        @Override
+        Contenedor quitar(int baja) {
+            int posicion = Arrays.binarySearch(valores, 0, n, (char) baja);
+            System.arraycopy(valores, posicion + 1, valores, posicion, n - posicion - 1);
+            n--;
+            return n == 0 ? null : this;
+        }
+
+        @Override
+        int cardinalidad() {
+            return n;
+        }
+
+        @Override
+        Contenedor y(Contenedor otro) {
+            char[] resultado = new char[n];
+            int k = 0;
+            if (otro instanceof ContenedorArray) {
+                ContenedorArray a = (ContenedorArray) otro;
+                int i = 0;
+                int j = 0;
+                while (i < n && j < a.n) {
+                    if (valores[i] < a.valores[j]) {
+                        i++;
+                    } else if (valores[i] > a.valores[j]) {
+                        j++;
+                    } else {
+                        resultado[k++] = valores[i];
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < n; i++) {
+                    if (otro.contiene(valores[i])) {
+                        resultado[k++] = valores[i];
+                    }
+                }
+            }
+            return k == 0 ? null : new ContenedorArray(resultado, k);
+        }
+
+        @Override
+        Contenedor o(Contenedor otro) {
+            if (!(otro instanceof ContenedorArray)) {
+                return otro.o(this);
+            }
+            ContenedorArray a = (ContenedorArray) otro;
+            char[] resultado = new char[n + a.n];
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            while (i < n && j < a.n) {
+                if (valores[i] < a.valores[j]) {
+                    resultado[k++] = valores[i++];
+                } else if (valores[i] > a.valores[j]) {
+                    resultado[k++] = a.valores[j++];
+                } else {
+                    resultado[k++] = valores[i++];
+                    j++;
+                }
+            }
+            while (i < n) {
+                resultado[k++] = valores[i++];
+            }
+            while (j < a.n) {
+                resultado[k++] = a.valores[j++];
+            }
+            ContenedorArray union = new ContenedorArray(resultado, k);
+            return k > MAX_ARRAY ? union.aBits() : union;
+        }
+
+        @Override
+        Contenedor menos(Contenedor otro) {
+            char[] resultado = new char[n];
+            int k = 0;
+            for (int i = 0; i < n; i++) {
+                if (!otro.contiene(valores[i])) {
+                    resultado[k++] = valores[i];
+                }
+            }
+            return k == 0 ? null : new ContenedorArray(resultado, k);
+        }
+
+        @Override
+        Contenedor copia() {
+            return new ContenedorArray(Arrays.copyOf(valores, n), n);
+        }
+
+        @Override
+        void paraCada(int base, IntConsumer accion) {
+            for (int i = 0; i < n; i++) {
+                accion.accept(base | valores[i]);
+            }
+        }
+
+        @Override
+        long bytes() {
+            return 2L * n;
+        }
+
+        @Override
+        void escribir(DataOutput salida) throws IOException {
+            salida.writeByte(Contenedor.TIPO_ARRAY);
+            salida.writeChar(n);
+            for (int i = 0; i < n; i++) {
+                salida.writeChar(valores[i]);
+            }
+        }
+
+        ContenedorBits aBits() {
+            long[] palabras = new long[ContenedorBits.PALABRAS];
+            for (int i = 0; i < n; i++) {
+                palabras[valores[i] >>> 6] |= 1L << valores[i];
+            }
+            return new ContenedorBits(palabras, n);
+        }
+    }
+
+    /**
+     * Grupo con muchos valores: 65536 bits
+     */
+    private static final class ContenedorBits extends Contenedor {
+        static final int PALABRAS = 1024;
+
+        private final long[] palabras;
+        private int cardinalidad;
+
+        ContenedorBits(long[] palabras) {
+            this(palabras, contar(palabras));
+        }
+
+        ContenedorBits(long[] palabras, int cardinalidad) {
+            this.palabras = palabras;
+            this.cardinalidad = cardinalidad;
+        }
+
+        @Override
+        boolean contiene(int baja) {
+            return (palabras[baja >>> 6] & (1L << baja)) != 0;
+        }
+
+        @Override
+        Contenedor anadir(int baja) {
+            palabras[baja >>> 6] |= 1L << baja;
+            cardinalidad++;
+            return this;
+        }
+
+        @Override
+        Contenedor quitar(int baja) {
+            palabras[baja >>> 6] &= ~(1L << baja);
+            cardinalidad--;
+            return normalizar();
+        }
+
+        @Override
+        int cardinalidad() {
+            return cardinalidad;
+        }
+
+        @Override
+        Contenedor y(Contenedor otro) {
+            if (otro instanceof ContenedorArray) {
+                return otro.y(this);
+            }
+            long[] b = ((ContenedorBits) otro).palabras;
+            long[] resultado = new long[PALABRAS];
+            for (int i = 0; i < PALABRAS; i++) {
+                resultado[i] = palabras[i] & b[i];
+            }
+            return new ContenedorBits(resultado).normalizar();
+        }
+
+        @Override
+        Contenedor o(Contenedor otro) {
+            long[] resultado = palabras.clone();
+            if (otro instanceof ContenedorArray) {
+                ContenedorArray a = (ContenedorArray) otro;
+                for (int i = 0; i < a.n; i++) {
+                    resultado[a.valores[i] >>> 6] |= 1L << a.valores[i];
+                }
+            } else {
+                long[] b = ((ContenedorBits) otro).palabras;
+                for (int i = 0; i < PALABRAS; i++) {
+                    resultado[i] |= b[i];
+                }
+            }
+            return new ContenedorBits(resultado);
+        }
+
+        @Override
+        Contenedor menos(Contenedor otro) {
+            long[] resultado = palabras.clone();
+            if (otro instanceof ContenedorArray) {
+                ContenedorArray a = (ContenedorArray) otro;
+                for (int i = 0; i < a.n; i++) {
+                    resultado[a.valores[i] >>> 6] &= ~(1L << a.valores[i]);
+                }
+            } else {
+                long[] b = ((ContenedorBits) otro).palabras;
+                for (int i = 0; i < PALABRAS; i++) {
+                    resultado[i] &= ~b[i];
+                }
+            }
+            return new ContenedorBits(resultado).normalizar();
+        }
+
+        @Override
+        Contenedor copia() {
+            return new ContenedorBits(palabras.clone(), cardinalidad);
+        }
+
+        @Override
+        void paraCada(int base, IntConsumer accion) {
+            for (int i = 0; i < PALABRAS; i++) {
+                long palabra = palabras[i];
+                while (palabra != 0) {
+                    accion.accept(base | (i << 6) | Long.numberOfTrailingZeros(palabra));
+                    palabra &= palabra - 1;
+                }
+            }
+        }
+
+        @Override
+        long bytes() {
+            return 8L * PALABRAS;
+        }
+
+        @Override
+        void escribir(DataOutput salida) throws IOException {
+            salida.writeByte(Contenedor.TIPO_BITS);
+            for (long palabra : palabras) {
+                salida.writeLong(palabra);
+            }
+        }
+
+        /**
+         * Vuelve a array si ya tiene pocos valores (null si no tiene ninguno)
+         */
+        Contenedor normalizar() {
+            if (cardinalidad == 0) {
+                return null;
+            }
+            if (cardinalidad > MAX_ARRAY) {
+                return this;
+            }
+            char[] valores = new char[cardinalidad];
+            int[] k = {0};
+            paraCada(0, v -> valores[k[0]++] = (char) v);
+            return new ContenedorArray(valores, cardinalidad);
+        }
+
+        private static int contar(long[] palabras) {
+            int total = 0;
+            for (long palabra : palabras) {
+                total += Long.bitCount(palabra);
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.ilerna.analitica;
+
+import java.util.Arrays;
+
+/**
+ * Mapa de int a int con direccionamiento abierto, sin objetos por entrada
+ * (un HashMap&lt;Integer, Integer&gt; ocupa unos 50 bytes por entrada; este, 8 más el hueco libre)
+ *
+ * No es seguro entre hilos: se usa desde un único escritor o se copia antes de compartirlo.
+ */
+public final class MapaIntInt {
+
+    /** Valor que devuelve get() para una clave que no está */
+    public static final int AUSENTE = Integer.MIN_VALUE;
+
+    private static final int LIBRE = Integer.MIN_VALUE;
+
+    /**
+     * Acción sobre cada entrada (sin encajar clave y valor en objetos)
+     */
+    @FunctionalInterface
+    public interface AccionEntrada {
+        void aplicar(int clave, int valor);
+    }
+
+    private int[] claves;
+    private int[] valores;
+    private int tamano;
+    private boolean tieneClaveLibre;
+    private int valorClaveLibre;
+
+    public MapaIntInt() {
+        this(16);
+    }
+
+    /**
+     * @param capacidadInicial Entradas previstas (crece solo si se superan)
+     */
+    public MapaIntInt(int capacidadInicial) {
+        int capacidad = Integer.highestOneBit(Math.max(4, capacidadInicial * 2 - 1)) << 1;
+        claves = new int[capacidad];
+        valores = new int[capacidad];
+        Arrays.fill(claves, LIBRE);
+    }
+
+    /**
+     * Valor de la clave, o {@link #AUSENTE} si no está
+     */
+    public int get(int clave) {
+        if (clave == LIBRE) {
+            return tieneClaveLibre ? valorClaveLibre : AUSENTE;
+        }
+        int mascara = claves.length - 1;
+        for (int i = mezclar(clave) & mascara; ; i = (i + 1) & mascara) {
+            int actual = claves[i];
+            if (actual == clave) {
+                return valores[i];
+            }
+            if (actual == LIBRE) {
+                return AUSENTE;
+            }
+        }
+    }
+
+    /**
+     * Guarda el valor de la clave (sustituye el anterior si lo había)
+     */
+    public void put(int clave, int valor) {
+        if (clave == LIBRE) {
+            if (!tieneClaveLibre) {
+                tamano++;
+            }
+            tieneClaveLibre = true;
+            valorClaveLibre = valor;
+            return;
+        }
+        int mascara = claves.length - 1;
+        for (int i = mezclar(clave) & mascara; ; i = (i + 1) & mascara) {
+            int actual = claves[i];
+            if (actual == clave) {
+                valores[i] = valor;
+                return;
+            }
+            if (actual == LIBRE) {
+                claves[i] = clave;
+                valores[i] = valor;
+                tamano++;
+                // Factor de carga máximo 0,5: las búsquedas recorren muy pocas casillas
+                if (tamano * 2 > claves.length) {
+                    crecer();
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Suma delta al valor de la clave (partiendo de 0 si no estaba) y devuelve el resultado
+     */
+    public int sumar(int clave, int delta) {
+        int actual = get(clave);
+        int nuevo = (actual == AUSENTE ? 0 : actual) + delta;
+        put(clave, nuevo);
+        return nuevo;
+    }
+
+    public int size() {
+        return tamano;
+    }
+
+    /**
+     * Recorre las entradas (en un orden cualquiera)
+     */
+    public void paraCada(AccionEntrada accion) {
+        if (tieneClaveLibre) {
+            accion.aplicar(LIBRE, valorClaveLibre);
+        }
+        for (int i = 0; i < claves.length; i++) {
+            if (claves[i] != LIBRE) {
+                accion.aplicar(claves[i], valores[i]);
+            }
+        }
+    }
+
+    /**
+     * Copia independiente del mapa
+     */
+    public MapaIntInt copia() {
+        MapaIntInt copia = new MapaIntInt(1);
+        copia.claves = claves.clone();
+        copia.valores = valores.clone();
+        copia.tamano = tamano;
+        copia.tieneClaveLibre = tieneClaveLibre;
+        copia.valorClaveLibre = valorClaveLibre;
+        return copia;
+    }
+
+    private void crecer() {
+        int[] clavesAntiguas = claves;
+        int[] valoresAntiguos = valores;
+        claves = new int[clavesAntiguas.length * 2];
+        valores = new int[valoresAntiguos.length * 2];
+        Arrays.fill(claves, LIBRE);
+        int mascara = claves.length - 1;
+        for (int j = 0; j < clavesAntiguas.length; j++) {
+            int clave = clavesAntiguas[j];
+            if (clave != LIBRE) {
+                int i = mezclar(clave) & mascara;
+                while (claves[i] != LIBRE) {
+                    i = (i + 1) & mascara;
+                }
+                claves[i] = clave;
+                valores[i] = valoresAntiguos[j];
+            }
+        }
+    }
+
+    /**
+     * Reparte claves consecutivas (o de 50 en 50, como los ids de la secuencia) por toda la tabla
+     */
+    private static int mezclar(int x) {
+        int h = x * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
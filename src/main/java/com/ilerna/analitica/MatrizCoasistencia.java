@@ -0,0 +1,387 @@
+package com.ilerna.analitica;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+/**
+ * Matriz dispersa clase x clase de coasistencia: para cada par de clases, cuántos clientes han
+ * ido a las dos ("quien va a X también va a Y")
+ *
+ * - Cada cliente guarda el conjunto de clases a las que ha ido (códigos densos, array ordenado)
+ * - Cada clase tiene una fila con las clases que comparten clientes con ella, ordenada por
+ *   coasistencia de mayor a menor: las N más relacionadas son las N primeras de la fila
+ * - registrar(): cuando un cliente va por primera vez a una clase, suma uno en la fila de esa clase
+ *   y en la de cada una de las que ya tenía; el orden de la fila se mantiene con un intercambio
+ *   (como en ContadorFrecuentes, solo se adelanta al primero de su misma cuenta)
+ * - Para la carga inicial, anotarTodas() solo guarda los conjuntos y recalcular() cuenta los pares
+ *   repartiendo los clientes entre los hilos del ForkJoinPool común
+ *
+ * Un escritor y varios lectores a la vez (ReadWriteLock).
+ */
+public class MatrizCoasistencia {
+
+    private static final int CLIENTES_POR_TRAMO = 4096;
+
+    private final MapaIntInt codigosCliente = new MapaIntInt();
+    private int[][] clasesCliente = new int[16][];
+    private int[] numeroClasesCliente = new int[16];
+    private int numeroClientes;
+
+    private final MapaIntInt codigosClase = new MapaIntInt();
+    private int[] idsClase = new int[16];
+    private int[] asistentesClase = new int[16];
+    private Fila[] filas = new Fila[16];
+    private int numeroClases;
+
+    /** Hay conjuntos anotados sin contar en las filas */
+    private boolean pendiente;
+
+    private final ReadWriteLock cerrojo = new ReentrantReadWriteLock();
+
+    /**
+     * Anota una asistencia y actualiza las filas si es la primera del cliente en esa clase
+     * @throws IllegalStateException si hay anotaciones pendientes de recalcular()
+     */
+    public void registrar(int idCliente, int idClase) {
+        cerrojo.writeLock().lock();
+        try {
+            comprobarAlDia();
+            registrarSinBloquear(idCliente, idClase);
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Registra varias asistencias con una sola toma del cerrojo (las fechas no se usan; mismas
+     * columnas que ColumnasAsistencia.anadirTodas)
+     * @throws IllegalStateException si hay anotaciones pendientes de recalcular()
+     */
+    public void registrarTodas(int[] idsCliente, int[] idsClase, int[] diasEpoca, int desde, int hasta) {
+        cerrojo.writeLock().lock();
+        try {
+            comprobarAlDia();
+            for (int i = desde; i < hasta; i++) {
+                registrarSinBloquear(idsCliente[i], idsClase[i]);
+            }
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Anota asistencias sin actualizar las filas: para cargar muchas de golpe y después recalcular()
+     */
+    public void anotarTodas(int[] idsCliente, int[] idsClase, int[] diasEpoca, int desde, int hasta) {
+        cerrojo.writeLock().lock();
+        try {
+            for (int i = desde; i < hasta; i++) {
+                if (anotar(idsCliente[i], idsClase[i]) >= 0) {
+                    pendiente = true;
+                }
+            }
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Cuenta desde cero todos los pares de clases de cada cliente, en paralelo por tramos de clientes
+     */
+    public void recalcular() {
+        cerrojo.writeLock().lock();
+        try {
+            int clientes = numeroClientes;
+            int clases = numeroClases;
+            int[][] conjuntos = clasesCliente;
+            int[] tamanos = numeroClasesCliente;
+
+            int tramos = (clientes + CLIENTES_POR_TRAMO - 1) / CLIENTES_POR_TRAMO;
+            IntStream indices = IntStream.range(0, tramos);
+            if (tramos > 1) {
+                indices = indices.parallel();
+            }
+            MapaIntInt[] pares = indices.collect(() -> new MapaIntInt[clases], (acumulado, tramo) -> {
+                int fin = Math.min(clientes, (tramo + 1) * CLIENTES_POR_TRAMO);
+                for (int cliente = tramo * CLIENTES_POR_TRAMO; cliente < fin; cliente++) {
+                    int[] conjunto = conjuntos[cliente];
+                    int n = tamanos[cliente];
+                    for (int i = 0; i < n; i++) {
+                        MapaIntInt fila = acumulado[conjunto[i]];
+                        if (fila == null) {
+                            fila = new MapaIntInt();
+                            acumulado[conjunto[i]] = fila;
+                        }
+                        for (int j = 0; j < n; j++) {
+                            if (j != i) {
+                                fila.sumar(conjunto[j], 1);
+                            }
+                        }
+                    }
+                }
+            }, (a, b) -> {
+                for (int clase = 0; clase < clases; clase++) {
+                    if (b[clase] == null) {
+                        continue;
+                    }
+                    if (a[clase] == null) {
+                        a[clase] = b[clase];
+                    } else {
+                        MapaIntInt destino = a[clase];
+                        b[clase].paraCada(destino::sumar);
+                    }
+                }
+            });
+
+            for (int clase = 0; clase < clases; clase++) {
+                filas[clase] = pares[clase] != null ? Fila.de(pares[clase]) : new Fila();
+            }
+            pendiente = false;
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Las n clases con más clientes en común con la dada, de más a menos
+     * (id de clase y clientes que han ido a las dos; vacía si la clase no tiene asistencias)
+     * @throws IllegalStateException si hay anotaciones pendientes de recalcular()
+     */
+    public List<ConteoPorId> relacionadas(int idClase, int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("n debe ser mayor que 0");
+        }
+        cerrojo.readLock().lock();
+        try {
+            comprobarAlDia();
+            int codigo = codigosClase.get(idClase);
+            if (codigo == MapaIntInt.AUSENTE) {
+                return new ArrayList<>();
+            }
+            Fila fila = filas[codigo];
+            int k = Math.min(n, fila.tamano);
+            List<ConteoPorId> resultado = new ArrayList<>(k);
+            for (int i = 0; i < k; i++) {
+                resultado.add(new ConteoPorId(idsClase[fila.clases[i]], fila.cuentas[i]));
+            }
+            return resultado;
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Clientes que han ido a las dos clases
+     */
+    public int coasistencia(int idClase, int otraClase) {
+        cerrojo.readLock().lock();
+        try {
+            comprobarAlDia();
+            int codigo = codigosClase.get(idClase);
+            int otro = codigosClase.get(otraClase);
+            if (codigo == MapaIntInt.AUSENTE || otro == MapaIntInt.AUSENTE || codigo == otro) {
+                return 0;
+            }
+            int posicion = filas[codigo].posiciones.get(otro);
+            return posicion == MapaIntInt.AUSENTE ? 0 : filas[codigo].cuentas[posicion];
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Clientes distintos que han ido a la clase
+     */
+    public int asistentes(int idClase) {
+        cerrojo.readLock().lock();
+        try {
+            int codigo = codigosClase.get(idClase);
+            return codigo == MapaIntInt.AUSENTE ? 0 : asistentesClase[codigo];
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    public int getNumeroClases() {
+        cerrojo.readLock().lock();
+        try {
+            return numeroClases;
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Pares de clases con clientes en común (cada par cuenta dos veces, una por fila)
+     */
+    public long getNumeroPares() {
+        cerrojo.readLock().lock();
+        try {
+            long total = 0;
+            for (int clase = 0; clase < numeroClases; clase++) {
+                total += filas[clase].tamano;
+            }
+            return total;
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    private void comprobarAlDia() {
+        if (pendiente) {
+            throw new IllegalStateException("Hay asistencias anotadas sin recalcular la matriz");
+        }
+    }
+
+    private void registrarSinBloquear(int idCliente, int idClase) {
+        int nueva = anotar(idCliente, idClase);
+        if (nueva < 0) {
+            return;
+        }
+        int cliente = codigosCliente.get(idCliente);
+        int[] conjunto = clasesCliente[cliente];
+        int n = numeroClasesCliente[cliente];
+        for (int i = 0; i < n; i++) {
+            int otra = conjunto[i];
+            if (otra != nueva) {
+                filas[nueva].incrementar(otra);
+                filas[otra].incrementar(nueva);
+            }
+        }
+    }
+
+    /**
+     * Añade la clase al conjunto del cliente
+     * @return Código de la clase si el cliente no había ido nunca a ella, -1 si ya había ido
+     */
+    private int anotar(int idCliente, int idClase) {
+        int clase = codigoClase(idClase);
+        int cliente = codigoCliente(idCliente);
+        int[] conjunto = clasesCliente[cliente];
+        int n = numeroClasesCliente[cliente];
+        int posicion = Arrays.binarySearch(conjunto, 0, n, clase);
+        if (posicion >= 0) {
+            return -1;
+        }
+        posicion = -posicion - 1;
+        if (n == conjunto.length) {
+            conjunto = Arrays.copyOf(conjunto, n * 2);
+            clasesCliente[cliente] = conjunto;
+        }
+        System.arraycopy(conjunto, posicion, conjunto, posicion + 1, n - posicion);
+        conjunto[posicion] = clase;
+        numeroClasesCliente[cliente] = n + 1;
+        asistentesClase[clase]++;
+        return clase;
+    }
+
+    private int codigoCliente(int idCliente) {
+        int codigo = codigosCliente.get(idCliente);
+        if (codigo != MapaIntInt.AUSENTE) {
+            return codigo;
+        }
+        if (numeroClientes == clasesCliente.length) {
+            clasesCliente = Arrays.copyOf(clasesCliente, numeroClientes * 2);
+            numeroClasesCliente = Arrays.copyOf(numeroClasesCliente, numeroClientes * 2);
+        }
+        codigo = numeroClientes++;
+        codigosCliente.put(idCliente, codigo);
+        // La mayoría de clientes van a pocas clases
+        clasesCliente[codigo] = new int[4];
+        return codigo;
+    }
+
+    private int codigoClase(int idClase) {
+        int codigo = codigosClase.get(idClase);
+        if (codigo != MapaIntInt.AUSENTE) {
+            return codigo;
+        }
+        if (numeroClases == idsClase.length) {
+            idsClase = Arrays.copyOf(idsClase, numeroClases * 2);
+            asistentesClase = Arrays.copyOf(asistentesClase, numeroClases * 2);
+            filas = Arrays.copyOf(filas, numeroClases * 2);
+        }
+        codigo = numeroClases++;
+        codigosClase.put(idClase, codigo);
+        idsClase[codigo] = idClase;
+        filas[codigo] = new Fila();
+        return codigo;
+    }
+
+    /**
+     * Fila de una clase: códigos de las clases relacionadas y sus cuentas, de mayor a menor cuenta
+     */
+    private static final class Fila {
+        int[] clases = new int[4];
+        int[] cuentas = new int[4];
+        int tamano;
+        /** Código de clase -> posición en la fila */
+        final MapaIntInt posiciones = new MapaIntInt(4);
+
+        /**
+         * Fila ordenada a partir de las cuentas de un mapa código de clase -> cuenta
+         */
+        static Fila de(MapaIntInt pares) {
+            // Cuenta en los 32 bits altos y código en los bajos: ordenar los long ordena por cuenta
+            long[] entradas = new long[pares.size()];
+            int[] k = {0};
+            pares.paraCada((clase, cuenta) -> entradas[k[0]++] = ((long) cuenta << 32) | clase);
+            Arrays.sort(entradas);
+            Fila fila = new Fila();
+            fila.clases = new int[Math.max(4, entradas.length)];
+            fila.cuentas = new int[fila.clases.length];
+            for (int i = entradas.length - 1; i >= 0; i--) {
+                int posicion = fila.tamano++;
+                fila.clases[posicion] = (int) entradas[i];
+                fila.cuentas[posicion] = (int) (entradas[i] >>> 32);
+                fila.posiciones.put(fila.clases[posicion], posicion);
+            }
+            return fila;
+        }
+
+        /**
+         * Suma uno a la cuenta de la clase: pasa a ocupar el primer puesto de los que tenían su misma
+         * cuenta, así la fila sigue ordenada
+         */
+        void incrementar(int clase) {
+            int i = posiciones.get(clase);
+            if (i == MapaIntInt.AUSENTE) {
+                // Cuenta 1: la menor posible, va al final
+                if (tamano == clases.length) {
+                    clases = Arrays.copyOf(clases, tamano * 2);
+                    cuentas = Arrays.copyOf(cuentas, tamano * 2);
+                }
+                clases[tamano] = clase;
+                cuentas[tamano] = 1;
+                posiciones.put(clase, tamano);
+                tamano++;
+                return;
+            }
+            int cuenta = cuentas[i];
+            // Primera posición con cuenta <= la actual (las anteriores tienen más)
+            int bajo = 0;
+            int alto = i;
+            while (bajo < alto) {
+                int medio = (bajo + alto) >>> 1;
+                if (cuentas[medio] > cuenta) {
+                    bajo = medio + 1;
+                } else {
+                    alto = medio;
+                }
+            }
+            int j = bajo;
+            if (j != i) {
+                int otra = clases[j];
+                clases[j] = clase;
+                clases[i] = otra;
+                posiciones.put(clase, j);
+                posiciones.put(otra, i);
+            }
+            cuentas[j] = cuenta + 1;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.ilerna.analitica;
+
+/**
+ * Función de mezcla compartida por los bocetos (HyperLogLog, CountMin)
+ */
+final class Mezcla {
+
+    private Mezcla() {
+    }
+
+    /**
+     * Finalizador de SplitMix64: reparte bien los bits de claves consecutivas
+     */
+    static long mezclar(long x) {
+        x = (x ^ (x >>> 30)) * 0xbf58476d1ce4e5b9L;
+        x = (x ^ (x >>> 27)) * 0x94d049bb133111ebL;
+        return x ^ (x >>> 31);
+    }
+}
@@ -0,0 +1,232 @@
+package com.ilerna.analitica;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Consultas analíticas sobre {@link ColumnasAsistencia}, recorriendo las columnas en paralelo
+ *
+ * Las filas se reparten en tramos entre los hilos del ForkJoinPool común (parallel streams).
+ * Cada hilo cuenta en su propio int[] indexado por código de cliente o de clase y al final
+ * se suman los arrays: no hay objetos por fila ni contención entre hilos.
+ *
+ * Cada consulta trabaja sobre la vista del momento en que empieza; las filas que se añadan
+ * mientras tanto no cuentan.
+ */
+public class MotorAnalitica {
+
+    /** Filas por tramo: por debajo de esto no compensa repartir */
+    private static final int FILAS_POR_TRAMO = 1 << 16;
+
+    private final ColumnasAsistencia columnas;
+
+    public MotorAnalitica(ColumnasAsistencia columnas) {
+        this.columnas = columnas;
+    }
+
+    /**
+     * Asistencias por clase, de más a menos
+     */
+    public List<ConteoPorId> asistenciasPorClase(Filtro filtro) {
+        ColumnasAsistencia.Vista vista = columnas.getVista();
+        int[] conteos = contar(vista, filtro, vista.clases, vista.numeroClases);
+        return ordenar(conteos, vista.idsClase, 1);
+    }
+
+    /**
+     * Visitas por cliente, de más a menos
+     */
+    public List<ConteoPorId> visitasPorCliente(Filtro filtro) {
+        return clientesConAlMenos(1, filtro);
+    }
+
+    /**
+     * Clientes con al menos minimo asistencias, de más a menos
+     */
+    public List<ConteoPorId> clientesConAlMenos(int minimo, Filtro filtro) {
+        if (minimo < 1) {
+            throw new IllegalArgumentException("El mínimo de asistencias debe ser al menos 1");
+        }
+        ColumnasAsistencia.Vista vista = columnas.getVista();
+        int[] conteos = contar(vista, filtro, vista.clientes, vista.numeroClientes);
+        return ordenar(conteos, vista.idsCliente, minimo);
+    }
+
+    /**
+     * Clase con más asistencias de cada día de la semana (solo los días con alguna asistencia)
+     * En caso de empate gana la clase que se vio primero
+     */
+    public Map<DayOfWeek, ConteoPorId> claseMasConcurridaPorDiaSemana(Filtro filtro) {
+        ColumnasAsistencia.Vista vista = columnas.getVista();
+        int numeroClases = vista.numeroClases;
+        int[] conteos = recorrer(vista, filtro, 7 * numeroClases, (acumulado, fila) ->
+                acumulado[diaSemana(vista.fechas[fila]) * numeroClases + vista.clases[fila]]++);
+
+        Map<DayOfWeek, ConteoPorId> resultado = new EnumMap<>(DayOfWeek.class);
+        for (int dia = 0; dia < 7; dia++) {
+            int mejor = -1;
+            for (int clase = 0; clase < numeroClases; clase++) {
+                int n = conteos[dia * numeroClases + clase];
+                if (n > 0 && (mejor < 0 || n > conteos[dia * numeroClases + mejor])) {
+                    mejor = clase;
+                }
+            }
+            if (mejor >= 0) {
+                resultado.put(DayOfWeek.of(dia + 1),
+                        new ConteoPorId(vista.idsClase[mejor], conteos[dia * numeroClases + mejor]));
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Número de asistencias que cumplen el filtro
+     */
+    public long contarAsistencias(Filtro filtro) {
+        ColumnasAsistencia.Vista vista = columnas.getVista();
+        return recorrer(vista, filtro, 1, (acumulado, fila) -> acumulado[0]++)[0];
+    }
+
+    private int[] contar(ColumnasAsistencia.Vista vista, Filtro filtro, int[] columna, int numeroCodigos) {
+        return recorrer(vista, filtro, numeroCodigos, (acumulado, fila) -> acumulado[columna[fila]]++);
+    }
+
+    /**
+     * Aplica la acción a cada fila que cumple el filtro, con un acumulador int[] por hilo,
+     * y devuelve la suma de los acumuladores
+     */
+    private static int[] recorrer(ColumnasAsistencia.Vista vista, Filtro filtro, int tamano, AccionFila accion) {
+        int filas = vista.filas;
+        int claseBuscada = filtro.codigoClase(vista);
+        if (claseBuscada == Filtro.NINGUNA) {
+            return new int[tamano];
+        }
+        int desde = filtro.desde;
+        int hasta = filtro.hasta;
+        int dia = filtro.diaSemana;
+        int[] fechas = vista.fechas;
+        int[] clases = vista.clases;
+
+        int tramos = (filas + FILAS_POR_TRAMO - 1) / FILAS_POR_TRAMO;
+        IntStream indices = IntStream.range(0, tramos);
+        if (tramos > 1) {
+            indices = indices.parallel();
+        }
+        return indices.collect(() -> new int[tamano], (acumulado, tramo) -> {
+            int fin = Math.min(filas, (tramo + 1) * FILAS_POR_TRAMO);
+            for (int fila = tramo * FILAS_POR_TRAMO; fila < fin; fila++) {
+                int fecha = fechas[fila];
+                if (fecha < desde || fecha > hasta) {
+                    continue;
+                }
+                if (claseBuscada >= 0 && clases[fila] != claseBuscada) {
+                    continue;
+                }
+                if (dia >= 0 && diaSemana(fecha) != dia) {
+                    continue;
+                }
+                accion.aplicar(acumulado, fila);
+            }
+        }, (a, b) -> {
+            for (int i = 0; i < a.length; i++) {
+                a[i] += b[i];
+            }
+        });
+    }
+
+    private static List<ConteoPorId> ordenar(int[] conteos, int[] idPorCodigo, int minimo) {
+        List<ConteoPorId> resultado = new ArrayList<>();
+        for (int codigo = 0; codigo < conteos.length; codigo++) {
+            if (conteos[codigo] >= minimo) {
+                resultado.add(new ConteoPorId(idPorCodigo[codigo], conteos[codigo]));
+            }
+        }
+        Collections.sort(resultado, (a, b) -> Long.compare(b.getTotal(), a.getTotal()));
+        return resultado;
+    }
+
+    /**
+     * Día de la semana de un día desde la época: 0 = lunes ... 6 = domingo (el 1/1/1970 fue jueves)
+     */
+    static int diaSemana(int diaEpoca) {
+        return Math.floorMod(diaEpoca + 3, 7);
+    }
+
+    @FunctionalInterface
+    private interface AccionFila {
+        void aplicar(int[] acumulado, int fila);
+    }
+
+    /**
+     * Condiciones de una consulta. Inmutable: cada método devuelve un filtro nuevo
+     */
+    public static final class Filtro {
+        static final int TODAS = -1;
+        static final int NINGUNA = -2;
+
+        private final int desde;
+        private final int hasta;
+        private final Integer idClase;
+        private final int diaSemana;
+
+        private Filtro(int desde, int hasta, Integer idClase, int diaSemana) {
+            this.desde = desde;
+            this.hasta = hasta;
+            this.idClase = idClase;
+            this.diaSemana = diaSemana;
+        }
+
+        /**
+         * Todas las asistencias
+         */
+        public static Filtro todas() {
+            return new Filtro(Integer.MIN_VALUE, Integer.MAX_VALUE, null, -1);
+        }
+
+        /**
+         * Solo entre dos fechas (ambas incluidas)
+         */
+        public Filtro entre(LocalDate desde, LocalDate hasta) {
+            if (desde.isAfter(hasta)) {
+                throw new IllegalArgumentException("La fecha inicial no puede ser posterior a la final");
+            }
+            return new Filtro((int) desde.toEpochDay(), (int) hasta.toEpochDay(), idClase, diaSemana);
+        }
+
+        /**
+         * Solo de una clase
+         */
+        public Filtro deClase(int idClase) {
+            return new Filtro(desde, hasta, idClase, diaSemana);
+        }
+
+        /**
+         * Solo un día de la semana
+         */
+        public Filtro enDia(DayOfWeek dia) {
+            return new Filtro(desde, hasta, idClase, dia.getValue() - 1);
+        }
+
+        /**
+         * Código de la clase filtrada en la vista: TODAS, NINGUNA (no hay filas de esa clase) o el código
+         */
+        int codigoClase(ColumnasAsistencia.Vista vista) {
+            if (idClase == null) {
+                return TODAS;
+            }
+            // Hay pocas clases: una búsqueda lineal basta y no necesita el mapa del escritor
+            for (int codigo = 0; codigo < vista.numeroClases; codigo++) {
+                if (vista.idsClase[codigo] == idClase) {
+                    return codigo;
+                }
+            }
+            return NINGUNA;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.ilerna.cache;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caché en memoria de tamaño acotado con expulsión LRU (la entrada usada hace más tiempo)
+ *
+ * - Lectura a través: si la clave no está, se carga con el {@link Cargador} y se guarda
+ * - Caché negativa: las claves que no existen también se guardan, pero solo durante ttlNegativoMs,
+ *   para que un alta posterior acabe viéndose aunque nadie invalide la clave
+ * - Dividida en segmentos con su propio cerrojo para que los hilos no compitan por uno solo
+ *
+ * Una carga que coincide con una invalidación de su segmento no se guarda: así nunca se
+ * queda en caché un valor leído antes de una modificación.
+ *
+ * @param <K> Tipo de la clave
+ * @param <V> Tipo del valor
+ */
+public class CacheLRU<K, V> {
+
+    /**
+     * Carga un valor del origen de datos
+     */
+    @FunctionalInterface
+    public interface Cargador<K, V> {
+        Optional<V> cargar(K key) throws SQLException;
+    }
+
+    private static final int SEGMENTOS = 16;
+
+    private final List<Segmento> segmentos;
+    private final long ttlNegativoNanos;
+
+    private final AtomicLong aciertos = new AtomicLong();
+    private final AtomicLong aciertosNegativos = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
+    private final AtomicLong expulsiones = new AtomicLong();
+    private final AtomicLong caducadas = new AtomicLong();
+    private final AtomicLong invalidaciones = new AtomicLong();
+
+    /**
+     * @param maxEntradas Número máximo de entradas (aproximado: se reparte entre los segmentos)
+     * @param ttlNegativoMs Tiempo que se recuerda que una clave no existe (0 = no se recuerda)
+     */
+    public CacheLRU(int maxEntradas, long ttlNegativoMs) {
+        if (maxEntradas <= 0) {
+            throw new IllegalArgumentException("El número máximo de entradas debe ser mayor que 0");
+        }
+        if (ttlNegativoMs < 0) {
+            throw new IllegalArgumentException("El TTL negativo no puede ser negativo");
+        }
+        int numSegmentos = Math.min(SEGMENTOS, maxEntradas);
+        int capacidadSegmento = (maxEntradas + numSegmentos - 1) / numSegmentos;
+        this.segmentos = new ArrayList<>(numSegmentos);
+        for (int i = 0; i < numSegmentos; i++) {
+            segmentos.add(new Segmento(capacidadSegmento));
+        }
+        this.ttlNegativoNanos = TimeUnit.MILLISECONDS.toNanos(ttlNegativoMs);
+    }
+
+    /**
+     * Devuelve el valor de la clave, cargándolo si no está en caché
+     * @param key Clave
+     * @param cargador Carga del origen de datos cuando la clave no está
+     * @return Valor, o vacío si no existe
+     * @throws SQLException Si falla la carga (no se guarda nada)
+     */
+    public Optional<V> get(K key, Cargador<K, V> cargador) throws SQLException {
+        Segmento segmento = segmento(key);
+        long marca;
+        synchronized (segmento) {
+            Entrada<V> entrada = segmento.get(key);
+            if (entrada != null) {
+                if (!entrada.caducada()) {
+                    aciertos.incrementAndGet();
+                    if (!entrada.valor.isPresent()) {
+                        aciertosNegativos.incrementAndGet();
+                    }
+                    return entrada.valor;
+                }
+                segmento.remove(key);
+                caducadas.incrementAndGet();
+            }
+            marca = segmento.modificaciones;
+        }
+
+        fallos.incrementAndGet();
+        Optional<V> valor = cargador.cargar(key);
+
+        if (valor.isPresent() || ttlNegativoNanos > 0) {
+            synchronized (segmento) {
+                // Si se ha invalidado algo del segmento mientras se cargaba, el valor puede estar obsoleto
+                if (segmento.modificaciones == marca) {
+                    long caducaEn = valor.isPresent() ? 0 : System.nanoTime() + ttlNegativoNanos;
+                    segmento.put(key, new Entrada<>(valor, caducaEn));
+                }
+            }
+        }
+        return valor;
+    }
+
+    /**
+     * Olvida una clave (llamar tras modificarla o borrarla en el origen)
+     */
+    public void invalidar(K key) {
+        Segmento segmento = segmento(key);
+        synchronized (segmento) {
+            segmento.modificaciones++;
+            segmento.remove(key);
+        }
+        invalidaciones.incrementAndGet();
+    }
+
+    /**
+     * Vacía la caché
+     */
+    public void invalidarTodo() {
+        for (Segmento segmento : segmentos) {
+            synchronized (segmento) {
+                segmento.modificaciones++;
+                segmento.clear();
+            }
+        }
+        invalidaciones.incrementAndGet();
+    }
+
+    /**
+     * Número de entradas guardadas
+     */
+    public int size() {
+        int total = 0;
+        for (Segmento segmento : segmentos) {
+            synchronized (segmento) {
+                total += segmento.size();
+            }
+        }
+        return total;
+    }
+
+    public CacheStats getEstadisticas() {
+        return new CacheStats(aciertos.get(), aciertosNegativos.get(), fallos.get(),
+                expulsiones.get(), caducadas.get(), invalidaciones.get(), size());
+    }
+
+    private Segmento segmento(K key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segmentos.get((h & 0x7fffffff) % segmentos.size());
+    }
+
+    /**
+     * Valor guardado; caducaEn = 0 si no caduca
+     */
+    private static final class Entrada<V> {
+        final Optional<V> valor;
+        final long caducaEn;
+
+        Entrada(Optional<V> valor, long caducaEn) {
+            this.valor = valor;
+            this.caducaEn = caducaEn;
+        }
+
+        boolean caducada() {
+            return caducaEn != 0 && System.nanoTime() - caducaEn >= 0;
+        }
+    }
+
+    /**
+     * Tramo de la caché con su propio orden de acceso; se sincroniza sobre sí mismo
+     */
+    private final class Segmento extends LinkedHashMap<K, Entrada<V>> {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacidad;
+        long modificaciones;
+
+        Segmento(int capacidad) {
+            super(16, 0.75f, true);
+            this.capacidad = capacidad;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, Entrada<V>> eldest) {
+            if (size() > capacidad) {
+                expulsiones.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.ilerna.cache;
+
+/**
+ * Estadísticas de una caché en un momento dado
+ */
+public class CacheStats {
+    private final long aciertos;
+    private final long aciertosNegativos;
+    private final long fallos;
+    private final long expulsiones;
+    private final long caducadas;
+    private final long invalidaciones;
+    private final int entradas;
+
+    public CacheStats(long aciertos, long aciertosNegativos, long fallos, long expulsiones,
+                      long caducadas, long invalidaciones, int entradas) {
+        this.aciertos = aciertos;
+        this.aciertosNegativos = aciertosNegativos;
+        this.fallos = fallos;
+        this.expulsiones = expulsiones;
+        this.caducadas = caducadas;
+        this.invalidaciones = invalidaciones;
+        this.entradas = entradas;
+    }
+
+    /**
+     * Búsquedas resueltas por la caché, incluidas las negativas
+     */
+    public long getAciertos() {
+        return aciertos;
+    }
+
+    /**
+     * Aciertos de claves que se sabe que no existen
+     */
+    public long getAciertosNegativos() {
+        return aciertosNegativos;
+    }
+
+    /**
+     * Búsquedas que han tenido que ir al origen de datos
+     */
+    public long getFallos() {
+        return fallos;
+    }
+
+    /**
+     * Entradas expulsadas por falta de espacio (las menos usadas recientemente)
+     */
+    public long getExpulsiones() {
+        return expulsiones;
+    }
+
+    /**
+     * Entradas negativas descartadas por haber caducado
+     */
+    public long getCaducadas() {
+        return caducadas;
+    }
+
+    public long getInvalidaciones() {
+        return invalidaciones;
+    }
+
+    public int getEntradas() {
+        return entradas;
+    }
+
+    /**
+     * Proporción de búsquedas resueltas por la caché (0 a 1)
+     */
+    public double getTasaAciertos() {
+        long total = aciertos + fallos;
+        return total == 0 ? 0 : (double) aciertos / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("aciertos=%d (negativos=%d), fallos=%d, tasa=%.1f%%, expulsiones=%d, caducadas=%d, invalidaciones=%d, entradas=%d",
+                aciertos, aciertosNegativos, fallos, getTasaAciertos() * 100, expulsiones, caducadas, invalidaciones, entradas);
+    }
+}
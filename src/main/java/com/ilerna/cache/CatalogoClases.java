@@ -0,0 +1,273 @@
+package com.ilerna.cache;
+
+import com.ilerna.dao.IClaseDAO;
+import com.ilerna.dto.Clase;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Catálogo de clases en memoria: una instantánea inmutable de la tabla clase
+ * que se sustituye entera de forma atómica al refrescarla.
+ *
+ * - Las lecturas solo leen la referencia actual: no hay cerrojos ni consultas
+ * - Un hilo en segundo plano recarga el catálogo cada intervaloRefrescoMs, antes de que caduque
+ * - Si aun así la instantánea supera maxEdadMs (p. ej. la base de datos no respondía),
+ *   la siguiente lectura la recarga antes de contestar: nunca se sirven datos más antiguos
+ */
+public class CatalogoClases implements AutoCloseable {
+
+    private final IClaseDAO claseDAO;
+    private final long intervaloRefrescoMs;
+    private final long maxEdadNanos;
+    private final AtomicReference<Instantanea> actual = new AtomicReference<>();
+    private final Object lockRecarga = new Object();
+    private final ScheduledExecutorService refresco;
+
+    /**
+     * @param claseDAO Origen de las clases
+     * @param intervaloRefrescoMs Cada cuánto se recarga en segundo plano
+     * @param maxEdadMs Antigüedad máxima de los datos servidos (mayor que el intervalo)
+     */
+    public CatalogoClases(IClaseDAO claseDAO, long intervaloRefrescoMs, long maxEdadMs) {
+        if (intervaloRefrescoMs <= 0) {
+            throw new IllegalArgumentException("El intervalo de refresco debe ser mayor que 0");
+        }
+        if (maxEdadMs < intervaloRefrescoMs) {
+            throw new IllegalArgumentException("La antigüedad máxima no puede ser menor que el intervalo de refresco");
+        }
+        this.claseDAO = claseDAO;
+        this.intervaloRefrescoMs = intervaloRefrescoMs;
+        this.maxEdadNanos = TimeUnit.MILLISECONDS.toNanos(maxEdadMs);
+        this.refresco = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread t = new Thread(tarea, "catalogo-clases");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Carga el catálogo y programa el refresco periódico
+     * Si la carga inicial falla, se reintenta en la primera lectura
+     */
+    public void iniciar() {
+        try {
+            refrescar();
+        } catch (SQLException e) {
+            System.err.println("✗ No se pudo cargar el catálogo de clases al arrancar: " + e.getMessage());
+        }
+        refresco.scheduleWithFixedDelay(this::refrescarEnSegundoPlano,
+                intervaloRefrescoMs, intervaloRefrescoMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Recarga el catálogo ahora (p. ej. tras dar de alta una clase)
+     * @throws SQLException Si falla la consulta (se mantiene la instantánea anterior)
+     */
+    public void refrescar() throws SQLException {
+        synchronized (lockRecarga) {
+            actual.set(new Instantanea(claseDAO.getAll()));
+        }
+    }
+
+    /**
+     * Pide una recarga sin esperar a que termine
+     */
+    public void solicitarRefresco() {
+        refresco.execute(this::refrescarEnSegundoPlano);
+    }
+
+    /**
+     * Todas las clases
+     * @return Copia de las clases del catálogo
+     * @throws SQLException Solo si hay que recargar porque la instantánea ha caducado y falla la consulta
+     */
+    public List<Clase> getAll() throws SQLException {
+        Clase[] clases = instantanea().clases;
+        List<Clase> resultado = new ArrayList<>(clases.length);
+        for (Clase clase : clases) {
+            resultado.add(copiar(clase));
+        }
+        return resultado;
+    }
+
+    /**
+     * Clases con ese nombre o con cupo máximo mayor que cupoMinimo, ordenadas por id
+     * Se resuelve con {@link IndiceClases}: el nombre se compara sin distinguir mayúsculas ni tildes
+     * @throws SQLException Solo si hay que recargar porque la instantánea ha caducado y falla la consulta
+     */
+    public List<Clase> getByNombreOrCupoMayor(String nombre, Integer cupoMinimo) throws SQLException {
+        Instantanea instantanea = instantanea();
+        int[] ids = cupoMinimo != null
+                ? instantanea.indice.idsPorNombreOCupoMayor(nombre, cupoMinimo)
+                : instantanea.indice.idsPorNombre(nombre);
+        return instantanea.clasesConIds(ids);
+    }
+
+    /**
+     * Clases con cupo máximo entre min y max (ambos incluidos), de menor a mayor cupo
+     * @throws SQLException Solo si hay que recargar porque la instantánea ha caducado y falla la consulta
+     */
+    public List<Clase> getByCupoEntre(int min, int max) throws SQLException {
+        Instantanea instantanea = instantanea();
+        return instantanea.clasesConIds(instantanea.indice.idsConCupoEntre(min, max));
+    }
+
+    /**
+     * Aplica al catálogo el alta o modificación de una clase sin recargarlo entero
+     * (no cambia la antigüedad: el resto de clases sigue siendo la de la última carga)
+     * @param clase Clase ya guardada en la base de datos, con su id
+     */
+    public void registrarCambio(Clase clase) {
+        synchronized (lockRecarga) {
+            Instantanea instantanea = actual.get();
+            if (instantanea != null) {
+                actual.set(instantanea.con(clase));
+            }
+        }
+    }
+
+    /**
+     * Quita una clase del catálogo sin recargarlo entero
+     * @param id Id de la clase borrada
+     */
+    public void registrarBaja(int id) {
+        synchronized (lockRecarga) {
+            Instantanea instantanea = actual.get();
+            if (instantanea != null) {
+                actual.set(instantanea.sin(id));
+            }
+        }
+    }
+
+    /**
+     * Antigüedad de la instantánea actual en milisegundos (-1 si aún no se ha cargado)
+     */
+    public long getEdadMs() {
+        Instantanea instantanea = actual.get();
+        return instantanea == null ? -1 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - instantanea.cargadaEn);
+    }
+
+    @Override
+    public void close() {
+        refresco.shutdownNow();
+    }
+
+    private Instantanea instantanea() throws SQLException {
+        Instantanea instantanea = actual.get();
+        if (instantanea != null && !instantanea.caducada(maxEdadNanos)) {
+            return instantanea;
+        }
+        synchronized (lockRecarga) {
+            // Otro hilo puede haberla recargado mientras se esperaba el cerrojo
+            instantanea = actual.get();
+            if (instantanea == null || instantanea.caducada(maxEdadNanos)) {
+                instantanea = new Instantanea(claseDAO.getAll());
+                actual.set(instantanea);
+            }
+            return instantanea;
+        }
+    }
+
+    private void refrescarEnSegundoPlano() {
+        try {
+            refrescar();
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("✗ Error al refrescar el catálogo de clases: " + e.getMessage());
+        }
+    }
+
+    private static Clase copiar(Clase clase) {
+        return new Clase(clase.getId(), clase.getNombre(), clase.getCupoMaximo());
+    }
+
+    /**
+     * Copia inmutable de las clases en un momento dado, ordenadas por id, con su índice
+     */
+    private static final class Instantanea {
+        final Clase[] clases;
+        final int[] ids;
+        final IndiceClases indice;
+        final long cargadaEn;
+
+        Instantanea(List<Clase> origen) {
+            Clase[] copias = new Clase[origen.size()];
+            for (int i = 0; i < copias.length; i++) {
+                copias[i] = copiar(origen.get(i));
+            }
+            Arrays.sort(copias, Comparator.comparingInt(Clase::getId));
+            this.clases = copias;
+            this.ids = idsDe(copias);
+            this.indice = IndiceClases.construir(Arrays.asList(copias));
+            this.cargadaEn = System.nanoTime();
+        }
+
+        private Instantanea(Clase[] clases, IndiceClases indice, long cargadaEn) {
+            this.clases = clases;
+            this.ids = idsDe(clases);
+            this.indice = indice;
+            this.cargadaEn = cargadaEn;
+        }
+
+        Instantanea con(Clase clase) {
+            Clase copia = copiar(clase);
+            int pos = Arrays.binarySearch(ids, clase.getId());
+            Clase[] nuevas;
+            if (pos >= 0) {
+                nuevas = clases.clone();
+                nuevas[pos] = copia;
+            } else {
+                int insercion = -pos - 1;
+                nuevas = new Clase[clases.length + 1];
+                System.arraycopy(clases, 0, nuevas, 0, insercion);
+                nuevas[insercion] = copia;
+                System.arraycopy(clases, insercion, nuevas, insercion + 1, clases.length - insercion);
+            }
+            return new Instantanea(nuevas, indice.conClase(copia), cargadaEn);
+        }
+
+        Instantanea sin(int id) {
+            int pos = Arrays.binarySearch(ids, id);
+            if (pos < 0) {
+                return this;
+            }
+            Clase[] nuevas = new Clase[clases.length - 1];
+            System.arraycopy(clases, 0, nuevas, 0, pos);
+            System.arraycopy(clases, pos + 1, nuevas, pos, clases.length - pos - 1);
+            return new Instantanea(nuevas, indice.sinClase(id), cargadaEn);
+        }
+
+        /**
+         * Copias de las clases con esos ids, en el mismo orden
+         */
+        List<Clase> clasesConIds(int[] buscados) {
+            List<Clase> resultado = new ArrayList<>(buscados.length);
+            for (int id : buscados) {
+                int pos = Arrays.binarySearch(ids, id);
+                if (pos >= 0) {
+                    resultado.add(copiar(clases[pos]));
+                }
+            }
+            return resultado;
+        }
+
+        boolean caducada(long maxEdadNanos) {
+            return System.nanoTime() - cargadaEn > maxEdadNanos;
+        }
+
+        private static int[] idsDe(Clase[] clases) {
+            int[] ids = new int[clases.length];
+            for (int i = 0; i < clases.length; i++) {
+                ids[i] = clases[i].getId();
+            }
+            return ids;
+        }
+    }
+}
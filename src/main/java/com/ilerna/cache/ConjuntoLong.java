@@ -0,0 +1,144 @@
+package com.ilerna.cache;
+
+import java.util.Arrays;
+
+/**
+ * Conjunto de long con direccionamiento abierto, sin objetos por elemento
+ * (un Set&lt;Long&gt; concurrente ocupa unos 60 bytes por clave; este, 8 más el hueco libre)
+ *
+ * Sondeo lineal; al quitar, los elementos siguientes del mismo tramo se recolocan, así que no
+ * quedan marcas de borrado que alarguen las búsquedas.
+ * No es seguro entre hilos: quien lo comparta debe sincronizar el acceso.
+ */
+public final class ConjuntoLong {
+
+    private static final long LIBRE = Long.MIN_VALUE;
+
+    private long[] claves;
+    private int tamano;
+    private boolean tieneClaveLibre;
+
+    public ConjuntoLong() {
+        this(16);
+    }
+
+    /**
+     * @param capacidadInicial Elementos previstos (crece solo si se superan)
+     */
+    public ConjuntoLong(int capacidadInicial) {
+        int capacidad = Integer.highestOneBit(Math.max(4, capacidadInicial * 2 - 1)) << 1;
+        claves = new long[capacidad];
+        Arrays.fill(claves, LIBRE);
+    }
+
+    public boolean contiene(long clave) {
+        if (clave == LIBRE) {
+            return tieneClaveLibre;
+        }
+        int mascara = claves.length - 1;
+        for (int i = mezclar(clave) & mascara; ; i = (i + 1) & mascara) {
+            long actual = claves[i];
+            if (actual == clave) {
+                return true;
+            }
+            if (actual == LIBRE) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Añade la clave
+     * @return true si no estaba
+     */
+    public boolean anadir(long clave) {
+        if (clave == LIBRE) {
+            if (tieneClaveLibre) {
+                return false;
+            }
+            tieneClaveLibre = true;
+            tamano++;
+            return true;
+        }
+        int mascara = claves.length - 1;
+        for (int i = mezclar(clave) & mascara; ; i = (i + 1) & mascara) {
+            long actual = claves[i];
+            if (actual == clave) {
+                return false;
+            }
+            if (actual == LIBRE) {
+                claves[i] = clave;
+                tamano++;
+                // Factor de carga máximo 0,5, como MapaIntInt
+                if (tamano * 2 > claves.length) {
+                    crecer();
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Quita la clave
+     * @return true si estaba
+     */
+    public boolean quitar(long clave) {
+        if (clave == LIBRE) {
+            if (!tieneClaveLibre) {
+                return false;
+            }
+            tieneClaveLibre = false;
+            tamano--;
+            return true;
+        }
+        int mascara = claves.length - 1;
+        int i = mezclar(clave) & mascara;
+        while (claves[i] != clave) {
+            if (claves[i] == LIBRE) {
+                return false;
+            }
+            i = (i + 1) & mascara;
+        }
+        // Recolocar el resto del tramo: cada clave vuelve al primer hueco desde su posición ideal
+        int hueco = i;
+        for (int j = (i + 1) & mascara; claves[j] != LIBRE; j = (j + 1) & mascara) {
+            int ideal = mezclar(claves[j]) & mascara;
+            // La clave de j puede ocupar el hueco si el hueco está entre su posición ideal y j
+            if (((j - ideal) & mascara) >= ((j - hueco) & mascara)) {
+                claves[hueco] = claves[j];
+                hueco = j;
+            }
+        }
+        claves[hueco] = LIBRE;
+        tamano--;
+        return true;
+    }
+
+    public int size() {
+        return tamano;
+    }
+
+    private void crecer() {
+        long[] antiguas = claves;
+        claves = new long[antiguas.length * 2];
+        Arrays.fill(claves, LIBRE);
+        int mascara = claves.length - 1;
+        for (long clave : antiguas) {
+            if (clave != LIBRE) {
+                int i = mezclar(clave) & mascara;
+                while (claves[i] != LIBRE) {
+                    i = (i + 1) & mascara;
+                }
+                claves[i] = clave;
+            }
+        }
+    }
+
+    /**
+     * Reparte por la tabla claves que solo difieren en unos pocos bits (p. ej. cliente &lt;&lt; 32 | clase)
+     */
+    private static int mezclar(long x) {
+        long h = x * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,182 @@
+package com.ilerna.cache;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Descarta en memoria los fichajes repetidos (mismo cliente, clase y fecha) antes de insertarlos
+ *
+ * Por cada día guarda las claves (cliente, clase) en {@link ConjuntoLong} de long primitivos,
+ * repartidas en TRAMOS conjuntos según la clave, cada uno con su propio cerrojo: los tornos que
+ * fichan a la vez rara vez esperan al mismo. Basta una inserción en el conjunto, sin consulta
+ * previa ni objetos por clave, y como es atómica, de dos toques simultáneos solo pasa uno.
+ *
+ * Solo se conservan el día más reciente visto y el anterior (para fichajes que llegan con retraso
+ * pasada la medianoche). Al llegar el primer fichaje de un día nuevo, el más antiguo se descarta.
+ * De fechas más antiguas no se sabe nada y se dejan pasar: la restricción única de asistencia
+ * (migración 008) es la última barrera, igual que tras reiniciar la aplicación.
+ * Las fechas posteriores a mañana (un reloj mal puesto, una reserva adelantada) también se dejan
+ * pasar sin rotar: si no, descartarían el día de hoy.
+ */
+public class DeduplicadorFichajes {
+
+    // Conjuntos (y cerrojos) por día; potencia de dos
+    private static final int BITS_TRAMO = 4;
+    private static final int TRAMOS = 1 << BITS_TRAMO;
+
+    private final int fichajesEsperadosPorDia;
+    private final Clock reloj;
+    private final AtomicReference<Ventana> ventana = new AtomicReference<>(new Ventana(null, null));
+
+    private final LongAdder nuevos = new LongAdder();
+    private final LongAdder duplicados = new LongAdder();
+
+    /**
+     * @param fichajesEsperadosPorDia Capacidad inicial de cada día (los conjuntos crecen si se supera)
+     */
+    public DeduplicadorFichajes(int fichajesEsperadosPorDia) {
+        this(fichajesEsperadosPorDia, Clock.systemDefaultZone());
+    }
+
+    /**
+     * @param reloj Reloj del que sale la fecha de hoy (para pruebas)
+     */
+    DeduplicadorFichajes(int fichajesEsperadosPorDia, Clock reloj) {
+        if (fichajesEsperadosPorDia <= 0) {
+            throw new IllegalArgumentException("El número de fichajes esperados debe ser positivo");
+        }
+        this.fichajesEsperadosPorDia = fichajesEsperadosPorDia;
+        this.reloj = reloj;
+    }
+
+    /**
+     * Anota un fichaje si es el primero de ese cliente en esa clase y fecha
+     * @return true si es nuevo; false si es un duplicado y debe descartarse
+     */
+    public boolean registrarSiNuevo(int idCliente, int idClase, LocalDate fecha) {
+        Dia dia = diaDe(fecha);
+        if (dia == null) {
+            // Fecha ya descartada o demasiado adelantada: que decida la base de datos
+            nuevos.increment();
+            return true;
+        }
+        long clave = clave(idCliente, idClase);
+        // Una sola inserción en el conjunto: anota la clave nueva y detecta la repetida
+        // (también la que otro hilo acaba de anotar a la vez)
+        ConjuntoLong claves = dia.tramo(clave);
+        boolean anadida;
+        synchronized (claves) {
+            anadida = claves.anadir(clave);
+        }
+        if (!anadida) {
+            duplicados.increment();
+            return false;
+        }
+        nuevos.increment();
+        return true;
+    }
+
+    /**
+     * Olvida un fichaje anotado (p. ej. porque al final no se pudo guardar)
+     */
+    public void olvidar(int idCliente, int idClase, LocalDate fecha) {
+        Ventana actual = ventana.get();
+        Dia dia = actual.buscar(fecha);
+        if (dia != null) {
+            long clave = clave(idCliente, idClase);
+            ConjuntoLong claves = dia.tramo(clave);
+            synchronized (claves) {
+                claves.quitar(clave);
+            }
+        }
+    }
+
+    /** Fichajes aceptados */
+    public long getNuevos() {
+        return nuevos.sum();
+    }
+
+    /** Fichajes descartados por repetidos */
+    public long getDuplicados() {
+        return duplicados.sum();
+    }
+
+    private static long clave(int idCliente, int idClase) {
+        return ((long) idCliente << 32) | (idClase & 0xffffffffL);
+    }
+
+    /**
+     * Día de la ventana para esa fecha, rotando si es un día nuevo
+     * (null si ya se descartó o si es posterior a mañana)
+     */
+    private Dia diaDe(LocalDate fecha) {
+        while (true) {
+            Ventana actual = ventana.get();
+            Dia dia = actual.buscar(fecha);
+            if (dia != null) {
+                return dia;
+            }
+            if (actual.hoy != null && !fecha.isAfter(actual.hoy.fecha)) {
+                // Anterior al día más reciente y fuera de la ventana
+                return null;
+            }
+            if (fecha.isAfter(LocalDate.now(reloj).plusDays(1))) {
+                // Solo se mira el reloj aquí, al rotar: una vez al día
+                return null;
+            }
+            // Primer fichaje de un día nuevo: el de "hoy" pasa a "ayer" (si es el día anterior)
+            Dia nuevo = new Dia(fecha, fichajesEsperadosPorDia);
+            Dia ayer = actual.hoy != null && actual.hoy.fecha.plusDays(1).equals(fecha) ? actual.hoy : null;
+            if (ventana.compareAndSet(actual, new Ventana(nuevo, ayer))) {
+                return nuevo;
+            }
+        }
+    }
+
+    /**
+     * Día más reciente y el anterior, sustituidos juntos de forma atómica
+     */
+    private static final class Ventana {
+        final Dia hoy;
+        final Dia ayer;
+
+        Ventana(Dia hoy, Dia ayer) {
+            this.hoy = hoy;
+            this.ayer = ayer;
+        }
+
+        Dia buscar(LocalDate fecha) {
+            if (hoy != null && hoy.fecha.equals(fecha)) {
+                return hoy;
+            }
+            if (ayer != null && ayer.fecha.equals(fecha)) {
+                return ayer;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Fichajes de un día
+     */
+    private static final class Dia {
+        final LocalDate fecha;
+        final ConjuntoLong[] tramos = new ConjuntoLong[TRAMOS];
+
+        Dia(LocalDate fecha, int capacidad) {
+            this.fecha = fecha;
+            for (int i = 0; i < TRAMOS; i++) {
+                tramos[i] = new ConjuntoLong(capacidad / TRAMOS + 1);
+            }
+        }
+
+        /**
+         * Conjunto de la clave, elegido con los bits altos de su hash (ConjuntoLong usa los bajos)
+         */
+        ConjuntoLong tramo(long clave) {
+            return tramos[(int) ((clave * 0x9E3779B97F4A7C15L) >>> (64 - BITS_TRAMO))];
+        }
+    }
+}
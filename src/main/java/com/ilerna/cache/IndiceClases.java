@@ -0,0 +1,230 @@
+package com.ilerna.cache;
+
+import com.ilerna.dto.Clase;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Índice secundario inmutable sobre las clases, para resolver en memoria
+ * "nombre = ? OR cupo_maximo > ?" sin depender del plan de PostgreSQL
+ *
+ * - Cupo: dos int[] paralelos (cupos ordenados y el id de cada uno); los rangos se resuelven
+ *   con búsqueda binaria y devuelven un trozo del array de ids, sin objetos intermedios
+ * - Nombre: mapa del nombre normalizado (sin espacios alrededor, mayúsculas ni tildes)
+ *   a los ids ordenados que lo tienen
+ *
+ * Cada cambio devuelve un índice nuevo con una sola clase insertada o quitada
+ * (coste lineal por las copias de los arrays, sin reordenar nada).
+ * Las clases sin cupo máximo solo se indexan por nombre.
+ */
+public final class IndiceClases {
+
+    private static final int[] VACIO = new int[0];
+
+    private final int[] cupos;
+    private final int[] idsPorCupo;
+    private final Map<String, int[]> idsPorNombre;
+
+    private IndiceClases(int[] cupos, int[] idsPorCupo, Map<String, int[]> idsPorNombre) {
+        this.cupos = cupos;
+        this.idsPorCupo = idsPorCupo;
+        this.idsPorNombre = idsPorNombre;
+    }
+
+    /**
+     * Construye el índice completo
+     */
+    public static IndiceClases construir(Collection<Clase> clases) {
+        // Se ordena una clave compuesta (cupo, id) empaquetada en un long para no crear objetos
+        long[] claves = new long[clases.size()];
+        int n = 0;
+        Map<String, int[]> porNombre = new HashMap<>();
+        for (Clase clase : clases) {
+            if (clase.getCupoMaximo() != null) {
+                claves[n++] = ((long) clase.getCupoMaximo() << 32) | (clase.getId() & 0xffffffffL);
+            }
+            if (clase.getNombre() != null) {
+                porNombre.merge(normalizar(clase.getNombre()), new int[]{clase.getId()}, IndiceClases::unir);
+            }
+        }
+        Arrays.sort(claves, 0, n);
+
+        int[] cupos = new int[n];
+        int[] ids = new int[n];
+        for (int i = 0; i < n; i++) {
+            cupos[i] = (int) (claves[i] >> 32);
+            ids[i] = (int) claves[i];
+        }
+        return new IndiceClases(cupos, ids, porNombre);
+    }
+
+    /**
+     * Índice con la clase dada de alta o modificada
+     */
+    public IndiceClases conClase(Clase clase) {
+        IndiceClases sinAnterior = sinClase(clase.getId());
+
+        int[] cupos = sinAnterior.cupos;
+        int[] ids = sinAnterior.idsPorCupo;
+        if (clase.getCupoMaximo() != null) {
+            int cupo = clase.getCupoMaximo();
+            int pos = primeraPosicionMayorQue(cupos, cupo);
+            // Dentro del mismo cupo se mantiene el orden por id
+            while (pos > 0 && cupos[pos - 1] == cupo && ids[pos - 1] > clase.getId()) {
+                pos--;
+            }
+            cupos = insertar(cupos, pos, cupo);
+            ids = insertar(ids, pos, clase.getId());
+        }
+
+        Map<String, int[]> porNombre = sinAnterior.idsPorNombre;
+        if (clase.getNombre() != null) {
+            porNombre = new HashMap<>(porNombre);
+            porNombre.merge(normalizar(clase.getNombre()), new int[]{clase.getId()}, IndiceClases::unir);
+        }
+        return new IndiceClases(cupos, ids, porNombre);
+    }
+
+    /**
+     * Índice sin la clase indicada (el mismo índice si no estaba)
+     */
+    public IndiceClases sinClase(int id) {
+        int[] cupos = this.cupos;
+        int[] ids = this.idsPorCupo;
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == id) {
+                cupos = quitar(cupos, i);
+                ids = quitar(ids, i);
+                break;
+            }
+        }
+
+        Map<String, int[]> porNombre = this.idsPorNombre;
+        for (Map.Entry<String, int[]> entry : idsPorNombre.entrySet()) {
+            int pos = Arrays.binarySearch(entry.getValue(), id);
+            if (pos >= 0) {
+                porNombre = new HashMap<>(idsPorNombre);
+                if (entry.getValue().length == 1) {
+                    porNombre.remove(entry.getKey());
+                } else {
+                    porNombre.put(entry.getKey(), quitar(entry.getValue(), pos));
+                }
+                break;
+            }
+        }
+
+        if (cupos == this.cupos && porNombre == this.idsPorNombre) {
+            return this;
+        }
+        return new IndiceClases(cupos, ids, porNombre);
+    }
+
+    /**
+     * Ids de las clases con cupo máximo estrictamente mayor que el dado, de menor a mayor cupo
+     */
+    public int[] idsConCupoMayorQue(int cupo) {
+        return Arrays.copyOfRange(idsPorCupo, primeraPosicionMayorQue(cupos, cupo), idsPorCupo.length);
+    }
+
+    /**
+     * Ids de las clases con cupo máximo entre min y max (ambos incluidos), de menor a mayor cupo
+     */
+    public int[] idsConCupoEntre(int min, int max) {
+        if (min > max) {
+            return VACIO;
+        }
+        int desde = primeraPosicionMayorQue(cupos, min - 1L);
+        int hasta = primeraPosicionMayorQue(cupos, max);
+        return Arrays.copyOfRange(idsPorCupo, desde, hasta);
+    }
+
+    /**
+     * Ids (ordenados) de las clases con ese nombre, sin distinguir mayúsculas ni tildes
+     */
+    public int[] idsPorNombre(String nombre) {
+        int[] ids = nombre == null ? null : idsPorNombre.get(normalizar(nombre));
+        return ids == null ? VACIO : ids.clone();
+    }
+
+    /**
+     * Ids (ordenados y sin repetir) de las clases con ese nombre o con cupo mayor que cupoMinimo
+     */
+    public int[] idsPorNombreOCupoMayor(String nombre, int cupoMinimo) {
+        int desde = primeraPosicionMayorQue(cupos, cupoMinimo);
+        int[] porNombre = nombre == null ? null : idsPorNombre.get(normalizar(nombre));
+        int longitudNombre = porNombre == null ? 0 : porNombre.length;
+
+        int[] union = new int[idsPorCupo.length - desde + longitudNombre];
+        System.arraycopy(idsPorCupo, desde, union, 0, idsPorCupo.length - desde);
+        if (porNombre != null) {
+            System.arraycopy(porNombre, 0, union, idsPorCupo.length - desde, longitudNombre);
+        }
+        Arrays.sort(union);
+
+        int distintos = 0;
+        for (int i = 0; i < union.length; i++) {
+            if (i == 0 || union[i] != union[i - 1]) {
+                union[distintos++] = union[i];
+            }
+        }
+        return distintos == union.length ? union : Arrays.copyOf(union, distintos);
+    }
+
+    /**
+     * Número de clases indexadas por cupo
+     */
+    public int size() {
+        return idsPorCupo.length;
+    }
+
+    /**
+     * Forma canónica de un nombre para compararlo: sin espacios alrededor, en minúsculas y sin tildes
+     * Es la regla de coincidencia de nombres de clase, también para las búsquedas sin catálogo
+     */
+    public static String normalizar(String nombre) {
+        String sinTildes = Normalizer.normalize(nombre.trim(), Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        return sinTildes.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Primera posición cuyo cupo es mayor que el valor (cupos.length si no hay ninguna)
+     */
+    private static int primeraPosicionMayorQue(int[] cupos, long valor) {
+        int bajo = 0;
+        int alto = cupos.length;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (cupos[medio] > valor) {
+                alto = medio;
+            } else {
+                bajo = medio + 1;
+            }
+        }
+        return bajo;
+    }
+
+    private static int[] unir(int[] ordenados, int[] uno) {
+        int pos = Arrays.binarySearch(ordenados, uno[0]);
+        return pos >= 0 ? ordenados : insertar(ordenados, -pos - 1, uno[0]);
+    }
+
+    private static int[] insertar(int[] array, int pos, int valor) {
+        int[] nuevo = new int[array.length + 1];
+        System.arraycopy(array, 0, nuevo, 0, pos);
+        nuevo[pos] = valor;
+        System.arraycopy(array, pos, nuevo, pos + 1, array.length - pos);
+        return nuevo;
+    }
+
+    private static int[] quitar(int[] array, int pos) {
+        int[] nuevo = new int[array.length - 1];
+        System.arraycopy(array, 0, nuevo, 0, pos);
+        System.arraycopy(array, pos + 1, nuevo, pos, array.length - pos - 1);
+        return nuevo;
+    }
+}
@@ -0,0 +1,64 @@
+package com.ilerna.config;
+
+/**
+ * Instantánea (inmutable) de las estadísticas de una región de la caché de segundo nivel de Hibernate
+ */
+public class CacheRegionStats {
+    private final String region;
+    private final long aciertos;
+    private final long fallos;
+    private final long escrituras;
+    private final long elementosEnMemoria;
+
+    public CacheRegionStats(String region, long aciertos, long fallos, long escrituras, long elementosEnMemoria) {
+        this.region = region;
+        this.aciertos = aciertos;
+        this.fallos = fallos;
+        this.escrituras = escrituras;
+        this.elementosEnMemoria = elementosEnMemoria;
+    }
+
+    // Getters
+    public String getRegion() {
+        return region;
+    }
+
+    public long getAciertos() {
+        return aciertos;
+    }
+
+    public long getFallos() {
+        return fallos;
+    }
+
+    public long getEscrituras() {
+        return escrituras;
+    }
+
+    /**
+     * Elementos en memoria según el proveedor (-1 si no lo sabe)
+     */
+    public long getElementosEnMemoria() {
+        return elementosEnMemoria;
+    }
+
+    /**
+     * Proporción de lecturas servidas desde la caché (0 si no ha habido ninguna)
+     */
+    public double getRatioAciertos() {
+        long lecturas = aciertos + fallos;
+        return lecturas == 0 ? 0 : (double) aciertos / lecturas;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheRegionStats{" +
+                "region=" + region +
+                ", aciertos=" + aciertos +
+                ", fallos=" + fallos +
+                ", ratioAciertos=" + String.format("%.3f", getRatioAciertos()) +
+                ", escrituras=" + escrituras +
+                ", elementosEnMemoria=" + elementosEnMemoria +
+                '}';
+    }
+}
@@ -0,0 +1,130 @@
+package com.ilerna.config;
+
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.jsr107.Eh107Configuration;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Regiones de la caché de segundo nivel de Hibernate (JCache con Ehcache, en el propio proceso)
+ *
+ * Se cachean los datos de referencia, que casi no cambian: Clase y Entrenador, y las consultas
+ * marcadas como cacheables en la región {@link #REGION_REFERENCIAS}.
+ * Cada región se dimensiona desde las propiedades del perfil de Hibernate:
+ * - hibernate.l2cache.maxEntries / hibernate.l2cache.ttlSeconds: valores para todas las regiones
+ * - hibernate.l2cache.&lt;region&gt;.maxEntries / .ttlSeconds: valores de una región concreta
+ * ttlSeconds = 0 significa sin caducidad.
+ *
+ * Los cambios hechos por JDBC (ClaseDAO, scripts) no pasan por Hibernate y no invalidan la caché:
+ * se ven cuando caduca la entrada, así que ttlSeconds es el retraso máximo aceptable.
+ */
+public final class CacheSegundoNivel {
+
+    public static final String REGION_CLASE = "com.ilerna.entity.Clase";
+    public static final String REGION_ENTRENADOR = "com.ilerna.entity.Entrenador";
+    /** Resultados de las consultas de datos de referencia */
+    public static final String REGION_REFERENCIAS = "referencias";
+    /** Región de consultas por defecto de Hibernate (consultas cacheables sin región) */
+    public static final String REGION_CONSULTAS = "default-query-results-region";
+    /** Última modificación de cada tabla: invalida los resultados de consultas cacheados */
+    public static final String REGION_MARCAS_TABLAS = "default-update-timestamps-region";
+
+    /** Propiedad de hibernate-jcache con el CacheManager ya creado */
+    static final String PROPIEDAD_CACHE_MANAGER = "hibernate.javax.cache.cache_manager";
+
+    private static final String PREFIJO = "hibernate.l2cache.";
+    private static final String PROVEEDOR = "org.ehcache.jsr107.EhcacheCachingProvider";
+    private static final long MAX_ENTRADAS_POR_DEFECTO = 10000;
+    private static final long TTL_SEGUNDOS_POR_DEFECTO = 3600;
+
+    private static final List<String> REGIONES = Arrays.asList(
+            REGION_CLASE, REGION_ENTRENADOR, REGION_REFERENCIAS, REGION_CONSULTAS);
+
+    private CacheSegundoNivel() {
+    }
+
+    /**
+     * Crea el CacheManager con todas las regiones, según las propiedades
+     * @throws IllegalArgumentException si algún tamaño o caducidad no es válido
+     */
+    static CacheManager crearCacheManager(Properties props) {
+        CacheManager cacheManager = Caching.getCachingProvider(PROVEEDOR)
+                .getCacheManager(URI.create("urn:gimnasio:hibernate-l2"), CacheSegundoNivel.class.getClassLoader());
+        for (String region : REGIONES) {
+            crearRegion(cacheManager, region, maxEntradas(props, region), ttlSegundos(props, region));
+        }
+        // Una marca caducada haría servir resultados de consultas anteriores a un cambio: sin caducidad
+        crearRegion(cacheManager, REGION_MARCAS_TABLAS, maxEntradas(props, REGION_MARCAS_TABLAS), 0);
+        return cacheManager;
+    }
+
+    /**
+     * Estadísticas de cada región (requiere hibernate.generate_statistics=true)
+     */
+    public static List<CacheRegionStats> getEstadisticas(Statistics estadisticas) {
+        List<CacheRegionStats> resultado = new ArrayList<>();
+        if (estadisticas == null || !estadisticas.isStatisticsEnabled()) {
+            return resultado;
+        }
+        for (String region : estadisticas.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics r = estadisticas.getCacheRegionStatistics(region);
+            if (r != null) {
+                resultado.add(new CacheRegionStats(region, r.getHitCount(), r.getMissCount(), r.getPutCount(),
+                        r.getElementCountInMemory()));
+            }
+        }
+        return resultado;
+    }
+
+    private static void crearRegion(CacheManager cacheManager, String region, long maxEntradas, long ttlSegundos) {
+        if (maxEntradas <= 0) {
+            throw new IllegalArgumentException("La región " + region + " necesita al menos una entrada");
+        }
+        if (ttlSegundos < 0) {
+            throw new IllegalArgumentException("La caducidad de la región " + region + " no puede ser negativa");
+        }
+        // El CacheManager se comparte por URI: si ya existía (SessionFactory recreada) se sustituye
+        for (String existente : cacheManager.getCacheNames()) {
+            if (existente.equals(region)) {
+                cacheManager.destroyCache(region);
+                break;
+            }
+        }
+        CacheConfigurationBuilder<Object, Object> configuracion = CacheConfigurationBuilder
+                .newCacheConfigurationBuilder(Object.class, Object.class, ResourcePoolsBuilder.heap(maxEntradas))
+                .withExpiry(ttlSegundos == 0
+                        ? ExpiryPolicyBuilder.noExpiration()
+                        : ExpiryPolicyBuilder.timeToLiveExpiration(Duration.ofSeconds(ttlSegundos)));
+        cacheManager.createCache(region, Eh107Configuration.fromEhcacheCacheConfiguration(configuracion));
+    }
+
+    private static long maxEntradas(Properties props, String region) {
+        return longPropiedad(props, region, "maxEntries", MAX_ENTRADAS_POR_DEFECTO);
+    }
+
+    private static long ttlSegundos(Properties props, String region) {
+        return longPropiedad(props, region, "ttlSeconds", TTL_SEGUNDOS_POR_DEFECTO);
+    }
+
+    /**
+     * Valor de la región, o el general, o el por defecto
+     */
+    private static long longPropiedad(Properties props, String region, String clave, long porDefecto) {
+        String valor = props.getProperty(PREFIJO + region + "." + clave);
+        if (valor == null) {
+            valor = props.getProperty(PREFIJO + clave);
+        }
+        return valor == null ? porDefecto : Long.parseLong(valor.trim());
+    }
+}
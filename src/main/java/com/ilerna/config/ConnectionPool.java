@@ -0,0 +1,427 @@
+package com.ilerna.config;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Pool de conexiones JDBC acotado.
+ *
+ * Características:
+ * - Tamaño mínimo y máximo configurable (el máximo se garantiza con un semáforo justo)
+ * - Validación en el préstamo (Connection.isValid) salvo si la conexión se usó hace muy poco
+ * - Tiempo máximo de espera al pedir una conexión
+ * - Desalojo de conexiones libres inactivas y reciclado por vida máxima
+ * - Detección de fugas: informa de la traza de quien retiene una conexión demasiado tiempo
+ * - Estadísticas en vivo mediante {@link #getStats()}
+ *
+ * Las conexiones entregadas son proxies: al llamar a close() vuelven al pool
+ * (con rollback de lo pendiente y autoCommit restaurado) en lugar de cerrarse.
+ */
+public class ConnectionPool implements DataSource, AutoCloseable {
+
+    private final PoolConfig config;
+
+    // LIFO: se reutiliza primero la conexión usada más recientemente
+    private final LinkedBlockingDeque<ConexionFisica> libres = new LinkedBlockingDeque<>();
+    private final Set<ConexionFisica> prestadas = ConcurrentHashMap.newKeySet();
+    private final Semaphore permisos;
+    private final AtomicInteger total = new AtomicInteger();
+
+    private final LongAdder adquisiciones = new LongAdder();
+    private final LongAdder nanosAdquisicion = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder fugas = new LongAdder();
+
+    private final ScheduledExecutorService mantenimiento;
+    private volatile boolean cerrado;
+
+    public ConnectionPool(PoolConfig config) {
+        config.validar();
+        this.config = config;
+        this.permisos = new Semaphore(config.getMaxSize(), true);
+        this.mantenimiento = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pool-mantenimiento");
+            t.setDaemon(true);
+            return t;
+        });
+        // La primera ejecución rellena hasta minSize sin bloquear al constructor
+        this.mantenimiento.scheduleWithFixedDelay(this::mantener, 0,
+                config.getHousekeepingIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Obtiene una conexión del pool, esperando como máximo acquireTimeoutMs
+     * @return Conexión que vuelve al pool al cerrarse
+     * @throws SQLTimeoutException si no hay conexión disponible a tiempo
+     * @throws SQLException si el pool está cerrado o falla la conexión física
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (cerrado) {
+            throw new SQLException("El pool de conexiones está cerrado");
+        }
+
+        long inicio = System.nanoTime();
+        try {
+            if (!permisos.tryAcquire(config.getAcquireTimeoutMs(), TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new SQLTimeoutException("No se obtuvo conexión en " + config.getAcquireTimeoutMs()
+                        + " ms. Estado del pool: " + getStats());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrumpido mientras se esperaba una conexión del pool", e);
+        }
+
+        try {
+            ConexionFisica fisica = obtenerLibreValida();
+            if (fisica == null) {
+                total.incrementAndGet();
+                try {
+                    fisica = new ConexionFisica(abrirConexionFisica());
+                } catch (SQLException | RuntimeException e) {
+                    total.decrementAndGet();
+                    throw e;
+                }
+            }
+            prestar(fisica);
+
+            adquisiciones.increment();
+            nanosAdquisicion.add(System.nanoTime() - inicio);
+            return crearProxy(fisica);
+        } catch (SQLException | RuntimeException e) {
+            permisos.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("El pool solo entrega conexiones con las credenciales configuradas");
+    }
+
+    /**
+     * Abre una conexión física contra la base de datos
+     */
+    protected Connection abrirConexionFisica() throws SQLException {
+        return DriverManager.getConnection(config.getUrl(), config.getUser(), config.getPassword());
+    }
+
+    /**
+     * Devuelve una instantánea de las estadísticas actuales del pool
+     */
+    public PoolStats getStats() {
+        long n = adquisiciones.sum();
+        double media = n == 0 ? 0.0 : nanosAdquisicion.sum() / (double) n / 1_000_000.0;
+        return new PoolStats(
+            prestadas.size(),
+            libres.size(),
+            permisos.getQueueLength(),
+            config.getMaxSize(),
+            n,
+            media,
+            timeouts.sum(),
+            fugas.sum()
+        );
+    }
+
+    public PoolConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Cierra el pool: las conexiones libres se cierran ya, las prestadas al devolverse
+     */
+    @Override
+    public void close() {
+        if (cerrado) {
+            return;
+        }
+        cerrado = true;
+        mantenimiento.shutdownNow();
+        ConexionFisica fisica;
+        while ((fisica = libres.pollFirst()) != null) {
+            destruir(fisica);
+        }
+    }
+
+    public boolean isClosed() {
+        return cerrado;
+    }
+
+    /**
+     * Toma conexiones libres hasta encontrar una válida (las inválidas se descartan)
+     */
+    private ConexionFisica obtenerLibreValida() {
+        ConexionFisica fisica;
+        while ((fisica = libres.pollFirst()) != null) {
+            long ahora = System.currentTimeMillis();
+            if (ahora - fisica.creadaEn > config.getMaxLifetimeMs()) {
+                destruir(fisica);
+                continue;
+            }
+            if (ahora - fisica.ultimoUso <= config.getValidationBypassMs() || esValida(fisica)) {
+                return fisica;
+            }
+            destruir(fisica);
+        }
+        return null;
+    }
+
+    private boolean esValida(ConexionFisica fisica) {
+        try {
+            return fisica.real.isValid(config.getValidationTimeoutSeconds());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void prestar(ConexionFisica fisica) {
+        fisica.prestadaEn = System.currentTimeMillis();
+        fisica.hiloPrestamo = Thread.currentThread().getName();
+        fisica.fugaReportada = false;
+        fisica.trazaPrestamo = config.getLeakDetectionThresholdMs() > 0
+                ? new Exception("Conexión obtenida del pool aquí")
+                : null;
+        prestadas.add(fisica);
+    }
+
+    /**
+     * Recibe una conexión devuelta: deshace lo pendiente y la deja libre o la descarta
+     */
+    private void devolver(ConexionFisica fisica) {
+        prestadas.remove(fisica);
+        try {
+            boolean reutilizable = !cerrado
+                    && total.get() <= config.getMaxSize()
+                    && System.currentTimeMillis() - fisica.creadaEn <= config.getMaxLifetimeMs()
+                    && restablecer(fisica.real);
+            if (reutilizable) {
+                fisica.ultimoUso = System.currentTimeMillis();
+                fisica.trazaPrestamo = null;
+                libres.offerFirst(fisica);
+            } else {
+                destruir(fisica);
+            }
+        } finally {
+            permisos.release();
+        }
+    }
+
+    /**
+     * Deja la conexión como recién abierta (sin transacción en curso y con autoCommit)
+     */
+    private boolean restablecer(Connection real) {
+        try {
+            if (real.isClosed()) {
+                return false;
+            }
+            if (!real.getAutoCommit()) {
+                real.rollback();
+                real.setAutoCommit(true);
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void destruir(ConexionFisica fisica) {
+        total.decrementAndGet();
+        try {
+            fisica.real.close();
+        } catch (SQLException e) {
+            // La conexión ya estaba rota, no hay nada más que hacer
+        }
+    }
+
+    /**
+     * Tarea periódica: detección de fugas, desalojo de inactivas y relleno hasta minSize
+     */
+    private void mantener() {
+        try {
+            detectarFugas();
+            desalojarInactivas();
+            rellenarMinimo();
+        } catch (RuntimeException e) {
+            System.err.println("Error en el mantenimiento del pool: " + e.getMessage());
+        }
+    }
+
+    private void detectarFugas() {
+        long umbral = config.getLeakDetectionThresholdMs();
+        if (umbral <= 0) {
+            return;
+        }
+        long ahora = System.currentTimeMillis();
+        for (ConexionFisica fisica : prestadas) {
+            Exception traza = fisica.trazaPrestamo;
+            if (!fisica.fugaReportada && traza != null && ahora - fisica.prestadaEn > umbral) {
+                fisica.fugaReportada = true;
+                fugas.increment();
+                System.err.println("⚠ Posible fuga de conexión: prestada hace " + (ahora - fisica.prestadaEn)
+                        + " ms al hilo '" + fisica.hiloPrestamo + "' y aún no devuelta");
+                traza.printStackTrace();
+            }
+        }
+    }
+
+    private void desalojarInactivas() {
+        long ahora = System.currentTimeMillis();
+        // Se recorre desde la cola: las menos usadas recientemente
+        Iterator<ConexionFisica> it = libres.descendingIterator();
+        while (it.hasNext() && total.get() > config.getMinSize()) {
+            ConexionFisica fisica = it.next();
+            boolean inactiva = ahora - fisica.ultimoUso > config.getIdleTimeoutMs();
+            boolean caducada = ahora - fisica.creadaEn > config.getMaxLifetimeMs();
+            if ((inactiva || caducada) && libres.removeLastOccurrence(fisica)) {
+                destruir(fisica);
+            }
+        }
+    }
+
+    private void rellenarMinimo() {
+        while (!cerrado) {
+            int actual = total.get();
+            if (actual >= config.getMinSize()) {
+                return;
+            }
+            if (!total.compareAndSet(actual, actual + 1)) {
+                continue;
+            }
+            try {
+                libres.offerLast(new ConexionFisica(abrirConexionFisica()));
+            } catch (SQLException e) {
+                total.decrementAndGet();
+                System.err.println("No se pudo abrir conexión para el mínimo del pool: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private Connection crearProxy(ConexionFisica fisica) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new ConexionPrestada(fisica));
+    }
+
+    /**
+     * Conexión física junto con sus metadatos de uso
+     */
+    private static class ConexionFisica {
+        final Connection real;
+        final long creadaEn = System.currentTimeMillis();
+        volatile long ultimoUso = creadaEn;
+        volatile long prestadaEn;
+        volatile String hiloPrestamo;
+        volatile Exception trazaPrestamo;
+        volatile boolean fugaReportada;
+
+        ConexionFisica(Connection real) {
+            this.real = real;
+        }
+    }
+
+    /**
+     * Manejador del proxy: intercepta close()/isClosed() y delega el resto
+     */
+    private class ConexionPrestada implements InvocationHandler {
+        private final ConexionFisica fisica;
+        private boolean devuelta;
+
+        ConexionPrestada(ConexionFisica fisica) {
+            this.fisica = fisica;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String nombre = method.getName();
+            switch (nombre) {
+                case "close":
+                    synchronized (this) {
+                        if (!devuelta) {
+                            devuelta = true;
+                            devolver(fisica);
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return devuelta || fisica.real.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "ConexionPrestada[" + fisica.real + (devuelta ? ", devuelta" : "") + "]";
+                default:
+                    break;
+            }
+            if (devuelta) {
+                throw new SQLException("La conexión ya fue devuelta al pool");
+            }
+            try {
+                return method.invoke(fisica.real, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    // Métodos de DataSource sin uso en este pool
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return 0;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("No es un wrapper de " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
@@ -1,15 +1,82 @@
 package com.ilerna.config;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.Properties;
 
+/**
+ * Punto de acceso a la base de datos.
+ * Las conexiones salen de un {@link ConnectionPool} único creado bajo demanda
+ * a partir de database.properties (las propiedades de sistema -Ddb.* / -Dpool.* tienen prioridad).
+ */
 public class DataBaseConnection {
     private static final String URL = "jdbc:postgresql://localhost:5432/gimnasio";
     private static final String USER = "postgres";
     private static final String PASSWORD = "postgres";
+    private static final String CONFIG_FILE = "database.properties";
 
+    private static volatile ConnectionPool pool;
+
+    /**
+     * Obtiene una conexión del pool. Cerrarla la devuelve al pool.
+     */
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(URL, USER, PASSWORD);
+        return getDataSource().getConnection();
+    }
+
+    /**
+     * Obtiene el pool de conexiones (se crea en la primera llamada)
+     */
+    public static ConnectionPool getDataSource() {
+        ConnectionPool actual = pool;
+        if (actual == null) {
+            synchronized (DataBaseConnection.class) {
+                actual = pool;
+                if (actual == null) {
+                    actual = new ConnectionPool(cargarConfiguracion());
+                    pool = actual;
+                }
+            }
+        }
+        return actual;
+    }
+
+    /**
+     * Estadísticas en vivo del pool
+     */
+    public static PoolStats getStats() {
+        return getDataSource().getStats();
+    }
+
+    /**
+     * Cierra el pool cuando la aplicación termina
+     */
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
+
+    /**
+     * Lee database.properties del classpath y aplica las propiedades de sistema encima
+     */
+    static PoolConfig cargarConfiguracion() {
+        Properties props = new Properties();
+        try (InputStream in = DataBaseConnection.class.getClassLoader().getResourceAsStream(CONFIG_FILE)) {
+            if (in != null) {
+                props.load(in);
+            }
+        } catch (IOException e) {
+            System.err.println("No se pudo leer " + CONFIG_FILE + ", se usan valores por defecto: " + e.getMessage());
+        }
+        for (String key : System.getProperties().stringPropertyNames()) {
+            if (key.startsWith("db.") || key.startsWith("pool.")) {
+                props.setProperty(key, System.getProperty(key));
+            }
+        }
+        return PoolConfig.fromProperties(props, new PoolConfig(URL, USER, PASSWORD));
     }
 }
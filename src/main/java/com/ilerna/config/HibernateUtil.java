@@ -3,18 +3,53 @@ package com.ilerna.config;
 import org.hibernate.SessionFactory;
 import org.hibernate.cfg.Configuration;
 
+import javax.cache.CacheManager;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Properties;
+
 /**
  * Utilidad para gestionar la SessionFactory de Hibernate.
  * Implementa el patrón Singleton para garantizar una única instancia.
+ *
+ * La configuración base está en hibernate.cfg.xml y se completa con un perfil:
+ * - Perfil: -Dhibernate.profile=prod (o variable HIBERNATE_PROFILE), por defecto "dev"
+ * - Se carga hibernate-&lt;perfil&gt;.properties del classpath
+ * - -Dhibernate.config.file=/ruta/fichero.properties añade propiedades externas (tienen prioridad)
+ *
+ * Si la caché de segundo nivel está activada, crea antes su CacheManager con las regiones
+ * dimensionadas según el perfil (ver {@link CacheSegundoNivel}).
  */
 public class HibernateUtil {
 
+    private static final String PERFIL_POR_DEFECTO = "dev";
+    private static final int TAMANO_LOTE_POR_DEFECTO = 50;
+
+    private static final String perfil;
+    private static final int jdbcBatchSize;
+    private static final CacheManager cacheManager;
     private static final SessionFactory sessionFactory;
 
     static {
         try {
-            // Crear la SessionFactory desde hibernate.cfg.xml
-            sessionFactory = new Configuration().configure().buildSessionFactory();
+            perfil = resolverPerfil();
+
+            // Crear la SessionFactory desde hibernate.cfg.xml + propiedades del perfil
+            Configuration configuration = new Configuration().configure();
+            configuration.addProperties(cargarPropiedadesPerfil(perfil));
+            String batchSize = configuration.getProperties().getProperty("hibernate.jdbc.batch_size");
+            jdbcBatchSize = batchSize != null ? Integer.parseInt(batchSize.trim()) : TAMANO_LOTE_POR_DEFECTO;
+            String segundoNivel = configuration.getProperties().getProperty("hibernate.cache.use_second_level_cache");
+            if (segundoNivel != null && Boolean.parseBoolean(segundoNivel.trim())) {
+                cacheManager = CacheSegundoNivel.crearCacheManager(configuration.getProperties());
+                configuration.getProperties().put(CacheSegundoNivel.PROPIEDAD_CACHE_MANAGER, cacheManager);
+            } else {
+                cacheManager = null;
+            }
+            sessionFactory = configuration.buildSessionFactory();
         } catch (Exception e) {
             System.err.println("Error al crear SessionFactory: " + e.getMessage());
             e.printStackTrace();
@@ -30,6 +65,29 @@ public class HibernateUtil {
         return sessionFactory;
     }
 
+    /**
+     * Perfil de configuración con el que se creó la SessionFactory
+     */
+    public static String getPerfil() {
+        return perfil;
+    }
+
+    /**
+     * Tamaño de lote JDBC configurado (hibernate.jdbc.batch_size).
+     * Las inserciones masivas hacen flush() y clear() cada este número de entidades
+     */
+    public static int getJdbcBatchSize() {
+        return jdbcBatchSize;
+    }
+
+    /**
+     * Aciertos, fallos y tamaño de cada región de la caché de segundo nivel
+     * (vacía si la caché o las estadísticas están desactivadas)
+     */
+    public static List<CacheRegionStats> getEstadisticasCache() {
+        return CacheSegundoNivel.getEstadisticas(sessionFactory.getStatistics());
+    }
+
     /**
      * Cierra la SessionFactory cuando la aplicación termina
      */
@@ -37,5 +95,39 @@ public class HibernateUtil {
         if (sessionFactory != null && !sessionFactory.isClosed()) {
             sessionFactory.close();
         }
+        // Hibernate no cierra un CacheManager que no ha creado él
+        if (cacheManager != null && !cacheManager.isClosed()) {
+            cacheManager.close();
+        }
+    }
+
+    private static String resolverPerfil() {
+        String valor = System.getProperty("hibernate.profile");
+        if (valor == null || valor.trim().isEmpty()) {
+            valor = System.getenv("HIBERNATE_PROFILE");
+        }
+        return valor == null || valor.trim().isEmpty() ? PERFIL_POR_DEFECTO : valor.trim();
+    }
+
+    /**
+     * Lee hibernate-&lt;perfil&gt;.properties del classpath y, si se indica, el fichero externo
+     */
+    private static Properties cargarPropiedadesPerfil(String perfil) throws IOException {
+        Properties props = new Properties();
+        String recurso = "hibernate-" + perfil + ".properties";
+        try (InputStream in = HibernateUtil.class.getClassLoader().getResourceAsStream(recurso)) {
+            if (in == null) {
+                throw new IOException("No existe el perfil de Hibernate '" + perfil + "' (" + recurso + ")");
+            }
+            props.load(in);
+        }
+
+        String externo = System.getProperty("hibernate.config.file");
+        if (externo != null && !externo.trim().isEmpty()) {
+            try (InputStream in = Files.newInputStream(Paths.get(externo.trim()))) {
+                props.load(in);
+            }
+        }
+        return props;
     }
 }
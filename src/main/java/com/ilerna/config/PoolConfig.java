@@ -0,0 +1,199 @@
+package com.ilerna.config;
+
+import java.util.Properties;
+
+/**
+ * Configuración del pool de conexiones JDBC.
+ * Todos los tiempos se expresan en milisegundos salvo que se indique lo contrario.
+ */
+public class PoolConfig {
+
+    private String url;
+    private String user;
+    private String password;
+
+    // Tamaño del pool
+    private int minSize = 2;
+    private int maxSize = 10;
+
+    // Tiempo que una conexión puede estar libre antes de cerrarse (si hay más de minSize)
+    private long idleTimeoutMs = 10 * 60 * 1000L;
+
+    // Vida máxima de una conexión física, después se recicla
+    private long maxLifetimeMs = 30 * 60 * 1000L;
+
+    // Tiempo máximo que un hilo espera para obtener una conexión
+    private long acquireTimeoutMs = 30 * 1000L;
+
+    // Timeout (segundos) de Connection.isValid() al validar en el préstamo
+    private int validationTimeoutSeconds = 5;
+
+    // Si la conexión se usó hace menos de esto, no se valida en el préstamo
+    private long validationBypassMs = 500L;
+
+    // Tiempo prestada a partir del cual se avisa de una posible fuga (0 = desactivado)
+    private long leakDetectionThresholdMs = 60 * 1000L;
+
+    // Periodicidad de la tarea de mantenimiento (desalojo, relleno y fugas)
+    private long housekeepingIntervalMs = 5 * 1000L;
+
+    public PoolConfig() {
+    }
+
+    public PoolConfig(String url, String user, String password) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+    }
+
+    /**
+     * Crea la configuración a partir de un fichero de propiedades
+     * (claves db.* para la conexión y pool.* para el pool)
+     * @param props Propiedades leídas
+     * @param defaults Configuración con los valores por defecto
+     * @return Configuración resultante
+     */
+    public static PoolConfig fromProperties(Properties props, PoolConfig defaults) {
+        PoolConfig config = new PoolConfig(
+            props.getProperty("db.url", defaults.getUrl()),
+            props.getProperty("db.user", defaults.getUser()),
+            props.getProperty("db.password", defaults.getPassword())
+        );
+        config.setMinSize(intProperty(props, "pool.minSize", defaults.getMinSize()));
+        config.setMaxSize(intProperty(props, "pool.maxSize", defaults.getMaxSize()));
+        config.setIdleTimeoutMs(longProperty(props, "pool.idleTimeoutMs", defaults.getIdleTimeoutMs()));
+        config.setMaxLifetimeMs(longProperty(props, "pool.maxLifetimeMs", defaults.getMaxLifetimeMs()));
+        config.setAcquireTimeoutMs(longProperty(props, "pool.acquireTimeoutMs", defaults.getAcquireTimeoutMs()));
+        config.setValidationTimeoutSeconds(intProperty(props, "pool.validationTimeoutSeconds", defaults.getValidationTimeoutSeconds()));
+        config.setValidationBypassMs(longProperty(props, "pool.validationBypassMs", defaults.getValidationBypassMs()));
+        config.setLeakDetectionThresholdMs(longProperty(props, "pool.leakDetectionThresholdMs", defaults.getLeakDetectionThresholdMs()));
+        config.setHousekeepingIntervalMs(longProperty(props, "pool.housekeepingIntervalMs", defaults.getHousekeepingIntervalMs()));
+        return config;
+    }
+
+    /**
+     * Comprueba que los valores sean coherentes
+     * @throws IllegalArgumentException si algún valor no es válido
+     */
+    public void validar() {
+        if (url == null || url.trim().isEmpty()) {
+            throw new IllegalArgumentException("La URL de conexión es obligatoria");
+        }
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("pool.maxSize debe ser al menos 1");
+        }
+        if (minSize < 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("pool.minSize debe estar entre 0 y pool.maxSize");
+        }
+        if (acquireTimeoutMs <= 0 || housekeepingIntervalMs <= 0) {
+            throw new IllegalArgumentException("Los tiempos de espera y mantenimiento deben ser positivos");
+        }
+    }
+
+    private static int intProperty(Properties props, String key, int defaultValue) {
+        String value = props.getProperty(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    private static long longProperty(Properties props, String key, long defaultValue) {
+        String value = props.getProperty(key);
+        return value == null ? defaultValue : Long.parseLong(value.trim());
+    }
+
+    // Getters y Setters
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public void setUser(String user) {
+        this.user = user;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    public void setMinSize(int minSize) {
+        this.minSize = minSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public long getIdleTimeoutMs() {
+        return idleTimeoutMs;
+    }
+
+    public void setIdleTimeoutMs(long idleTimeoutMs) {
+        this.idleTimeoutMs = idleTimeoutMs;
+    }
+
+    public long getMaxLifetimeMs() {
+        return maxLifetimeMs;
+    }
+
+    public void setMaxLifetimeMs(long maxLifetimeMs) {
+        this.maxLifetimeMs = maxLifetimeMs;
+    }
+
+    public long getAcquireTimeoutMs() {
+        return acquireTimeoutMs;
+    }
+
+    public void setAcquireTimeoutMs(long acquireTimeoutMs) {
+        this.acquireTimeoutMs = acquireTimeoutMs;
+    }
+
+    public int getValidationTimeoutSeconds() {
+        return validationTimeoutSeconds;
+    }
+
+    public void setValidationTimeoutSeconds(int validationTimeoutSeconds) {
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+    }
+
+    public long getValidationBypassMs() {
+        return validationBypassMs;
+    }
+
+    public void setValidationBypassMs(long validationBypassMs) {
+        this.validationBypassMs = validationBypassMs;
+    }
+
+    public long getLeakDetectionThresholdMs() {
+        return leakDetectionThresholdMs;
+    }
+
+    public void setLeakDetectionThresholdMs(long leakDetectionThresholdMs) {
+        this.leakDetectionThresholdMs = leakDetectionThresholdMs;
+    }
+
+    public long getHousekeepingIntervalMs() {
+        return housekeepingIntervalMs;
+    }
+
+    public void setHousekeepingIntervalMs(long housekeepingIntervalMs) {
+        this.housekeepingIntervalMs = housekeepingIntervalMs;
+    }
+}
@@ -0,0 +1,79 @@
+package com.ilerna.config;
+
+/**
+ * Instantánea (inmutable) de las estadísticas del pool de conexiones
+ */
+public class PoolStats {
+    private final int activas;
+    private final int libres;
+    private final int hilosEsperando;
+    private final int maximo;
+    private final long adquisiciones;
+    private final double tiempoMedioAdquisicionMs;
+    private final long timeouts;
+    private final long fugasDetectadas;
+
+    public PoolStats(int activas, int libres, int hilosEsperando, int maximo,
+                     long adquisiciones, double tiempoMedioAdquisicionMs,
+                     long timeouts, long fugasDetectadas) {
+        this.activas = activas;
+        this.libres = libres;
+        this.hilosEsperando = hilosEsperando;
+        this.maximo = maximo;
+        this.adquisiciones = adquisiciones;
+        this.tiempoMedioAdquisicionMs = tiempoMedioAdquisicionMs;
+        this.timeouts = timeouts;
+        this.fugasDetectadas = fugasDetectadas;
+    }
+
+    // Getters
+    public int getActivas() {
+        return activas;
+    }
+
+    public int getLibres() {
+        return libres;
+    }
+
+    public int getTotal() {
+        return activas + libres;
+    }
+
+    public int getHilosEsperando() {
+        return hilosEsperando;
+    }
+
+    public int getMaximo() {
+        return maximo;
+    }
+
+    public long getAdquisiciones() {
+        return adquisiciones;
+    }
+
+    public double getTiempoMedioAdquisicionMs() {
+        return tiempoMedioAdquisicionMs;
+    }
+
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    public long getFugasDetectadas() {
+        return fugasDetectadas;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolStats{" +
+                "activas=" + activas +
+                ", libres=" + libres +
+                ", hilosEsperando=" + hilosEsperando +
+                ", maximo=" + maximo +
+                ", adquisiciones=" + adquisiciones +
+                ", tiempoMedioAdquisicionMs=" + String.format("%.3f", tiempoMedioAdquisicionMs) +
+                ", timeouts=" + timeouts +
+                ", fugasDetectadas=" + fugasDetectadas +
+                '}';
+    }
+}
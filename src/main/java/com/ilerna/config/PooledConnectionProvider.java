@@ -0,0 +1,97 @@
+package com.ilerna.config;
+
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.service.spi.Configurable;
+import org.hibernate.service.spi.Stoppable;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Proveedor de conexiones de Hibernate respaldado por {@link ConnectionPool}.
+ * Sustituye al proveedor interno de Hibernate (no apto para producción).
+ *
+ * Se activa con hibernate.connection.provider_class y se configura con:
+ * - hibernate.connection.url / username / password
+ * - hibernate.pool.* (mismas claves que pool.* en database.properties, p. ej. hibernate.pool.maxSize)
+ */
+public class PooledConnectionProvider implements ConnectionProvider, Configurable, Stoppable {
+
+    private static final long serialVersionUID = 1L;
+    private static final String PREFIJO_POOL = "hibernate.pool.";
+
+    private ConnectionPool pool;
+
+    @Override
+    public void configure(Map<String, Object> configurationValues) {
+        Properties props = new Properties();
+        copiar(configurationValues, "hibernate.connection.url", props, "db.url");
+        copiar(configurationValues, "hibernate.connection.username", props, "db.user");
+        copiar(configurationValues, "hibernate.connection.password", props, "db.password");
+        for (Map.Entry<String, Object> entry : configurationValues.entrySet()) {
+            if (entry.getKey().startsWith(PREFIJO_POOL) && entry.getValue() != null) {
+                props.setProperty("pool." + entry.getKey().substring(PREFIJO_POOL.length()),
+                        entry.getValue().toString());
+            }
+        }
+        this.pool = new ConnectionPool(PoolConfig.fromProperties(props, new PoolConfig()));
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return pool.getConnection();
+    }
+
+    @Override
+    public void closeConnection(Connection connection) throws SQLException {
+        // Devuelve la conexión al pool
+        connection.close();
+    }
+
+    @Override
+    public boolean supportsAggressiveRelease() {
+        return false;
+    }
+
+    /**
+     * Estadísticas del pool usado por Hibernate
+     */
+    public PoolStats getStats() {
+        return pool.getStats();
+    }
+
+    @Override
+    public void stop() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Override
+    public boolean isUnwrappableAs(Class<?> unwrapType) {
+        return unwrapType.isAssignableFrom(PooledConnectionProvider.class)
+                || unwrapType.isAssignableFrom(ConnectionPool.class);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> unwrapType) {
+        if (unwrapType.isAssignableFrom(PooledConnectionProvider.class)) {
+            return (T) this;
+        }
+        if (unwrapType.isAssignableFrom(ConnectionPool.class) || DataSource.class.equals(unwrapType)) {
+            return (T) pool;
+        }
+        throw new IllegalArgumentException("No se puede obtener " + unwrapType.getName() + " del proveedor de conexiones");
+    }
+
+    private static void copiar(Map<String, Object> origen, String clave, Properties destino, String claveDestino) {
+        Object valor = origen.get(clave);
+        if (valor != null) {
+            destino.setProperty(claveDestino, valor.toString());
+        }
+    }
+}
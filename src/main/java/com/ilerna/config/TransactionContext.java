@@ -0,0 +1,173 @@
+package com.ilerna.config;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Contexto transaccional ligado al hilo actual.
+ *
+ * Los DAO piden su conexión con {@link #getConnection(DataSource)}:
+ * - Fuera de una transacción reciben una conexión nueva del pool (una por operación)
+ * - Dentro de {@link #executeInTransaction} reciben la conexión de la transacción en curso
+ *
+ * Así varios hilos pueden usar los mismos DAO y servicios a la vez,
+ * y un servicio puede agrupar varias operaciones de DAO en una transacción atómica.
+ */
+public final class TransactionContext {
+
+    private static final ThreadLocal<Map<DataSource, Connection>> TRANSACCIONES =
+            ThreadLocal.withInitial(HashMap::new);
+    private static final ThreadLocal<List<Runnable>> AL_TERMINAR = new ThreadLocal<>();
+    private static final ThreadLocal<List<Runnable>> AL_CONFIRMAR = new ThreadLocal<>();
+
+    private TransactionContext() {
+    }
+
+    /**
+     * Trabajo a ejecutar dentro de una transacción
+     */
+    @FunctionalInterface
+    public interface TransactionCallback<T> {
+        T execute(Connection connection) throws SQLException;
+    }
+
+    /**
+     * Obtiene la conexión para una operación: la de la transacción actual o una del pool
+     * Debe liberarse siempre con {@link #releaseConnection(Connection, DataSource)}
+     */
+    public static Connection getConnection(DataSource dataSource) throws SQLException {
+        Connection enTransaccion = TRANSACCIONES.get().get(dataSource);
+        return enTransaccion != null ? enTransaccion : dataSource.getConnection();
+    }
+
+    /**
+     * Libera la conexión de una operación. La conexión de la transacción sigue abierta
+     * hasta que termine la transacción
+     */
+    public static void releaseConnection(Connection connection, DataSource dataSource) throws SQLException {
+        if (connection != null && connection != TRANSACCIONES.get().get(dataSource)) {
+            connection.close();
+        }
+    }
+
+    /**
+     * Indica si el hilo actual está dentro de una transacción sobre el DataSource
+     */
+    public static boolean isTransactionActive(DataSource dataSource) {
+        return TRANSACCIONES.get().containsKey(dataSource);
+    }
+
+    /**
+     * Ejecuta la acción cuando termine la transacción en curso del hilo (tras el commit o el
+     * rollback de la más externa), o en el momento si no hay ninguna.
+     * Sirve para invalidar cachés: invalidar antes del commit deja que otro hilo vuelva a
+     * cargar y guardar el valor anterior, que ya no se invalidaría.
+     */
+    public static void alTerminar(Runnable accion) {
+        if (TRANSACCIONES.get().isEmpty()) {
+            TRANSACCIONES.remove();
+            accion.run();
+            return;
+        }
+        List<Runnable> pendientes = AL_TERMINAR.get();
+        if (pendientes == null) {
+            pendientes = new ArrayList<>();
+            AL_TERMINAR.set(pendientes);
+        }
+        pendientes.add(accion);
+    }
+
+    /**
+     * Ejecuta la acción tras el commit de la transacción más externa del hilo, o en el momento si
+     * no hay ninguna. Si la transacción acaba en rollback, la acción se descarta.
+     * Sirve para avisar de lo escrito: nadie recibe datos que luego no llegan a existir.
+     */
+    public static void alConfirmar(Runnable accion) {
+        if (TRANSACCIONES.get().isEmpty()) {
+            TRANSACCIONES.remove();
+            accion.run();
+            return;
+        }
+        List<Runnable> pendientes = AL_CONFIRMAR.get();
+        if (pendientes == null) {
+            pendientes = new ArrayList<>();
+            AL_CONFIRMAR.set(pendientes);
+        }
+        pendientes.add(accion);
+    }
+
+    /**
+     * Ejecuta el trabajo en una transacción: commit si termina bien, rollback si lanza excepción.
+     * Si ya hay una transacción activa en este hilo, el trabajo se une a ella.
+     *
+     * @param dataSource Origen de la conexión de la transacción
+     * @param work Trabajo a ejecutar
+     * @return Resultado del trabajo
+     * @throws SQLException Si falla el trabajo o el commit (tras hacer rollback)
+     */
+    public static <T> T executeInTransaction(DataSource dataSource, TransactionCallback<T> work) throws SQLException {
+        Map<DataSource, Connection> transacciones = TRANSACCIONES.get();
+        Connection actual = transacciones.get(dataSource);
+        if (actual != null) {
+            return work.execute(actual);
+        }
+
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommitOriginal = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            transacciones.put(dataSource, connection);
+            boolean confirmada = false;
+            try {
+                T resultado = work.execute(connection);
+                connection.commit();
+                confirmada = true;
+                return resultado;
+            } catch (SQLException | RuntimeException e) {
+                rollback(connection, e);
+                throw e;
+            } finally {
+                transacciones.remove(dataSource);
+                try {
+                    connection.setAutoCommit(autoCommitOriginal);
+                } catch (SQLException e) {
+                    // El pool restablece la conexión al devolverla
+                }
+                if (transacciones.isEmpty()) {
+                    TRANSACCIONES.remove();
+                    ejecutar(AL_CONFIRMAR, confirmada);
+                    ejecutar(AL_TERMINAR, true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Saca las acciones pendientes del hilo y, si corresponde, las ejecuta
+     */
+    private static void ejecutar(ThreadLocal<List<Runnable>> lista, boolean ejecutar) {
+        List<Runnable> pendientes = lista.get();
+        if (pendientes == null) {
+            return;
+        }
+        lista.remove();
+        if (!ejecutar) {
+            return;
+        }
+        for (Runnable accion : pendientes) {
+            accion.run();
+        }
+    }
+
+    private static void rollback(Connection connection, Exception causa) {
+        try {
+            connection.rollback();
+        } catch (SQLException rollbackEx) {
+            causa.addSuppressed(rollbackEx);
+        }
+    }
+}
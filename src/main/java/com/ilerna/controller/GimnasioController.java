@@ -1,10 +1,16 @@
 package com.ilerna.controller;
 
+import com.ilerna.config.PoolStats;
+import com.ilerna.dao.UncheckedSQLException;
 import com.ilerna.dto.Clase;
 import com.ilerna.dto.ClaseConConteo;
 import com.ilerna.dto.Cliente;
 import com.ilerna.dto.Entrenador;
+import com.ilerna.dto.Pagina;
 import com.ilerna.service.AsistenciaService;
+import com.ilerna.service.FichajeDuplicadoException;
+import com.ilerna.service.IngestaAsistenciasService;
+import com.ilerna.service.ReservaService;
 import com.ilerna.service.TransaccionDemoService;
 
 import java.util.Optional;
@@ -13,9 +19,13 @@ import com.ilerna.service.ClienteService;
 import com.ilerna.service.DatabaseService;
 
 import java.sql.SQLException;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
 
 /**
  * Controlador principal, maneja la lógica de presentación
@@ -28,19 +38,27 @@ public class GimnasioController {
     private final ClienteService clienteService;
     private final ClaseService claseService;
     private final AsistenciaService asistenciaService;
+    private final ReservaService reservaService;
+    private final IngestaAsistenciasService ingestaAsistencias;
     private final TransaccionDemoService transaccionDemoService;
     private final Scanner scanner;
 
+    private static final int TAMANO_PAGINA = 20;
+
     public GimnasioController(DatabaseService databaseService,
                               ClienteService clienteService,
                               ClaseService claseService,
                               AsistenciaService asistenciaService,
+                              ReservaService reservaService,
+                              IngestaAsistenciasService ingestaAsistencias,
                               TransaccionDemoService transaccionDemoService,
                               Scanner scanner) {
         this.databaseService = databaseService;
         this.clienteService = clienteService;
         this.claseService = claseService;
         this.asistenciaService = asistenciaService;
+        this.reservaService = reservaService;
+        this.ingestaAsistencias = ingestaAsistencias;
         this.transaccionDemoService = transaccionDemoService;
         this.scanner = scanner;
     }
@@ -58,25 +76,49 @@ public class GimnasioController {
         }
     }
 
+    /**
+     * Muestra las estadísticas en vivo del pool de conexiones
+     */
+    public void mostrarEstadisticasPool() {
+        Optional<PoolStats> stats = databaseService.obtenerEstadisticasPool();
+
+        if (!stats.isPresent()) {
+            System.out.println("No hay pool de conexiones configurado.");
+            return;
+        }
+
+        PoolStats s = stats.get();
+        System.out.println("=== ESTADÍSTICAS DEL POOL DE CONEXIONES ===");
+        System.out.println("  Activas: " + s.getActivas() + " / " + s.getMaximo());
+        System.out.println("  Libres: " + s.getLibres());
+        System.out.println("  Hilos esperando: " + s.getHilosEsperando());
+        System.out.println("  Adquisiciones: " + s.getAdquisiciones());
+        System.out.printf("  Tiempo medio de adquisición: %.3f ms%n", s.getTiempoMedioAdquisicionMs());
+        System.out.println("  Timeouts: " + s.getTimeouts());
+        System.out.println("  Posibles fugas detectadas: " + s.getFugasDetectadas());
+    }
+
     /**
      * Lista todos los clientes del gimnasio
      * Muestra: nombre, email y teléfono
+     * Se imprimen a medida que llegan del servidor, sin cargar la tabla entera en memoria
      */
     public void listarClientes() {
-        try {
-            List<Cliente> clientes = clienteService.obtenerTodosLosClientes();
+        try (Stream<Cliente> clientes = clienteService.recorrerClientes()) {
+            Iterator<Cliente> it = clientes.iterator();
 
-            if (clientes.isEmpty()) {
+            if (!it.hasNext()) {
                 System.out.println("No hay clientes registrados.");
                 return;
             }
 
-            for (Cliente cliente : clientes) {
+            while (it.hasNext()) {
+                Cliente cliente = it.next();
                 System.out.println("Nombre: " + cliente.getNombre() +
                                    ", Email: " + cliente.getEmail() +
                                    ", Teléfono: " + cliente.getTelefono());
             }
-        } catch (SQLException e) {
+        } catch (SQLException | UncheckedSQLException e) {
             System.out.println("Error al obtener los clientes");
             e.printStackTrace();
         }
@@ -128,23 +170,14 @@ public class GimnasioController {
         System.out.println("=== ACTUALIZAR CLIENTE ===\n");
         
         try {
-            // Mostrar lista de clientes
-            List<Cliente> clientes = clienteService.obtenerTodosLosClientes();
+            // Mostrar clientes página a página hasta que se elija uno
+            Integer idSeleccionado = seleccionarClientePaginado();
             
-            if (clientes.isEmpty()) {
+            if (idSeleccionado == null) {
                 System.out.println("No hay clientes registrados para actualizar.");
                 return;
             }
-            
-            System.out.println("Clientes disponibles:");
-            for (Cliente c : clientes) {
-                System.out.println("  ID: " + c.getId() + " - " + c.getNombre() + " (" + c.getEmail() + ")");
-            }
-            
-            System.out.println();
-            System.out.print("Ingrese el ID del cliente a actualizar: ");
-            int id = scanner.nextInt();
-            scanner.nextLine(); // Limpiar buffer
+            int id = idSeleccionado;
             
             // Buscar el cliente
             Optional<Cliente> clienteOpt = clienteService.buscarClientePorId(id);
@@ -208,6 +241,44 @@ public class GimnasioController {
         }
     }
 
+    /**
+     * Muestra los clientes por páginas (ordenados por nombre) y pide el ID de uno
+     * Enter muestra la página siguiente
+     * @return ID introducido, o null si no hay clientes
+     */
+    private Integer seleccionarClientePaginado() throws SQLException {
+        Pagina<Cliente> pagina = clienteService.obtenerPaginaClientes(null, TAMANO_PAGINA);
+        if (pagina.isEmpty()) {
+            return null;
+        }
+        
+        System.out.println("Clientes disponibles:");
+        while (true) {
+            for (Cliente c : pagina.getElementos()) {
+                System.out.println("  ID: " + c.getId() + " - " + c.getNombre() + " (" + c.getEmail() + ")");
+            }
+            
+            System.out.println();
+            if (pagina.hayMas()) {
+                System.out.print("Ingrese el ID del cliente a actualizar (Enter para ver más): ");
+            } else {
+                System.out.print("Ingrese el ID del cliente a actualizar: ");
+            }
+            String entrada = scanner.nextLine().trim();
+            
+            if (!entrada.isEmpty()) {
+                try {
+                    return Integer.parseInt(entrada);
+                } catch (NumberFormatException e) {
+                    System.out.println("✗ Error: Debe ingresar un ID válido.");
+                    continue;
+                }
+            }
+            if (pagina.hayMas()) {
+                pagina = clienteService.obtenerPaginaClientes(pagina.getUltimo(), TAMANO_PAGINA);
+            }
+        }
+    }
 
     // Métodos adicionales del controlador
 
@@ -255,6 +326,72 @@ public class GimnasioController {
         }
     }
 
+    /**
+     * Reserva una plaza para un cliente en una clase, respetando el cupo máximo
+     */
+    public void reservarPlaza() {
+        System.out.println("=== RESERVAR PLAZA ===\n");
+
+        System.out.print("ID del cliente: ");
+        int idCliente = scanner.nextInt();
+        System.out.print("ID de la clase: ");
+        int idClase = scanner.nextInt();
+        scanner.nextLine(); // Limpiar buffer
+        System.out.print("Fecha (AAAA-MM-DD, vacío para hoy): ");
+        String textoFecha = scanner.nextLine().trim();
+
+        try {
+            LocalDate fecha = textoFecha.isEmpty() ? LocalDate.now() : LocalDate.parse(textoFecha);
+            switch (reservaService.reservar(idCliente, idClase, fecha)) {
+                case CONFIRMADA:
+                    System.out.println("✓ Plaza reservada para el " + fecha);
+                    break;
+                case COMPLETA:
+                    System.out.println("✗ La clase no tiene plazas libres el " + fecha);
+                    break;
+                case DUPLICADA:
+                    System.out.println("✗ El cliente ya tiene plaza en esa clase el " + fecha);
+                    break;
+                default:
+                    System.out.println("✗ La clase no existe");
+            }
+        } catch (SQLException e) {
+            System.out.println("✗ Error al reservar la plaza");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Registra el fichaje de un cliente en el torno de una clase, con fecha de hoy
+     * Pasa por la ingesta por lotes: un toque repetido se descarta sin ir a la base de datos.
+     */
+    public void ficharEnTorno() {
+        System.out.println("=== FICHAR EN EL TORNO ===\n");
+
+        System.out.print("ID del cliente: ");
+        int idCliente = scanner.nextInt();
+        System.out.print("ID de la clase: ");
+        int idClase = scanner.nextInt();
+        scanner.nextLine(); // Limpiar buffer
+
+        LocalDate hoy = LocalDate.now();
+        try {
+            // Espera al COMMIT de su lote (como mucho la espera máxima de la ingesta)
+            ingestaAsistencias.registrar(idCliente, idClase, hoy).get();
+            System.out.println("✓ Fichaje registrado: cliente " + idCliente + ", clase " + idClase + ", " + hoy);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof FichajeDuplicadoException) {
+                System.out.println("✗ El cliente ya ha fichado hoy en esa clase");
+            } else {
+                System.out.println("✗ Error al registrar el fichaje");
+                e.getCause().printStackTrace();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.out.println("✗ Fichaje interrumpido");
+        }
+    }
+
     /**
      * Demostración de transacciones: registra un entrenador y múltiples clientes
      * Si alguna operación falla, se hace rollback de todas
@@ -337,6 +474,8 @@ public class GimnasioController {
                 nombreClase, 
                 cupoMaximo
             );
+            // La clase nueva debe verse ya en el catálogo en memoria
+            claseService.refrescarCatalogo();
             
         } catch (SQLException e) {
             System.out.println("\nEl procedimiento falló y se revirtieron todos los cambios.");
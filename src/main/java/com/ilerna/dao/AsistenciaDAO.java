@@ -1,8 +1,15 @@
 package com.ilerna.dao;
 
+import com.ilerna.config.TransactionContext;
+import com.ilerna.dto.Asistencia;
 import com.ilerna.dto.ClaseConConteo;
+import com.ilerna.dto.ConteoPeriodo;
+import com.ilerna.dto.Periodo;
 import java.sql.*;
+import javax.sql.DataSource;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -11,21 +18,115 @@ import java.util.List;
  */
 public class AsistenciaDAO implements IAsistenciaDAO {
     
-    private final Connection connection;
+    // Los informes por periodo suman el resumen diario y los cambios que aún no se le han aplicado
+    // (migración 006). Las dos partes se leen en la misma consulta, con la misma instantánea,
+    // así que una actualización del resumen a la vez nunca hace que algo se cuente dos veces o ninguna.
+    private static final String CONSULTA_POR_CLASE =
+            "SELECT date_trunc(?, r.fecha::timestamp)::date AS inicio, c.id, c.nombre, SUM(r.total) AS asistencias " +
+            "FROM (" +
+            "  SELECT fecha, id_clase, total FROM asistencia_diaria WHERE fecha BETWEEN ? AND ?" +
+            "  UNION ALL" +
+            "  SELECT fecha, id_clase, delta FROM asistencia_cambios WHERE fecha BETWEEN ? AND ?" +
+            ") r " +
+            "JOIN clase c ON c.id = r.id_clase " +
+            "GROUP BY 1, c.id, c.nombre " +
+            "HAVING SUM(r.total) <> 0 " +
+            "ORDER BY 1, c.id";
 
-    public AsistenciaDAO(Connection connection) {
-        this.connection = connection;
+    private static final String CONSULTA_POR_CLIENTE =
+            "SELECT date_trunc(?, r.fecha::timestamp)::date AS inicio, c.id, c.nombre, SUM(r.total) AS asistencias " +
+            "FROM (" +
+            "  SELECT fecha, id_cliente, total FROM asistencia_diaria_cliente WHERE fecha BETWEEN ? AND ?%s" +
+            "  UNION ALL" +
+            "  SELECT fecha, id_cliente, delta FROM asistencia_cambios WHERE fecha BETWEEN ? AND ?%s" +
+            ") r " +
+            "JOIN cliente c ON c.id = r.id_cliente " +
+            "GROUP BY 1, c.id, c.nombre " +
+            "HAVING SUM(r.total) <> 0 " +
+            "ORDER BY 1, c.id";
+
+    private final DataSource dataSource;
+
+    /**
+     * Cada operación toma su propia conexión del pool y la devuelve al terminar,
+     * salvo dentro de una transacción de {@link TransactionContext}, donde usa la de la transacción.
+     * No guarda estado entre llamadas, por lo que puede usarse desde varios hilos a la vez.
+     */
+    public AsistenciaDAO(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public List<Asistencia> insertAll(List<Asistencia> asistencias) throws SQLException {
+        if (asistencias.isEmpty()) {
+            return asistencias;
+        }
+
+        // Igual que ClienteDAO.insertAll: los valores viajan como arrays y ORDER BY ord hace que
+        // los ids generados crezcan en el orden de la lista
+        String sql = "INSERT INTO asistencia (id_cliente, id_clase, fecha) " +
+                     "SELECT id_cliente, id_clase, fecha " +
+                     "FROM unnest(?::integer[], ?::integer[], ?::date[]) " +
+                     "WITH ORDINALITY AS t(id_cliente, id_clase, fecha, ord) " +
+                     "ORDER BY ord " +
+                     "RETURNING id";
+
+        int n = asistencias.size();
+        Integer[] clientes = new Integer[n];
+        Integer[] clases = new Integer[n];
+        String[] fechas = new String[n];
+        for (int i = 0; i < n; i++) {
+            Asistencia asistencia = asistencias.get(i);
+            clientes[i] = asistencia.getIdCliente();
+            clases[i] = asistencia.getIdClase();
+            fechas[i] = asistencia.getFecha().toString();
+        }
+
+        return TransactionContext.executeInTransaction(dataSource, conn -> {
+            Array arrClientes = conn.createArrayOf("integer", clientes);
+            Array arrClases = conn.createArrayOf("integer", clases);
+            Array arrFechas = conn.createArrayOf("date", fechas);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setArray(1, arrClientes);
+                pstmt.setArray(2, arrClases);
+                pstmt.setArray(3, arrFechas);
+
+                long[] ids = new long[n];
+                int leidos = 0;
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        ids[leidos++] = rs.getLong(1);
+                    }
+                }
+                if (leidos != n) {
+                    throw new SQLException("Se esperaban " + n + " ids generados y se recibieron " + leidos);
+                }
+
+                Arrays.sort(ids);
+                for (int i = 0; i < n; i++) {
+                    asistencias.get(i).setId(ids[i]);
+                }
+            } finally {
+                arrClientes.free();
+                arrClases.free();
+                arrFechas.free();
+            }
+            return asistencias;
+        });
     }
 
     @Override
     public List<ClaseConConteo> getNumeroClientesPorClase() throws SQLException {
         List<ClaseConConteo> resultado = new ArrayList<>();
-        String sql = "SELECT c.nombre AS clase, COUNT(a.id_cliente) AS numero_clientes " +
+        // Lee los contadores que mantienen los triggers de asistencia (migración 005):
+        // una fila por clase, sin recorrer el histórico de asistencias
+        String sql = "SELECT c.nombre AS clase, COALESCE(SUM(ac.total), 0) AS numero_clientes " +
                      "FROM clase c " +
-                     "LEFT JOIN asistencia a ON c.id = a.id_clase " +
+                     "LEFT JOIN asistencia_conteo ac ON c.id = ac.id_clase " +
                      "GROUP BY c.nombre";
         
-        try (Statement stmt = connection.createStatement();
+        Connection conn = abrirConexion();
+        try (Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             
             while (rs.next()) {
@@ -35,8 +136,145 @@ public class AsistenciaDAO implements IAsistenciaDAO {
                 );
                 resultado.add(claseConteo);
             }
+        } finally {
+            liberarConexion(conn);
         }
         
         return resultado;
     }
+
+    @Override
+    public int reconciliarConteos() throws SQLException {
+        // SHARE bloquea las escrituras en asistencia mientras se cuenta, no las lecturas:
+        // así ningún INSERT concurrente queda fuera del recuento ni se suma dos veces
+        String sql = "WITH real AS (" +
+                     "  SELECT c.id AS id_clase, COUNT(a.id_cliente) AS total " +
+                     "  FROM clase c LEFT JOIN asistencia a ON c.id = a.id_clase " +
+                     "  GROUP BY c.id" +
+                     "), desajustados AS (" +
+                     "  SELECT r.id_clase, r.total FROM real r " +
+                     "  LEFT JOIN asistencia_conteo ac ON ac.id_clase = r.id_clase " +
+                     "  WHERE COALESCE(ac.total, 0) <> r.total" +
+                     ") " +
+                     "INSERT INTO asistencia_conteo (id_clase, total) " +
+                     "SELECT id_clase, total FROM desajustados " +
+                     "ON CONFLICT (id_clase) DO UPDATE SET total = EXCLUDED.total";
+
+        return TransactionContext.executeInTransaction(dataSource, conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("LOCK TABLE asistencia IN SHARE MODE");
+                return stmt.executeUpdate(sql);
+            }
+        });
+    }
+
+    @Override
+    public List<ConteoPeriodo> getAsistenciasPorClase(Periodo periodo, LocalDate desde, LocalDate hasta)
+            throws SQLException {
+        return consultarPorPeriodo(CONSULTA_POR_CLASE, periodo, desde, hasta, null);
+    }
+
+    @Override
+    public List<ConteoPeriodo> getAsistenciasPorCliente(Periodo periodo, LocalDate desde, LocalDate hasta)
+            throws SQLException {
+        return consultarPorPeriodo(String.format(CONSULTA_POR_CLIENTE, "", ""), periodo, desde, hasta, null);
+    }
+
+    @Override
+    public List<ConteoPeriodo> getAsistenciasDeCliente(int idCliente, Periodo periodo, LocalDate desde, LocalDate hasta)
+            throws SQLException {
+        String filtro = " AND id_cliente = ?";
+        return consultarPorPeriodo(String.format(CONSULTA_POR_CLIENTE, filtro, filtro), periodo, desde, hasta, idCliente);
+    }
+
+    @Override
+    public int actualizarResumenDiario() throws SQLException {
+        // Una sola sentencia: borra los cambios que ve su instantánea y los suma a los dos resúmenes.
+        // Los cambios de transacciones aún sin confirmar no se ven y se quedan para la próxima vez,
+        // así que no hace falta bloquear asistencia_cambios (los triggers siguen escribiendo).
+        String sql = "WITH aplicados AS (" +
+                     "  DELETE FROM asistencia_cambios RETURNING fecha, id_clase, id_cliente, delta" +
+                     "), " +
+                     sumarCambios("asistencia_diaria", "id_clase", "clase", "clase") + ", " +
+                     sumarCambios("asistencia_diaria_cliente", "id_cliente", "cliente", "cliente") + " " +
+                     "SELECT COUNT(*) FROM aplicados";
+
+        return TransactionContext.executeInTransaction(dataSource, conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                // Dos actualizaciones a la vez (varias instancias) se turnan; no afecta a los triggers
+                stmt.execute("SELECT pg_advisory_xact_lock(hashtext('asistencia_cambios'))");
+                try (ResultSet rs = stmt.executeQuery(sql)) {
+                    rs.next();
+                    return rs.getInt(1);
+                }
+            }
+        });
+    }
+
+    /**
+     * Subconsultas del WITH que suman a una tabla de resumen los cambios aplicados, agrupados por día
+     * Las sumas positivas se insertan o acumulan; las negativas solo pueden restar de una fila
+     * existente (un INSERT con total negativo no pasaría el CHECK aunque hubiera conflicto).
+     * Se descartan los cambios de clases o clientes ya borrados.
+     */
+    private static String sumarCambios(String tabla, String columna, String tablaReferencia, String sufijo) {
+        String agrupados = "agrupados_" + sufijo;
+        return agrupados + " AS (" +
+               "  SELECT ap.fecha, ap." + columna + ", SUM(ap.delta) AS n " +
+               "  FROM aplicados ap JOIN " + tablaReferencia + " ref ON ref.id = ap." + columna + " " +
+               "  GROUP BY ap.fecha, ap." + columna +
+               "), sumar_" + sufijo + " AS (" +
+               "  INSERT INTO " + tabla + " (fecha, " + columna + ", total) " +
+               "  SELECT fecha, " + columna + ", n FROM " + agrupados + " WHERE n > 0 " +
+               "  ON CONFLICT (fecha, " + columna + ") DO UPDATE SET total = " + tabla + ".total + EXCLUDED.total" +
+               "), restar_" + sufijo + " AS (" +
+               "  UPDATE " + tabla + " t SET total = t.total + g.n " +
+               "  FROM " + agrupados + " g " +
+               "  WHERE g.n < 0 AND t.fecha = g.fecha AND t." + columna + " = g." + columna +
+               ")";
+    }
+
+    private List<ConteoPeriodo> consultarPorPeriodo(String sql, Periodo periodo, LocalDate desde, LocalDate hasta,
+                                                    Integer idCliente) throws SQLException {
+        List<ConteoPeriodo> resultado = new ArrayList<>();
+        Connection conn = abrirConexion();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            int i = 1;
+            ps.setString(i++, periodo.getUnidad());
+            for (int parte = 0; parte < 2; parte++) {
+                ps.setObject(i++, desde);
+                ps.setObject(i++, hasta);
+                if (idCliente != null) {
+                    ps.setInt(i++, idCliente);
+                }
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    resultado.add(new ConteoPeriodo(
+                        rs.getObject("inicio", LocalDate.class),
+                        rs.getInt("id"),
+                        rs.getString("nombre"),
+                        rs.getLong("asistencias")
+                    ));
+                }
+            }
+        } finally {
+            liberarConexion(conn);
+        }
+        return resultado;
+    }
+
+    /**
+     * Obtiene la conexión para una operación (la de la transacción actual si la hay)
+     */
+    private Connection abrirConexion() throws SQLException {
+        return TransactionContext.getConnection(dataSource);
+    }
+
+    /**
+     * Devuelve al pool la conexión de la operación (la de una transacción sigue abierta)
+     */
+    private void liberarConexion(Connection conn) throws SQLException {
+        TransactionContext.releaseConnection(conn, dataSource);
+    }
 }
@@ -0,0 +1,188 @@
+package com.ilerna.dao;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Agrupa las búsquedas por clave que llegan casi a la vez (desde cualquier hilo)
+ * en una sola consulta por lote, por ejemplo muchas getById en una getByIds.
+ *
+ * La primera clave de un lote abre una ventana de espera; el lote se envía al cerrarse la ventana
+ * o antes, si llega al tamaño máximo. Las claves repetidas dentro de un lote se buscan una sola vez.
+ *
+ * Uso: new BatchLoader&lt;&gt;(clienteDAO::getByIds, 2, 100).get(id)
+ *
+ * @param <K> Tipo de la clave
+ * @param <V> Tipo del valor
+ */
+public class BatchLoader<K, V> implements AutoCloseable {
+
+    /**
+     * Búsqueda por lote: devuelve los valores encontrados (las claves que no existen no aparecen)
+     */
+    @FunctionalInterface
+    public interface BatchFunction<K, V> {
+        Map<K, V> load(Set<K> keys) throws SQLException;
+    }
+
+    private final BatchFunction<K, V> batchFunction;
+    private final long ventanaMs;
+    private final int maxLote;
+    private final ScheduledExecutorService temporizador;
+    private final AtomicLong lotesEnviados = new AtomicLong();
+    private final AtomicLong clavesCargadas = new AtomicLong();
+
+    private final Object lock = new Object();
+    private Map<K, CompletableFuture<Optional<V>>> pendientes = new HashMap<>();
+    private boolean cerrado;
+
+    /**
+     * @param batchFunction Búsqueda por lote
+     * @param ventanaMs Tiempo máximo que espera una clave a que lleguen otras
+     * @param maxLote Número de claves con el que el lote se envía sin esperar
+     */
+    public BatchLoader(BatchFunction<K, V> batchFunction, long ventanaMs, int maxLote) {
+        if (ventanaMs < 0) {
+            throw new IllegalArgumentException("La ventana de espera no puede ser negativa");
+        }
+        if (maxLote <= 0) {
+            throw new IllegalArgumentException("El tamaño máximo de lote debe ser mayor que 0");
+        }
+        this.batchFunction = batchFunction;
+        this.ventanaMs = ventanaMs;
+        this.maxLote = maxLote;
+        this.temporizador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread t = new Thread(tarea, "batch-loader");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Pide una clave sin bloquear
+     * @param key Clave a buscar
+     * @return Futuro con el valor, vacío si no existe
+     */
+    public CompletableFuture<Optional<V>> load(K key) {
+        CompletableFuture<Optional<V>> futuro;
+        Map<K, CompletableFuture<Optional<V>>> lleno = null;
+        synchronized (lock) {
+            if (cerrado) {
+                throw new IllegalStateException("El BatchLoader está cerrado");
+            }
+            futuro = pendientes.get(key);
+            if (futuro == null) {
+                futuro = new CompletableFuture<>();
+                pendientes.put(key, futuro);
+                if (pendientes.size() == 1) {
+                    // Primera clave del lote: se programa su envío al cerrar la ventana
+                    Map<K, CompletableFuture<Optional<V>>> lote = pendientes;
+                    temporizador.schedule(() -> enviarSiSigueAbierto(lote), ventanaMs, TimeUnit.MILLISECONDS);
+                }
+                if (pendientes.size() >= maxLote) {
+                    lleno = pendientes;
+                    pendientes = new HashMap<>();
+                }
+            }
+        }
+        // Lote completo: lo envía el propio hilo que lo ha llenado
+        if (lleno != null) {
+            enviar(lleno);
+        }
+        return futuro;
+    }
+
+    /**
+     * Busca una clave esperando al lote en que se envíe
+     * @param key Clave a buscar
+     * @return Valor, o vacío si no existe
+     * @throws SQLException Si falla la consulta del lote
+     */
+    public Optional<V> get(K key) throws SQLException {
+        try {
+            return load(key).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Búsqueda interrumpida", e);
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof SQLException) {
+                throw (SQLException) causa;
+            }
+            if (causa instanceof RuntimeException) {
+                throw (RuntimeException) causa;
+            }
+            throw new SQLException("Error en la búsqueda por lote: " + causa.getMessage(), causa);
+        }
+    }
+
+    /**
+     * Número de consultas por lote enviadas
+     */
+    public long getLotesEnviados() {
+        return lotesEnviados.get();
+    }
+
+    /**
+     * Número de claves distintas buscadas en total
+     */
+    public long getClavesCargadas() {
+        return clavesCargadas.get();
+    }
+
+    /**
+     * Envía lo que quede pendiente y detiene el temporizador
+     */
+    @Override
+    public void close() {
+        Map<K, CompletableFuture<Optional<V>>> restantes;
+        synchronized (lock) {
+            if (cerrado) {
+                return;
+            }
+            cerrado = true;
+            restantes = pendientes;
+            pendientes = new HashMap<>();
+        }
+        if (!restantes.isEmpty()) {
+            enviar(restantes);
+        }
+        temporizador.shutdownNow();
+    }
+
+    private void enviarSiSigueAbierto(Map<K, CompletableFuture<Optional<V>>> lote) {
+        synchronized (lock) {
+            // Si ya se envió por llenarse (o al cerrar), no queda nada que hacer
+            if (pendientes != lote) {
+                return;
+            }
+            pendientes = new HashMap<>();
+        }
+        enviar(lote);
+    }
+
+    private void enviar(Map<K, CompletableFuture<Optional<V>>> lote) {
+        lotesEnviados.incrementAndGet();
+        clavesCargadas.addAndGet(lote.size());
+        try {
+            Map<K, V> encontrados = batchFunction.load(Collections.unmodifiableSet(lote.keySet()));
+            for (Map.Entry<K, CompletableFuture<Optional<V>>> entry : lote.entrySet()) {
+                entry.getValue().complete(Optional.ofNullable(encontrados.get(entry.getKey())));
+            }
+        } catch (SQLException | RuntimeException e) {
+            for (CompletableFuture<Optional<V>> futuro : lote.values()) {
+                futuro.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -1,9 +1,15 @@
 package com.ilerna.dao;
 
+import com.ilerna.config.TransactionContext;
 import com.ilerna.dto.Clase;
+import com.ilerna.dto.Pagina;
 import java.sql.*;
+import javax.sql.DataSource;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Implementación del DAO para Clase
@@ -11,10 +17,20 @@ import java.util.List;
  */
 public class ClaseDAO implements IClaseDAO {
     
-    private final Connection connection;
+    // Como IndiceClases.normalizar: sin espacios alrededor, sin tildes y en minúsculas
+    // (en SQL, solo las letras acentuadas de esta lista; la migración 010 indexa la misma expresión)
+    private static final String CON_TILDE = "ÁÀÂÄÃÉÈÊËÍÌÎÏÓÒÔÖÕÚÙÛÜÑÇáàâäãéèêëíìîïóòôöõúùûüñç";
+    private static final String SIN_TILDE = "AAAAAEEEEIIIIOOOOOUUUUNCaaaaaeeeeiiiiooooouuuunc";
+    
+    private final DataSource dataSource;
 
-    public ClaseDAO(Connection connection) {
-        this.connection = connection;
+    /**
+     * Cada operación toma su propia conexión del pool y la devuelve al terminar,
+     * salvo dentro de una transacción de {@link TransactionContext}, donde usa la de la transacción.
+     * No guarda estado entre llamadas, por lo que puede usarse desde varios hilos a la vez.
+     */
+    public ClaseDAO(DataSource dataSource) {
+        this.dataSource = dataSource;
     }
 
     @Override
@@ -22,12 +38,15 @@ public class ClaseDAO implements IClaseDAO {
         List<Clase> clases = new ArrayList<>();
         String sql = "SELECT id, nombre, cupo_maximo FROM clase";
         
-        try (Statement stmt = connection.createStatement();
+        Connection conn = abrirConexion();
+        try (Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             
             while (rs.next()) {
                 clases.add(mapResultSetToClase(rs));
             }
+        } finally {
+            liberarConexion(conn);
         }
         
         return clases;
@@ -36,22 +55,120 @@ public class ClaseDAO implements IClaseDAO {
     @Override
     public List<Clase> getByNombreOrCupoMayor(String nombre, Integer cupoMinimo) throws SQLException {
         List<Clase> clases = new ArrayList<>();
-        String sql = "SELECT id, nombre, cupo_maximo FROM clase WHERE nombre = ? OR cupo_maximo > ?";
+        // El nombre se normaliza igual en la columna y en el parámetro (el índice de la migración 010
+        // cubre la columna); sin cupo mínimo solo cuenta el nombre (cupo_maximo > NULL nunca se cumple)
+        String sql = "SELECT id, nombre, cupo_maximo FROM clase " +
+                     "WHERE " + normalizado("nombre") + " = " + normalizado("?") + " OR cupo_maximo > ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        Connection conn = abrirConexion();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, nombre);
-            pstmt.setInt(2, cupoMinimo);
+            pstmt.setObject(2, cupoMinimo, Types.INTEGER);
             
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
                     clases.add(mapResultSetToClase(rs));
                 }
             }
+        } finally {
+            liberarConexion(conn);
+        }
+        
+        return clases;
+    }
+
+    @Override
+    public Map<Integer, Clase> getByIds(Collection<Integer> ids) throws SQLException {
+        if (ids.isEmpty()) {
+            return new HashMap<>();
+        }
+        // Un solo parámetro array: la sentencia es la misma sea cual sea el número de ids
+        String sql = "SELECT id, nombre, cupo_maximo FROM clase WHERE id = ANY(?)";
+        
+        Map<Integer, Clase> clases = new HashMap<>(ids.size() * 4 / 3 + 1);
+        Connection conn = abrirConexion();
+        try {
+            Array arrIds = conn.createArrayOf("integer", ids.toArray());
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setArray(1, arrIds);
+                
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        Clase clase = mapResultSetToClase(rs);
+                        clases.put(clase.getId(), clase);
+                    }
+                }
+            } finally {
+                arrIds.free();
+            }
+        } finally {
+            liberarConexion(conn);
         }
         
         return clases;
     }
 
+    @Override
+    public Pagina<Clase> findPage(Integer despuesDeId, int limite) throws SQLException {
+        String sql = despuesDeId == null
+                ? "SELECT id, nombre, cupo_maximo FROM clase ORDER BY id LIMIT ?"
+                : "SELECT id, nombre, cupo_maximo FROM clase WHERE id > ? ORDER BY id LIMIT ?";
+        
+        Connection conn = abrirConexion();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int i = 1;
+            if (despuesDeId != null) {
+                pstmt.setInt(i++, despuesDeId);
+            }
+            // Se pide una fila de más para saber si hay página siguiente
+            pstmt.setInt(i, limite + 1);
+            
+            return leerPagina(pstmt, limite);
+        } finally {
+            liberarConexion(conn);
+        }
+    }
+
+    @Override
+    public Pagina<Clase> findPageOrderByNombre(Clase despuesDe, int limite) throws SQLException {
+        // Comparación de filas (nombre, id) > (?, ?): usa el índice (nombre, id) y desempata nombres repetidos
+        String sql = despuesDe == null
+                ? "SELECT id, nombre, cupo_maximo FROM clase ORDER BY nombre, id LIMIT ?"
+                : "SELECT id, nombre, cupo_maximo FROM clase WHERE (nombre, id) > (?, ?) ORDER BY nombre, id LIMIT ?";
+        
+        Connection conn = abrirConexion();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int i = 1;
+            if (despuesDe != null) {
+                pstmt.setString(i++, despuesDe.getNombre());
+                pstmt.setInt(i++, despuesDe.getId());
+            }
+            pstmt.setInt(i, limite + 1);
+            
+            return leerPagina(pstmt, limite);
+        } finally {
+            liberarConexion(conn);
+        }
+    }
+
+    /**
+     * Lee hasta limite filas; si llega una más, indica que hay página siguiente
+     */
+    private Pagina<Clase> leerPagina(PreparedStatement pstmt, int limite) throws SQLException {
+        List<Clase> elementos = new ArrayList<>();
+        boolean hayMas = false;
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                if (elementos.size() == limite) {
+                    hayMas = true;
+                    break;
+                }
+                elementos.add(mapResultSetToClase(rs));
+            }
+        }
+        return new Pagina<>(elementos, hayMas);
+    }
+
     /**
      * Mapea un ResultSet a un objeto Clase
      */
@@ -62,4 +179,25 @@ public class ClaseDAO implements IClaseDAO {
             rs.getInt("cupo_maximo")
         );
     }
+
+    /**
+     * Expresión SQL que normaliza el nombre de una clase (la columna o un parámetro)
+     */
+    private static String normalizado(String valor) {
+        return "lower(translate(btrim(" + valor + "), '" + CON_TILDE + "', '" + SIN_TILDE + "'))";
+    }
+
+    /**
+     * Obtiene la conexión para una operación (la de la transacción actual si la hay)
+     */
+    private Connection abrirConexion() throws SQLException {
+        return TransactionContext.getConnection(dataSource);
+    }
+
+    /**
+     * Devuelve al pool la conexión de la operación (la de una transacción sigue abierta)
+     */
+    private void liberarConexion(Connection conn) throws SQLException {
+        TransactionContext.releaseConnection(conn, dataSource);
+    }
 }
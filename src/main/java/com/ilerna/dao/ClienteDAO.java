@@ -1,10 +1,22 @@
 package com.ilerna.dao;
 
+import com.ilerna.config.TransactionContext;
 import com.ilerna.dto.Cliente;
+import com.ilerna.dto.Pagina;
 import java.sql.*;
+import javax.sql.DataSource;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Implementación del DAO para Cliente
@@ -12,10 +24,30 @@ import java.util.Optional;
  */
 public class ClienteDAO implements IClienteDAO {
     
-    private final Connection connection;
+    private static final int TAMANO_BLOQUE_INSERCION_POR_DEFECTO = 1000;
 
-    public ClienteDAO(Connection connection) {
-        this.connection = connection;
+    private final DataSource dataSource;
+    private final int tamanoBloqueInsercion;
+
+    /**
+     * Cada operación toma su propia conexión del pool y la devuelve al terminar,
+     * salvo dentro de una transacción de {@link TransactionContext}, donde usa la de la transacción.
+     * No guarda estado entre llamadas, por lo que puede usarse desde varios hilos a la vez.
+     */
+    public ClienteDAO(DataSource dataSource) {
+        this(dataSource, TAMANO_BLOQUE_INSERCION_POR_DEFECTO);
+    }
+
+    /**
+     * @param dataSource Pool de conexiones
+     * @param tamanoBloqueInsercion Filas máximas por sentencia en insertAll
+     */
+    public ClienteDAO(DataSource dataSource, int tamanoBloqueInsercion) {
+        if (tamanoBloqueInsercion <= 0) {
+            throw new IllegalArgumentException("El tamaño de bloque de inserción debe ser mayor que 0");
+        }
+        this.dataSource = dataSource;
+        this.tamanoBloqueInsercion = tamanoBloqueInsercion;
     }
 
     @Override
@@ -23,22 +55,75 @@ public class ClienteDAO implements IClienteDAO {
         List<Cliente> clientes = new ArrayList<>();
         String sql = "SELECT id, nombre, email, telefono FROM cliente";
         
-        try (Statement stmt = connection.createStatement();
+        Connection conn = abrirConexion();
+        try (Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             
             while (rs.next()) {
                 clientes.add(mapResultSetToCliente(rs));
             }
+        } finally {
+            liberarConexion(conn);
         }
         
         return clientes;
     }
 
+    @Override
+    public Stream<Cliente> streamAll(int fetchSize) throws SQLException {
+        String sql = "SELECT id, nombre, email, telefono FROM cliente";
+        
+        Connection conn = abrirConexion();
+        // PostgreSQL solo usa cursor (y respeta el fetchSize) con autoCommit desactivado
+        boolean autoCommitOriginal = conn.getAutoCommit();
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        try {
+            if (autoCommitOriginal) {
+                conn.setAutoCommit(false);
+            }
+            pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            pstmt.setFetchSize(fetchSize);
+            rs = pstmt.executeQuery();
+        } catch (SQLException | RuntimeException e) {
+            cerrarCursor(conn, pstmt, rs, autoCommitOriginal);
+            throw e;
+        }
+        
+        final PreparedStatement stmtCursor = pstmt;
+        final ResultSet rsCursor = rs;
+        Spliterator<Cliente> spliterator = new Spliterators.AbstractSpliterator<Cliente>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super Cliente> action) {
+                try {
+                    if (!rsCursor.next()) {
+                        return false;
+                    }
+                    action.accept(mapResultSetToCliente(rsCursor));
+                    return true;
+                } catch (SQLException e) {
+                    throw new UncheckedSQLException("Error al leer clientes del cursor", e);
+                }
+            }
+        };
+        
+        return StreamSupport.stream(spliterator, false)
+                .onClose(() -> {
+                    try {
+                        cerrarCursor(conn, stmtCursor, rsCursor, autoCommitOriginal);
+                    } catch (SQLException e) {
+                        throw new UncheckedSQLException("Error al cerrar el cursor de clientes", e);
+                    }
+                });
+    }
+
     @Override
     public Optional<Cliente> getById(Integer id) throws SQLException {
         String sql = "SELECT id, nombre, email, telefono FROM cliente WHERE id = ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        Connection conn = abrirConexion();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, id);
             
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -46,16 +131,50 @@ public class ClienteDAO implements IClienteDAO {
                     return Optional.of(mapResultSetToCliente(rs));
                 }
             }
+        } finally {
+            liberarConexion(conn);
         }
         
         return Optional.empty();
     }
 
+    @Override
+    public Map<Integer, Cliente> getByIds(Collection<Integer> ids) throws SQLException {
+        if (ids.isEmpty()) {
+            return new HashMap<>();
+        }
+        // Un solo parámetro array: la sentencia es la misma sea cual sea el número de ids
+        String sql = "SELECT id, nombre, email, telefono FROM cliente WHERE id = ANY(?)";
+        
+        Map<Integer, Cliente> clientes = new HashMap<>(ids.size() * 4 / 3 + 1);
+        Connection conn = abrirConexion();
+        try {
+            Array arrIds = conn.createArrayOf("integer", ids.toArray());
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setArray(1, arrIds);
+                
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        Cliente cliente = mapResultSetToCliente(rs);
+                        clientes.put(cliente.getId(), cliente);
+                    }
+                }
+            } finally {
+                arrIds.free();
+            }
+        } finally {
+            liberarConexion(conn);
+        }
+        
+        return clientes;
+    }
+
     @Override
     public Cliente insert(Cliente cliente) throws SQLException {
         String sql = "INSERT INTO cliente (nombre, email, telefono) VALUES (?, ?, ?) RETURNING id";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        Connection conn = abrirConexion();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, cliente.getNombre());
             pstmt.setString(2, cliente.getEmail());
             pstmt.setString(3, cliente.getTelefono());
@@ -65,22 +184,99 @@ public class ClienteDAO implements IClienteDAO {
                     cliente.setId(rs.getInt("id"));
                 }
             }
+        } finally {
+            liberarConexion(conn);
         }
         
         return cliente;
     }
 
+    @Override
+    public List<Cliente> insertAll(List<Cliente> clientes) throws SQLException {
+        if (clientes.isEmpty()) {
+            return clientes;
+        }
+        
+        // Un solo INSERT por bloque: los valores viajan como tres arrays y unnest los convierte en filas.
+        // ORDER BY ord hace que nextval() se evalúe en el orden de la lista, así que los ids
+        // generados crecen en ese mismo orden y se pueden asignar ordenándolos.
+        String sql = "INSERT INTO cliente (nombre, email, telefono) " +
+                     "SELECT nombre, email, telefono " +
+                     "FROM unnest(?::varchar[], ?::varchar[], ?::varchar[]) " +
+                     "WITH ORDINALITY AS t(nombre, email, telefono, ord) " +
+                     "ORDER BY ord " +
+                     "RETURNING id";
+        
+        return TransactionContext.executeInTransaction(dataSource, conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (int desde = 0; desde < clientes.size(); desde += tamanoBloqueInsercion) {
+                    List<Cliente> bloque = clientes.subList(desde, Math.min(desde + tamanoBloqueInsercion, clientes.size()));
+                    insertarBloque(conn, pstmt, bloque);
+                }
+            }
+            return clientes;
+        });
+    }
+
+    /**
+     * Inserta un bloque con una sola sentencia y asigna los ids en el orden del bloque
+     */
+    private void insertarBloque(Connection conn, PreparedStatement pstmt, List<Cliente> bloque) throws SQLException {
+        int n = bloque.size();
+        String[] nombres = new String[n];
+        String[] emails = new String[n];
+        String[] telefonos = new String[n];
+        for (int i = 0; i < n; i++) {
+            Cliente cliente = bloque.get(i);
+            nombres[i] = cliente.getNombre();
+            emails[i] = cliente.getEmail();
+            telefonos[i] = cliente.getTelefono();
+        }
+        
+        Array arrNombres = conn.createArrayOf("varchar", nombres);
+        Array arrEmails = conn.createArrayOf("varchar", emails);
+        Array arrTelefonos = conn.createArrayOf("varchar", telefonos);
+        try {
+            pstmt.setArray(1, arrNombres);
+            pstmt.setArray(2, arrEmails);
+            pstmt.setArray(3, arrTelefonos);
+            
+            int[] ids = new int[n];
+            int leidos = 0;
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    ids[leidos++] = rs.getInt(1);
+                }
+            }
+            if (leidos != n) {
+                throw new SQLException("Se esperaban " + n + " ids generados y se recibieron " + leidos);
+            }
+            
+            Arrays.sort(ids);
+            for (int i = 0; i < n; i++) {
+                bloque.get(i).setId(ids[i]);
+            }
+        } finally {
+            arrNombres.free();
+            arrEmails.free();
+            arrTelefonos.free();
+        }
+    }
+
     @Override
     public boolean update(Cliente cliente) throws SQLException {
         String sql = "UPDATE cliente SET nombre = ?, email = ?, telefono = ? WHERE id = ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        Connection conn = abrirConexion();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, cliente.getNombre());
             pstmt.setString(2, cliente.getEmail());
             pstmt.setString(3, cliente.getTelefono());
             pstmt.setInt(4, cliente.getId());
             
             return pstmt.executeUpdate() > 0;
+        } finally {
+            liberarConexion(conn);
         }
     }
 
@@ -88,10 +284,74 @@ public class ClienteDAO implements IClienteDAO {
     public boolean delete(Integer id) throws SQLException {
         String sql = "DELETE FROM cliente WHERE id = ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        Connection conn = abrirConexion();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, id);
             return pstmt.executeUpdate() > 0;
+        } finally {
+            liberarConexion(conn);
+        }
+    }
+
+    @Override
+    public Pagina<Cliente> findPage(Integer despuesDeId, int limite) throws SQLException {
+        String sql = despuesDeId == null
+                ? "SELECT id, nombre, email, telefono FROM cliente ORDER BY id LIMIT ?"
+                : "SELECT id, nombre, email, telefono FROM cliente WHERE id > ? ORDER BY id LIMIT ?";
+        
+        Connection conn = abrirConexion();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int i = 1;
+            if (despuesDeId != null) {
+                pstmt.setInt(i++, despuesDeId);
+            }
+            // Se pide una fila de más para saber si hay página siguiente
+            pstmt.setInt(i, limite + 1);
+            
+            return leerPagina(pstmt, limite);
+        } finally {
+            liberarConexion(conn);
+        }
+    }
+
+    @Override
+    public Pagina<Cliente> findPageOrderByNombre(Cliente despuesDe, int limite) throws SQLException {
+        // Comparación de filas (nombre, id) > (?, ?): usa el índice (nombre, id) y desempata nombres repetidos
+        String sql = despuesDe == null
+                ? "SELECT id, nombre, email, telefono FROM cliente ORDER BY nombre, id LIMIT ?"
+                : "SELECT id, nombre, email, telefono FROM cliente WHERE (nombre, id) > (?, ?) ORDER BY nombre, id LIMIT ?";
+        
+        Connection conn = abrirConexion();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int i = 1;
+            if (despuesDe != null) {
+                pstmt.setString(i++, despuesDe.getNombre());
+                pstmt.setInt(i++, despuesDe.getId());
+            }
+            pstmt.setInt(i, limite + 1);
+            
+            return leerPagina(pstmt, limite);
+        } finally {
+            liberarConexion(conn);
+        }
+    }
+
+    /**
+     * Lee hasta limite filas; si llega una más, indica que hay página siguiente
+     */
+    private Pagina<Cliente> leerPagina(PreparedStatement pstmt, int limite) throws SQLException {
+        List<Cliente> elementos = new ArrayList<>();
+        boolean hayMas = false;
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                if (elementos.size() == limite) {
+                    hayMas = true;
+                    break;
+                }
+                elementos.add(mapResultSetToCliente(rs));
+            }
         }
+        return new Pagina<>(elementos, hayMas);
     }
 
     /**
@@ -105,4 +365,39 @@ public class ClienteDAO implements IClienteDAO {
             rs.getString("telefono")
         );
     }
+
+    /**
+     * Cierra el cursor, termina la transacción de lectura si la abrió streamAll y libera la conexión
+     */
+    private void cerrarCursor(Connection conn, Statement stmt, ResultSet rs, boolean autoCommitOriginal)
+            throws SQLException {
+        try {
+            if (rs != null) {
+                rs.close();
+            }
+            if (stmt != null) {
+                stmt.close();
+            }
+            if (autoCommitOriginal) {
+                conn.commit();
+                conn.setAutoCommit(true);
+            }
+        } finally {
+            liberarConexion(conn);
+        }
+    }
+
+    /**
+     * Obtiene la conexión para una operación (la de la transacción actual si la hay)
+     */
+    private Connection abrirConexion() throws SQLException {
+        return TransactionContext.getConnection(dataSource);
+    }
+
+    /**
+     * Devuelve al pool la conexión de la operación (la de una transacción sigue abierta)
+     */
+    private void liberarConexion(Connection conn) throws SQLException {
+        TransactionContext.releaseConnection(conn, dataSource);
+    }
 }
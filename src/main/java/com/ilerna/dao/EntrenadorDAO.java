@@ -1,7 +1,9 @@
 package com.ilerna.dao;
 
+import com.ilerna.config.TransactionContext;
 import com.ilerna.dto.Entrenador;
 import java.sql.*;
+import javax.sql.DataSource;
 
 /**
  * Implementación del DAO para Entrenador
@@ -9,17 +11,23 @@ import java.sql.*;
  */
 public class EntrenadorDAO implements IEntrenadorDAO {
     
-    private final Connection connection;
+    private final DataSource dataSource;
 
-    public EntrenadorDAO(Connection connection) {
-        this.connection = connection;
+    /**
+     * Cada operación toma su propia conexión del pool y la devuelve al terminar,
+     * salvo dentro de una transacción de {@link TransactionContext}, donde usa la de la transacción.
+     * No guarda estado entre llamadas, por lo que puede usarse desde varios hilos a la vez.
+     */
+    public EntrenadorDAO(DataSource dataSource) {
+        this.dataSource = dataSource;
     }
 
     @Override
     public Entrenador insert(Entrenador entrenador) throws SQLException {
         String sql = "INSERT INTO entrenador (nombre, especialidad) VALUES (?, ?) RETURNING id";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        Connection conn = abrirConexion();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, entrenador.getNombre());
             pstmt.setString(2, entrenador.getEspecialidad());
             
@@ -28,8 +36,24 @@ public class EntrenadorDAO implements IEntrenadorDAO {
                     entrenador.setId(rs.getInt("id"));
                 }
             }
+        } finally {
+            liberarConexion(conn);
         }
         
         return entrenador;
     }
+
+    /**
+     * Obtiene la conexión para una operación (la de la transacción actual si la hay)
+     */
+    private Connection abrirConexion() throws SQLException {
+        return TransactionContext.getConnection(dataSource);
+    }
+
+    /**
+     * Devuelve al pool la conexión de la operación (la de una transacción sigue abierta)
+     */
+    private void liberarConexion(Connection conn) throws SQLException {
+        TransactionContext.releaseConnection(conn, dataSource);
+    }
 }
@@ -1,7 +1,11 @@
 package com.ilerna.dao;
 
+import com.ilerna.dto.Asistencia;
 import com.ilerna.dto.ClaseConConteo;
+import com.ilerna.dto.ConteoPeriodo;
+import com.ilerna.dto.Periodo;
 import java.sql.SQLException;
+import java.time.LocalDate;
 import java.util.List;
 
 /**
@@ -9,10 +13,61 @@ import java.util.List;
  */
 public interface IAsistenciaDAO {
     
+    /**
+     * Inserta varias asistencias con una sola sentencia
+     * Dentro de una transacción de TransactionContext usa la de la transacción;
+     * si no, se confirman todas juntas o ninguna.
+     * @param asistencias Asistencias a insertar (se les asigna el id generado)
+     * @return La misma lista, con los ids asignados
+     * @throws SQLException Si falla alguna (p. ej. cliente o clase inexistente)
+     */
+    List<Asistencia> insertAll(List<Asistencia> asistencias) throws SQLException;
+
     /**
      * Obtiene el número de clientes por cada clase
      * @return Lista de ClaseConConteo
      * @throws SQLException
      */
     List<ClaseConConteo> getNumeroClientesPorClase() throws SQLException;
+
+    /**
+     * Recalcula el número de asistencias de cada clase a partir de la tabla asistencia
+     * y corrige los contadores que no coincidan
+     * @return Número de clases cuyo contador estaba desajustado
+     * @throws SQLException
+     */
+    int reconciliarConteos() throws SQLException;
+
+    /**
+     * Asistencias de cada clase por periodo entre dos fechas (ambas incluidas)
+     * Solo se cuentan los días dentro del rango, aunque el periodo empiece antes o acabe después
+     * @param periodo Día, semana o mes
+     * @param desde Primer día
+     * @param hasta Último día
+     * @return Conteos ordenados por inicio de periodo e id de clase (sin los periodos a 0)
+     * @throws SQLException
+     */
+    List<ConteoPeriodo> getAsistenciasPorClase(Periodo periodo, LocalDate desde, LocalDate hasta) throws SQLException;
+
+    /**
+     * Asistencias de cada cliente por periodo entre dos fechas (ambas incluidas)
+     * @return Conteos ordenados por inicio de periodo e id de cliente (sin los periodos a 0)
+     * @throws SQLException
+     */
+    List<ConteoPeriodo> getAsistenciasPorCliente(Periodo periodo, LocalDate desde, LocalDate hasta) throws SQLException;
+
+    /**
+     * Asistencias de un cliente por periodo entre dos fechas (ambas incluidas)
+     * @return Conteos ordenados por inicio de periodo (sin los periodos a 0)
+     * @throws SQLException
+     */
+    List<ConteoPeriodo> getAsistenciasDeCliente(int idCliente, Periodo periodo, LocalDate desde, LocalDate hasta)
+            throws SQLException;
+
+    /**
+     * Aplica al resumen diario los cambios de asistencia registrados desde la última vez
+     * @return Número de cambios aplicados
+     * @throws SQLException
+     */
+    int actualizarResumenDiario() throws SQLException;
 }
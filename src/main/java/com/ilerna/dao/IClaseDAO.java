@@ -1,8 +1,11 @@
 package com.ilerna.dao;
 
 import com.ilerna.dto.Clase;
+import com.ilerna.dto.Pagina;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Interfaz DAO para las operaciones de Clase
@@ -18,10 +21,37 @@ public interface IClaseDAO {
     
     /**
      * Busca clases por nombre o cupo máximo
-     * @param nombre Nombre de la clase
-     * @param cupoMinimo Cupo mínimo
+     * @param nombre Nombre de la clase (sin distinguir mayúsculas, tildes ni espacios alrededor)
+     * @param cupoMinimo Cupo mínimo (null: solo por nombre)
      * @return Lista de clases que coinciden
      * @throws SQLException
      */
     List<Clase> getByNombreOrCupoMayor(String nombre, Integer cupoMinimo) throws SQLException;
+    
+    /**
+     * Busca varias clases por id con una sola consulta (WHERE id = ANY(?))
+     * @param ids Ids a buscar (se ignoran los repetidos)
+     * @return Mapa id -> clase; los ids que no existen no aparecen
+     * @throws SQLException
+     */
+    Map<Integer, Clase> getByIds(Collection<Integer> ids) throws SQLException;
+    
+    /**
+     * Página de clases ordenadas por id (paginación por clave, sin OFFSET)
+     * El coste de cada página es constante aunque se avance mucho en la tabla
+     * @param despuesDeId Id del último elemento de la página anterior (null para la primera)
+     * @param limite Tamaño máximo de la página
+     * @return Página con las clases siguientes
+     * @throws SQLException
+     */
+    Pagina<Clase> findPage(Integer despuesDeId, int limite) throws SQLException;
+    
+    /**
+     * Página de clases ordenadas por nombre, con cursor compuesto (nombre, id)
+     * @param despuesDe Último elemento de la página anterior (null para la primera)
+     * @param limite Tamaño máximo de la página
+     * @return Página con las clases siguientes
+     * @throws SQLException
+     */
+    Pagina<Clase> findPageOrderByNombre(Clase despuesDe, int limite) throws SQLException;
 }
@@ -1,9 +1,13 @@
 package com.ilerna.dao;
 
 import com.ilerna.dto.Cliente;
+import com.ilerna.dto.Pagina;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Interfaz DAO para las operaciones CRUD de Cliente
@@ -18,6 +22,16 @@ public interface IClienteDAO {
      */
     List<Cliente> findAll() throws SQLException;
     
+    /**
+     * Recorre todos los clientes en streaming mediante un cursor en el servidor.
+     * Solo hay en memoria fetchSize filas a la vez, sea cual sea el tamaño de la tabla.
+     * El Stream mantiene una conexión abierta: debe cerrarse (try-with-resources)
+     * @param fetchSize Filas que se traen del servidor en cada viaje
+     * @return Stream de clientes; los errores de lectura se lanzan como UncheckedSQLException
+     * @throws SQLException Si falla la apertura del cursor
+     */
+    Stream<Cliente> streamAll(int fetchSize) throws SQLException;
+    
     /**
      * Busca un cliente por su ID
      * @param id ID del cliente
@@ -26,6 +40,14 @@ public interface IClienteDAO {
      */
     Optional<Cliente> getById(Integer id) throws SQLException;
     
+    /**
+     * Busca varios clientes por id con una sola consulta (WHERE id = ANY(?))
+     * @param ids Ids a buscar (se ignoran los repetidos)
+     * @return Mapa id -> cliente; los ids que no existen no aparecen
+     * @throws SQLException
+     */
+    Map<Integer, Cliente> getByIds(Collection<Integer> ids) throws SQLException;
+    
     /**
      * Inserta un nuevo cliente
      * @param cliente Cliente a insertar
@@ -34,6 +56,15 @@ public interface IClienteDAO {
      */
     Cliente insert(Cliente cliente) throws SQLException;
     
+    /**
+     * Inserta varios clientes con pocas sentencias (una por bloque de tamaño configurable)
+     * Todos los bloques van en la misma transacción (o en la actual, si la hay)
+     * @param clientes Clientes a insertar; se les asigna el id en el orden de la lista
+     * @return La misma lista, con los ids asignados
+     * @throws SQLException
+     */
+    List<Cliente> insertAll(List<Cliente> clientes) throws SQLException;
+    
     /**
      * Actualiza un cliente existente
      * @param cliente Cliente a actualizar
@@ -49,4 +80,23 @@ public interface IClienteDAO {
      * @throws SQLException
      */
     boolean delete(Integer id) throws SQLException;
+    
+    /**
+     * Página de clientes ordenados por id (paginación por clave, sin OFFSET)
+     * El coste de cada página es constante aunque se avance mucho en la tabla
+     * @param despuesDeId Id del último elemento de la página anterior (null para la primera)
+     * @param limite Tamaño máximo de la página
+     * @return Página con los clientes siguientes
+     * @throws SQLException
+     */
+    Pagina<Cliente> findPage(Integer despuesDeId, int limite) throws SQLException;
+    
+    /**
+     * Página de clientes ordenados por nombre, con cursor compuesto (nombre, id)
+     * @param despuesDe Último elemento de la página anterior (null para la primera)
+     * @param limite Tamaño máximo de la página
+     * @return Página con los clientes siguientes
+     * @throws SQLException
+     */
+    Pagina<Cliente> findPageOrderByNombre(Cliente despuesDe, int limite) throws SQLException;
 }
@@ -0,0 +1,42 @@
+package com.ilerna.dao;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.OptionalInt;
+
+/**
+ * Interfaz DAO para las reservas de plaza en una clase
+ * La base de datos es quien garantiza que no se supera el cupo
+ */
+public interface IReservaDAO {
+    
+    /**
+     * Plazas libres de una clase en una fecha
+     * @param idClase ID de la clase
+     * @param fecha Fecha de la sesión
+     * @return Plazas libres (Integer.MAX_VALUE menos las reservadas si la clase no tiene cupo),
+     *         o vacío si la clase no existe
+     * @throws SQLException
+     */
+    OptionalInt getPlazasLibres(int idClase, LocalDate fecha) throws SQLException;
+    
+    /**
+     * Ocupa una plaza y registra la asistencia, solo si queda alguna libre
+     * @param idClase ID de la clase
+     * @param fecha Fecha de la sesión
+     * @param idCliente ID del cliente
+     * @return true si se ha reservado, false si la clase está completa o no existe
+     * @throws SQLException Con SQLSTATE 23505 si el cliente ya tenía plaza en esa clase y fecha
+     */
+    boolean reservar(int idClase, LocalDate fecha, int idCliente) throws SQLException;
+    
+    /**
+     * Anula la reserva de un cliente y libera su plaza
+     * @param idClase ID de la clase
+     * @param fecha Fecha de la sesión
+     * @param idCliente ID del cliente
+     * @return true si el cliente tenía reserva
+     * @throws SQLException
+     */
+    boolean cancelar(int idClase, LocalDate fecha, int idCliente) throws SQLException;
+}
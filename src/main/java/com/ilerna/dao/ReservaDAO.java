@@ -0,0 +1,117 @@
+package com.ilerna.dao;
+
+import com.ilerna.config.TransactionContext;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.OptionalInt;
+import javax.sql.DataSource;
+
+/**
+ * Implementación del DAO de reservas
+ * Gestiona las tablas ocupacion_clase y asistencia (ver migración 004)
+ */
+public class ReservaDAO implements IReservaDAO {
+    
+    private final DataSource dataSource;
+
+    /**
+     * Cada operación toma su propia conexión del pool y la devuelve al terminar,
+     * salvo dentro de una transacción de {@link TransactionContext}, donde usa la de la transacción.
+     * No guarda estado entre llamadas, por lo que puede usarse desde varios hilos a la vez.
+     */
+    public ReservaDAO(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public OptionalInt getPlazasLibres(int idClase, LocalDate fecha) throws SQLException {
+        String sql = "SELECT COALESCE(c.cupo_maximo, 2147483647) - COALESCE(o.reservadas, 0) AS libres " +
+                     "FROM clase c " +
+                     "LEFT JOIN ocupacion_clase o ON o.id_clase = c.id AND o.fecha = ? " +
+                     "WHERE c.id = ?";
+        
+        Connection conn = abrirConexion();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setObject(1, fecha);
+            pstmt.setInt(2, idClase);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return OptionalInt.of(Math.max(0, rs.getInt("libres")));
+                }
+            }
+        } finally {
+            liberarConexion(conn);
+        }
+        
+        return OptionalInt.empty();
+    }
+
+    @Override
+    public boolean reservar(int idClase, LocalDate fecha, int idCliente) throws SQLException {
+        // Bloquea la fila del día (creándola con 0 si no existe) siempre que quede cupo.
+        // Si no queda, el WHERE del DO UPDATE no se cumple y no se devuelve ninguna fila.
+        // El UPDATE no cambia el valor: la plaza la suma el trigger de asistencia (migración 004)
+        // al insertar la fila, dentro de esta misma transacción y con la fila aún bloqueada.
+        String sqlOcupar = "INSERT INTO ocupacion_clase (id_clase, fecha, reservadas) " +
+                           "SELECT id, ?, 0 FROM clase WHERE id = ? AND COALESCE(cupo_maximo, 2147483647) > 0 " +
+                           "ON CONFLICT (id_clase, fecha) DO UPDATE " +
+                           "SET reservadas = ocupacion_clase.reservadas " +
+                           "WHERE ocupacion_clase.reservadas < " +
+                           "(SELECT COALESCE(cupo_maximo, 2147483647) FROM clase WHERE id = EXCLUDED.id_clase) " +
+                           "RETURNING reservadas";
+        String sqlAsistencia = "INSERT INTO asistencia (id_cliente, id_clase, fecha) VALUES (?, ?, ?)";
+        
+        return TransactionContext.executeInTransaction(dataSource, conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(sqlOcupar)) {
+                pstmt.setObject(1, fecha);
+                pstmt.setInt(2, idClase);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (!rs.next()) {
+                        return false;
+                    }
+                }
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(sqlAsistencia)) {
+                pstmt.setInt(1, idCliente);
+                pstmt.setInt(2, idClase);
+                pstmt.setObject(3, fecha);
+                pstmt.executeUpdate();
+            }
+            return true;
+        });
+    }
+
+    @Override
+    public boolean cancelar(int idClase, LocalDate fecha, int idCliente) throws SQLException {
+        // La fecha también en el DELETE: con asistencia particionada por mes solo se lee su partición.
+        // La plaza la libera el trigger de asistencia (migración 004)
+        String sqlAsistencia = "DELETE FROM asistencia WHERE fecha = ? AND id = (" +
+                               "SELECT id FROM asistencia WHERE id_clase = ? AND fecha = ? AND id_cliente = ? LIMIT 1)";
+        
+        Connection conn = abrirConexion();
+        try (PreparedStatement pstmt = conn.prepareStatement(sqlAsistencia)) {
+            pstmt.setObject(1, fecha);
+            pstmt.setInt(2, idClase);
+            pstmt.setObject(3, fecha);
+            pstmt.setInt(4, idCliente);
+            return pstmt.executeUpdate() > 0;
+        } finally {
+            liberarConexion(conn);
+        }
+    }
+
+    /**
+     * Obtiene la conexión para una operación (la de la transacción actual si la hay)
+     */
+    private Connection abrirConexion() throws SQLException {
+        return TransactionContext.getConnection(dataSource);
+    }
+
+    /**
+     * Devuelve al pool la conexión de la operación (la de una transacción sigue abierta)
+     */
+    private void liberarConexion(Connection conn) throws SQLException {
+        TransactionContext.releaseConnection(conn, dataSource);
+    }
+}
@@ -0,0 +1,22 @@
+package com.ilerna.dao;
+
+import java.sql.SQLException;
+
+/**
+ * Envuelve una SQLException en una excepción no comprobada.
+ * Se usa cuando el error ocurre al recorrer un Stream de resultados,
+ * donde no se pueden lanzar excepciones comprobadas (análogo a UncheckedIOException)
+ */
+public class UncheckedSQLException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public UncheckedSQLException(String message, SQLException cause) {
+        super(message, cause);
+    }
+
+    @Override
+    public synchronized SQLException getCause() {
+        return (SQLException) super.getCause();
+    }
+}
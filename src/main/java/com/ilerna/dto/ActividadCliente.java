@@ -0,0 +1,65 @@
+package com.ilerna.dto;
+
+import java.time.LocalDate;
+
+/**
+ * DTO Actividad de un cliente: última visita, visitas totales y visitas de los últimos 30 días
+ */
+public class ActividadCliente {
+    private Integer idCliente;
+    private LocalDate ultimaVisita;
+    private Long visitas;
+    private Integer visitasUltimos30Dias;
+
+    public ActividadCliente() {
+    }
+
+    public ActividadCliente(Integer idCliente, LocalDate ultimaVisita, Long visitas, Integer visitasUltimos30Dias) {
+        this.idCliente = idCliente;
+        this.ultimaVisita = ultimaVisita;
+        this.visitas = visitas;
+        this.visitasUltimos30Dias = visitasUltimos30Dias;
+    }
+
+    public Integer getIdCliente() {
+        return idCliente;
+    }
+
+    public void setIdCliente(Integer idCliente) {
+        this.idCliente = idCliente;
+    }
+
+    public LocalDate getUltimaVisita() {
+        return ultimaVisita;
+    }
+
+    public void setUltimaVisita(LocalDate ultimaVisita) {
+        this.ultimaVisita = ultimaVisita;
+    }
+
+    public Long getVisitas() {
+        return visitas;
+    }
+
+    public void setVisitas(Long visitas) {
+        this.visitas = visitas;
+    }
+
+    public Integer getVisitasUltimos30Dias() {
+        return visitasUltimos30Dias;
+    }
+
+    public void setVisitasUltimos30Dias(Integer visitasUltimos30Dias) {
+        this.visitasUltimos30Dias = visitasUltimos30Dias;
+    }
+
+    @Override
+    public String toString() {
+        return "ActividadCliente{" +
+                "idCliente=" + idCliente +
+                ", ultimaVisita=" + ultimaVisita +
+                ", visitas=" + visitas +
+                ", visitasUltimos30Dias=" + visitasUltimos30Dias +
+                '}';
+    }
+}
@@ -0,0 +1,75 @@
+package com.ilerna.dto;
+
+import java.time.LocalDate;
+
+/**
+ * DTO Asistencia de un cliente a una clase en una fecha
+ */
+public class Asistencia {
+    private Long id;
+    private Integer idCliente;
+    private Integer idClase;
+    private LocalDate fecha;
+
+    // Constructor vacío
+    public Asistencia() {
+    }
+
+    // Constructor con todos los campos
+    public Asistencia(Long id, Integer idCliente, Integer idClase, LocalDate fecha) {
+        this.id = id;
+        this.idCliente = idCliente;
+        this.idClase = idClase;
+        this.fecha = fecha;
+    }
+
+    // Constructor sin ID > Inserciones
+    public Asistencia(Integer idCliente, Integer idClase, LocalDate fecha) {
+        this.idCliente = idCliente;
+        this.idClase = idClase;
+        this.fecha = fecha;
+    }
+
+    // Getters y Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Integer getIdCliente() {
+        return idCliente;
+    }
+
+    public void setIdCliente(Integer idCliente) {
+        this.idCliente = idCliente;
+    }
+
+    public Integer getIdClase() {
+        return idClase;
+    }
+
+    public void setIdClase(Integer idClase) {
+        this.idClase = idClase;
+    }
+
+    public LocalDate getFecha() {
+        return fecha;
+    }
+
+    public void setFecha(LocalDate fecha) {
+        this.fecha = fecha;
+    }
+
+    @Override
+    public String toString() {
+        return "Asistencia{" +
+                "id=" + id +
+                ", idCliente=" + idCliente +
+                ", idClase=" + idClase +
+                ", fecha=" + fecha +
+                '}';
+    }
+}
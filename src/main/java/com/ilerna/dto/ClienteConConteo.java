@@ -0,0 +1,41 @@
+package com.ilerna.dto;
+
+/**
+ * DTO Cliente con el conteo de asistencias
+ */
+public class ClienteConConteo {
+    private String nombreCliente;
+    private Integer numeroAsistencias;
+
+    public ClienteConConteo() {
+    }
+
+    public ClienteConConteo(String nombreCliente, Integer numeroAsistencias) {
+        this.nombreCliente = nombreCliente;
+        this.numeroAsistencias = numeroAsistencias;
+    }
+
+    public String getNombreCliente() {
+        return nombreCliente;
+    }
+
+    public void setNombreCliente(String nombreCliente) {
+        this.nombreCliente = nombreCliente;
+    }
+
+    public Integer getNumeroAsistencias() {
+        return numeroAsistencias;
+    }
+
+    public void setNumeroAsistencias(Integer numeroAsistencias) {
+        this.numeroAsistencias = numeroAsistencias;
+    }
+
+    @Override
+    public String toString() {
+        return "ClienteConConteo{" +
+                "nombreCliente='" + nombreCliente + '\'' +
+                ", numeroAsistencias=" + numeroAsistencias +
+                '}';
+    }
+}
@@ -0,0 +1,71 @@
+package com.ilerna.dto;
+
+import java.time.LocalDate;
+
+/**
+ * DTO con el número de asistencias de una clase o de un cliente en un periodo
+ */
+public class ConteoPeriodo {
+    private LocalDate inicioPeriodo;
+    private Integer id;
+    private String nombre;
+    private Long asistencias;
+
+    public ConteoPeriodo() {
+    }
+
+    public ConteoPeriodo(LocalDate inicioPeriodo, Integer id, String nombre, Long asistencias) {
+        this.inicioPeriodo = inicioPeriodo;
+        this.id = id;
+        this.nombre = nombre;
+        this.asistencias = asistencias;
+    }
+
+    /**
+     * Primer día del periodo (lunes para las semanas, día 1 para los meses)
+     */
+    public LocalDate getInicioPeriodo() {
+        return inicioPeriodo;
+    }
+
+    public void setInicioPeriodo(LocalDate inicioPeriodo) {
+        this.inicioPeriodo = inicioPeriodo;
+    }
+
+    /**
+     * ID de la clase o del cliente
+     */
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public void setNombre(String nombre) {
+        this.nombre = nombre;
+    }
+
+    public Long getAsistencias() {
+        return asistencias;
+    }
+
+    public void setAsistencias(Long asistencias) {
+        this.asistencias = asistencias;
+    }
+
+    @Override
+    public String toString() {
+        return "ConteoPeriodo{" +
+                "inicioPeriodo=" + inicioPeriodo +
+                ", id=" + id +
+                ", nombre='" + nombre + '\'' +
+                ", asistencias=" + asistencias +
+                '}';
+    }
+}
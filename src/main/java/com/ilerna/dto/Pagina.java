@@ -0,0 +1,45 @@
+package com.ilerna.dto;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * DTO con una página de resultados de una consulta paginada por clave (keyset)
+ * El cursor de la página siguiente es el último elemento de esta
+ */
+public class Pagina<T> {
+    private final List<T> elementos;
+    private final boolean hayMas;
+
+    public Pagina(List<T> elementos, boolean hayMas) {
+        this.elementos = Collections.unmodifiableList(elementos);
+        this.hayMas = hayMas;
+    }
+
+    public List<T> getElementos() {
+        return elementos;
+    }
+
+    public boolean hayMas() {
+        return hayMas;
+    }
+
+    public boolean isEmpty() {
+        return elementos.isEmpty();
+    }
+
+    /**
+     * Último elemento de la página (cursor para pedir la siguiente)
+     */
+    public T getUltimo() {
+        return elementos.isEmpty() ? null : elementos.get(elementos.size() - 1);
+    }
+
+    @Override
+    public String toString() {
+        return "Pagina{" +
+                "elementos=" + elementos.size() +
+                ", hayMas=" + hayMas +
+                '}';
+    }
+}
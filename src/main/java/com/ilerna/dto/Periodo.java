@@ -0,0 +1,42 @@
+package com.ilerna.dto;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Tamaño del periodo en que se agrupan los informes de asistencia
+ * Las semanas empiezan en lunes (ISO 8601)
+ */
+public enum Periodo {
+    DIA("day"),
+    SEMANA("week"),
+    MES("month");
+
+    private final String unidad;
+
+    Periodo(String unidad) {
+        this.unidad = unidad;
+    }
+
+    /**
+     * Unidad de date_trunc de PostgreSQL
+     */
+    public String getUnidad() {
+        return unidad;
+    }
+
+    /**
+     * Primer día del periodo que contiene la fecha (como date_trunc con esta unidad)
+     */
+    public LocalDate inicio(LocalDate fecha) {
+        switch (this) {
+            case SEMANA:
+                return fecha.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MES:
+                return fecha.withDayOfMonth(1);
+            default:
+                return fecha;
+        }
+    }
+}
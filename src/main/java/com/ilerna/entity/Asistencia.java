@@ -10,10 +10,12 @@ import java.time.LocalDate;
 @Table(name = "asistencia")
 public class Asistencia {
     
+    // Secuencia en bloques de 50: los INSERT masivos de asistencias van en lotes JDBC
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "asistencia_seq")
+    @SequenceGenerator(name = "asistencia_seq", sequenceName = "asistencia_id_seq", allocationSize = 50)
     @Column(name = "id")
-    private Integer id;
+    private Long id;
     
     // Relación MANY-TO-ONE con Cliente (EAGER)
     // EAGER: Carga automáticamente el cliente cuando se obtiene la asistencia
@@ -35,7 +37,7 @@ public class Asistencia {
     }
 
     // Constructor con todos los campos
-    public Asistencia(Integer id, Cliente cliente, Clase clase, LocalDate fecha) {
+    public Asistencia(Long id, Cliente cliente, Clase clase, LocalDate fecha) {
         this.id = id;
         this.cliente = cliente;
         this.clase = clase;
@@ -50,11 +52,11 @@ public class Asistencia {
     }
 
     // Getters y Setters
-    public Integer getId() {
+    public Long getId() {
         return id;
     }
 
-    public void setId(Integer id) {
+    public void setId(Long id) {
         this.id = id;
     }
 
@@ -1,16 +1,23 @@
 package com.ilerna.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * Entidad JPA que representa una Clase del gimnasio
+ * Datos de referencia: se guarda en la caché de segundo nivel (ver CacheSegundoNivel)
  */
 @Entity
 @Table(name = "clase")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "com.ilerna.entity.Clase")
 public class Clase {
     
+    // Secuencia en bloques de 50 ids (mismo esquema que Cliente)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "clase_seq")
+    @SequenceGenerator(name = "clase_seq", sequenceName = "clase_id_seq", allocationSize = 50)
     @Column(name = "id")
     private Integer id;
     
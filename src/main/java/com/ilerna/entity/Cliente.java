@@ -9,8 +9,12 @@ import jakarta.persistence.*;
 @Table(name = "cliente")
 public class Cliente {
     
+    // Secuencia con optimizador pooled-lo (ver hibernate.cfg.xml): Hibernate reserva
+    // bloques de allocationSize ids por cada nextval, lo que permite el batching de INSERT.
+    // allocationSize debe coincidir con el INCREMENT BY de la secuencia (migración 001)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cliente_seq")
+    @SequenceGenerator(name = "cliente_seq", sequenceName = "cliente_id_seq", allocationSize = 50)
     @Column(name = "id")
     private Integer id;
     
@@ -1,16 +1,23 @@
 package com.ilerna.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * Entidad JPA que representa un Entrenador del gimnasio
+ * Datos de referencia: se guarda en la caché de segundo nivel (ver CacheSegundoNivel)
  */
 @Entity
 @Table(name = "entrenador")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "com.ilerna.entity.Entrenador")
 public class Entrenador {
     
+    // Secuencia en bloques de 50 ids (mismo esquema que Cliente)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "entrenador_seq")
+    @SequenceGenerator(name = "entrenador_seq", sequenceName = "entrenador_id_seq", allocationSize = 50)
     @Column(name = "id")
     private Integer id;
     
@@ -1,16 +1,32 @@
 package com.ilerna.factory;
 
+import com.ilerna.analitica.BocetosAsistencia;
+import com.ilerna.cache.DeduplicadorFichajes;
 import com.ilerna.controller.GimnasioController;
 import com.ilerna.dao.AsistenciaDAO;
 import com.ilerna.dao.ClaseDAO;
 import com.ilerna.dao.ClienteDAO;
+import com.ilerna.dao.ReservaDAO;
+import com.ilerna.service.ActividadClientesService;
+import com.ilerna.service.AnaliticaAsistenciasService;
 import com.ilerna.service.AsistenciaService;
 import com.ilerna.service.ClaseService;
 import com.ilerna.service.ClienteService;
+import com.ilerna.service.CoasistenciaClasesService;
 import com.ilerna.service.DatabaseService;
+import com.ilerna.service.IndiceAsistentesService;
+import com.ilerna.service.IngestaAsistenciasService;
+import com.ilerna.service.PanelAsistenciasService;
+import com.ilerna.service.ParticionAsistenciaService;
+import com.ilerna.service.PublicadorAsistencias;
+import com.ilerna.service.ReservaService;
 import com.ilerna.service.TransaccionDemoService;
 
-import java.sql.Connection;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.Callable;
+import javax.sql.DataSource;
 
 /**
  * Factory para crear instancias de GimnasioController con todas sus dependencias
@@ -18,26 +34,58 @@ import java.sql.Connection;
  */
 public class GimnasioControllerFactory {
     
+    private static final long REFRESCO_CATALOGO_MS = 5 * 60 * 1000;
+    private static final long MAX_EDAD_CATALOGO_MS = 15 * 60 * 1000;
+    private static final long ACTUALIZACION_RESUMEN_MS = 60 * 1000;
+    private static final long MANTENIMIENTO_PARTICIONES_MS = 24 * 60 * 60 * 1000;
+    private static final Path ARCHIVO_INDICE_ASISTENTES = Paths.get("indice-asistentes.bin");
+    // Fichajes de los tornos: lotes de hasta 500 o 20 ms, lo que llegue antes
+    private static final int CAPACIDAD_COLA_FICHAJES = 10_000;
+    private static final int MAX_LOTE_FICHAJES = 500;
+    private static final long MAX_ESPERA_FICHAJES_MS = 20;
+    private static final int FICHAJES_ESPERADOS_POR_DIA = 20_000;
+    
     /**
      * Crea instancia de GimnasioController con todas sus dependencias
      * (Inyección de Dependencias manual)
      * 
-     * @param connection Conexión a la base de datos
+     * @param dataSource Pool del que cada operación toma su conexión
      * @param scanner Scanner para manejar la entrada del usuario
      * @return GimnasioController configurado y listo para usar
      */
-    public static GimnasioController crear(Connection connection, java.util.Scanner scanner) {
+    public static GimnasioController crear(DataSource dataSource, java.util.Scanner scanner) {
         // Capa DAO - Acceso a datos
-        ClienteDAO clienteDAO = new ClienteDAO(connection);
-        ClaseDAO claseDAO = new ClaseDAO(connection);
-        AsistenciaDAO asistenciaDAO = new AsistenciaDAO(connection);
+        ClienteDAO clienteDAO = new ClienteDAO(dataSource);
+        ClaseDAO claseDAO = new ClaseDAO(dataSource);
+        AsistenciaDAO asistenciaDAO = new AsistenciaDAO(dataSource);
+        ReservaDAO reservaDAO = new ReservaDAO(dataSource);
         
         // Capa Service - Lógica de negocio
-        DatabaseService databaseService = new DatabaseService(connection);
+        DatabaseService databaseService = new DatabaseService(dataSource);
         ClienteService clienteService = new ClienteService(clienteDAO);
         ClaseService claseService = new ClaseService(claseDAO);
+        // El catálogo de clases apenas cambia: se sirve desde memoria
+        claseService.activarCatalogo(REFRESCO_CATALOGO_MS, MAX_EDAD_CATALOGO_MS);
         AsistenciaService asistenciaService = new AsistenciaService(asistenciaDAO);
-        TransaccionDemoService transaccionDemoService = new TransaccionDemoService(connection);
+        // Los informes por periodo leen el resumen diario: se le aplican los cambios cada minuto
+        asistenciaService.activarActualizacionResumen(ACTUALIZACION_RESUMEN_MS);
+        // Todas las vías que escriben asistencia avisan al mismo publicador
+        PublicadorAsistencias publicador = new PublicadorAsistencias();
+        ReservaService reservaService = new ReservaService(reservaDAO);
+        reservaService.setPublicador(publicador);
+        // Los tornos escriben por lotes (un COMMIT por lote, no por toque); lo pendiente se
+        // guarda al salir
+        IngestaAsistenciasService ingestaAsistencias = new IngestaAsistenciasService(asistenciaDAO,
+                CAPACIDAD_COLA_FICHAJES, MAX_LOTE_FICHAJES, MAX_ESPERA_FICHAJES_MS,
+                IngestaAsistenciasService.PoliticaColaLlena.BLOQUEAR);
+        ingestaAsistencias.setDeduplicador(new DeduplicadorFichajes(FICHAJES_ESPERADOS_POR_DIA));
+        ingestaAsistencias.setPublicador(publicador);
+        Runtime.getRuntime().addShutdownHook(new Thread(ingestaAsistencias::close));
+        arrancarAnalitica(dataSource, clienteDAO, claseDAO, publicador);
+        // Particiones mensuales de asistencia (solo si se ha aplicado la migración 007): solo se
+        // crean las de los próximos meses; sin retención, ninguna se desengancha
+        new ParticionAsistenciaService(dataSource).activarMantenimiento(MANTENIMIENTO_PARTICIONES_MS);
+        TransaccionDemoService transaccionDemoService = new TransaccionDemoService(dataSource);
         
         // Capa Controller - Presentación
         return new GimnasioController(
@@ -45,8 +93,62 @@ public class GimnasioControllerFactory {
             clienteService,
             claseService,
             asistenciaService,
-                transaccionDemoService,
+            reservaService,
+            ingestaAsistencias,
+            transaccionDemoService,
             scanner
         );
     }
+
+    /**
+     * Crea las estructuras de analítica en memoria y las carga en un hilo aparte para no retrasar
+     * el menú. Cada una se suscribe al publicador antes de cargar, para no perder lo que se registre
+     * mientras tanto; si la carga falla (p. ej. sin las migraciones aplicadas) se queda fuera.
+     * El índice de asistentes se guarda al salir y en el siguiente arranque solo lee lo posterior.
+     */
+    private static void arrancarAnalitica(DataSource dataSource, ClienteDAO clienteDAO, ClaseDAO claseDAO,
+                                          PublicadorAsistencias publicador) {
+        AnaliticaAsistenciasService analitica = new AnaliticaAsistenciasService(dataSource, clienteDAO, claseDAO);
+        IndiceAsistentesService indiceAsistentes = new IndiceAsistentesService(dataSource, clienteDAO);
+        PanelAsistenciasService panel = new PanelAsistenciasService(dataSource, clienteDAO, new BocetosAsistencia());
+        ActividadClientesService actividad = new ActividadClientesService(dataSource, clienteDAO);
+        CoasistenciaClasesService coasistencia = new CoasistenciaClasesService(dataSource, claseDAO);
+
+        Thread carga = new Thread(() -> {
+            cargarYSuscribir(publicador, analitica, analitica::cargar);
+            if (cargarYSuscribir(publicador, indiceAsistentes, () -> {
+                indiceAsistentes.arrancar(ARCHIVO_INDICE_ASISTENTES);
+                return null;
+            })) {
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> guardar(indiceAsistentes)));
+            }
+            cargarYSuscribir(publicador, panel, panel::cargar);
+            cargarYSuscribir(publicador, actividad, actividad::cargar);
+            cargarYSuscribir(publicador, coasistencia, coasistencia::construir);
+        }, "carga-analitica");
+        carga.setDaemon(true);
+        carga.start();
+    }
+
+    private static boolean cargarYSuscribir(PublicadorAsistencias publicador, PublicadorAsistencias.Oyente oyente,
+                                            Callable<?> cargar) {
+        // Antes de cargar: el servicio retiene lo avisado durante la carga y lo aplica a los datos nuevos
+        publicador.suscribir(oyente);
+        try {
+            cargar.call();
+        } catch (Exception e) {
+            publicador.cancelarSuscripcion(oyente);
+            System.err.println("✗ " + oyente.getClass().getSimpleName() + " no se ha podido cargar: " + e.getMessage());
+            return false;
+        }
+        return true;
+    }
+
+    private static void guardar(IndiceAsistentesService indiceAsistentes) {
+        try {
+            indiceAsistentes.guardar(ARCHIVO_INDICE_ASISTENTES);
+        } catch (IOException e) {
+            System.err.println("✗ No se ha podido guardar el índice de asistentes: " + e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,266 @@
+package com.ilerna.service;
+
+import com.ilerna.analitica.IndiceActividad;
+import com.ilerna.analitica.MapaBits;
+import com.ilerna.config.TransactionContext;
+import com.ilerna.dao.IClienteDAO;
+import com.ilerna.dto.ActividadCliente;
+import com.ilerna.dto.Asistencia;
+import com.ilerna.dto.Cliente;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.sql.DataSource;
+
+/**
+ * Actividad de los clientes (última visita, visitas totales y de los últimos 30 días) y clientes
+ * que llevan N días sin venir, sin agregar MAX(fecha) sobre toda la tabla asistencia
+ *
+ * - La tabla cliente_actividad (migración 009) guarda la última visita y el total por cliente;
+ *   la mantienen los triggers de asistencia
+ * - {@link IndiceActividad} la cachea en memoria junto con las visitas de los últimos 30 días
+ * - cargar(): lee cliente_actividad y las asistencias de los últimos 30 días
+ * - anadir(): visitas nuevas, recibidas como oyente de {@link PublicadorAsistencias}
+ * - reconstruir(): rehace cliente_actividad desde cero en paralelo y vuelve a cargar
+ *
+ * Al borrar una visita, la anterior solo está en la base de datos (que la corrige con sus
+ * triggers): los borrados y las asistencias de otras aplicaciones se ven al volver a cargar.
+ */
+public class ActividadClientesService implements PublicadorAsistencias.Oyente {
+
+    // Tramos de clientes por hilo en la reconstrucción: si un tramo es más lento, los demás hilos siguen
+    private static final int TRAMOS_POR_HILO = 4;
+
+    private static final String SQL_RECONSTRUIR_TRAMO =
+            "INSERT INTO cliente_actividad (id_cliente, ultima_visita, visitas) " +
+            "SELECT id_cliente, MAX(fecha), COUNT(*) FROM asistencia " +
+            "WHERE id_cliente BETWEEN ? AND ? " +
+            "GROUP BY id_cliente " +
+            "ON CONFLICT (id_cliente) DO UPDATE " +
+            "SET ultima_visita = EXCLUDED.ultima_visita, visitas = EXCLUDED.visitas";
+
+    private final DataSource dataSource;
+    private final IClienteDAO clienteDAO;
+    private final CargaConAvisos carga = new CargaConAvisos(this);
+    private volatile IndiceActividad indice = new IndiceActividad();
+
+    public ActividadClientesService(DataSource dataSource, IClienteDAO clienteDAO) {
+        this.dataSource = dataSource;
+        this.clienteDAO = clienteDAO;
+    }
+
+    /**
+     * Carga el índice desde cliente_actividad y las asistencias de los últimos 30 días
+     * Si la tabla no existe (migración 009 sin aplicar) recorre toda asistencia.
+     * Las consultas siguen usando el índice anterior hasta que termina; lo publicado mientras tanto
+     * se aplica al nuevo.
+     * @return Clientes con actividad
+     * @throws SQLException
+     */
+    public int cargar() throws SQLException {
+        long inicio = System.currentTimeMillis();
+        LocalDate desde = LocalDate.now().minusDays(IndiceActividad.DIAS_VENTANA - 1);
+        // Resumen y ventana salen de la misma instantánea (CargaConAvisos lee en REPEATABLE READ)
+        IndiceActividad nuevo = carga.cargar(dataSource, conn -> {
+            IndiceActividad leido = new IndiceActividad();
+            if (existeResumen(conn)) {
+                leerResumen(conn, leido);
+                LectorAsistencias.leer(conn, desde, leido::anadirVentanaTodas);
+            } else {
+                System.out.println("✗ No existe cliente_actividad (migración 009): se recorre toda asistencia");
+                LectorAsistencias.leer(conn, null, leido::registrarTodas);
+            }
+            return leido;
+        }, leido -> indice = leido);
+        System.out.println("✓ Actividad de clientes: " + nuevo.getNumeroClientes() + " clientes, " +
+                nuevo.getBytes() / 1024 + " KB en " + (System.currentTimeMillis() - inicio) + " ms");
+        return nuevo.getNumeroClientes();
+    }
+
+    /**
+     * Rehace cliente_actividad desde asistencia repartiendo los clientes por tramos de id entre varios
+     * hilos, cada uno con su conexión, y vuelve a cargar el índice
+     *
+     * Mientras tanto asistencia queda bloqueada para escritura (LOCK ... IN SHARE MODE), como en
+     * AsistenciaDAO.reconciliarConteos(): ninguna inserción se queda fuera ni se cuenta dos veces.
+     * @param hilos Hilos (y conexiones) de la reconstrucción
+     * @return Clientes con actividad
+     * @throws SQLException
+     */
+    public int reconstruir(int hilos) throws SQLException {
+        if (hilos <= 0) {
+            throw new IllegalArgumentException("Hace falta al menos un hilo");
+        }
+        long inicio = System.currentTimeMillis();
+        TransactionContext.executeInTransaction(dataSource, conn -> {
+            int minimo;
+            int maximo;
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("LOCK TABLE asistencia IN SHARE MODE");
+                try (ResultSet rs = stmt.executeQuery("SELECT MIN(id), MAX(id) FROM cliente")) {
+                    rs.next();
+                    minimo = rs.getInt(1);
+                    maximo = rs.getInt(2);
+                    if (rs.wasNull()) {
+                        minimo = 1;
+                        maximo = 0;
+                    }
+                }
+            }
+            rellenarEnParalelo(hilos, minimo, maximo);
+            // Los clientes sin asistencias (p. ej. tras borrar las suyas) salen del resumen
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("DELETE FROM cliente_actividad ca " +
+                        "WHERE NOT EXISTS (SELECT 1 FROM asistencia a WHERE a.id_cliente = ca.id_cliente)");
+            }
+            return null;
+        });
+        System.out.println("✓ cliente_actividad reconstruida con " + hilos + " hilos en " +
+                (System.currentTimeMillis() - inicio) + " ms");
+        return cargar();
+    }
+
+    /**
+     * Añade asistencias ya guardadas en la base de datos
+     */
+    @Override
+    public void anadir(List<Asistencia> asistencias) {
+        if (carga.retener(asistencias, true)) {
+            return;
+        }
+        IndiceActividad actual = indice;
+        for (Asistencia asistencia : asistencias) {
+            actual.registrar(asistencia.getIdCliente(), asistencia.getFecha());
+        }
+    }
+
+    /**
+     * Actividad de un cliente a fecha de hoy (null si nunca ha venido)
+     */
+    public ActividadCliente getActividad(int idCliente) {
+        return indice.getActividad(idCliente, LocalDate.now());
+    }
+
+    /**
+     * Clientes cuya última visita es anterior a la fecha, en orden de id
+     * Los que nunca han venido no aparecen.
+     * @throws SQLException
+     */
+    public List<Cliente> inactivosDesde(LocalDate fecha) throws SQLException {
+        MapaBits ids = indice.inactivosDesde(fecha);
+        List<Integer> lista = new ArrayList<>((int) ids.cardinalidad());
+        ids.paraCada(lista::add);
+        Map<Integer, Cliente> porId = clienteDAO.getByIds(lista);
+        List<Cliente> resultado = new ArrayList<>(lista.size());
+        for (Integer id : lista) {
+            Cliente cliente = porId.get(id);
+            if (cliente != null) {
+                resultado.add(cliente);
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Clientes que llevan al menos los días indicados sin venir (última visita antes de hoy - dias)
+     * @throws SQLException
+     */
+    public List<Cliente> inactivosDesde(int dias) throws SQLException {
+        if (dias < 0) {
+            throw new IllegalArgumentException("El número de días no puede ser negativo");
+        }
+        return inactivosDesde(LocalDate.now().minusDays(dias - 1L));
+    }
+
+    /**
+     * Índice actual, para consultas a medida
+     */
+    public IndiceActividad getIndice() {
+        return indice;
+    }
+
+    private static boolean existeResumen(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT to_regclass('cliente_actividad') IS NOT NULL")) {
+            return rs.next() && rs.getBoolean(1);
+        }
+    }
+
+    private static void leerResumen(Connection conn, IndiceActividad destino) throws SQLException {
+        String sql = "SELECT id_cliente, ultima_visita - DATE '1970-01-01', visitas FROM cliente_actividad";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setFetchSize(LectorAsistencias.FILAS_POR_BLOQUE);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    destino.fijarResumen(rs.getInt(1), LocalDate.ofEpochDay(rs.getInt(2)), rs.getLong(3));
+                }
+            }
+        }
+    }
+
+    /**
+     * Recalcula cliente_actividad por tramos de id de cliente, cada tramo en su propia transacción
+     */
+    private void rellenarEnParalelo(int hilos, int minimo, int maximo) throws SQLException {
+        if (maximo < minimo) {
+            return;
+        }
+        long clientes = (long) maximo - minimo + 1;
+        int tramos = (int) Math.min(clientes, (long) hilos * TRAMOS_POR_HILO);
+        long porTramo = (clientes + tramos - 1) / tramos;
+
+        ExecutorService trabajadores = Executors.newFixedThreadPool(hilos, tarea -> {
+            Thread t = new Thread(tarea, "actividad-clientes");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<Integer>> tareas = new ArrayList<>(tramos);
+            for (long desde = minimo; desde <= maximo; desde += porTramo) {
+                int primero = (int) desde;
+                int ultimo = (int) Math.min(maximo, desde + porTramo - 1);
+                tareas.add(trabajadores.submit(() -> rellenarTramo(primero, ultimo)));
+            }
+            for (Future<Integer> tarea : tareas) {
+                esperar(tarea);
+            }
+        } finally {
+            trabajadores.shutdownNow();
+        }
+    }
+
+    private int rellenarTramo(int primero, int ultimo) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SQL_RECONSTRUIR_TRAMO)) {
+            pstmt.setInt(1, primero);
+            pstmt.setInt(2, ultimo);
+            return pstmt.executeUpdate();
+        }
+    }
+
+    private static void esperar(Future<Integer> tarea) throws SQLException {
+        try {
+            tarea.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Reconstrucción interrumpida", e);
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof SQLException) {
+                throw (SQLException) causa;
+            }
+            throw new SQLException("Error al reconstruir un tramo: " + causa.getMessage(), causa);
+        }
+    }
+}
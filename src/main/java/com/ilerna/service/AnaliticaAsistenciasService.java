@@ -0,0 +1,173 @@
+package com.ilerna.service;
+
+import com.ilerna.analitica.ColumnasAsistencia;
+import com.ilerna.analitica.ConteoPorId;
+import com.ilerna.analitica.MotorAnalitica;
+import com.ilerna.analitica.MotorAnalitica.Filtro;
+import com.ilerna.dao.IClaseDAO;
+import com.ilerna.dao.IClienteDAO;
+import com.ilerna.dto.Asistencia;
+import com.ilerna.dto.Clase;
+import com.ilerna.dto.ClaseConConteo;
+import com.ilerna.dto.Cliente;
+import com.ilerna.dto.ClienteConConteo;
+
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+
+/**
+ * Consultas de analítica de asistencias (visitas por cliente, clase más concurrida por día de la
+ * semana, clientes con al menos N visitas...) resueltas en memoria, sin recorrer asistencia en SQL
+ *
+ * cargar() lee la tabla una vez a {@link ColumnasAsistencia}; después recibe las asistencias nuevas
+ * suscrito a {@link PublicadorAsistencias}.
+ * Los nombres de clientes y clases se buscan con sus DAO (getByIds) solo para las filas del resultado.
+ *
+ * Las columnas solo crecen: los borrados, y lo que se registre fuera de la aplicación, no se ven
+ * hasta la siguiente carga. Lo publicado mientras se carga se aplica a los datos nuevos
+ * (ver {@link CargaConAvisos}).
+ */
+public class AnaliticaAsistenciasService implements PublicadorAsistencias.Oyente {
+
+    private final DataSource dataSource;
+    private final IClienteDAO clienteDAO;
+    private final IClaseDAO claseDAO;
+    private final CargaConAvisos carga = new CargaConAvisos(this);
+    private volatile ColumnasAsistencia columnas = new ColumnasAsistencia();
+    private volatile MotorAnalitica motor = new MotorAnalitica(columnas);
+
+    public AnaliticaAsistenciasService(DataSource dataSource, IClienteDAO clienteDAO, IClaseDAO claseDAO) {
+        this.dataSource = dataSource;
+        this.clienteDAO = clienteDAO;
+        this.claseDAO = claseDAO;
+    }
+
+    /**
+     * Carga (o recarga desde cero) todas las asistencias en memoria
+     * Las consultas siguen usando los datos anteriores hasta que termina
+     * @return Número de asistencias cargadas
+     * @throws SQLException
+     */
+    public int cargar() throws SQLException {
+        long inicio = System.currentTimeMillis();
+        ColumnasAsistencia nuevas = carga.cargar(dataSource, conn -> {
+            ColumnasAsistencia leidas = new ColumnasAsistencia(LectorAsistencias.estimarFilas(conn));
+            LectorAsistencias.leer(conn, null, leidas::anadirTodas);
+            return leidas;
+        }, leidas -> {
+            columnas = leidas;
+            motor = new MotorAnalitica(leidas);
+        });
+
+        ColumnasAsistencia.Vista vista = nuevas.getVista();
+        System.out.println("✓ Analítica: " + vista.getFilas() + " asistencias cargadas en " +
+                (System.currentTimeMillis() - inicio) + " ms (" + vista.getBytesColumnas() / 1024 + " KB)");
+        return vista.getFilas();
+    }
+
+    /**
+     * Añade asistencias ya guardadas en la base de datos
+     */
+    @Override
+    public void anadir(List<Asistencia> asistencias) {
+        if (carga.retener(asistencias, true)) {
+            return;
+        }
+        int n = asistencias.size();
+        int[] clientes = new int[n];
+        int[] clases = new int[n];
+        int[] fechas = new int[n];
+        for (int i = 0; i < n; i++) {
+            Asistencia asistencia = asistencias.get(i);
+            clientes[i] = asistencia.getIdCliente();
+            clases[i] = asistencia.getIdClase();
+            fechas[i] = (int) asistencia.getFecha().toEpochDay();
+        }
+        columnas.anadirTodas(clientes, clases, fechas, 0, n);
+    }
+
+    /**
+     * Asistencias por clase, de más a menos
+     * (en ClaseConConteo, numeroClientes es el número de asistencias, como en el reporte por clase)
+     * @throws SQLException
+     */
+    public List<ClaseConConteo> asistenciasPorClase(Filtro filtro) throws SQLException {
+        List<ConteoPorId> conteos = motor.asistenciasPorClase(filtro);
+        Map<Integer, Clase> clases = claseDAO.getByIds(ids(conteos));
+        List<ClaseConConteo> resultado = new ArrayList<>(conteos.size());
+        for (ConteoPorId conteo : conteos) {
+            resultado.add(new ClaseConConteo(nombre(clases.get(conteo.getId())), (int) conteo.getTotal()));
+        }
+        return resultado;
+    }
+
+    /**
+     * Visitas de cada cliente, de más a menos
+     * @throws SQLException
+     */
+    public List<ClienteConConteo> visitasPorCliente(Filtro filtro) throws SQLException {
+        return clientes(motor.visitasPorCliente(filtro));
+    }
+
+    /**
+     * Clientes con al menos minimo visitas, de más a menos
+     * @throws SQLException
+     */
+    public List<ClienteConConteo> clientesConAlMenos(int minimo, Filtro filtro) throws SQLException {
+        return clientes(motor.clientesConAlMenos(minimo, filtro));
+    }
+
+    /**
+     * Clase con más asistencias de cada día de la semana
+     * @throws SQLException
+     */
+    public Map<DayOfWeek, ClaseConConteo> claseMasConcurridaPorDiaSemana(Filtro filtro) throws SQLException {
+        Map<DayOfWeek, ConteoPorId> conteos = motor.claseMasConcurridaPorDiaSemana(filtro);
+        Map<Integer, Clase> clases = claseDAO.getByIds(ids(conteos.values()));
+        Map<DayOfWeek, ClaseConConteo> resultado = new EnumMap<>(DayOfWeek.class);
+        for (Map.Entry<DayOfWeek, ConteoPorId> entrada : conteos.entrySet()) {
+            ConteoPorId conteo = entrada.getValue();
+            resultado.put(entrada.getKey(),
+                    new ClaseConConteo(nombre(clases.get(conteo.getId())), (int) conteo.getTotal()));
+        }
+        return resultado;
+    }
+
+    /**
+     * Motor sobre los datos actuales, para consultas por id sin resolver nombres
+     */
+    public MotorAnalitica getMotor() {
+        return motor;
+    }
+
+    private List<ClienteConConteo> clientes(List<ConteoPorId> conteos) throws SQLException {
+        Map<Integer, Cliente> clientes = clienteDAO.getByIds(ids(conteos));
+        List<ClienteConConteo> resultado = new ArrayList<>(conteos.size());
+        for (ConteoPorId conteo : conteos) {
+            Cliente cliente = clientes.get(conteo.getId());
+            resultado.add(new ClienteConConteo(cliente != null ? cliente.getNombre() : null, (int) conteo.getTotal()));
+        }
+        return resultado;
+    }
+
+    private static List<Integer> ids(Collection<ConteoPorId> conteos) {
+        List<Integer> ids = new ArrayList<>(conteos.size());
+        for (ConteoPorId conteo : conteos) {
+            ids.add(conteo.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * Nombre de la clase (null si se ha borrado después de cargar)
+     */
+    private static String nombre(Clase clase) {
+        return clase != null ? clase.getNombre() : null;
+    }
+}
@@ -8,12 +8,24 @@ import org.hibernate.Session;
 import org.hibernate.Transaction;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Servicio para demostrar EAGER vs LAZY loading en Hibernate
  */
 public class AsistenciaHibernateService {
 
+    private volatile PublicadorAsistencias publicador;
+
+    /**
+     * Publicador al que se avisa de las asistencias insertadas (null para no avisar)
+     */
+    public void setPublicador(PublicadorAsistencias publicador) {
+        this.publicador = publicador;
+    }
+
     /**
      * Demostración de EAGER Loading
      * El cliente se carga automáticamente cuando se obtiene la asistencia
@@ -90,13 +102,17 @@ public class AsistenciaHibernateService {
 
     /**
      * Insertar una nueva asistencia
+     * No comprueba el cupo máximo de la clase (la plaza la cuenta el trigger de asistencia en
+     * ocupacion_clase): las reservas de plaza deben hacerse con {@link ReservaService}.
+     * Para muchos fichajes seguidos (tornos), {@link IngestaAsistenciasService} los agrupa
+     * en lotes con un solo COMMIT.
      */
     public void insertarAsistencia(Integer idCliente, Integer idClase, LocalDate fecha) {
         Transaction transaction = null;
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
             transaction = session.beginTransaction();
 
-            // Obtener entidades relacionadas
+            // Obtener entidades relacionadas (la clase sale de la caché de segundo nivel salvo la primera vez)
             Cliente cliente = session.find(Cliente.class, idCliente);
             Clase clase = session.find(Clase.class, idClase);
 
@@ -107,6 +123,11 @@ public class AsistenciaHibernateService {
                 
                 transaction.commit();
                 System.out.println("Asistencia registrada: " + asistencia);
+                PublicadorAsistencias destino = publicador;
+                if (destino != null) {
+                    destino.publicarRegistradas(Collections.singletonList(
+                            new com.ilerna.dto.Asistencia(asistencia.getId(), idCliente, idClase, fecha)));
+                }
             } else {
                 System.out.println("Cliente o Clase no encontrado");
             }
@@ -119,4 +140,53 @@ public class AsistenciaHibernateService {
             e.printStackTrace();
         }
     }
+
+    /**
+     * Registra la asistencia de muchos clientes a una clase en una sola transacción.
+     * Usa referencias (getReference) en lugar de find, así que no hace SELECT de
+     * clientes ni de la clase, y los INSERT se envían en lotes JDBC.
+     * Registra fichajes ya hechos: no comprueba el cupo, aunque cuentan en ocupacion_clase.
+     *
+     * @param idClase Clase a la que asisten
+     * @param fecha Fecha de la asistencia
+     * @param idsClientes Clientes que asistieron
+     * @return Número de asistencias insertadas
+     */
+    public int insertarAsistencias(Integer idClase, LocalDate fecha, List<Integer> idsClientes) {
+        int tamanoLote = HibernateUtil.getJdbcBatchSize();
+        Transaction transaction = null;
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            transaction = session.beginTransaction();
+
+            // Solo los datos que se publican: las entidades se sueltan con cada clear()
+            List<com.ilerna.dto.Asistencia> insertadas = new ArrayList<>(idsClientes.size());
+            for (int i = 0; i < idsClientes.size(); i++) {
+                Clase clase = session.getReference(Clase.class, idClase);
+                Cliente cliente = session.getReference(Cliente.class, idsClientes.get(i));
+                Asistencia asistencia = new Asistencia(cliente, clase, fecha);
+                session.persist(asistencia);
+                insertadas.add(new com.ilerna.dto.Asistencia(asistencia.getId(), idsClientes.get(i), idClase, fecha));
+
+                if ((i + 1) % tamanoLote == 0) {
+                    session.flush();
+                    session.clear();
+                }
+            }
+
+            transaction.commit();
+            PublicadorAsistencias destino = publicador;
+            if (destino != null) {
+                destino.publicarRegistradas(insertadas);
+            }
+            return idsClientes.size();
+
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            System.err.println("Error al insertar asistencias en lote: " + e.getMessage());
+            e.printStackTrace();
+            return 0;
+        }
+    }
 }
@@ -2,15 +2,23 @@ package com.ilerna.service;
 
 import com.ilerna.dao.IAsistenciaDAO;
 import com.ilerna.dto.ClaseConConteo;
+import com.ilerna.dto.ConteoPeriodo;
+import com.ilerna.dto.Periodo;
 import java.sql.SQLException;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Servicio para gestionar la lógica de negocio relacionada con Asistencias
+ * Puede usarse desde varios hilos (mostradores) a la vez
  */
 public class AsistenciaService {
     
     private final IAsistenciaDAO asistenciaDAO;
+    private ScheduledExecutorService actualizacionResumen;
 
     public AsistenciaService(IAsistenciaDAO asistenciaDAO) {
         this.asistenciaDAO = asistenciaDAO;
@@ -24,4 +32,93 @@ public class AsistenciaService {
     public List<ClaseConConteo> obtenerReporteClientesPorClase() throws SQLException {
         return asistenciaDAO.getNumeroClientesPorClase();
     }
+
+    /**
+     * Asistencias de cada clase por día, semana o mes entre dos fechas (ambas incluidas)
+     * @throws SQLException
+     */
+    public List<ConteoPeriodo> obtenerAsistenciasPorClase(Periodo periodo, LocalDate desde, LocalDate hasta)
+            throws SQLException {
+        validarRango(periodo, desde, hasta);
+        return asistenciaDAO.getAsistenciasPorClase(periodo, desde, hasta);
+    }
+
+    /**
+     * Asistencias de cada cliente por día, semana o mes entre dos fechas (ambas incluidas)
+     * @throws SQLException
+     */
+    public List<ConteoPeriodo> obtenerAsistenciasPorCliente(Periodo periodo, LocalDate desde, LocalDate hasta)
+            throws SQLException {
+        validarRango(periodo, desde, hasta);
+        return asistenciaDAO.getAsistenciasPorCliente(periodo, desde, hasta);
+    }
+
+    /**
+     * Asistencias de un cliente por día, semana o mes entre dos fechas (ambas incluidas)
+     * @throws SQLException
+     */
+    public List<ConteoPeriodo> obtenerAsistenciasDeCliente(int idCliente, Periodo periodo, LocalDate desde,
+                                                           LocalDate hasta) throws SQLException {
+        validarRango(periodo, desde, hasta);
+        return asistenciaDAO.getAsistenciasDeCliente(idCliente, periodo, desde, hasta);
+    }
+
+    /**
+     * Aplica al resumen diario las asistencias registradas desde la última actualización
+     * (los informes son exactos igualmente; esto mantiene pequeña la tabla de cambios pendientes)
+     * @return Número de cambios aplicados
+     * @throws SQLException
+     */
+    public int actualizarResumenDiario() throws SQLException {
+        return asistenciaDAO.actualizarResumenDiario();
+    }
+
+    /**
+     * Actualiza el resumen diario en segundo plano cada intervaloMs
+     * @param intervaloMs Tiempo entre actualizaciones
+     */
+    public synchronized void activarActualizacionResumen(long intervaloMs) {
+        if (intervaloMs <= 0) {
+            throw new IllegalArgumentException("El intervalo de actualización debe ser mayor que 0");
+        }
+        if (actualizacionResumen != null) {
+            actualizacionResumen.shutdownNow();
+        }
+        actualizacionResumen = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread t = new Thread(tarea, "resumen-asistencias");
+            t.setDaemon(true);
+            return t;
+        });
+        actualizacionResumen.scheduleWithFixedDelay(() -> {
+            try {
+                asistenciaDAO.actualizarResumenDiario();
+            } catch (SQLException | RuntimeException e) {
+                System.err.println("✗ Error al actualizar el resumen diario de asistencias: " + e.getMessage());
+            }
+        }, intervaloMs, intervaloMs, TimeUnit.MILLISECONDS);
+    }
+
+    private static void validarRango(Periodo periodo, LocalDate desde, LocalDate hasta) {
+        if (periodo == null || desde == null || hasta == null) {
+            throw new IllegalArgumentException("El periodo y las fechas son obligatorios");
+        }
+        if (desde.isAfter(hasta)) {
+            throw new IllegalArgumentException("La fecha inicial no puede ser posterior a la final");
+        }
+    }
+
+    /**
+     * Comprueba los contadores del reporte contra la tabla asistencia y corrige los desajustados
+     * @return Número de clases corregidas (0 si todo cuadraba)
+     * @throws SQLException
+     */
+    public int reconciliarConteos() throws SQLException {
+        int corregidas = asistenciaDAO.reconciliarConteos();
+        if (corregidas == 0) {
+            System.out.println("✓ Contadores de asistencia consistentes");
+        } else {
+            System.out.println("✗ Contadores de asistencia corregidos en " + corregidas + " clase(s)");
+        }
+        return corregidas;
+    }
 }
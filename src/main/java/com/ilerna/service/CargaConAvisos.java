@@ -0,0 +1,129 @@
+package com.ilerna.service;
+
+import com.ilerna.config.TransactionContext;
+import com.ilerna.dto.Asistencia;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import javax.sql.DataSource;
+
+/**
+ * Carga de una estructura en memoria que sigue a {@link PublicadorAsistencias}, sin perder ni
+ * contar dos veces lo que se publica mientras dura la lectura
+ *
+ * - El oyente se suscribe antes de cargar; mientras hay una carga en curso sus avisos se retienen aquí
+ * - La lectura se hace en una transacción REPEATABLE READ: todo sale de una sola instantánea
+ * - Al terminar se mira en esa misma instantánea cuáles de los avisos retenidos ya contiene, se
+ *   instala la estructura nueva y se le aplican las altas que no contenía y las bajas que sí
+ * - Si la carga falla, los avisos retenidos se aplican a la estructura anterior, que sigue en uso
+ *
+ * Las cargas de una misma estructura se hacen de una en una.
+ */
+final class CargaConAvisos {
+
+    /**
+     * Lectura de la estructura nueva desde la instantánea de la conexión
+     */
+    @FunctionalInterface
+    interface Lectura<T> {
+        T leer(Connection conn) throws SQLException;
+    }
+
+    private final PublicadorAsistencias.Oyente destino;
+    private final Object cargas = new Object();
+    private final List<Asistencia> retenidas = new ArrayList<>();
+    // Por cada asistencia retenida: true si es un alta, false si es una baja
+    private final List<Boolean> altas = new ArrayList<>();
+    private boolean cargando;
+
+    /**
+     * @param destino Oyente al que se aplican los avisos retenidos, una vez instalada la estructura
+     */
+    CargaConAvisos(PublicadorAsistencias.Oyente destino) {
+        this.destino = destino;
+    }
+
+    /**
+     * Retiene el aviso si hay una carga en curso
+     * @return true si queda retenido; false si el oyente debe aplicarlo ya
+     */
+    synchronized boolean retener(List<Asistencia> asistencias, boolean alta) {
+        if (!cargando) {
+            return false;
+        }
+        for (Asistencia asistencia : asistencias) {
+            retenidas.add(asistencia);
+            altas.add(alta);
+        }
+        return true;
+    }
+
+    /**
+     * Lee la estructura nueva, la instala y le aplica lo publicado durante la lectura
+     * @param lectura Lee la estructura desde la conexión
+     * @param instalar Deja la estructura en uso (normalmente, asignar un campo volatile)
+     * @return La estructura instalada
+     * @throws SQLException Si falla la lectura (la estructura anterior sigue en uso, al día)
+     */
+    <T> T cargar(DataSource dataSource, Lectura<T> lectura, Consumer<T> instalar) throws SQLException {
+        synchronized (cargas) {
+            synchronized (this) {
+                cargando = true;
+            }
+            try {
+                return TransactionContext.executeInTransaction(dataSource, conn -> {
+                    try (Statement stmt = conn.createStatement()) {
+                        stmt.execute("SET TRANSACTION ISOLATION LEVEL REPEATABLE READ");
+                    }
+                    T nueva = lectura.leer(conn);
+                    // Mientras se instala, los avisos que lleguen esperan aquí y se aplican después
+                    synchronized (this) {
+                        boolean[] contenidas = LectorAsistencias.contenidas(conn, retenidas);
+                        instalar.accept(nueva);
+                        aplicarRetenidas(contenidas);
+                    }
+                    return nueva;
+                });
+            } finally {
+                synchronized (this) {
+                    if (cargando) {
+                        aplicarRetenidas(null);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Aplica los avisos retenidos y deja de retener
+     * @param contenidas Qué asistencias contiene ya la estructura instalada (null: ninguna se filtra)
+     */
+    private void aplicarRetenidas(boolean[] contenidas) {
+        cargando = false;
+        List<Asistencia> pendientes = new ArrayList<>(retenidas);
+        List<Boolean> sonAltas = new ArrayList<>(altas);
+        retenidas.clear();
+        altas.clear();
+        for (int i = 0; i < pendientes.size(); i++) {
+            boolean alta = sonAltas.get(i);
+            // Un alta ya contenida estaba en la lectura; una baja no contenida, también
+            if (contenidas != null && contenidas[i] == alta) {
+                continue;
+            }
+            List<Asistencia> una = pendientes.subList(i, i + 1);
+            try {
+                if (alta) {
+                    destino.anadir(una);
+                } else {
+                    destino.quitar(una);
+                }
+            } catch (RuntimeException e) {
+                System.err.println("✗ Error al aplicar un cambio de asistencia tras la carga: " + e.getMessage());
+            }
+        }
+    }
+}
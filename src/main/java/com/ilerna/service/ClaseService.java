@@ -1,28 +1,123 @@
 package com.ilerna.service;
 
+import com.ilerna.cache.CatalogoClases;
 import com.ilerna.dao.IClaseDAO;
 import com.ilerna.dto.Clase;
+import com.ilerna.dto.Pagina;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Servicio para gestionar la lógica de negocio relacionada con Clases
+ * Sin estado mutable: puede usarse desde varios hilos (mostradores) a la vez
  */
 public class ClaseService {
     
     private final IClaseDAO claseDAO;
+    private volatile CatalogoClases catalogo;
 
     public ClaseService(IClaseDAO claseDAO) {
         this.claseDAO = claseDAO;
     }
 
+    /**
+     * Sirve el listado y la búsqueda de clases desde un catálogo en memoria
+     * El catálogo se carga ahora y se refresca en segundo plano
+     * @param intervaloRefrescoMs Cada cuánto se recarga el catálogo
+     * @param maxEdadMs Antigüedad máxima de los datos servidos
+     */
+    public void activarCatalogo(long intervaloRefrescoMs, long maxEdadMs) {
+        CatalogoClases nuevo = new CatalogoClases(claseDAO, intervaloRefrescoMs, maxEdadMs);
+        nuevo.iniciar();
+        CatalogoClases anterior = catalogo;
+        catalogo = nuevo;
+        if (anterior != null) {
+            anterior.close();
+        }
+    }
+
+    /**
+     * Recarga el catálogo de clases (si está activado) tras un cambio en la tabla clase
+     * @throws SQLException
+     */
+    public void refrescarCatalogo() throws SQLException {
+        CatalogoClases actual = catalogo;
+        if (actual != null) {
+            actual.refrescar();
+        }
+    }
+
+    /**
+     * Aplica al catálogo en memoria (si está activado) una clase dada de alta o modificada,
+     * sin recargarlo entero
+     * @param clase Clase ya guardada, con su ID
+     */
+    public void registrarCambioClase(Clase clase) {
+        CatalogoClases actual = catalogo;
+        if (actual != null) {
+            actual.registrarCambio(clase);
+        }
+    }
+
     /**
      * Obtiene todas las clases disponibles
      * @return Lista de clases
      * @throws SQLException
      */
     public List<Clase> obtenerTodasLasClases() throws SQLException {
-        return claseDAO.getAll();
+        CatalogoClases actual = catalogo;
+        return actual != null ? actual.getAll() : claseDAO.getAll();
+    }
+
+    /**
+     * Obtiene varias clases con una sola consulta
+     * @param ids IDs de las clases
+     * @return Mapa ID -> clase (los IDs que no existen no aparecen)
+     * @throws SQLException
+     */
+    public Map<Integer, Clase> obtenerClasesPorIds(Collection<Integer> ids) throws SQLException {
+        return claseDAO.getByIds(ids);
+    }
+
+    /**
+     * Obtiene una página de clases ordenadas por nombre
+     * @param despuesDe Última clase de la página anterior (null para la primera)
+     * @param tamano Número de clases por página
+     * @return Página de clases
+     * @throws SQLException
+     */
+    public Pagina<Clase> obtenerPaginaClases(Clase despuesDe, int tamano) throws SQLException {
+        if (tamano <= 0) {
+            throw new IllegalArgumentException("El tamaño de página debe ser mayor que 0");
+        }
+        return claseDAO.findPageOrderByNombre(despuesDe, tamano);
+    }
+
+    /**
+     * Busca clases con cupo máximo dentro de un rango
+     * @param cupoMinimo Cupo mínimo (incluido)
+     * @param cupoMaximo Cupo máximo (incluido)
+     * @return Clases de menor a mayor cupo
+     * @throws SQLException
+     */
+    public List<Clase> buscarClasesPorCupo(int cupoMinimo, int cupoMaximo) throws SQLException {
+        CatalogoClases actual = catalogo;
+        if (actual != null) {
+            return actual.getByCupoEntre(cupoMinimo, cupoMaximo);
+        }
+        List<Clase> clases = new ArrayList<>();
+        for (Clase clase : claseDAO.getAll()) {
+            Integer cupo = clase.getCupoMaximo();
+            if (cupo != null && cupo >= cupoMinimo && cupo <= cupoMaximo) {
+                clases.add(clase);
+            }
+        }
+        clases.sort(Comparator.comparingInt(Clase::getCupoMaximo));
+        return clases;
     }
 
     /**
@@ -32,6 +127,11 @@ public class ClaseService {
      * @throws SQLException
      */
     public List<Clase> buscarClasesCrossfitOCupoMayor(Integer cupoMinimo) throws SQLException {
+        CatalogoClases actual = catalogo;
+        if (actual != null) {
+            return actual.getByNombreOrCupoMayor("crossfit", cupoMinimo);
+        }
+        // Misma regla que el catálogo, resuelta en SQL: el nombre coincide sin distinguir mayúsculas ni tildes
         return claseDAO.getByNombreOrCupoMayor("crossfit", cupoMinimo);
     }
 }
@@ -1,23 +1,81 @@
 package com.ilerna.service;
 
+import com.ilerna.cache.CacheLRU;
+import com.ilerna.cache.CacheStats;
+import com.ilerna.config.TransactionContext;
+import com.ilerna.dao.BatchLoader;
 import com.ilerna.dao.IClienteDAO;
 import com.ilerna.dto.Cliente;
+import com.ilerna.dto.Pagina;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Servicio para gestionar la lógica de negocio relacionada con Clientes
  * Capa intermedia entre la presentación y el acceso a datos
+ * Sin estado mutable: puede usarse desde varios hilos (mostradores) a la vez
  */
 public class ClienteService {
     
+    private static final int TAMANO_FETCH_POR_DEFECTO = 500;
+
     private final IClienteDAO clienteDAO;
+    private volatile int tamanoFetch = TAMANO_FETCH_POR_DEFECTO;
+    private volatile BatchLoader<Integer, Cliente> cargadorPorId;
+    private volatile CacheLRU<Integer, Cliente> cache;
 
     public ClienteService(IClienteDAO clienteDAO) {
         this.clienteDAO = clienteDAO;
     }
 
+    /**
+     * Filas que se traen del servidor en cada viaje al recorrer clientes en streaming
+     * @param tamanoFetch Tamaño de fetch (mayor que 0)
+     */
+    public void setTamanoFetch(int tamanoFetch) {
+        if (tamanoFetch <= 0) {
+            throw new IllegalArgumentException("El tamaño de fetch debe ser mayor que 0");
+        }
+        this.tamanoFetch = tamanoFetch;
+    }
+
+    /**
+     * Agrupa las búsquedas por ID que lleguen a la vez desde varios hilos en una sola consulta
+     * Cada búsqueda espera como mucho ventanaMs a que se le unan otras
+     * @param ventanaMs Ventana de espera en milisegundos
+     * @param maxLote Número de IDs con el que la consulta se lanza sin esperar
+     */
+    public void activarAgrupacionBusquedas(long ventanaMs, int maxLote) {
+        BatchLoader<Integer, Cliente> anterior = cargadorPorId;
+        cargadorPorId = new BatchLoader<>(clienteDAO::getByIds, ventanaMs, maxLote);
+        if (anterior != null) {
+            anterior.close();
+        }
+    }
+
+    /**
+     * Guarda en memoria los clientes buscados por ID (caché LRU de tamaño acotado)
+     * Las altas, modificaciones y bajas hechas a través de este servicio invalidan la entrada al
+     * terminar su transacción; los IDs inexistentes se recuerdan solo durante ttlNegativoMs
+     * @param maxEntradas Número máximo de clientes en caché
+     * @param ttlNegativoMs Tiempo que se recuerda que un ID no existe (0 = no se recuerda)
+     */
+    public void activarCache(int maxEntradas, long ttlNegativoMs) {
+        cache = new CacheLRU<>(maxEntradas, ttlNegativoMs);
+    }
+
+    /**
+     * Estadísticas de la caché de clientes, si está activada
+     */
+    public Optional<CacheStats> obtenerEstadisticasCache() {
+        CacheLRU<Integer, Cliente> actual = cache;
+        return actual == null ? Optional.empty() : Optional.of(actual.getEstadisticas());
+    }
+
     /**
      * Obtiene todos los clientes del gimnasio
      * @return Lista de clientes
@@ -27,6 +85,30 @@ public class ClienteService {
         return clienteDAO.findAll();
     }
 
+    /**
+     * Recorre todos los clientes sin cargarlos en memoria (cursor en el servidor)
+     * El Stream debe cerrarse para devolver la conexión al pool
+     * @return Stream de clientes
+     * @throws SQLException
+     */
+    public Stream<Cliente> recorrerClientes() throws SQLException {
+        return clienteDAO.streamAll(tamanoFetch);
+    }
+
+    /**
+     * Obtiene una página de clientes ordenados por nombre
+     * @param despuesDe Último cliente de la página anterior (null para la primera)
+     * @param tamano Número de clientes por página
+     * @return Página de clientes
+     * @throws SQLException
+     */
+    public Pagina<Cliente> obtenerPaginaClientes(Cliente despuesDe, int tamano) throws SQLException {
+        if (tamano <= 0) {
+            throw new IllegalArgumentException("El tamaño de página debe ser mayor que 0");
+        }
+        return clienteDAO.findPageOrderByNombre(despuesDe, tamano);
+    }
+
     /**
      * Busca un cliente por su ID
      * @param id ID del cliente
@@ -34,9 +116,36 @@ public class ClienteService {
      * @throws SQLException
      */
     public Optional<Cliente> buscarClientePorId(Integer id) throws SQLException {
+        CacheLRU<Integer, Cliente> actual = cache;
+        if (actual == null) {
+            return cargarClientePorId(id);
+        }
+        // Se devuelve una copia: quien la reciba puede modificarla sin tocar la caché
+        return actual.get(id, this::cargarClientePorId).map(ClienteService::copiar);
+    }
+
+    private Optional<Cliente> cargarClientePorId(Integer id) throws SQLException {
+        BatchLoader<Integer, Cliente> cargador = cargadorPorId;
+        if (cargador != null) {
+            return cargador.get(id);
+        }
         return clienteDAO.getById(id);
     }
 
+    private static Cliente copiar(Cliente cliente) {
+        return new Cliente(cliente.getId(), cliente.getNombre(), cliente.getEmail(), cliente.getTelefono());
+    }
+
+    /**
+     * Busca varios clientes con una sola consulta
+     * @param ids IDs de los clientes
+     * @return Mapa ID -> cliente (los IDs que no existen no aparecen)
+     * @throws SQLException
+     */
+    public Map<Integer, Cliente> buscarClientesPorIds(Collection<Integer> ids) throws SQLException {
+        return clienteDAO.getByIds(ids);
+    }
+
     /**
      * Registra un nuevo cliente
      * @param cliente Cliente a registrar
@@ -44,14 +153,42 @@ public class ClienteService {
      * @throws SQLException
      */
     public Cliente registrarCliente(Cliente cliente) throws SQLException {
+        validarCliente(cliente);
+        Cliente insertado = clienteDAO.insert(cliente);
+        // El ID nuevo puede estar en caché como inexistente
+        invalidarCache(insertado.getId());
+        return insertado;
+    }
+
+    /**
+     * Registra varios clientes de una vez (inserción por bloques, todo o nada)
+     * Se validan todos antes de escribir nada
+     * @param clientes Clientes a registrar
+     * @return Los mismos clientes, con su ID asignado
+     * @throws SQLException
+     */
+    public List<Cliente> registrarClientes(List<Cliente> clientes) throws SQLException {
+        for (Cliente cliente : clientes) {
+            validarCliente(cliente);
+        }
+        List<Cliente> insertados = clienteDAO.insertAll(clientes);
+        for (Cliente cliente : insertados) {
+            invalidarCache(cliente.getId());
+        }
+        return insertados;
+    }
+
+    /**
+     * Reglas de negocio para dar de alta un cliente
+     * @throws IllegalArgumentException si falta algún dato obligatorio
+     */
+    static void validarCliente(Cliente cliente) {
         if (cliente.getNombre() == null || cliente.getNombre().trim().isEmpty()) {
             throw new IllegalArgumentException("El nombre del cliente es obligatorio");
         }
         if (cliente.getEmail() == null || cliente.getEmail().trim().isEmpty()) {
             throw new IllegalArgumentException("El email del cliente es obligatorio");
         }
-        
-        return clienteDAO.insert(cliente);
     }
 
     /**
@@ -64,7 +201,11 @@ public class ClienteService {
         if (cliente.getId() == null) {
             throw new IllegalArgumentException("El ID del cliente es obligatorio para actualizar");
         }
-        return clienteDAO.update(cliente);
+        try {
+            return clienteDAO.update(cliente);
+        } finally {
+            invalidarCache(cliente.getId());
+        }
     }
 
     /**
@@ -74,6 +215,21 @@ public class ClienteService {
      * @throws SQLException
      */
     public boolean eliminarCliente(Integer id) throws SQLException {
-        return clienteDAO.delete(id);
+        try {
+            return clienteDAO.delete(id);
+        } finally {
+            invalidarCache(id);
+        }
+    }
+
+    /**
+     * Invalida la entrada cuando termina la transacción en curso (si la hay): antes del commit
+     * otro hilo aún leería y guardaría la fila anterior
+     */
+    private void invalidarCache(Integer id) {
+        CacheLRU<Integer, Cliente> actual = cache;
+        if (actual != null && id != null) {
+            TransactionContext.alTerminar(() -> actual.invalidar(id));
+        }
     }
 }
@@ -0,0 +1,117 @@
+package com.ilerna.service;
+
+import com.ilerna.analitica.ConteoPorId;
+import com.ilerna.analitica.MatrizCoasistencia;
+import com.ilerna.dao.IClaseDAO;
+import com.ilerna.dto.Asistencia;
+import com.ilerna.dto.Clase;
+import com.ilerna.dto.ClaseConConteo;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+
+/**
+ * Recomendaciones "quien va a X también va a Y" para el mostrador, a partir de una
+ * {@link MatrizCoasistencia} en memoria en lugar de cruzar asistencia consigo misma en cada consulta
+ *
+ * - construir(): recorre asistencia una vez y cuenta los pares de clases en paralelo
+ * - anadir(): la primera asistencia de un cliente a una clase suma sus pares; llega como oyente
+ *   de {@link PublicadorAsistencias}
+ *
+ * Un borrado no dice si al cliente le quedan otras asistencias a esa clase, así que no se
+ * descuenta: se ve al volver a construir.
+ */
+public class CoasistenciaClasesService implements PublicadorAsistencias.Oyente {
+
+    private final DataSource dataSource;
+    private final IClaseDAO claseDAO;
+    private final CargaConAvisos carga = new CargaConAvisos(this);
+    private volatile MatrizCoasistencia matriz = new MatrizCoasistencia();
+
+    public CoasistenciaClasesService(DataSource dataSource, IClaseDAO claseDAO) {
+        this.dataSource = dataSource;
+        this.claseDAO = claseDAO;
+    }
+
+    /**
+     * Construye la matriz desde cero recorriendo asistencia
+     * Las consultas siguen usando la matriz anterior hasta que termina; lo publicado mientras tanto
+     * se aplica a la nueva.
+     * @return Número de asistencias leídas
+     * @throws SQLException
+     */
+    public int construir() throws SQLException {
+        long inicio = System.currentTimeMillis();
+        int[] leidas = new int[1];
+        long[] lectura = new long[1];
+        MatrizCoasistencia nueva = carga.cargar(dataSource, conn -> {
+            MatrizCoasistencia leida = new MatrizCoasistencia();
+            leidas[0] = LectorAsistencias.leer(conn, null, leida::anotarTodas);
+            lectura[0] = System.currentTimeMillis() - inicio;
+            leida.recalcular();
+            return leida;
+        }, leida -> matriz = leida);
+        System.out.println("✓ Matriz de coasistencia: " + leidas[0] + " asistencias, " + nueva.getNumeroClases() +
+                " clases, " + nueva.getNumeroPares() / 2 + " pares en " + (System.currentTimeMillis() - inicio) +
+                " ms (" + lectura[0] + " ms de lectura)");
+        return leidas[0];
+    }
+
+    /**
+     * Añade asistencias ya guardadas en la base de datos
+     */
+    @Override
+    public void anadir(List<Asistencia> asistencias) {
+        if (carga.retener(asistencias, true)) {
+            return;
+        }
+        int n = asistencias.size();
+        int[] clientes = new int[n];
+        int[] clases = new int[n];
+        for (int i = 0; i < n; i++) {
+            Asistencia asistencia = asistencias.get(i);
+            clientes[i] = asistencia.getIdCliente();
+            clases[i] = asistencia.getIdClase();
+        }
+        matriz.registrarTodas(clientes, clases, null, 0, n);
+    }
+
+    /**
+     * Las n clases con más clientes en común con la dada (ids y clientes en común), sin ir a la base de datos
+     */
+    public List<ConteoPorId> relacionadas(int idClase, int n) {
+        return matriz.relacionadas(idClase, n);
+    }
+
+    /**
+     * Las n clases con más clientes en común con la dada, con su nombre
+     * @throws SQLException
+     */
+    public List<ClaseConConteo> clasesRelacionadas(int idClase, int n) throws SQLException {
+        List<ConteoPorId> relacionadas = matriz.relacionadas(idClase, n);
+        List<Integer> ids = new ArrayList<>(relacionadas.size());
+        for (ConteoPorId relacionada : relacionadas) {
+            ids.add(relacionada.getId());
+        }
+        Map<Integer, Clase> clases = claseDAO.getByIds(ids);
+        List<ClaseConConteo> resultado = new ArrayList<>(relacionadas.size());
+        for (ConteoPorId relacionada : relacionadas) {
+            Clase clase = clases.get(relacionada.getId());
+            // Una clase borrada después de construir la matriz no aparece
+            if (clase != null) {
+                resultado.add(new ClaseConConteo(clase.getNombre(), (int) relacionada.getTotal()));
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Matriz actual, para consultas a medida (coasistencia de un par, asistentes de una clase)
+     */
+    public MatrizCoasistencia getMatriz() {
+        return matriz;
+    }
+}
@@ -1,19 +1,24 @@
 package com.ilerna.service;
 
+import com.ilerna.config.ConnectionPool;
+import com.ilerna.config.PoolStats;
+
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Optional;
+import javax.sql.DataSource;
 
 /**
  * Servicio para operaciones generales de base de datos
  */
 public class DatabaseService {
     
-    private final Connection connection;
+    private final DataSource dataSource;
 
-    public DatabaseService(Connection connection) {
-        this.connection = connection;
+    public DatabaseService(DataSource dataSource) {
+        this.dataSource = dataSource;
     }
 
     /**
@@ -22,7 +27,8 @@ public class DatabaseService {
      * @throws SQLException
      */
     public String obtenerVersionPostgreSQL() throws SQLException {
-        try (Statement stmt = connection.createStatement();
+        try (Connection connection = dataSource.getConnection();
+             Statement stmt = connection.createStatement();
              ResultSet rs = stmt.executeQuery("SELECT version();")) {
             
             if (rs.next()) {
@@ -31,4 +37,15 @@ public class DatabaseService {
             return "Versión desconocida";
         }
     }
+
+    /**
+     * Obtiene las estadísticas del pool de conexiones
+     * @return Optional con las estadísticas si el DataSource es el pool de la aplicación
+     */
+    public Optional<PoolStats> obtenerEstadisticasPool() {
+        if (dataSource instanceof ConnectionPool) {
+            return Optional.of(((ConnectionPool) dataSource).getStats());
+        }
+        return Optional.empty();
+    }
 }
@@ -0,0 +1,185 @@
+package com.ilerna.service;
+
+import com.ilerna.config.TransactionContext;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.zip.GZIPOutputStream;
+import javax.sql.DataSource;
+
+/**
+ * Servicio de exportación de tablas con COPY (SELECT ...) TO STDOUT
+ * Las filas pasan del servidor al destino según llegan, sin guardarse en memoria,
+ * así que el consumo es constante sea cual sea el tamaño de la tabla.
+ *
+ * Las filas salen en el orden en que las lee el servidor (sin ORDER BY, para no tener que ordenar
+ * la tabla entera). Si el fichero de destino acaba en .gz, se comprime con gzip.
+ */
+public class ExportacionService {
+
+    /**
+     * Formato de salida de COPY
+     */
+    public enum Formato {
+        /** CSV con cabecera */
+        CSV("(FORMAT csv, HEADER)"),
+        /** Formato binario de PostgreSQL (más compacto y rápido; se carga con COPY ... FROM ... (FORMAT binary)) */
+        BINARIO("(FORMAT binary)");
+
+        private final String opciones;
+
+        Formato(String opciones) {
+            this.opciones = opciones;
+        }
+    }
+
+    private static final int TAMANO_BUFFER = 64 * 1024;
+
+    private static final String CONSULTA_CLIENTES = "SELECT id, nombre, email, telefono FROM cliente";
+    private static final String CONSULTA_CLASES = "SELECT id, nombre, cupo_maximo FROM clase";
+    private static final String CONSULTA_ENTRENADORES = "SELECT id, nombre, especialidad FROM entrenador";
+    private static final String CONSULTA_ASISTENCIAS = "SELECT id, id_cliente, id_clase, fecha FROM asistencia";
+
+    private final DataSource dataSource;
+
+    public ExportacionService(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Exporta la tabla cliente
+     * @param destino Flujo de salida (no se cierra)
+     * @param formato Formato de salida
+     * @return Número de filas exportadas
+     * @throws SQLException
+     * @throws IOException Si falla la escritura
+     */
+    public long exportarClientes(OutputStream destino, Formato formato) throws SQLException, IOException {
+        return exportar(CONSULTA_CLIENTES, destino, formato);
+    }
+
+    /**
+     * Exporta la tabla cliente a un fichero (comprimido si acaba en .gz)
+     * @return Número de filas exportadas
+     */
+    public long exportarClientes(Path fichero, Formato formato) throws SQLException, IOException {
+        return exportar(CONSULTA_CLIENTES, fichero, formato);
+    }
+
+    /**
+     * Exporta la tabla clase
+     * @param destino Flujo de salida (no se cierra)
+     * @param formato Formato de salida
+     * @return Número de filas exportadas
+     * @throws SQLException
+     * @throws IOException Si falla la escritura
+     */
+    public long exportarClases(OutputStream destino, Formato formato) throws SQLException, IOException {
+        return exportar(CONSULTA_CLASES, destino, formato);
+    }
+
+    /**
+     * Exporta la tabla clase a un fichero (comprimido si acaba en .gz)
+     * @return Número de filas exportadas
+     */
+    public long exportarClases(Path fichero, Formato formato) throws SQLException, IOException {
+        return exportar(CONSULTA_CLASES, fichero, formato);
+    }
+
+    /**
+     * Exporta la tabla entrenador
+     * @param destino Flujo de salida (no se cierra)
+     * @param formato Formato de salida
+     * @return Número de filas exportadas
+     * @throws SQLException
+     * @throws IOException Si falla la escritura
+     */
+    public long exportarEntrenadores(OutputStream destino, Formato formato) throws SQLException, IOException {
+        return exportar(CONSULTA_ENTRENADORES, destino, formato);
+    }
+
+    /**
+     * Exporta la tabla entrenador a un fichero (comprimido si acaba en .gz)
+     * @return Número de filas exportadas
+     */
+    public long exportarEntrenadores(Path fichero, Formato formato) throws SQLException, IOException {
+        return exportar(CONSULTA_ENTRENADORES, fichero, formato);
+    }
+
+    /**
+     * Exporta las asistencias, opcionalmente de un rango de fechas
+     * @param destino Flujo de salida (no se cierra)
+     * @param formato Formato de salida
+     * @param desde Primera fecha incluida (null = sin límite)
+     * @param hasta Última fecha incluida (null = sin límite)
+     * @return Número de filas exportadas
+     * @throws SQLException
+     * @throws IOException Si falla la escritura
+     */
+    public long exportarAsistencias(OutputStream destino, Formato formato, LocalDate desde, LocalDate hasta)
+            throws SQLException, IOException {
+        return exportar(consultaAsistencias(desde, hasta), destino, formato);
+    }
+
+    /**
+     * Exporta las asistencias a un fichero (comprimido si acaba en .gz), opcionalmente de un rango de fechas
+     * @return Número de filas exportadas
+     */
+    public long exportarAsistencias(Path fichero, Formato formato, LocalDate desde, LocalDate hasta)
+            throws SQLException, IOException {
+        return exportar(consultaAsistencias(desde, hasta), fichero, formato);
+    }
+
+    /**
+     * Consulta de asistencias con el filtro de fechas
+     * COPY no admite parámetros, así que las fechas se escriben como literales
+     * (LocalDate.toString() siempre da aaaa-mm-dd, no hay riesgo de inyección)
+     */
+    static String consultaAsistencias(LocalDate desde, LocalDate hasta) {
+        if (desde != null && hasta != null && desde.isAfter(hasta)) {
+            throw new IllegalArgumentException("La fecha inicial no puede ser posterior a la final");
+        }
+        StringBuilder sql = new StringBuilder(CONSULTA_ASISTENCIAS);
+        if (desde != null) {
+            sql.append(" WHERE fecha >= DATE '").append(desde).append('\'');
+        }
+        if (hasta != null) {
+            sql.append(desde != null ? " AND" : " WHERE").append(" fecha <= DATE '").append(hasta).append('\'');
+        }
+        return sql.toString();
+    }
+
+    private long exportar(String consulta, Path fichero, Formato formato) throws SQLException, IOException {
+        OutputStream salida = Files.newOutputStream(fichero);
+        if (fichero.getFileName().toString().endsWith(".gz")) {
+            salida = new GZIPOutputStream(salida, TAMANO_BUFFER);
+        }
+        try (OutputStream destino = salida) {
+            return exportar(consulta, destino, formato);
+        }
+    }
+
+    private long exportar(String consulta, OutputStream destino, Formato formato) throws SQLException, IOException {
+        String sql = "COPY (" + consulta + ") TO STDOUT WITH " + formato.opciones;
+
+        // El driver escribe cada fila por separado: el buffer agrupa las escrituras
+        BufferedOutputStream buffer = new BufferedOutputStream(destino, TAMANO_BUFFER);
+        Connection conn = TransactionContext.getConnection(dataSource);
+        try {
+            CopyManager copyManager = conn.unwrap(PGConnection.class).getCopyAPI();
+            long filas = copyManager.copyOut(sql, buffer);
+            buffer.flush();
+            return filas;
+        } finally {
+            TransactionContext.releaseConnection(conn, dataSource);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.ilerna.service;
+
+import java.time.LocalDate;
+
+/**
+ * El cliente ya tiene registrada la asistencia a esa clase en esa fecha
+ */
+public class FichajeDuplicadoException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public FichajeDuplicadoException(int idCliente, int idClase, LocalDate fecha) {
+        super("El cliente " + idCliente + " ya tiene asistencia a la clase " + idClase + " el " + fecha);
+    }
+}
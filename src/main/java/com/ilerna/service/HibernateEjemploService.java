@@ -5,6 +5,8 @@ import com.ilerna.entity.Cliente;
 import org.hibernate.Session;
 import org.hibernate.Transaction;
 
+import java.util.List;
+
 /**
  * Servicio de ejemplo que demuestra el uso básico de Hibernate
  * con operaciones CRUD sobre la entidad Cliente
@@ -39,6 +41,43 @@ public class HibernateEjemploService {
         }
     }
 
+    /**
+     * Inserta muchos clientes en una sola transacción usando batching JDBC.
+     * Con ids por secuencia (pooled-lo) Hibernate no necesita ejecutar cada INSERT
+     * para conocer el id, y los agrupa en lotes de hibernate.jdbc.batch_size.
+     * Cada lote se vacía de la sesión para mantener la memoria constante.
+     *
+     * @param clientes Clientes a insertar (se les asigna el id)
+     * @return Número de clientes insertados
+     */
+    public int insertarClientes(List<Cliente> clientes) {
+        int tamanoLote = HibernateUtil.getJdbcBatchSize();
+        Transaction transaction = null;
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            transaction = session.beginTransaction();
+
+            for (int i = 0; i < clientes.size(); i++) {
+                session.persist(clientes.get(i));
+                if ((i + 1) % tamanoLote == 0) {
+                    // Enviar el lote y liberar el contexto de persistencia
+                    session.flush();
+                    session.clear();
+                }
+            }
+
+            transaction.commit();
+            return clientes.size();
+
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            System.err.println("Error al insertar clientes en lote: " + e.getMessage());
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
     /**
      * Ejemplo: Consultar un cliente por ID
      */
@@ -0,0 +1,538 @@
+package com.ilerna.service;
+
+import com.ilerna.config.TransactionContext;
+import com.ilerna.dto.Cliente;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.sql.DataSource;
+
+/**
+ * Servicio de importación masiva de clientes desde un fichero CSV
+ * Columnas: nombre, email, telefono (con una línea de cabecera, salvo que se indique lo contrario)
+ *
+ * Pasos:
+ * 1. El CSV se lee registro a registro y cada fila se valida con las mismas reglas que el alta
+ *    individual ({@link ClienteService#registrarCliente}); las inválidas se rechazan
+ * 2. Las filas válidas se agrupan en bloques y varios hilos las vuelcan con COPY en la tabla
+ *    de carga cliente_importacion, cada uno con su propia conexión del pool
+ * 3. Un único INSERT ... SELECT pasa el lote a cliente, descartando los emails repetidos
+ *    en el fichero o que ya tenga otro cliente
+ *
+ * En memoria solo hay unos pocos bloques a la vez, sea cual sea el tamaño del fichero.
+ * Necesita la migración 003_importacion_clientes.sql
+ */
+public class ImportacionClientesService {
+
+    private static final int HILOS_POR_DEFECTO = 4;
+    private static final int TAMANO_BLOQUE_POR_DEFECTO = 5000;
+    private static final int MAX_RECHAZOS_EN_RESULTADO = 100;
+
+    private static final String SQL_COPY =
+            "COPY cliente_importacion (lote, linea, nombre, email, telefono) FROM STDIN WITH (FORMAT csv)";
+
+    // Filas del lote con el motivo por el que no pueden pasar a cliente
+    private static final String SQL_MARCADAS =
+            "WITH marcadas AS (" +
+            "  SELECT s.linea, s.nombre, s.email, s.telefono, " +
+            "         row_number() OVER (PARTITION BY lower(s.email) ORDER BY s.linea) > 1 AS repetida, " +
+            "         EXISTS (SELECT 1 FROM cliente c WHERE lower(c.email) = lower(s.email)) AS existente " +
+            "  FROM cliente_importacion s " +
+            "  WHERE s.lote = ?) ";
+
+    private final DataSource dataSource;
+    private volatile int hilos = HILOS_POR_DEFECTO;
+    private volatile int tamanoBloque = TAMANO_BLOQUE_POR_DEFECTO;
+    private volatile boolean conCabecera = true;
+
+    public ImportacionClientesService(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Número de hilos (y conexiones del pool) que cargan bloques en paralelo
+     * @param hilos Número de hilos (mayor que 0, sin superar el tamaño del pool)
+     */
+    public void setHilos(int hilos) {
+        if (hilos <= 0) {
+            throw new IllegalArgumentException("El número de hilos debe ser mayor que 0");
+        }
+        this.hilos = hilos;
+    }
+
+    /**
+     * Filas que se envían en cada COPY
+     * @param tamanoBloque Tamaño de bloque (mayor que 0)
+     */
+    public void setTamanoBloque(int tamanoBloque) {
+        if (tamanoBloque <= 0) {
+            throw new IllegalArgumentException("El tamaño de bloque debe ser mayor que 0");
+        }
+        this.tamanoBloque = tamanoBloque;
+    }
+
+    /**
+     * Indica si la primera línea del fichero es una cabecera (por defecto true)
+     */
+    public void setConCabecera(boolean conCabecera) {
+        this.conCabecera = conCabecera;
+    }
+
+    /**
+     * Importa un fichero CSV en UTF-8
+     * @param fichero Ruta del CSV
+     * @return Resultado de la importación
+     * @throws SQLException Si falla la carga o la fusión (no se importa ninguna fila)
+     * @throws IOException Si no se puede leer el fichero
+     */
+    public ResultadoImportacion importarCsv(Path fichero) throws SQLException, IOException {
+        return importarCsv(fichero, null, new ProgresoImportacion());
+    }
+
+    /**
+     * Importa un fichero CSV en UTF-8
+     * @param fichero Ruta del CSV
+     * @param informeRechazos Fichero CSV donde escribir las filas rechazadas (null para no escribirlo)
+     * @param progreso Contadores que se actualizan durante la importación (pueden consultarse desde otro hilo)
+     * @return Resultado de la importación
+     * @throws SQLException Si falla la carga o la fusión (no se importa ninguna fila)
+     * @throws IOException Si no se puede leer el fichero o escribir el informe
+     */
+    public ResultadoImportacion importarCsv(Path fichero, Path informeRechazos, ProgresoImportacion progreso)
+            throws SQLException, IOException {
+        try (Reader csv = Files.newBufferedReader(fichero, StandardCharsets.UTF_8);
+             Writer informe = informeRechazos != null
+                     ? Files.newBufferedWriter(informeRechazos, StandardCharsets.UTF_8) : null) {
+            return importarCsv(csv, informe, progreso);
+        }
+    }
+
+    /**
+     * Importa clientes leídos de un CSV
+     * @param csv Contenido CSV
+     * @param informeRechazos Destino del informe de filas rechazadas (null para no escribirlo)
+     * @param progreso Contadores que se actualizan durante la importación
+     * @return Resultado de la importación
+     * @throws SQLException Si falla la carga o la fusión (no se importa ninguna fila)
+     * @throws IOException Si no se puede leer el CSV o escribir el informe
+     */
+    public ResultadoImportacion importarCsv(Reader csv, Writer informeRechazos, ProgresoImportacion progreso)
+            throws SQLException, IOException {
+        long inicio = System.currentTimeMillis();
+        long lote = nuevoLote();
+        ResultadoImportacion resultado = new ResultadoImportacion(lote);
+        Rechazos rechazos = new Rechazos(informeRechazos, resultado, progreso);
+
+        try {
+            cargarEnTablaDeCarga(lote, new LectorCsv(csv), rechazos, progreso);
+            fusionar(lote, rechazos, progreso);
+        } finally {
+            borrarLote(lote);
+        }
+
+        resultado.setFilasLeidas(progreso.getLeidas());
+        resultado.setFilasRechazadas(progreso.getRechazadas());
+        resultado.setFilasImportadas(progreso.getImportadas());
+        resultado.setDuracionMs(System.currentTimeMillis() - inicio);
+        return resultado;
+    }
+
+    /**
+     * Paso 1 y 2: lee y valida el CSV y reparte los bloques válidos entre los hilos de carga
+     */
+    private void cargarEnTablaDeCarga(long lote, LectorCsv lector, Rechazos rechazos, ProgresoImportacion progreso)
+            throws SQLException, IOException {
+        int numHilos = hilos;
+        int filasPorBloque = tamanoBloque;
+        ExecutorService cargadores = Executors.newFixedThreadPool(numHilos, tarea -> {
+            Thread t = new Thread(tarea, "importacion-clientes-" + lote);
+            t.setDaemon(true);
+            return t;
+        });
+        // Como mucho dos bloques por hilo en memoria (copiándose o esperando turno)
+        Semaphore bloquesPendientes = new Semaphore(numHilos * 2);
+        List<Future<Long>> tareas = new ArrayList<>();
+
+        try {
+            if (conCabecera) {
+                lector.siguiente();
+            }
+            StringBuilder bloque = new StringBuilder();
+            int filasEnBloque = 0;
+            List<String> campos;
+            while ((campos = lector.siguiente()) != null) {
+                if (campos.size() == 1 && campos.get(0).trim().isEmpty()) {
+                    continue;
+                }
+                progreso.leidas.incrementAndGet();
+                campos.replaceAll(String::trim);
+
+                String motivo = validar(campos);
+                if (motivo != null) {
+                    rechazos.anotar(lector.getLineaRegistro(), motivo, campos);
+                    continue;
+                }
+
+                anadirFila(bloque, lote, lector.getLineaRegistro(), campos);
+                if (++filasEnBloque == filasPorBloque) {
+                    enviarBloque(cargadores, bloquesPendientes, tareas, bloque.toString(), progreso);
+                    bloque.setLength(0);
+                    filasEnBloque = 0;
+                }
+            }
+            if (filasEnBloque > 0) {
+                enviarBloque(cargadores, bloquesPendientes, tareas, bloque.toString(), progreso);
+            }
+            for (Future<Long> tarea : tareas) {
+                esperar(tarea);
+            }
+        } finally {
+            cargadores.shutdownNow();
+        }
+    }
+
+    private void enviarBloque(ExecutorService cargadores, Semaphore bloquesPendientes, List<Future<Long>> tareas,
+                              String bloque, ProgresoImportacion progreso) throws SQLException {
+        // Si algún bloque anterior ha fallado se deja de leer el fichero
+        Iterator<Future<Long>> it = tareas.iterator();
+        while (it.hasNext()) {
+            Future<Long> tarea = it.next();
+            if (tarea.isDone()) {
+                esperar(tarea);
+                it.remove();
+            }
+        }
+
+        try {
+            bloquesPendientes.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Importación interrumpida", e);
+        }
+        tareas.add(cargadores.submit(() -> {
+            try {
+                long filas = copiarBloque(bloque);
+                progreso.cargadas.addAndGet(filas);
+                return filas;
+            } finally {
+                bloquesPendientes.release();
+            }
+        }));
+    }
+
+    /**
+     * Vuelca un bloque en la tabla de carga con COPY (cada bloque se confirma por separado)
+     */
+    private long copiarBloque(String bloque) throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            CopyManager copyManager = conn.unwrap(PGConnection.class).getCopyAPI();
+            return copyManager.copyIn(SQL_COPY, new StringReader(bloque));
+        } catch (IOException e) {
+            throw new SQLException("Error al enviar el bloque con COPY: " + e.getMessage(), e);
+        }
+    }
+
+    private static void esperar(Future<Long> tarea) throws SQLException {
+        try {
+            tarea.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Importación interrumpida", e);
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof SQLException) {
+                throw (SQLException) causa;
+            }
+            throw new SQLException("Error al cargar un bloque: " + causa.getMessage(), causa);
+        }
+    }
+
+    /**
+     * Paso 3: pasa las filas del lote a cliente en una sola transacción
+     */
+    private void fusionar(long lote, Rechazos rechazos, ProgresoImportacion progreso) throws SQLException, IOException {
+        String sqlRechazadas = SQL_MARCADAS +
+                "SELECT linea, nombre, email, telefono, repetida FROM marcadas " +
+                "WHERE repetida OR existente ORDER BY linea";
+        String sqlInsertar = SQL_MARCADAS +
+                "INSERT INTO cliente (nombre, email, telefono) " +
+                "SELECT nombre, email, telefono FROM marcadas " +
+                "WHERE NOT repetida AND NOT existente ORDER BY linea";
+
+        try {
+            int importadas = TransactionContext.executeInTransaction(dataSource, conn -> {
+                // Nadie más puede dar de alta clientes mientras se comprueban los emails y se inserta
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("LOCK TABLE cliente IN SHARE ROW EXCLUSIVE MODE");
+                }
+
+                try (PreparedStatement pstmt = conn.prepareStatement(sqlRechazadas)) {
+                    pstmt.setLong(1, lote);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            String motivo = rs.getBoolean("repetida")
+                                    ? "Email repetido en el fichero"
+                                    : "Ya existe un cliente con ese email";
+                            rechazos.anotar(rs.getLong("linea"), motivo,
+                                    Arrays.asList(rs.getString("nombre"), rs.getString("email"), rs.getString("telefono")));
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+
+                try (PreparedStatement pstmt = conn.prepareStatement(sqlInsertar)) {
+                    pstmt.setLong(1, lote);
+                    return pstmt.executeUpdate();
+                }
+            });
+            progreso.importadas.addAndGet(importadas);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private long nuevoLote() throws SQLException {
+        return TransactionContext.executeInTransaction(dataSource, conn -> {
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT nextval('cliente_importacion_lote_seq')")) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        });
+    }
+
+    /**
+     * Vacía la tabla de carga del lote; un fallo aquí no debe ocultar el resultado de la importación
+     */
+    private void borrarLote(long lote) {
+        try {
+            TransactionContext.executeInTransaction(dataSource, conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM cliente_importacion WHERE lote = ?")) {
+                    pstmt.setLong(1, lote);
+                    return pstmt.executeUpdate();
+                }
+            });
+        } catch (SQLException e) {
+            System.err.println("✗ No se pudo limpiar el lote " + lote + " de cliente_importacion: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Comprueba una fila con las reglas de alta de clientes
+     * @return Motivo del rechazo, o null si la fila es válida
+     */
+    private static String validar(List<String> campos) {
+        if (campos.size() != 3) {
+            return "Se esperaban 3 columnas (nombre, email, telefono) y hay " + campos.size();
+        }
+        try {
+            ClienteService.validarCliente(new Cliente(campos.get(0), campos.get(1), campos.get(2)));
+            return null;
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+    }
+
+    /**
+     * Añade una fila al bloque en el formato CSV de COPY (teléfono vacío = NULL)
+     */
+    private static void anadirFila(StringBuilder bloque, long lote, long linea, List<String> campos) {
+        bloque.append(lote).append(',').append(linea).append(',');
+        LectorCsv.escribirCampo(bloque, campos.get(0));
+        bloque.append(',');
+        LectorCsv.escribirCampo(bloque, campos.get(1));
+        bloque.append(',');
+        if (!campos.get(2).isEmpty()) {
+            LectorCsv.escribirCampo(bloque, campos.get(2));
+        }
+        bloque.append('\n');
+    }
+
+    /**
+     * Anota las filas rechazadas en el resultado (solo las primeras) y en el informe (todas)
+     * Solo se usa desde el hilo que lanza la importación
+     */
+    private static class Rechazos {
+        private final Writer informe;
+        private final ResultadoImportacion resultado;
+        private final ProgresoImportacion progreso;
+
+        Rechazos(Writer informe, ResultadoImportacion resultado, ProgresoImportacion progreso) throws IOException {
+            this.informe = informe;
+            this.resultado = resultado;
+            this.progreso = progreso;
+            if (informe != null) {
+                informe.write("linea,motivo,registro\n");
+            }
+        }
+
+        void anotar(long linea, String motivo, List<String> campos) throws IOException {
+            progreso.rechazadas.incrementAndGet();
+
+            StringBuilder registro = new StringBuilder();
+            for (int i = 0; i < campos.size(); i++) {
+                if (i > 0) {
+                    registro.append(',');
+                }
+                LectorCsv.escribirCampo(registro, campos.get(i) == null ? "" : campos.get(i));
+            }
+
+            if (resultado.getRechazos().size() < MAX_RECHAZOS_EN_RESULTADO) {
+                resultado.getRechazos().add(new FilaRechazada(linea, motivo, registro.toString()));
+            }
+            if (informe != null) {
+                StringBuilder fila = new StringBuilder().append(linea).append(',');
+                LectorCsv.escribirCampo(fila, motivo);
+                fila.append(',');
+                LectorCsv.escribirCampo(fila, registro.toString());
+                informe.write(fila.append('\n').toString());
+            }
+        }
+    }
+
+    /**
+     * Contadores de una importación en curso; pueden consultarse desde cualquier hilo
+     */
+    public static class ProgresoImportacion {
+        private final AtomicLong leidas = new AtomicLong();
+        private final AtomicLong rechazadas = new AtomicLong();
+        private final AtomicLong cargadas = new AtomicLong();
+        private final AtomicLong importadas = new AtomicLong();
+
+        /** Filas leídas del fichero (sin cabecera ni líneas vacías) */
+        public long getLeidas() {
+            return leidas.get();
+        }
+
+        /** Filas rechazadas por validación o por email repetido */
+        public long getRechazadas() {
+            return rechazadas.get();
+        }
+
+        /** Filas ya volcadas en la tabla de carga */
+        public long getCargadas() {
+            return cargadas.get();
+        }
+
+        /** Filas insertadas en cliente (solo se conoce al final) */
+        public long getImportadas() {
+            return importadas.get();
+        }
+
+        @Override
+        public String toString() {
+            return "leídas=" + getLeidas() + ", rechazadas=" + getRechazadas()
+                    + ", cargadas=" + getCargadas() + ", importadas=" + getImportadas();
+        }
+    }
+
+    /**
+     * Resultado de una importación
+     */
+    public static class ResultadoImportacion {
+        private final long lote;
+        private long filasLeidas;
+        private long filasImportadas;
+        private long filasRechazadas;
+        private long duracionMs;
+        private final List<FilaRechazada> rechazos = new ArrayList<>();
+
+        public ResultadoImportacion(long lote) {
+            this.lote = lote;
+        }
+
+        public long getLote() {
+            return lote;
+        }
+
+        public long getFilasLeidas() {
+            return filasLeidas;
+        }
+
+        public void setFilasLeidas(long filasLeidas) {
+            this.filasLeidas = filasLeidas;
+        }
+
+        public long getFilasImportadas() {
+            return filasImportadas;
+        }
+
+        public void setFilasImportadas(long filasImportadas) {
+            this.filasImportadas = filasImportadas;
+        }
+
+        public long getFilasRechazadas() {
+            return filasRechazadas;
+        }
+
+        public void setFilasRechazadas(long filasRechazadas) {
+            this.filasRechazadas = filasRechazadas;
+        }
+
+        public long getDuracionMs() {
+            return duracionMs;
+        }
+
+        public void setDuracionMs(long duracionMs) {
+            this.duracionMs = duracionMs;
+        }
+
+        /**
+         * Primeras filas rechazadas (como mucho 100; el informe las contiene todas)
+         */
+        public List<FilaRechazada> getRechazos() {
+            return rechazos;
+        }
+    }
+
+    /**
+     * Fila del CSV que no se ha importado
+     */
+    public static class FilaRechazada {
+        private final long linea;
+        private final String motivo;
+        private final String registro;
+
+        public FilaRechazada(long linea, String motivo, String registro) {
+            this.linea = linea;
+            this.motivo = motivo;
+            this.registro = registro;
+        }
+
+        public long getLinea() {
+            return linea;
+        }
+
+        public String getMotivo() {
+            return motivo;
+        }
+
+        public String getRegistro() {
+            return registro;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.ilerna.service;
+
+import com.ilerna.analitica.IndiceAsistentes;
+import com.ilerna.analitica.MapaBits;
+import com.ilerna.dao.IClienteDAO;
+import com.ilerna.dto.Asistencia;
+import com.ilerna.dto.Cliente;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+
+/**
+ * Preguntas de conjuntos sobre quién asiste a qué (fueron a Yoga y a Crossfit este mes, fueron a
+ * Pilates pero nunca a Cardio...) resueltas con {@link IndiceAsistentes} en lugar de con joins
+ * sobre asistencia
+ *
+ * - construir(): recorre asistencia una vez
+ * - arrancar(archivo): carga el índice guardado y lee solo las asistencias con id posterior al
+ *   último que había leído (menos un margen), sea cual sea su fecha; si no hay archivo, o es de
+ *   otra base de datos, construye
+ * - Como oyente de {@link PublicadorAsistencias}, añade y quita las asistencias que se registran
+ *   y se borran mientras la aplicación está en marcha
+ *
+ * Los borrados hechos mientras la aplicación está parada no se ven hasta volver a construir, ni
+ * tampoco una asistencia confirmada con un id más de MARGEN_IDS por debajo del último leído.
+ */
+public class IndiceAsistentesService implements PublicadorAsistencias.Oyente {
+
+    // Los ids no llegan en orden de COMMIT: una transacción abierta al leer, o un bloque de la
+    // secuencia (INCREMENT BY 50, migración 001) que una instancia aún no había gastado, puede
+    // confirmar después ids por debajo del último leído. Se releen: añadir dos veces no cambia nada
+    private static final long MARGEN_IDS = 100_000;
+
+    private final DataSource dataSource;
+    private final IClienteDAO clienteDAO;
+    private final CargaConAvisos carga = new CargaConAvisos(this);
+    private volatile IndiceAsistentes indice = new IndiceAsistentes();
+
+    public IndiceAsistentesService(DataSource dataSource, IClienteDAO clienteDAO) {
+        this.dataSource = dataSource;
+        this.clienteDAO = clienteDAO;
+    }
+
+    /**
+     * Construye el índice desde cero recorriendo asistencia
+     * Las consultas siguen usando el índice anterior hasta que termina; lo publicado mientras
+     * tanto se aplica al nuevo (ver {@link CargaConAvisos})
+     * @return Número de asistencias leídas
+     * @throws SQLException
+     */
+    public int construir() throws SQLException {
+        long inicio = System.currentTimeMillis();
+        int[] leidas = new int[1];
+        IndiceAsistentes nuevo = carga.cargar(dataSource, conn -> {
+            IndiceAsistentes leido = new IndiceAsistentes();
+            leidas[0] = leerTodo(conn, leido);
+            return leido;
+        }, instalado -> indice = instalado);
+        System.out.println("✓ Índice de asistentes: " + leidas[0] + " asistencias, " + nuevo.getNumeroConjuntos() +
+                " conjuntos, " + nuevo.getBytes() / 1024 + " KB en " + (System.currentTimeMillis() - inicio) + " ms");
+        return leidas[0];
+    }
+
+    /**
+     * Arranca desde el archivo guardado si existe y es válido; si no, construye el índice
+     * @throws SQLException
+     */
+    public void arrancar(Path archivo) throws SQLException {
+        if (!Files.exists(archivo)) {
+            construir();
+            return;
+        }
+        long inicio = System.currentTimeMillis();
+        IndiceAsistentes cargado;
+        try {
+            cargado = IndiceAsistentes.cargar(archivo);
+        } catch (IOException e) {
+            System.err.println("✗ No se ha podido leer el índice de asistentes (" + e.getMessage() + "): se reconstruye");
+            construir();
+            return;
+        }
+        long ultimoIdGuardado = cargado.getUltimoId();
+        int[] leidas = new int[1];
+        IndiceAsistentes nuevo = carga.cargar(dataSource, conn -> {
+            long ultimoId = LectorAsistencias.ultimoId(conn);
+            // Una secuencia por debajo de la del archivo: es de otra base de datos (o de una restaurada)
+            if (ultimoId < ultimoIdGuardado) {
+                System.err.println("✗ El índice de asistentes de " + archivo + " es de otra base de datos: se reconstruye");
+                IndiceAsistentes leido = new IndiceAsistentes();
+                leidas[0] = leerTodo(conn, leido);
+                return leido;
+            }
+            cargado.setUltimoId(ultimoId);
+            leidas[0] = LectorAsistencias.leerDesdeId(conn, Math.max(0, ultimoIdGuardado - MARGEN_IDS),
+                    cargado::anadirTodas);
+            return cargado;
+        }, instalado -> indice = instalado);
+        System.out.println("✓ Índice de asistentes " + (nuevo == cargado ? "cargado de " + archivo + " y puesto al día"
+                : "reconstruido") + " con " + leidas[0] + " asistencias en " + (System.currentTimeMillis() - inicio) + " ms");
+    }
+
+    /**
+     * Guarda el índice para el próximo arranque
+     * @throws IOException
+     */
+    public void guardar(Path archivo) throws IOException {
+        indice.guardar(archivo);
+    }
+
+    /**
+     * Añade asistencias ya guardadas en la base de datos
+     */
+    @Override
+    public void anadir(List<Asistencia> asistencias) {
+        if (carga.retener(asistencias, true)) {
+            return;
+        }
+        int n = asistencias.size();
+        int[] clientes = new int[n];
+        int[] clases = new int[n];
+        int[] fechas = new int[n];
+        for (int i = 0; i < n; i++) {
+            Asistencia asistencia = asistencias.get(i);
+            clientes[i] = asistencia.getIdCliente();
+            clases[i] = asistencia.getIdClase();
+            fechas[i] = (int) asistencia.getFecha().toEpochDay();
+        }
+        indice.anadirTodas(clientes, clases, fechas, 0, n);
+    }
+
+    /**
+     * Quita asistencias ya borradas de la base de datos
+     */
+    @Override
+    public void quitar(List<Asistencia> asistencias) {
+        if (carga.retener(asistencias, false)) {
+            return;
+        }
+        IndiceAsistentes actual = indice;
+        for (Asistencia asistencia : asistencias) {
+            actual.quitar(asistencia.getIdCliente(), asistencia.getIdClase(), asistencia.getFecha());
+        }
+    }
+
+    /**
+     * Clientes que asistieron a todas las clases entre dos fechas (ambas incluidas)
+     * @throws SQLException
+     */
+    public List<Cliente> clientesDeTodas(Collection<Integer> idsClase, LocalDate desde, LocalDate hasta)
+            throws SQLException {
+        return clientes(indice.asistentesDeTodas(idsClase, desde, hasta));
+    }
+
+    /**
+     * Clientes que asistieron a alguna de las clases entre dos fechas (ambas incluidas)
+     * @throws SQLException
+     */
+    public List<Cliente> clientesDeAlguna(Collection<Integer> idsClase, LocalDate desde, LocalDate hasta)
+            throws SQLException {
+        return clientes(indice.asistentesDeAlguna(idsClase, desde, hasta));
+    }
+
+    /**
+     * Clientes que asistieron a alguna de las clases incluidas y a ninguna de las excluidas
+     * @throws SQLException
+     */
+    public List<Cliente> clientesSinIr(Collection<Integer> incluidas, Collection<Integer> excluidas,
+                                       LocalDate desde, LocalDate hasta) throws SQLException {
+        return clientes(indice.asistentesSinIr(incluidas, excluidas, desde, hasta));
+    }
+
+    /**
+     * Índice actual, para combinar conjuntos a medida (p. ej. el solape entre las clases de dos entrenadores)
+     */
+    public IndiceAsistentes getIndice() {
+        return indice;
+    }
+
+    /**
+     * Clientes de un conjunto de ids, en orden de id
+     * @throws SQLException
+     */
+    public List<Cliente> clientes(MapaBits ids) throws SQLException {
+        List<Integer> lista = new ArrayList<>((int) ids.cardinalidad());
+        ids.paraCada(lista::add);
+        Map<Integer, Cliente> porId = clienteDAO.getByIds(lista);
+        List<Cliente> resultado = new ArrayList<>(lista.size());
+        for (Integer id : lista) {
+            Cliente cliente = porId.get(id);
+            // Un cliente borrado después de construir el índice no aparece
+            if (cliente != null) {
+                resultado.add(cliente);
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Lee toda asistencia al índice, con el último id visible antes de empezar: lo que se confirme
+     * durante la lectura se vuelve a leer al arrancar
+     */
+    private static int leerTodo(Connection conn, IndiceAsistentes destino) throws SQLException {
+        destino.setUltimoId(LectorAsistencias.ultimoId(conn));
+        return LectorAsistencias.leer(conn, null, destino::anadirTodas);
+    }
+}
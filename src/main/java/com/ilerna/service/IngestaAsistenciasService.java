@@ -0,0 +1,301 @@
+package com.ilerna.service;
+
+import com.ilerna.cache.DeduplicadorFichajes;
+import com.ilerna.dao.IAsistenciaDAO;
+import com.ilerna.dto.Asistencia;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Registro asíncrono de asistencias (fichajes de los tornos) con escritura agrupada
+ *
+ * Los fichajes entran en una cola acotada y un único hilo escritor los saca en lotes:
+ * un INSERT y un COMMIT por lote en lugar de una transacción por fichaje (group commit).
+ * Un lote se escribe cuando llega a maxLote o cuando el primero lleva maxEsperaMs esperando.
+ *
+ * Cada fichaje devuelve un futuro que se completa tras el COMMIT de su lote, para quien
+ * necesite saber que ya está guardado. Con la cola llena, según la política, registrar()
+ * espera a que haya hueco o rechaza el fichaje: la cola nunca crece sin límite.
+ *
+ * Si falla un lote (p. ej. un cliente que no existe), sus fichajes se reintentan uno a uno
+ * para que el error solo llegue a los que lo provocan.
+ *
+ * Con un {@link DeduplicadorFichajes}, los toques repetidos de la misma tarjeta se descartan
+ * antes de entrar en la cola; los que aun así lleguen a la base de datos los para la restricción
+ * única de asistencia. En ambos casos el futuro falla con {@link FichajeDuplicadoException}.
+ */
+public class IngestaAsistenciasService implements AutoCloseable {
+
+    /**
+     * Qué hacer cuando la cola está llena
+     */
+    public enum PoliticaColaLlena {
+        /** registrar() espera a que el escritor libere hueco */
+        BLOQUEAR,
+        /** registrar() lanza RejectedExecutionException al momento */
+        RECHAZAR
+    }
+
+    // SQLSTATE de PostgreSQL para unique_violation
+    private static final String VIOLACION_UNICIDAD = "23505";
+
+    private final IAsistenciaDAO asistenciaDAO;
+    private final BlockingQueue<Pendiente> cola;
+    private final int maxLote;
+    private final long maxEsperaNanos;
+    private final PoliticaColaLlena politica;
+    private final Thread escritor;
+    // Los registros encolan con el cerrojo de lectura; close() toma el de escritura para que
+    // ningún fichaje entre en la cola después de que el escritor haya hecho su última pasada
+    private final ReadWriteLock cierre = new ReentrantReadWriteLock();
+    private volatile boolean cerrado;
+    private volatile DeduplicadorFichajes deduplicador;
+    private volatile PublicadorAsistencias publicador;
+
+    private final AtomicLong lotesEscritos = new AtomicLong();
+    private final AtomicLong asistenciasEscritas = new AtomicLong();
+    private final AtomicLong asistenciasFallidas = new AtomicLong();
+
+    /**
+     * @param asistenciaDAO DAO con el que se escriben los lotes
+     * @param capacidadCola Fichajes que pueden esperar a la vez
+     * @param maxLote Fichajes máximos por lote (y por COMMIT)
+     * @param maxEsperaMs Tiempo máximo que espera un fichaje a que se llene su lote
+     * @param politica Qué hacer con la cola llena
+     */
+    public IngestaAsistenciasService(IAsistenciaDAO asistenciaDAO, int capacidadCola, int maxLote,
+                                     long maxEsperaMs, PoliticaColaLlena politica) {
+        if (capacidadCola <= 0 || maxLote <= 0) {
+            throw new IllegalArgumentException("La capacidad de la cola y el tamaño de lote deben ser mayores que 0");
+        }
+        if (maxEsperaMs < 0) {
+            throw new IllegalArgumentException("La espera máxima no puede ser negativa");
+        }
+        this.asistenciaDAO = asistenciaDAO;
+        this.cola = new ArrayBlockingQueue<>(capacidadCola);
+        this.maxLote = maxLote;
+        this.maxEsperaNanos = TimeUnit.MILLISECONDS.toNanos(maxEsperaMs);
+        this.politica = politica;
+        this.escritor = new Thread(this::escribirMientrasAbierto, "ingesta-asistencias");
+        this.escritor.setDaemon(true);
+        this.escritor.start();
+    }
+
+    /**
+     * Descarta los fichajes repetidos en memoria antes de encolarlos (null para no hacerlo)
+     */
+    public void setDeduplicador(DeduplicadorFichajes deduplicador) {
+        this.deduplicador = deduplicador;
+    }
+
+    /**
+     * Publicador al que se avisa de cada lote (o fichaje reintentado) tras su COMMIT, desde el
+     * hilo escritor (null para no avisar)
+     */
+    public void setPublicador(PublicadorAsistencias publicador) {
+        this.publicador = publicador;
+    }
+
+    /**
+     * Encola un fichaje
+     * @return Futuro que se completa con la asistencia (ya con id) cuando su lote se ha confirmado,
+     *         o con el error si no se ha podido guardar
+     * @throws RejectedExecutionException Si la cola está llena con la política RECHAZAR, o si el servicio está cerrado
+     * @throws InterruptedException Si se interrumpe la espera con la política BLOQUEAR
+     */
+    public CompletableFuture<Asistencia> registrar(int idCliente, int idClase, LocalDate fecha)
+            throws InterruptedException {
+        if (fecha == null) {
+            throw new IllegalArgumentException("La fecha es obligatoria");
+        }
+        Pendiente pendiente = new Pendiente(new Asistencia(idCliente, idClase, fecha));
+        DeduplicadorFichajes filtro = deduplicador;
+        if (filtro != null && !filtro.registrarSiNuevo(idCliente, idClase, fecha)) {
+            pendiente.futuro.completeExceptionally(new FichajeDuplicadoException(idCliente, idClase, fecha));
+            return pendiente.futuro;
+        }
+
+        boolean encolado = false;
+        cierre.readLock().lock();
+        try {
+            if (cerrado) {
+                throw new RejectedExecutionException("El registro de asistencias está cerrado");
+            }
+            if (politica == PoliticaColaLlena.BLOQUEAR) {
+                cola.put(pendiente);
+            } else if (!cola.offer(pendiente)) {
+                throw new RejectedExecutionException("Cola de asistencias llena (" + cola.size() + " pendientes)");
+            }
+            encolado = true;
+        } finally {
+            cierre.readLock().unlock();
+            if (!encolado && filtro != null) {
+                // No se ha registrado: el siguiente toque no debe tomarse por duplicado
+                filtro.olvidar(idCliente, idClase, fecha);
+            }
+        }
+        return pendiente.futuro;
+    }
+
+    /**
+     * Fichajes en cola esperando a ser escritos
+     */
+    public int getPendientes() {
+        return cola.size();
+    }
+
+    /** Lotes confirmados */
+    public long getLotesEscritos() {
+        return lotesEscritos.get();
+    }
+
+    /** Asistencias guardadas */
+    public long getAsistenciasEscritas() {
+        return asistenciasEscritas.get();
+    }
+
+    /** Asistencias que no se han podido guardar */
+    public long getAsistenciasFallidas() {
+        return asistenciasFallidas.get();
+    }
+
+    /**
+     * Deja de aceptar fichajes, escribe los que quedan en cola y detiene el escritor
+     */
+    @Override
+    public void close() {
+        cierre.writeLock().lock();
+        try {
+            cerrado = true;
+        } finally {
+            cierre.writeLock().unlock();
+        }
+        try {
+            escritor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void escribirMientrasAbierto() {
+        List<Pendiente> lote = new ArrayList<>(maxLote);
+        try {
+            while (true) {
+                Pendiente primero = cola.poll(100, TimeUnit.MILLISECONDS);
+                if (primero == null) {
+                    if (cerrado && cola.isEmpty()) {
+                        return;
+                    }
+                    continue;
+                }
+                lote.add(primero);
+                llenarLote(lote);
+                escribir(lote);
+                lote.clear();
+            }
+        } catch (InterruptedException e) {
+            // Se vacía lo que quede antes de terminar
+            cola.drainTo(lote);
+            if (!lote.isEmpty()) {
+                escribir(lote);
+            }
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Añade fichajes al lote hasta maxLote o hasta que el primero agote su espera
+     */
+    private void llenarLote(List<Pendiente> lote) throws InterruptedException {
+        long limite = System.nanoTime() + maxEsperaNanos;
+        while (lote.size() < maxLote) {
+            // Primero lo que ya está en cola, sin esperar
+            cola.drainTo(lote, maxLote - lote.size());
+            if (lote.size() >= maxLote || cerrado) {
+                return;
+            }
+            long restante = limite - System.nanoTime();
+            if (restante <= 0) {
+                return;
+            }
+            Pendiente siguiente = cola.poll(restante, TimeUnit.NANOSECONDS);
+            if (siguiente == null) {
+                return;
+            }
+            lote.add(siguiente);
+        }
+    }
+
+    private void escribir(List<Pendiente> lote) {
+        List<Asistencia> asistencias = new ArrayList<>(lote.size());
+        for (Pendiente pendiente : lote) {
+            asistencias.add(pendiente.asistencia);
+        }
+        try {
+            asistenciaDAO.insertAll(asistencias);
+            lotesEscritos.incrementAndGet();
+            asistenciasEscritas.addAndGet(lote.size());
+            for (Pendiente pendiente : lote) {
+                pendiente.futuro.complete(pendiente.asistencia);
+            }
+        } catch (SQLException | RuntimeException e) {
+            if (lote.size() == 1) {
+                fallar(lote.get(0), e);
+                return;
+            }
+            // Se aísla el fichaje que falla: los demás no tienen por qué perderse
+            for (Pendiente pendiente : lote) {
+                pendiente.asistencia.setId(null);
+                escribir(Collections.singletonList(pendiente));
+            }
+            return;
+        }
+        notificarConfirmadas(asistencias);
+    }
+
+    private void notificarConfirmadas(List<Asistencia> asistencias) {
+        PublicadorAsistencias destino = publicador;
+        if (destino != null) {
+            destino.publicarRegistradas(asistencias);
+        }
+    }
+
+    private void fallar(Pendiente pendiente, Exception e) {
+        Asistencia asistencia = pendiente.asistencia;
+        asistenciasFallidas.incrementAndGet();
+        if (e instanceof SQLException && VIOLACION_UNICIDAD.equals(((SQLException) e).getSQLState())) {
+            pendiente.futuro.completeExceptionally(new FichajeDuplicadoException(
+                    asistencia.getIdCliente(), asistencia.getIdClase(), asistencia.getFecha()));
+            return;
+        }
+        DeduplicadorFichajes filtro = deduplicador;
+        if (filtro != null) {
+            filtro.olvidar(asistencia.getIdCliente(), asistencia.getIdClase(), asistencia.getFecha());
+        }
+        pendiente.futuro.completeExceptionally(e);
+    }
+
+    /**
+     * Fichaje en cola con el futuro de quien lo ha registrado
+     */
+    private static final class Pendiente {
+        final Asistencia asistencia;
+        final CompletableFuture<Asistencia> futuro = new CompletableFuture<>();
+
+        Pendiente(Asistencia asistencia) {
+            this.asistencia = asistencia;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.ilerna.service;
+
+import com.ilerna.dto.Asistencia;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Lectura de asistencia en bloques de arrays de int para las estructuras en memoria
+ * (ColumnasAsistencia, IndiceAsistentes), sin crear un objeto por fila
+ */
+final class LectorAsistencias {
+
+    // Filas por viaje al servidor y por bloque entregado al destino
+    static final int FILAS_POR_BLOQUE = 10000;
+
+    /**
+     * Destino de cada bloque: mismas columnas que ColumnasAsistencia.anadirTodas
+     */
+    @FunctionalInterface
+    interface Destino {
+        void anadirTodas(int[] idsCliente, int[] idsClase, int[] diasEpoca, int desde, int hasta);
+    }
+
+    private LectorAsistencias() {
+    }
+
+    /**
+     * Lee las asistencias (todas, o desde una fecha) y las entrega por bloques
+     * La conexión debe estar en una transacción: solo así PostgreSQL usa un cursor y respeta el fetchSize
+     * @param desde Primera fecha a leer (null para todas)
+     * @return Número de asistencias leídas
+     * @throws SQLException
+     */
+    static int leer(Connection conn, LocalDate desde, Destino destino) throws SQLException {
+        // La fecha llega ya como días desde la época: sin un objeto Date por fila
+        String sql = "SELECT id_cliente, id_clase, fecha - DATE '1970-01-01' FROM asistencia" +
+                     (desde != null ? " WHERE fecha >= ?" : "");
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            if (desde != null) {
+                pstmt.setObject(1, desde);
+            }
+            return leer(pstmt, destino);
+        }
+    }
+
+    /**
+     * Mayor id de asistencia visible para la conexión (0 si no hay ninguna)
+     * @throws SQLException
+     */
+    static long ultimoId(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(id), 0) FROM asistencia")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    /**
+     * Lee las asistencias con id mayor que el dado, sea cual sea su fecha
+     * Recorre el índice de la clave primaria (id, fecha): solo las filas del rango
+     * @return Número de asistencias leídas
+     * @throws SQLException
+     */
+    static int leerDesdeId(Connection conn, long id, Destino destino) throws SQLException {
+        String sql = "SELECT id_cliente, id_clase, fecha - DATE '1970-01-01' FROM asistencia WHERE id > ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, id);
+            return leer(pstmt, destino);
+        }
+    }
+
+    /**
+     * Cuáles de las asistencias ve ya la conexión, por cliente, clase y fecha (únicos por la
+     * migración 008). Busca todas con una sola consulta sobre ese índice
+     * @return Un valor por asistencia, en el mismo orden
+     * @throws SQLException
+     */
+    static boolean[] contenidas(Connection conn, List<Asistencia> asistencias) throws SQLException {
+        int n = asistencias.size();
+        boolean[] contenidas = new boolean[n];
+        if (n == 0) {
+            return contenidas;
+        }
+        String sql = "SELECT t.ord FROM unnest(?::integer[], ?::integer[], ?::date[]) " +
+                     "WITH ORDINALITY AS t(id_cliente, id_clase, fecha, ord) " +
+                     "WHERE EXISTS (SELECT 1 FROM asistencia a " +
+                     "WHERE a.id_cliente = t.id_cliente AND a.id_clase = t.id_clase AND a.fecha = t.fecha)";
+        Integer[] clientes = new Integer[n];
+        Integer[] clases = new Integer[n];
+        String[] fechas = new String[n];
+        for (int i = 0; i < n; i++) {
+            Asistencia asistencia = asistencias.get(i);
+            clientes[i] = asistencia.getIdCliente();
+            clases[i] = asistencia.getIdClase();
+            fechas[i] = asistencia.getFecha().toString();
+        }
+        Array arrClientes = conn.createArrayOf("integer", clientes);
+        Array arrClases = conn.createArrayOf("integer", clases);
+        Array arrFechas = conn.createArrayOf("date", fechas);
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setArray(1, arrClientes);
+            pstmt.setArray(2, arrClases);
+            pstmt.setArray(3, arrFechas);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    contenidas[(int) rs.getLong(1) - 1] = true;
+                }
+            }
+        } finally {
+            arrClientes.free();
+            arrClases.free();
+            arrFechas.free();
+        }
+        return contenidas;
+    }
+
+    private static int leer(PreparedStatement pstmt, Destino destino) throws SQLException {
+        int[] clientes = new int[FILAS_POR_BLOQUE];
+        int[] clases = new int[FILAS_POR_BLOQUE];
+        int[] fechas = new int[FILAS_POR_BLOQUE];
+        int total = 0;
+        pstmt.setFetchSize(FILAS_POR_BLOQUE);
+        try (ResultSet rs = pstmt.executeQuery()) {
+            int n = 0;
+            while (rs.next()) {
+                clientes[n] = rs.getInt(1);
+                clases[n] = rs.getInt(2);
+                fechas[n] = rs.getInt(3);
+                total++;
+                if (++n == FILAS_POR_BLOQUE) {
+                    destino.anadirTodas(clientes, clases, fechas, 0, n);
+                    n = 0;
+                }
+            }
+            destino.anadirTodas(clientes, clases, fechas, 0, n);
+        }
+        return total;
+    }
+
+    /**
+     * Filas estimadas de asistencia según el planificador: basta para dimensionar sin recorrer la tabla
+     * (si asistencia está particionada puede dar 0)
+     */
+    static int estimarFilas(Connection conn) throws SQLException {
+        String sql = "SELECT GREATEST(reltuples, 0)::bigint FROM pg_class WHERE oid = 'asistencia'::regclass";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? (int) Math.min(Integer.MAX_VALUE - 8, rs.getLong(1)) : 0;
+        }
+    }
+}
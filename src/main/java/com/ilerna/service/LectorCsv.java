@@ -0,0 +1,98 @@
+package com.ilerna.service;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lector de CSV registro a registro, sin cargar el fichero en memoria
+ * Separador coma; los campos pueden ir entre comillas dobles ("" dentro de comillas es una comilla)
+ * y entonces pueden contener comas y saltos de línea
+ */
+class LectorCsv implements Closeable {
+
+    private final BufferedReader in;
+    private long lineasLeidas;
+    private long lineaRegistro;
+
+    LectorCsv(Reader reader) {
+        this.in = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+    }
+
+    /**
+     * Lee el siguiente registro
+     * @return Campos del registro, o null al final del fichero
+     * @throws IOException Si hay comillas sin cerrar al final del fichero
+     */
+    List<String> siguiente() throws IOException {
+        int c = in.read();
+        if (c == -1) {
+            return null;
+        }
+        lineaRegistro = lineasLeidas + 1;
+        
+        List<String> campos = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        boolean entreComillas = false;
+        while (true) {
+            if (c == -1) {
+                if (entreComillas) {
+                    throw new IOException("Comillas sin cerrar en el registro de la línea " + lineaRegistro);
+                }
+                lineasLeidas++;
+                campos.add(campo.toString());
+                return campos;
+            }
+            if (entreComillas) {
+                if (c == '"') {
+                    int d = in.read();
+                    if (d != '"') {
+                        entreComillas = false;
+                        c = d;
+                        continue;
+                    }
+                    campo.append('"');
+                } else {
+                    if (c == '\n') {
+                        lineasLeidas++;
+                    }
+                    campo.append((char) c);
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == ',') {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            } else if (c == '\n') {
+                lineasLeidas++;
+                campos.add(campo.toString());
+                return campos;
+            } else if (c != '\r') {
+                campo.append((char) c);
+            }
+            c = in.read();
+        }
+    }
+
+    /**
+     * Línea del fichero (empezando en 1) donde comienza el último registro leído
+     */
+    long getLineaRegistro() {
+        return lineaRegistro;
+    }
+
+    /**
+     * Escribe un campo en formato CSV, siempre entre comillas
+     */
+    static void escribirCampo(StringBuilder destino, String valor) {
+        destino.append('"').append(valor.replace("\"", "\"\"")).append('"');
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -4,6 +4,7 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import javax.sql.DataSource;
 
 /**
  * Servicio que demuestra el comportamiento de bases de datos objeto-relacionales
@@ -16,10 +17,10 @@ import java.sql.Statement;
  */
 public class ObjetoRelacionalService {
     
-    private final Connection connection;
+    private final DataSource dataSource;
 
-    public ObjetoRelacionalService(Connection connection) {
-        this.connection = connection;
+    public ObjetoRelacionalService(DataSource dataSource) {
+        this.dataSource = dataSource;
     }
 
     /**
@@ -27,7 +28,8 @@ public class ObjetoRelacionalService {
      * Demuestra: CREATE TYPE y tablas con tipos compuestos
      */
     public void crearEstructuraObjetoRelacional() throws SQLException {
-        try (Statement stmt = connection.createStatement()) {
+        try (Connection connection = dataSource.getConnection();
+             Statement stmt = connection.createStatement()) {
             
             System.out.println("=== CREANDO ESTRUCTURA OBJETO-RELACIONAL ===\n");
             
@@ -72,7 +74,8 @@ public class ObjetoRelacionalService {
      * Demuestra: INSERT con tipos compuestos usando ROW()
      */
     public void insertarEntrenador(String nombre, String especialidad) throws SQLException {
-        try (Statement stmt = connection.createStatement()) {
+        try (Connection connection = dataSource.getConnection();
+             Statement stmt = connection.createStatement()) {
             
             System.out.println("=== INSERTANDO ENTRENADOR ===");
             System.out.println("Datos a insertar:");
@@ -112,7 +115,8 @@ public class ObjetoRelacionalService {
         System.out.println(query);
         System.out.println("Resultados:\n");
         
-        try (Statement stmt = connection.createStatement();
+        try (Connection connection = dataSource.getConnection();
+             Statement stmt = connection.createStatement();
              ResultSet rs = stmt.executeQuery(query)) {
             
             boolean hayResultados = false;
@@ -143,7 +147,8 @@ public class ObjetoRelacionalService {
      * Demuestra: UPDATE de tipos compuestos usando ROW()
      */
     public void actualizarEntrenador(int id, String nombre, String especialidad) throws SQLException {
-        try (Statement stmt = connection.createStatement()) {
+        try (Connection connection = dataSource.getConnection();
+             Statement stmt = connection.createStatement()) {
             
             System.out.println("=== ACTUALIZANDO ENTRENADOR ===");
             System.out.println("ID: " + id);
@@ -188,7 +193,8 @@ public class ObjetoRelacionalService {
         System.out.println("=== CONSULTANDO POR ESPECIALIDAD ===");
         System.out.println("Especialidad buscada: " + especialidad + "\n");
         
-        try (Statement stmt = connection.createStatement();
+        try (Connection connection = dataSource.getConnection();
+             Statement stmt = connection.createStatement();
              ResultSet rs = stmt.executeQuery(query)) {
             
             boolean hayResultados = false;
@@ -214,7 +220,8 @@ public class ObjetoRelacionalService {
      * Elimina un entrenador por ID
      */
     public void eliminarEntrenador(int id) throws SQLException {
-        try (Statement stmt = connection.createStatement()) {
+        try (Connection connection = dataSource.getConnection();
+             Statement stmt = connection.createStatement()) {
             
             System.out.println("=== ELIMINANDO ENTRENADOR ===");
             System.out.println("ID: " + id + "\n");
@@ -247,7 +254,8 @@ public class ObjetoRelacionalService {
         
         System.out.println("=== INFORMACIÓN DEL TIPO COMPUESTO ===\n");
         
-        try (Statement stmt = connection.createStatement();
+        try (Connection connection = dataSource.getConnection();
+             Statement stmt = connection.createStatement();
              ResultSet rs = stmt.executeQuery(query)) {
             
             System.out.println("Tipo: entrenador_tipo\n");
@@ -266,7 +274,8 @@ public class ObjetoRelacionalService {
      * Limpia las estructuras objeto-relacionales
      */
     public void limpiarEstructuras() throws SQLException {
-        try (Statement stmt = connection.createStatement()) {
+        try (Connection connection = dataSource.getConnection();
+             Statement stmt = connection.createStatement()) {
             System.out.println("=== LIMPIANDO ESTRUCTURAS ===\n");
             stmt.execute("DROP TABLE IF EXISTS entrenador_obj CASCADE;");
             stmt.execute("DROP TYPE IF EXISTS entrenador_tipo CASCADE;");
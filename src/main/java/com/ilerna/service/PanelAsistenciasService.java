@@ -0,0 +1,120 @@
+package com.ilerna.service;
+
+import com.ilerna.analitica.BocetosAsistencia;
+import com.ilerna.analitica.ContadorFrecuentes;
+import com.ilerna.dao.IClienteDAO;
+import com.ilerna.dto.Asistencia;
+import com.ilerna.dto.Cliente;
+import com.ilerna.dto.ClienteConConteo;
+import com.ilerna.dto.Periodo;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import javax.sql.DataSource;
+
+/**
+ * Cifras aproximadas para el panel en vivo (clientes más activos, clientes distintos por clase y
+ * periodo) a partir de {@link BocetosAsistencia}, sin recorrer asistencia en cada refresco
+ *
+ * cargar() lee los días que conservan los bocetos en unos bocetos nuevos; después, suscrito a
+ * {@link PublicadorAsistencias}, recibe cada asistencia nueva. Los bocetos solo suman: una
+ * asistencia borrada se sigue estimando hasta que su día sale de la ventana o se vuelve a cargar.
+ */
+public class PanelAsistenciasService implements PublicadorAsistencias.Oyente {
+
+    private final DataSource dataSource;
+    private final IClienteDAO clienteDAO;
+    private volatile BocetosAsistencia bocetos;
+    private final CargaConAvisos carga = new CargaConAvisos(this);
+
+    /**
+     * @param bocetos Bocetos vacíos con los márgenes de error y los días retenidos deseados (cada carga
+     *                los sustituye por otros vacíos iguales)
+     */
+    public PanelAsistenciasService(DataSource dataSource, IClienteDAO clienteDAO, BocetosAsistencia bocetos) {
+        this.dataSource = dataSource;
+        this.clienteDAO = clienteDAO;
+        this.bocetos = bocetos;
+    }
+
+    /**
+     * Lee las asistencias de los últimos días retenidos en bocetos vacíos con los mismos parámetros
+     * Las consultas siguen usando los bocetos anteriores hasta que termina.
+     * @return Número de asistencias leídas
+     * @throws SQLException
+     */
+    public int cargar() throws SQLException {
+        long inicio = System.currentTimeMillis();
+        BocetosAsistencia nuevos = bocetos.vacios();
+        LocalDate desde = LocalDate.now().minusDays(nuevos.getDiasRetenidos() - 1);
+        int leidas = carga.cargar(dataSource, conn -> LectorAsistencias.leer(conn, desde, nuevos::anadirTodas),
+                total -> bocetos = nuevos);
+        System.out.println("✓ Panel de asistencias: " + leidas + " asistencias desde " + desde + ", " +
+                nuevos.getBytes() / 1024 + " KB en " + (System.currentTimeMillis() - inicio) + " ms");
+        return leidas;
+    }
+
+    /**
+     * Añade asistencias ya guardadas en la base de datos
+     */
+    @Override
+    public void anadir(List<Asistencia> asistencias) {
+        if (carga.retener(asistencias, true)) {
+            return;
+        }
+        int n = asistencias.size();
+        int[] clientes = new int[n];
+        int[] clases = new int[n];
+        int[] fechas = new int[n];
+        for (int i = 0; i < n; i++) {
+            Asistencia asistencia = asistencias.get(i);
+            clientes[i] = asistencia.getIdCliente();
+            clases[i] = asistencia.getIdClase();
+            fechas[i] = (int) asistencia.getFecha().toEpochDay();
+        }
+        bocetos.anadirTodas(clientes, clases, fechas, 0, n);
+    }
+
+    /**
+     * Los k clientes más activos entre dos fechas, con sus asistencias estimadas
+     * @throws SQLException
+     */
+    public List<ClienteConConteo> clientesMasActivos(int k, LocalDate desde, LocalDate hasta) throws SQLException {
+        List<ContadorFrecuentes.Frecuente> frecuentes = bocetos.clientesMasActivos(k, desde, hasta);
+        List<Integer> ids = new ArrayList<>(frecuentes.size());
+        for (ContadorFrecuentes.Frecuente frecuente : frecuentes) {
+            ids.add(frecuente.getClave());
+        }
+        Map<Integer, Cliente> clientes = clienteDAO.getByIds(ids);
+        List<ClienteConConteo> resultado = new ArrayList<>(frecuentes.size());
+        for (ContadorFrecuentes.Frecuente frecuente : frecuentes) {
+            Cliente cliente = clientes.get(frecuente.getClave());
+            resultado.add(new ClienteConConteo(cliente != null ? cliente.getNombre() : null,
+                    (int) frecuente.getCuenta()));
+        }
+        return resultado;
+    }
+
+    /**
+     * Clientes distintos estimados de una clase en cada día, semana o mes del rango
+     */
+    public NavigableMap<LocalDate, Long> clientesDistintos(int idClase, Periodo periodo,
+                                                          LocalDate desde, LocalDate hasta) {
+        return bocetos.clientesDistintosPorPeriodo(idClase, periodo, desde, hasta);
+    }
+
+    /**
+     * Clientes distintos estimados de todo el gimnasio en cada día, semana o mes del rango
+     */
+    public NavigableMap<LocalDate, Long> clientesDistintos(Periodo periodo, LocalDate desde, LocalDate hasta) {
+        return bocetos.clientesDistintosPorPeriodo(null, periodo, desde, hasta);
+    }
+
+    public BocetosAsistencia getBocetos() {
+        return bocetos;
+    }
+}
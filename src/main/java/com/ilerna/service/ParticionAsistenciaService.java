@@ -0,0 +1,251 @@
+package com.ilerna.service;
+
+import com.ilerna.config.TransactionContext;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.sql.DataSource;
+
+/**
+ * Mantenimiento de las particiones mensuales de asistencia (migración 007)
+ *
+ * - Crea por adelantado las particiones de los próximos meses, para que las asistencias nuevas
+ *   no caigan en la partición por defecto
+ * - Solo si se ha fijado una retención ({@link #setMesesRetencion}), desengancha (DETACH) las
+ *   particiones de los meses que la superan: sus filas dejan de verse en asistencia sin ningún
+ *   DELETE. Si hay esquema de archivo, la tabla se mueve allí; si no, se queda como tabla suelta
+ *   con el mismo nombre. Por defecto no se desengancha nada.
+ *
+ * Si asistencia no está particionada, el mantenimiento no hace nada.
+ *
+ * Desenganchar no dispara los triggers de borrado: los resúmenes (asistencia_conteo,
+ * asistencia_diaria, cliente_actividad, ocupacion_clase) siguen contando los meses
+ * desenganchados, y AsistenciaService.reconciliarConteos() recontaría asistencia_conteo sin
+ * ellos, cambiando el histórico. Activar la retención solo cuando se acepte ese efecto.
+ */
+public class ParticionAsistenciaService {
+
+    private static final Pattern NOMBRE_PARTICION = Pattern.compile("asistencia_y(\\d{4})m(\\d{2})");
+
+    private final DataSource dataSource;
+    private int mesesPorAdelantado = 3;
+    /** Meses retenidos; null = no se desengancha ninguna partición */
+    private Integer mesesRetencion;
+    private String esquemaArchivo;
+    private ScheduledExecutorService mantenimiento;
+
+    public ParticionAsistenciaService(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Meses futuros que deben tener ya su partición (por defecto 3)
+     */
+    public void setMesesPorAdelantado(int mesesPorAdelantado) {
+        if (mesesPorAdelantado < 0) {
+            throw new IllegalArgumentException("Los meses por adelantado no pueden ser negativos");
+        }
+        this.mesesPorAdelantado = mesesPorAdelantado;
+    }
+
+    /**
+     * Activa el desenganche: meses anteriores al actual que se mantienen enganchados
+     * (por defecto no hay retención y no se desengancha nada)
+     */
+    public void setMesesRetencion(int mesesRetencion) {
+        if (mesesRetencion < 0) {
+            throw new IllegalArgumentException("Los meses de retención no pueden ser negativos");
+        }
+        this.mesesRetencion = mesesRetencion;
+    }
+
+    /**
+     * Esquema al que se mueven las particiones desenganchadas (null para dejarlas donde están)
+     */
+    public void setEsquemaArchivo(String esquemaArchivo) {
+        this.esquemaArchivo = esquemaArchivo;
+    }
+
+    /**
+     * Crea las particiones que falten y desengancha las antiguas, tomando hoy como referencia
+     * @return Resultado del mantenimiento
+     * @throws SQLException
+     */
+    public ResultadoMantenimiento mantener() throws SQLException {
+        return mantener(LocalDate.now());
+    }
+
+    /**
+     * Crea las particiones que falten y desengancha las antiguas
+     * @param hoy Fecha de referencia
+     * @return Resultado del mantenimiento (vacío si asistencia no está particionada)
+     * @throws SQLException
+     */
+    public ResultadoMantenimiento mantener(LocalDate hoy) throws SQLException {
+        ResultadoMantenimiento resultado = new ResultadoMantenimiento();
+        if (!estaParticionada()) {
+            System.out.println("La tabla asistencia no está particionada (migración 007): nada que mantener");
+            return resultado;
+        }
+
+        YearMonth actual = YearMonth.from(hoy);
+        for (int i = 0; i <= mesesPorAdelantado; i++) {
+            YearMonth mes = actual.plusMonths(i);
+            if (crearParticion(mes)) {
+                resultado.creadas.add(nombreParticion(mes));
+            }
+        }
+
+        Integer retencion = mesesRetencion;
+        if (retencion != null) {
+            YearMonth primeroRetenido = actual.minusMonths(retencion);
+            for (String particion : listarParticiones()) {
+                YearMonth mes = mesDeParticion(particion);
+                if (mes != null && mes.isBefore(primeroRetenido)) {
+                    desengancharParticion(particion);
+                    resultado.desenganchadas.add(particion);
+                }
+            }
+        }
+
+        System.out.println("✓ Particiones de asistencia: " + resultado.creadas.size() + " creada(s), " +
+                resultado.desenganchadas.size() + " desenganchada(s)");
+        return resultado;
+    }
+
+    /**
+     * Ejecuta el mantenimiento ahora y después cada intervaloMs, en segundo plano
+     * @param intervaloMs Tiempo entre ejecuciones (p. ej. un día)
+     */
+    public synchronized void activarMantenimiento(long intervaloMs) {
+        if (intervaloMs <= 0) {
+            throw new IllegalArgumentException("El intervalo de mantenimiento debe ser mayor que 0");
+        }
+        if (mantenimiento != null) {
+            mantenimiento.shutdownNow();
+        }
+        mantenimiento = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread t = new Thread(tarea, "particiones-asistencia");
+            t.setDaemon(true);
+            return t;
+        });
+        mantenimiento.scheduleWithFixedDelay(() -> {
+            try {
+                mantener();
+            } catch (SQLException | RuntimeException e) {
+                System.err.println("✗ Error en el mantenimiento de particiones de asistencia: " + e.getMessage());
+            }
+        }, 0, intervaloMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Particiones mensuales enganchadas a asistencia, ordenadas por nombre (es decir, por mes)
+     * No incluye la partición por defecto
+     * @throws SQLException
+     */
+    public List<String> listarParticiones() throws SQLException {
+        String sql = "SELECT c.relname FROM pg_inherits i " +
+                     "JOIN pg_class c ON c.oid = i.inhrelid " +
+                     "WHERE i.inhparent = 'asistencia'::regclass AND c.relname ~ '^asistencia_y[0-9]{4}m[0-9]{2}$' " +
+                     "ORDER BY c.relname";
+        List<String> particiones = new ArrayList<>();
+        Connection conn = TransactionContext.getConnection(dataSource);
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                particiones.add(rs.getString(1));
+            }
+        } finally {
+            TransactionContext.releaseConnection(conn, dataSource);
+        }
+        return particiones;
+    }
+
+    /**
+     * Nombre de la partición de un mes (asistencia_yAAAAmMM)
+     */
+    static String nombreParticion(YearMonth mes) {
+        return String.format("asistencia_y%04dm%02d", mes.getYear(), mes.getMonthValue());
+    }
+
+    /**
+     * Mes de una partición a partir de su nombre (null si no sigue el formato)
+     */
+    static YearMonth mesDeParticion(String nombre) {
+        Matcher m = NOMBRE_PARTICION.matcher(nombre);
+        if (!m.matches()) {
+            return null;
+        }
+        return YearMonth.of(Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2)));
+    }
+
+    private boolean estaParticionada() throws SQLException {
+        String sql = "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass('asistencia'))";
+        Connection conn = TransactionContext.getConnection(dataSource);
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getBoolean(1);
+        } finally {
+            TransactionContext.releaseConnection(conn, dataSource);
+        }
+    }
+
+    private boolean crearParticion(YearMonth mes) throws SQLException {
+        return TransactionContext.executeInTransaction(dataSource, conn -> {
+            try (PreparedStatement ps = conn.prepareStatement("SELECT crear_particion_asistencia(?)")) {
+                ps.setObject(1, mes.atDay(1));
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    return rs.getBoolean(1);
+                }
+            }
+        });
+    }
+
+    private void desengancharParticion(String particion) throws SQLException {
+        // El nombre viene de pg_class y ha pasado por NOMBRE_PARTICION: no hace falta escaparlo
+        TransactionContext.executeInTransaction(dataSource, conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("ALTER TABLE asistencia DETACH PARTITION " + particion);
+                if (esquemaArchivo != null) {
+                    stmt.execute("CREATE SCHEMA IF NOT EXISTS " + comillas(esquemaArchivo));
+                    stmt.execute("ALTER TABLE " + particion + " SET SCHEMA " + comillas(esquemaArchivo));
+                }
+            }
+            return null;
+        });
+    }
+
+    private static String comillas(String identificador) {
+        return "\"" + identificador.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * Particiones creadas y desenganchadas en un mantenimiento
+     */
+    public static class ResultadoMantenimiento {
+        private final List<String> creadas = new ArrayList<>();
+        private final List<String> desenganchadas = new ArrayList<>();
+
+        public List<String> getCreadas() {
+            return creadas;
+        }
+
+        public List<String> getDesenganchadas() {
+            return desenganchadas;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.ilerna.service;
+
+import com.ilerna.config.TransactionContext;
+import com.ilerna.dto.Asistencia;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Reparte las asistencias que se registran o se borran entre las estructuras en memoria que las
+ * siguen (analítica, índice de asistentes, panel, coasistencia, actividad)
+ *
+ * Cada vía de escritura (ingesta por lotes, reservas, inserción con Hibernate) publica aquí lo que
+ * ha escrito, y cada estructura se suscribe una vez: ninguna depende de por dónde entró el dato.
+ * Dentro de una transacción de {@link TransactionContext} el aviso espera al commit y se descarta
+ * con un rollback. Un oyente que falla no impide avisar a los demás ni a quien escribe.
+ *
+ * Lo que se escribe sin pasar por la aplicación (psql, otras aplicaciones, COPY) no se publica:
+ * cada estructura lo ve al volver a cargarse.
+ */
+public class PublicadorAsistencias {
+
+    /**
+     * Estructura que sigue los cambios de asistencia
+     */
+    @FunctionalInterface
+    public interface Oyente {
+        /**
+         * Asistencias ya guardadas (el id puede faltar si quien escribe no lo conoce)
+         */
+        void anadir(List<Asistencia> asistencias);
+
+        /**
+         * Asistencias ya borradas. Por defecto se ignoran: la estructura las verá al volver a cargarse
+         */
+        default void quitar(List<Asistencia> asistencias) {
+        }
+    }
+
+    private final List<Oyente> oyentes = new CopyOnWriteArrayList<>();
+
+    public void suscribir(Oyente oyente) {
+        oyentes.add(oyente);
+    }
+
+    public void cancelarSuscripcion(Oyente oyente) {
+        oyentes.remove(oyente);
+    }
+
+    /**
+     * Avisa de asistencias guardadas (tras el commit si hay una transacción en curso)
+     */
+    public void publicarRegistradas(List<Asistencia> asistencias) {
+        publicar(asistencias, true);
+    }
+
+    /**
+     * Avisa de asistencias borradas (tras el commit si hay una transacción en curso)
+     */
+    public void publicarBorradas(List<Asistencia> asistencias) {
+        publicar(asistencias, false);
+    }
+
+    private void publicar(List<Asistencia> asistencias, boolean registradas) {
+        if (asistencias.isEmpty() || oyentes.isEmpty()) {
+            return;
+        }
+        List<Asistencia> copia = Collections.unmodifiableList(new ArrayList<>(asistencias));
+        TransactionContext.alConfirmar(() -> avisar(copia, registradas));
+    }
+
+    private void avisar(List<Asistencia> asistencias, boolean registradas) {
+        for (Oyente oyente : oyentes) {
+            try {
+                if (registradas) {
+                    oyente.anadir(asistencias);
+                } else {
+                    oyente.quitar(asistencias);
+                }
+            } catch (RuntimeException e) {
+                // Ya están en la base de datos: el oyente se pondrá al día al volver a cargarse
+                System.err.println("✗ Error al avisar de cambios de asistencia: " + e.getMessage());
+            }
+        }
+    }
+}
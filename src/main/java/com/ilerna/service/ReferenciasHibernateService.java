@@ -0,0 +1,76 @@
+package com.ilerna.service;
+
+import com.ilerna.config.CacheSegundoNivel;
+import com.ilerna.config.HibernateUtil;
+import com.ilerna.entity.Clase;
+import com.ilerna.entity.Entrenador;
+import org.hibernate.Session;
+
+import java.util.List;
+
+/**
+ * Consultas de datos de referencia (clases y entrenadores) con Hibernate, servidas desde la
+ * caché de segundo nivel
+ *
+ * Las consultas son cacheables en la región {@link CacheSegundoNivel#REGION_REFERENCIAS}: la caché
+ * de consultas guarda los ids del resultado y las entidades salen de sus propias regiones, así
+ * que repetir una consulta no ejecuta SQL. Hibernate descarta los resultados cacheados cuando
+ * modifica la tabla (clase o entrenador) por su cuenta.
+ */
+public class ReferenciasHibernateService {
+
+    /**
+     * Una clase por id (null si no existe)
+     */
+    public Clase getClase(Integer id) {
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            return session.find(Clase.class, id);
+        }
+    }
+
+    /**
+     * Un entrenador por id (null si no existe)
+     */
+    public Entrenador getEntrenador(Integer id) {
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            return session.find(Entrenador.class, id);
+        }
+    }
+
+    /**
+     * Todas las clases, ordenadas por nombre
+     */
+    public List<Clase> getClases() {
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            return session.createSelectionQuery("from Clase order by nombre, id", Clase.class)
+                    .setCacheable(true)
+                    .setCacheRegion(CacheSegundoNivel.REGION_REFERENCIAS)
+                    .getResultList();
+        }
+    }
+
+    /**
+     * Clases con un nombre exacto
+     */
+    public List<Clase> getClasesPorNombre(String nombre) {
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            return session.createSelectionQuery("from Clase where nombre = :nombre order by id", Clase.class)
+                    .setParameter("nombre", nombre)
+                    .setCacheable(true)
+                    .setCacheRegion(CacheSegundoNivel.REGION_REFERENCIAS)
+                    .getResultList();
+        }
+    }
+
+    /**
+     * Todos los entrenadores, ordenados por nombre
+     */
+    public List<Entrenador> getEntrenadores() {
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            return session.createSelectionQuery("from Entrenador order by nombre, id", Entrenador.class)
+                    .setCacheable(true)
+                    .setCacheRegion(CacheSegundoNivel.REGION_REFERENCIAS)
+                    .getResultList();
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.ilerna.service;
+
+import com.ilerna.dao.IReservaDAO;
+import com.ilerna.dto.Asistencia;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Motor de reservas de plaza en las clases, respetando cupo_maximo
+ *
+ * Dos niveles:
+ * 1. En memoria, un contador atómico de plazas libres por clase y fecha. Cuando llega a 0, las
+ *    peticiones se rechazan al momento sin ir a la base de datos. Cada sesión tiene su propio
+ *    contador: las reservas de clases o días distintos nunca se esperan entre sí.
+ * 2. En la base de datos, un UPSERT condicional (ver {@link IReservaDAO#reservar}) que es quien
+ *    garantiza que no se supera el cupo, aunque haya varias instancias de la aplicación.
+ *
+ * Si la base de datos rechaza una reserva que el contador había dejado pasar, el contador se pone a 0.
+ * Un contador agotado se vuelve a leer de la base de datos como mucho una vez por intervalo de
+ * resincronización, para ver las plazas liberadas por cancelaciones hechas desde otro proceso.
+ */
+public class ReservaService {
+
+    /**
+     * Resultado de una petición de reserva
+     */
+    public enum ResultadoReserva {
+        CONFIRMADA,
+        COMPLETA,
+        CLASE_NO_EXISTE,
+        // El cliente ya tenía plaza en esa clase y fecha (índice único de la migración 008)
+        DUPLICADA
+    }
+
+    // SQLSTATE de PostgreSQL para unique_violation
+    private static final String VIOLACION_UNICIDAD = "23505";
+
+    private static final long RESINCRONIZACION_MS_POR_DEFECTO = 1000;
+
+    private final IReservaDAO reservaDAO;
+    private final long resincronizacionNanos;
+    private final ConcurrentHashMap<Sesion, Plazas> plazasPorSesion = new ConcurrentHashMap<>();
+    private volatile PublicadorAsistencias publicador;
+
+    private final LongAdder confirmadas = new LongAdder();
+    private final LongAdder rechazadasEnMemoria = new LongAdder();
+    private final LongAdder rechazadasPorBaseDeDatos = new LongAdder();
+
+    public ReservaService(IReservaDAO reservaDAO) {
+        this(reservaDAO, RESINCRONIZACION_MS_POR_DEFECTO);
+    }
+
+    /**
+     * @param reservaDAO DAO de reservas
+     * @param resincronizacionMs Tiempo mínimo entre dos lecturas de un contador agotado
+     */
+    public ReservaService(IReservaDAO reservaDAO, long resincronizacionMs) {
+        if (resincronizacionMs < 0) {
+            throw new IllegalArgumentException("El intervalo de resincronización no puede ser negativo");
+        }
+        this.reservaDAO = reservaDAO;
+        this.resincronizacionNanos = TimeUnit.MILLISECONDS.toNanos(resincronizacionMs);
+    }
+
+    /**
+     * Publicador al que se avisa de cada reserva confirmada (asistencia nueva) y cancelada
+     * (asistencia borrada); null para no avisar
+     */
+    public void setPublicador(PublicadorAsistencias publicador) {
+        this.publicador = publicador;
+    }
+
+    /**
+     * Reserva una plaza para un cliente
+     * @param idCliente ID del cliente
+     * @param idClase ID de la clase
+     * @param fecha Fecha de la sesión
+     * @return CONFIRMADA si se ha registrado la asistencia; COMPLETA, CLASE_NO_EXISTE o DUPLICADA si no
+     * @throws SQLException Si falla la base de datos (la plaza no queda ocupada)
+     */
+    public ResultadoReserva reservar(int idCliente, int idClase, LocalDate fecha) throws SQLException {
+        Sesion sesion = new Sesion(idClase, fecha);
+        Plazas plazas = obtenerPlazas(sesion);
+        if (plazas == null) {
+            return ResultadoReserva.CLASE_NO_EXISTE;
+        }
+
+        if (!plazas.tomar()) {
+            // Contador agotado: solo un hilo por intervalo vuelve a mirar la base de datos
+            if (!plazas.reclamarResincronizacion(resincronizacionNanos)) {
+                rechazadasEnMemoria.increment();
+                return ResultadoReserva.COMPLETA;
+            }
+            OptionalInt libres = reservaDAO.getPlazasLibres(idClase, fecha);
+            if (!libres.isPresent()) {
+                plazasPorSesion.remove(sesion);
+                return ResultadoReserva.CLASE_NO_EXISTE;
+            }
+            plazas.fijar(libres.getAsInt());
+            if (!plazas.tomar()) {
+                rechazadasEnMemoria.increment();
+                return ResultadoReserva.COMPLETA;
+            }
+        }
+
+        boolean reservada;
+        try {
+            reservada = reservaDAO.reservar(idClase, fecha, idCliente);
+        } catch (SQLException e) {
+            plazas.devolver();
+            if (VIOLACION_UNICIDAD.equals(e.getSQLState())) {
+                // La transacción de la reserva se ha deshecho entera: la plaza no queda ocupada
+                return ResultadoReserva.DUPLICADA;
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            plazas.devolver();
+            throw e;
+        }
+
+        if (!reservada) {
+            // Otro proceso ha ocupado las plazas que este creía libres
+            plazas.fijar(0);
+            rechazadasPorBaseDeDatos.increment();
+            return ResultadoReserva.COMPLETA;
+        }
+        confirmadas.increment();
+        PublicadorAsistencias destino = publicador;
+        if (destino != null) {
+            destino.publicarRegistradas(Collections.singletonList(new Asistencia(idCliente, idClase, fecha)));
+        }
+        return ResultadoReserva.CONFIRMADA;
+    }
+
+    /**
+     * Anula la reserva de un cliente y libera su plaza
+     * @return true si el cliente tenía reserva
+     * @throws SQLException
+     */
+    public boolean cancelar(int idCliente, int idClase, LocalDate fecha) throws SQLException {
+        if (!reservaDAO.cancelar(idClase, fecha, idCliente)) {
+            return false;
+        }
+        Plazas plazas = plazasPorSesion.get(new Sesion(idClase, fecha));
+        if (plazas != null) {
+            plazas.devolver();
+        }
+        PublicadorAsistencias destino = publicador;
+        if (destino != null) {
+            destino.publicarBorradas(Collections.singletonList(new Asistencia(idCliente, idClase, fecha)));
+        }
+        return true;
+    }
+
+    /**
+     * Olvida los contadores de sesiones anteriores a la fecha indicada
+     */
+    public void olvidarSesionesAnteriores(LocalDate fecha) {
+        plazasPorSesion.keySet().removeIf(sesion -> sesion.fecha.isBefore(fecha));
+    }
+
+    /** Reservas confirmadas */
+    public long getConfirmadas() {
+        return confirmadas.sum();
+    }
+
+    /** Peticiones rechazadas por el contador en memoria, sin consultar la base de datos */
+    public long getRechazadasEnMemoria() {
+        return rechazadasEnMemoria.sum();
+    }
+
+    /** Peticiones que pasaron el contador pero rechazó la base de datos */
+    public long getRechazadasPorBaseDeDatos() {
+        return rechazadasPorBaseDeDatos.sum();
+    }
+
+    private Plazas obtenerPlazas(Sesion sesion) throws SQLException {
+        Plazas plazas = plazasPorSesion.get(sesion);
+        if (plazas != null) {
+            return plazas;
+        }
+        // Primera petición de la sesión: varios hilos pueden leerla a la vez, se queda el primero
+        OptionalInt libres = reservaDAO.getPlazasLibres(sesion.idClase, sesion.fecha);
+        if (!libres.isPresent()) {
+            return null;
+        }
+        Plazas nuevas = new Plazas(libres.getAsInt());
+        Plazas existentes = plazasPorSesion.putIfAbsent(sesion, nuevas);
+        return existentes != null ? existentes : nuevas;
+    }
+
+    /**
+     * Clase y fecha de una sesión
+     */
+    private static final class Sesion {
+        final int idClase;
+        final LocalDate fecha;
+
+        Sesion(int idClase, LocalDate fecha) {
+            this.idClase = idClase;
+            this.fecha = fecha;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Sesion)) {
+                return false;
+            }
+            Sesion otra = (Sesion) o;
+            return idClase == otra.idClase && fecha.equals(otra.fecha);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * idClase + fecha.hashCode();
+        }
+    }
+
+    /**
+     * Plazas libres de una sesión según este proceso
+     */
+    private static final class Plazas {
+        private final AtomicInteger libres;
+        private final AtomicLong sincronizadoEn = new AtomicLong(System.nanoTime());
+
+        Plazas(int libres) {
+            this.libres = new AtomicInteger(libres);
+        }
+
+        boolean tomar() {
+            while (true) {
+                int actual = libres.get();
+                if (actual <= 0) {
+                    return false;
+                }
+                if (libres.compareAndSet(actual, actual - 1)) {
+                    return true;
+                }
+            }
+        }
+
+        void devolver() {
+            libres.updateAndGet(valor -> valor == Integer.MAX_VALUE ? valor : valor + 1);
+        }
+
+        void fijar(int valor) {
+            libres.set(valor);
+            sincronizadoEn.set(System.nanoTime());
+        }
+
+        /**
+         * true para un único hilo cuando ha pasado el intervalo desde la última lectura
+         */
+        boolean reclamarResincronizacion(long intervaloNanos) {
+            long ultima = sincronizadoEn.get();
+            long ahora = System.nanoTime();
+            return ahora - ultima >= intervaloNanos && sincronizadoEn.compareAndSet(ultima, ahora);
+        }
+    }
+}
@@ -1,15 +1,15 @@
 package com.ilerna.service;
 
+import com.ilerna.config.TransactionContext;
 import com.ilerna.dao.ClienteDAO;
 import com.ilerna.dao.EntrenadorDAO;
 import com.ilerna.dto.Cliente;
 import com.ilerna.dto.Entrenador;
 
 import java.sql.CallableStatement;
-import java.sql.Connection;
 import java.sql.SQLException;
-import java.util.ArrayList;
 import java.util.List;
+import javax.sql.DataSource;
 
 /**
  * Servicio que gestiona transacciones complejas
@@ -17,20 +17,23 @@ import java.util.List;
  */
 public class TransaccionDemoService {
     
-    private final Connection connection;
+    private final DataSource dataSource;
     private final EntrenadorDAO entrenadorDAO;
     private final ClienteDAO clienteDAO;
 
-    public TransaccionDemoService(Connection connection) {
-        this.connection = connection;
-        this.entrenadorDAO = new EntrenadorDAO(connection);
-        this.clienteDAO = new ClienteDAO(connection);
+    public TransaccionDemoService(DataSource dataSource) {
+        this.dataSource = dataSource;
+        this.entrenadorDAO = new EntrenadorDAO(dataSource);
+        this.clienteDAO = new ClienteDAO(dataSource);
     }
 
     /**
      * Registra un entrenador y múltiples clientes en una transacción atómica
      * Si alguna operación falla, se hace rollback de todas
      * 
+     * Los DAO se unen a la transacción a través de {@link TransactionContext},
+     * por lo que varias transacciones pueden ejecutarse a la vez desde hilos distintos.
+     * 
      * @param entrenador Entrenador a insertar
      * @param clientes Lista de clientes a insertar
      * @return Lista con el entrenador y los clientes insertados
@@ -40,94 +43,62 @@ public class TransaccionDemoService {
             Entrenador entrenador, 
             List<Cliente> clientes) throws SQLException {
         
-        // Guardar el estado original del autoCommit
-        boolean autoCommitOriginal = connection.getAutoCommit();
-        
         RegistroGrupalResult resultado = new RegistroGrupalResult();
         
         try {
-            // Deshabilitar autoCommit para iniciar la transacción
-            connection.setAutoCommit(false);
-            
             System.out.println("=== INICIANDO TRANSACCIÓN ===");
             
-            // 1. Insertar el entrenador
-            System.out.println("1. Insertando entrenador: " + entrenador.getNombre());
-            Entrenador entrenadorInsertado = entrenadorDAO.insert(entrenador);
-            resultado.setEntrenador(entrenadorInsertado);
-            System.out.println("   ✓ Entrenador insertado con ID: " + entrenadorInsertado.getId());
-            
-            // 2. Insertar cada cliente
-            List<Cliente> clientesInsertados = new ArrayList<>();
-            for (int i = 0; i < clientes.size(); i++) {
-                Cliente cliente = clientes.get(i);
-                System.out.println((i + 2) + ". Insertando cliente: " + cliente.getNombre());
+            TransactionContext.executeInTransaction(dataSource, connection -> {
+                // 1. Insertar el entrenador
+                System.out.println("1. Insertando entrenador: " + entrenador.getNombre());
+                Entrenador entrenadorInsertado = entrenadorDAO.insert(entrenador);
+                resultado.setEntrenador(entrenadorInsertado);
+                System.out.println("   ✓ Entrenador insertado con ID: " + entrenadorInsertado.getId());
                 
-                // Validaciones de negocio
-                if (cliente.getNombre() == null || cliente.getNombre().trim().isEmpty()) {
-                    throw new IllegalArgumentException("El nombre del cliente es obligatorio");
+                // 2. Validar todos los clientes antes de escribir ninguno
+                for (Cliente cliente : clientes) {
+                    ClienteService.validarCliente(cliente);
                 }
-                if (cliente.getEmail() == null || cliente.getEmail().trim().isEmpty()) {
-                    throw new IllegalArgumentException("El email del cliente es obligatorio");
+                
+                // 3. Insertar los clientes por bloques (una sentencia por bloque)
+                System.out.println("2. Insertando " + clientes.size() + " clientes");
+                List<Cliente> clientesInsertados = clienteDAO.insertAll(clientes);
+                for (Cliente clienteInsertado : clientesInsertados) {
+                    System.out.println("   ✓ Cliente " + clienteInsertado.getNombre()
+                            + " insertado con ID: " + clienteInsertado.getId());
                 }
                 
-                Cliente clienteInsertado = clienteDAO.insert(cliente);
-                clientesInsertados.add(clienteInsertado);
-                System.out.println("   ✓ Cliente insertado con ID: " + clienteInsertado.getId());
-            }
+                resultado.setClientes(clientesInsertados);
+                return resultado;
+            });
             
-            resultado.setClientes(clientesInsertados);
-            
-            // Si ha sido exitoso, hacer commit
-            connection.commit();
+            // Si ha llegado aquí, el commit se ha hecho
             System.out.println("\n✓ TRANSACCIÓN COMPLETADA EXITOSAMENTE");
             System.out.println("  - 1 entrenador registrado");
-            System.out.println("  - " + clientesInsertados.size() + " clientes registrados");
+            System.out.println("  - " + resultado.getClientes().size() + " clientes registrados");
             
             resultado.setExitoso(true);
             
         } catch (SQLException e) {
-            // Si hay error SQL, hacer rollback
+            // Error SQL: el contexto ya ha hecho rollback
             System.out.println("\n✗ ERROR EN LA TRANSACCIÓN: " + e.getMessage());
-            System.out.println("Ejecutando ROLLBACK...");
-            
-            try {
-                connection.rollback();
-                System.out.println("✓ ROLLBACK COMPLETADO - No se guardó ningún registro");
-            } catch (SQLException rollbackEx) {
-                System.out.println("✗ Error al hacer rollback: " + rollbackEx.getMessage());
-                throw rollbackEx;
-            }
+            System.out.println("✓ ROLLBACK COMPLETADO - No se guardó ningún registro");
             
             resultado.setExitoso(false);
             resultado.setMensajeError("Error de base de datos: " + e.getMessage());
             throw e;
             
         } catch (IllegalArgumentException e) {
-            // Si hay error de validación, hacer rollback
+            // Error de validación: el contexto ya ha hecho rollback
             System.out.println("\n✗ ERROR DE VALIDACIÓN: " + e.getMessage());
-            System.out.println("Ejecutando ROLLBACK...");
-            
-            try {
-                connection.rollback();
-                System.out.println("✓ ROLLBACK COMPLETADO - No se guardó ningún registro");
-            } catch (SQLException rollbackEx) {
-                System.out.println("✗ Error al hacer rollback: " + rollbackEx.getMessage());
-                throw rollbackEx;
-            }
+            System.out.println("✓ ROLLBACK COMPLETADO - No se guardó ningún registro");
             
             resultado.setExitoso(false);
             resultado.setMensajeError("Error de validación: " + e.getMessage());
             throw new SQLException(e.getMessage(), e);
             
         } finally {
-            // Restaurar el autoCommit original
-            try {
-                connection.setAutoCommit(autoCommitOriginal);
-                System.out.println("=== TRANSACCIÓN FINALIZADA ===\n");
-            } catch (SQLException e) {
-                System.out.println("Error al restaurar autoCommit: " + e.getMessage());
-            }
+            System.out.println("=== TRANSACCIÓN FINALIZADA ===\n");
         }
         
         return resultado;
@@ -149,55 +120,35 @@ public class TransaccionDemoService {
             String nombreClase, 
             int cupoMaximo) throws SQLException {
         
-        // Guardar el estado original del autoCommit
-        boolean autoCommitOriginal = connection.getAutoCommit();
-        
         try {
-            // Deshabilitar autoCommit para manejar la transacción manualmente
-            connection.setAutoCommit(false);
-            
             System.out.println("=== EJECUTANDO PROCEDIMIENTO ALMACENADO ===");
             System.out.println("Entrenador: " + nombreEntrenador + " (" + especialidad + ")");
             System.out.println("Clase: " + nombreClase + " (Cupo: " + cupoMaximo + ")");
 
             String sql = "CALL insertar_entrenador_y_clase(?, ?, ?, ?)";
             
-            try (CallableStatement cs = connection.prepareCall(sql)) {
-                // Establecer los parámetros
-                cs.setString(1, nombreEntrenador);
-                cs.setString(2, especialidad);
-                cs.setString(3, nombreClase);
-                cs.setInt(4, cupoMaximo);
-                
-                // Ejecutar el procedimiento
-                cs.execute();
-
-                connection.commit();
-                System.out.println("Procedimiento ejecutado correctamente");
-                
-            } catch (SQLException e) {
-                System.out.println("Error al ejecutar el procedimiento: " + e.getMessage());
-                System.out.println("Ejecutando ROLLBACK...");
-                
-                try {
-                    connection.rollback();
-                    System.out.println("ROLLBACK completado");
-                } catch (SQLException rollbackEx) {
-                    System.out.println("Error al hacer rollback: " + rollbackEx.getMessage());
-                    throw rollbackEx;
+            TransactionContext.executeInTransaction(dataSource, connection -> {
+                try (CallableStatement cs = connection.prepareCall(sql)) {
+                    // Establecer los parámetros
+                    cs.setString(1, nombreEntrenador);
+                    cs.setString(2, especialidad);
+                    cs.setString(3, nombreClase);
+                    cs.setInt(4, cupoMaximo);
+                    
+                    // Ejecutar el procedimiento
+                    cs.execute();
                 }
-                
-                throw e;
-            }
+                return null;
+            });
+            System.out.println("Procedimiento ejecutado correctamente");
+            
+        } catch (SQLException e) {
+            System.out.println("Error al ejecutar el procedimiento: " + e.getMessage());
+            System.out.println("ROLLBACK completado");
+            throw e;
             
         } finally {
-            // Restaurar el autoCommit original
-            try {
-                connection.setAutoCommit(autoCommitOriginal);
-                System.out.println("=== PROCEDIMIENTO FINALIZADO ===\n");
-            } catch (SQLException e) {
-                System.out.println("Error al restaurar autoCommit: " + e.getMessage());
-            }
+            System.out.println("=== PROCEDIMIENTO FINALIZADO ===\n");
         }
     }
 
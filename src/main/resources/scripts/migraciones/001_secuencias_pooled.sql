@@ -0,0 +1,71 @@
+-- ========================================
+-- MIGRACIÓN 001: IDS POR SECUENCIA CON BLOQUES (pooled-lo)
+-- Sustituye la generación IDENTITY de Hibernate por secuencias con INCREMENT BY 50
+-- para que Hibernate pueda agrupar los INSERT en lotes JDBC.
+-- ========================================
+-- Las entidades usan @SequenceGenerator(sequenceName = "<tabla>_id_seq", allocationSize = 50).
+-- El INCREMENT BY de cada secuencia DEBE coincidir con allocationSize.
+--
+-- Compatibilidad con los INSERT por JDBC (DEFAULT nextval / RETURNING id):
+-- siguen funcionando, cada uno consume un bloque de 50 valores. Los huecos en los ids
+-- son normales y no afectan a la integridad.
+--
+-- asistencia.id pasa a BIGINT: es la tabla que más crece y casi todas sus filas entran por
+-- JDBC (ingesta, reservas, COPY); con 50 valores por fila un INTEGER se agotaría hacia los
+-- 43 millones de asistencias. Las demás tablas siguen en INTEGER.
+
+BEGIN;
+
+DO $$
+DECLARE
+    tabla TEXT;
+    secuencia TEXT;
+    esperada TEXT;
+    max_id BIGINT;
+BEGIN
+    FOREACH tabla IN ARRAY ARRAY['cliente', 'clase', 'entrenador', 'asistencia'] LOOP
+        esperada := tabla || '_id_seq';
+
+        -- Secuencia asociada a la columna id (vale para SERIAL y para GENERATED ... AS IDENTITY)
+        secuencia := pg_get_serial_sequence(tabla, 'id');
+        IF secuencia IS NULL THEN
+            -- La columna no tenía secuencia: se crea y se asocia como DEFAULT
+            EXECUTE format('CREATE SEQUENCE IF NOT EXISTS %I OWNED BY %I.id', esperada, tabla);
+            EXECUTE format('ALTER TABLE %I ALTER COLUMN id SET DEFAULT nextval(%L)', tabla, esperada);
+            secuencia := esperada;
+        ELSIF secuencia <> 'public.' || esperada THEN
+            -- Nombre distinto del que espera el mapeo JPA
+            EXECUTE format('ALTER SEQUENCE %s RENAME TO %I', secuencia, esperada);
+            secuencia := esperada;
+        END IF;
+
+        -- Bloques de 50 ids por cada nextval
+        EXECUTE format('ALTER SEQUENCE %s INCREMENT BY 50', secuencia);
+
+        -- Realinear con los datos existentes: el siguiente nextval queda por encima del máximo
+        EXECUTE format('SELECT COALESCE(MAX(id), 0) FROM %I', tabla) INTO max_id;
+        PERFORM setval(secuencia, GREATEST(max_id, 1), max_id > 0);
+
+        RAISE NOTICE 'Secuencia % lista (INCREMENT BY 50, último id %)', secuencia, max_id;
+    END LOOP;
+END $$;
+
+-- asistencia.id y su secuencia a BIGINT (sin efecto si ya lo eran). El ALTER TYPE reescribe la
+-- tabla y su clave primaria bajo ACCESS EXCLUSIVE: en tablas grandes, ejecutar en una ventana.
+ALTER SEQUENCE asistencia_id_seq AS BIGINT;
+ALTER TABLE asistencia ALTER COLUMN id TYPE BIGINT;
+
+COMMIT;
+
+-- Verificar
+SELECT sequencename, data_type, increment_by, last_value
+FROM pg_sequences
+WHERE sequencename IN ('cliente_id_seq', 'clase_id_seq', 'entrenador_id_seq', 'asistencia_id_seq');
+
+-- ========================================
+-- VUELTA ATRÁS (si se vuelve a GenerationType.IDENTITY)
+-- ========================================
+-- ALTER SEQUENCE cliente_id_seq INCREMENT BY 1;
+-- ALTER SEQUENCE clase_id_seq INCREMENT BY 1;
+-- ALTER SEQUENCE entrenador_id_seq INCREMENT BY 1;
+-- ALTER SEQUENCE asistencia_id_seq INCREMENT BY 1;
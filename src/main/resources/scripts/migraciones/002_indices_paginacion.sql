@@ -0,0 +1,17 @@
+-- ========================================
+-- MIGRACIÓN 002: ÍNDICES PARA PAGINACIÓN POR CLAVE (KEYSET)
+-- ========================================
+-- findPage(despuesDeId, limite) usa la clave primaria (id).
+-- findPageOrderByNombre usa WHERE (nombre, id) > (?, ?) ORDER BY nombre, id,
+-- que necesita un índice compuesto para leer cada página directamente
+-- en lugar de ordenar la tabla entera (coste constante por página).
+
+CREATE INDEX IF NOT EXISTS idx_cliente_nombre_id ON cliente (nombre, id);
+CREATE INDEX IF NOT EXISTS idx_clase_nombre_id ON clase (nombre, id);
+
+-- Verificar que la consulta usa el índice (Index Scan / Index Only Scan, sin Sort)
+EXPLAIN
+SELECT id, nombre, email, telefono FROM cliente
+WHERE (nombre, id) > ('M', 0)
+ORDER BY nombre, id
+LIMIT 21;
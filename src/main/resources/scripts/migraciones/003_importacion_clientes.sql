@@ -0,0 +1,24 @@
+-- ========================================
+-- MIGRACIÓN 003: TABLA DE CARGA PARA LA IMPORTACIÓN MASIVA DE CLIENTES
+-- ========================================
+-- ImportacionClientesService vuelca el CSV con COPY en cliente_importacion
+-- (varias conexiones en paralelo) y después lo pasa a cliente con un único INSERT ... SELECT.
+--
+-- UNLOGGED: no escribe en el WAL, la carga es mucho más rápida. Tras una caída del
+-- servidor la tabla se vacía, lo que no importa porque solo guarda datos de paso.
+-- Cada importación usa su propio número de lote y borra sus filas al terminar.
+
+CREATE SEQUENCE IF NOT EXISTS cliente_importacion_lote_seq;
+
+CREATE UNLOGGED TABLE IF NOT EXISTS cliente_importacion (
+    lote     BIGINT NOT NULL,
+    linea    BIGINT NOT NULL,
+    nombre   TEXT,
+    email    TEXT,
+    telefono TEXT
+);
+
+CREATE INDEX IF NOT EXISTS idx_cliente_importacion_lote ON cliente_importacion (lote);
+
+-- La fusión descarta los emails que ya existen en cliente (sin distinguir mayúsculas)
+CREATE INDEX IF NOT EXISTS idx_cliente_email_lower ON cliente (lower(email));
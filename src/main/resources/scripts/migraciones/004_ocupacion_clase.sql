@@ -0,0 +1,98 @@
+-- ========================================
+-- MIGRACIÓN 004: OCUPACIÓN DE CADA CLASE POR DÍA (CONTROL DE CUPO)
+-- ========================================
+-- ReservaDAO reserva una plaza bloqueando la fila de (clase, fecha) con un UPSERT condicional
+-- (solo si reservadas < cupo_maximo) y después inserta la asistencia.
+-- La fila queda bloqueada solo durante esa transacción, así que las reservas de una misma
+-- sesión se ordenan entre sí y nunca se supera el cupo; las de otras clases o días no se esperan.
+-- Una clase con cupo_maximo NULL no tiene límite de plazas.
+--
+-- reservadas la mantienen triggers de sentencia sobre asistencia (como los de 005 y 006), así
+-- que también cuentan las asistencias que no pasan por ReservaDAO: Hibernate, la ingesta por
+-- lotes (AsistenciaDAO.insertAll) o COPY. Esas vías registran fichajes y no comprueban el cupo.
+-- Se puede volver a ejecutar: recrea los triggers y recalcula los contadores.
+
+CREATE TABLE IF NOT EXISTS ocupacion_clase (
+    id_clase   INTEGER NOT NULL REFERENCES clase(id) ON DELETE CASCADE,
+    fecha      DATE    NOT NULL,
+    reservadas INTEGER NOT NULL DEFAULT 0 CHECK (reservadas >= 0),
+    PRIMARY KEY (id_clase, fecha)
+);
+
+CREATE OR REPLACE FUNCTION ocupacion_clase_sumar() RETURNS trigger AS $$
+BEGIN
+    -- En orden de clave: dos lotes concurrentes bloquean las filas en el mismo orden
+    INSERT INTO ocupacion_clase (id_clase, fecha, reservadas)
+    SELECT id_clase, fecha, COUNT(*) FROM nuevas
+    WHERE id_clase IS NOT NULL
+    GROUP BY id_clase, fecha
+    ORDER BY id_clase, fecha
+    ON CONFLICT (id_clase, fecha) DO UPDATE SET reservadas = ocupacion_clase.reservadas + EXCLUDED.reservadas;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION ocupacion_clase_restar() RETURNS trigger AS $$
+BEGIN
+    UPDATE ocupacion_clase o SET reservadas = o.reservadas - b.n
+    FROM (SELECT id_clase, fecha, COUNT(*) AS n FROM borradas
+          WHERE id_clase IS NOT NULL
+          GROUP BY id_clase, fecha) b
+    WHERE o.id_clase = b.id_clase AND o.fecha = b.fecha;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION ocupacion_clase_mover() RETURNS trigger AS $$
+BEGIN
+    -- Restar y después sumar, por el mismo motivo que asistencia_conteo_mover (005)
+    UPDATE ocupacion_clase o SET reservadas = o.reservadas - b.n
+    FROM (SELECT id_clase, fecha, COUNT(*) AS n FROM borradas
+          WHERE id_clase IS NOT NULL
+          GROUP BY id_clase, fecha) b
+    WHERE o.id_clase = b.id_clase AND o.fecha = b.fecha;
+
+    INSERT INTO ocupacion_clase (id_clase, fecha, reservadas)
+    SELECT id_clase, fecha, COUNT(*) FROM nuevas
+    WHERE id_clase IS NOT NULL
+    GROUP BY id_clase, fecha
+    ORDER BY id_clase, fecha
+    ON CONFLICT (id_clase, fecha) DO UPDATE SET reservadas = ocupacion_clase.reservadas + EXCLUDED.reservadas;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Triggers y recuento en una transacción, con asistencia bloqueada para escritura: ninguna fila
+-- puede entrar entre el recuento y la activación de los triggers
+BEGIN;
+LOCK TABLE asistencia IN SHARE MODE;
+
+DROP TRIGGER IF EXISTS trg_ocupacion_clase_insert ON asistencia;
+CREATE TRIGGER trg_ocupacion_clase_insert
+    AFTER INSERT ON asistencia
+    REFERENCING NEW TABLE AS nuevas
+    FOR EACH STATEMENT EXECUTE FUNCTION ocupacion_clase_sumar();
+
+DROP TRIGGER IF EXISTS trg_ocupacion_clase_delete ON asistencia;
+CREATE TRIGGER trg_ocupacion_clase_delete
+    AFTER DELETE ON asistencia
+    REFERENCING OLD TABLE AS borradas
+    FOR EACH STATEMENT EXECUTE FUNCTION ocupacion_clase_restar();
+
+DROP TRIGGER IF EXISTS trg_ocupacion_clase_update ON asistencia;
+CREATE TRIGGER trg_ocupacion_clase_update
+    AFTER UPDATE ON asistencia
+    REFERENCING OLD TABLE AS borradas NEW TABLE AS nuevas
+    FOR EACH STATEMENT EXECUTE FUNCTION ocupacion_clase_mover();
+
+-- Partir de las asistencias ya registradas (y corregir lo que se hubiera desviado)
+UPDATE ocupacion_clase SET reservadas = 0;
+
+INSERT INTO ocupacion_clase (id_clase, fecha, reservadas)
+SELECT id_clase, fecha, COUNT(*)
+FROM asistencia
+WHERE id_clase IS NOT NULL
+GROUP BY id_clase, fecha
+ON CONFLICT (id_clase, fecha) DO UPDATE SET reservadas = EXCLUDED.reservadas;
+
+COMMIT;
@@ -0,0 +1,94 @@
+-- ========================================
+-- MIGRACIÓN 005: CONTADOR DE ASISTENCIAS POR CLASE MANTENIDO POR TRIGGERS
+-- ========================================
+-- El reporte de clientes por clase hacía un GROUP BY sobre toda la tabla asistencia en cada
+-- llamada, con un coste que crece con el histórico. Ahora lee asistencia_conteo, con una fila
+-- por clase, y su coste solo depende del número de clases.
+--
+-- Los triggers son de sentencia (FOR EACH STATEMENT) con tablas de transición: un INSERT de
+-- miles de asistencias (lotes JDBC, COPY) actualiza cada contador una sola vez, no una por fila.
+-- Igual que COUNT(a.id_cliente), solo cuentan las asistencias con cliente.
+--
+-- AsistenciaDAO.reconciliarConteos() compara los contadores con la tabla base y corrige
+-- los que no coincidan (p. ej. tras un TRUNCATE, que no dispara estos triggers).
+
+CREATE TABLE IF NOT EXISTS asistencia_conteo (
+    id_clase INTEGER NOT NULL PRIMARY KEY REFERENCES clase(id) ON DELETE CASCADE,
+    total    BIGINT  NOT NULL DEFAULT 0 CHECK (total >= 0)
+);
+
+CREATE OR REPLACE FUNCTION asistencia_conteo_sumar() RETURNS trigger AS $$
+BEGIN
+    INSERT INTO asistencia_conteo (id_clase, total)
+    SELECT id_clase, COUNT(*) FROM nuevas
+    WHERE id_clase IS NOT NULL AND id_cliente IS NOT NULL
+    GROUP BY id_clase
+    ON CONFLICT (id_clase) DO UPDATE SET total = asistencia_conteo.total + EXCLUDED.total;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION asistencia_conteo_restar() RETURNS trigger AS $$
+BEGIN
+    UPDATE asistencia_conteo ac SET total = ac.total - b.n
+    FROM (SELECT id_clase, COUNT(*) AS n FROM borradas
+          WHERE id_clase IS NOT NULL AND id_cliente IS NOT NULL
+          GROUP BY id_clase) b
+    WHERE ac.id_clase = b.id_clase;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION asistencia_conteo_mover() RETURNS trigger AS $$
+BEGIN
+    -- Primero se restan las filas de antes y después se suman las de ahora.
+    -- No se hace con un único INSERT ... ON CONFLICT con la diferencia neta porque el CHECK
+    -- (total >= 0) se comprueba sobre la fila propuesta antes de ver el conflicto.
+    UPDATE asistencia_conteo ac SET total = ac.total - b.n
+    FROM (SELECT id_clase, COUNT(*) AS n FROM borradas
+          WHERE id_clase IS NOT NULL AND id_cliente IS NOT NULL
+          GROUP BY id_clase) b
+    WHERE ac.id_clase = b.id_clase;
+
+    INSERT INTO asistencia_conteo (id_clase, total)
+    SELECT id_clase, COUNT(*) FROM nuevas
+    WHERE id_clase IS NOT NULL AND id_cliente IS NOT NULL
+    GROUP BY id_clase
+    ON CONFLICT (id_clase) DO UPDATE SET total = asistencia_conteo.total + EXCLUDED.total;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Triggers y recuento en una transacción, con asistencia bloqueada para escritura: un INSERT
+-- que entrara entre la activación de los triggers y el recuento se contaría dos veces, o se
+-- perdería si el recuento sobrescribe el contador que ya había sumado su trigger
+BEGIN;
+LOCK TABLE asistencia IN SHARE MODE;
+
+DROP TRIGGER IF EXISTS trg_asistencia_conteo_insert ON asistencia;
+CREATE TRIGGER trg_asistencia_conteo_insert
+    AFTER INSERT ON asistencia
+    REFERENCING NEW TABLE AS nuevas
+    FOR EACH STATEMENT EXECUTE FUNCTION asistencia_conteo_sumar();
+
+DROP TRIGGER IF EXISTS trg_asistencia_conteo_delete ON asistencia;
+CREATE TRIGGER trg_asistencia_conteo_delete
+    AFTER DELETE ON asistencia
+    REFERENCING OLD TABLE AS borradas
+    FOR EACH STATEMENT EXECUTE FUNCTION asistencia_conteo_restar();
+
+DROP TRIGGER IF EXISTS trg_asistencia_conteo_update ON asistencia;
+CREATE TRIGGER trg_asistencia_conteo_update
+    AFTER UPDATE ON asistencia
+    REFERENCING OLD TABLE AS borradas NEW TABLE AS nuevas
+    FOR EACH STATEMENT EXECUTE FUNCTION asistencia_conteo_mover();
+
+-- Partir de las asistencias ya registradas
+INSERT INTO asistencia_conteo (id_clase, total)
+SELECT id_clase, COUNT(id_cliente)
+FROM asistencia
+WHERE id_clase IS NOT NULL
+GROUP BY id_clase
+ON CONFLICT (id_clase) DO UPDATE SET total = EXCLUDED.total;
+
+COMMIT;
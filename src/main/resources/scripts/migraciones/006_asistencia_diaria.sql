@@ -0,0 +1,106 @@
+-- ========================================
+-- MIGRACIÓN 006: RESUMEN DIARIO DE ASISTENCIAS PARA INFORMES POR PERIODO
+-- ========================================
+-- Los informes por día, semana o mes (por clase o por cliente) leen dos tablas de resumen
+-- en lugar de la tabla asistencia:
+--   asistencia_diaria          (fecha, id_clase)   -> total
+--   asistencia_diaria_cliente  (fecha, id_cliente) -> total
+--
+-- Mantenimiento incremental:
+-- 1. Un trigger de sentencia apunta cada cambio en asistencia_cambios (+n / -n por fecha,
+--    clase y cliente). Es una inserción pequeña; el resumen no se toca en la transacción
+--    de la asistencia y no hay filas calientes que se bloqueen entre sí.
+-- 2. AsistenciaDAO.actualizarResumenDiario() borra de asistencia_cambios los cambios ya
+--    confirmados y los suma al resumen en la misma sentencia. La tabla asistencia nunca se
+--    vuelve a recorrer.
+-- 3. Los informes suman el resumen y los cambios aún no aplicados en una sola consulta,
+--    así que siempre son exactos aunque la actualización vaya con retraso.
+--
+-- No hace falta una marca de "aplicado hasta el id N" ni bloquear la tabla de cambios: los
+-- cambios de una transacción que confirma tarde no estaban en la instantánea del DELETE y se
+-- quedan en la tabla hasta la siguiente actualización. Los triggers nunca esperan.
+-- (asistencia_resumen_marca, de versiones anteriores de esta migración, ya no se usa.)
+
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS asistencia_diaria (
+    fecha    DATE    NOT NULL,
+    id_clase INTEGER NOT NULL REFERENCES clase(id) ON DELETE CASCADE,
+    total    INTEGER NOT NULL CHECK (total >= 0),
+    PRIMARY KEY (fecha, id_clase)
+);
+
+CREATE TABLE IF NOT EXISTS asistencia_diaria_cliente (
+    fecha      DATE    NOT NULL,
+    id_cliente INTEGER NOT NULL REFERENCES cliente(id) ON DELETE CASCADE,
+    total      INTEGER NOT NULL CHECK (total >= 0),
+    PRIMARY KEY (fecha, id_cliente)
+);
+
+-- Informes de un cliente concreto: solo se leen sus días
+CREATE INDEX IF NOT EXISTS idx_asistencia_diaria_cliente_cliente
+    ON asistencia_diaria_cliente (id_cliente, fecha) INCLUDE (total);
+
+CREATE TABLE IF NOT EXISTS asistencia_cambios (
+    id         BIGSERIAL PRIMARY KEY,
+    fecha      DATE     NOT NULL,
+    id_clase   INTEGER  NOT NULL,
+    id_cliente INTEGER  NOT NULL,
+    delta      INTEGER  NOT NULL
+);
+
+CREATE OR REPLACE FUNCTION asistencia_cambios_registrar() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        INSERT INTO asistencia_cambios (fecha, id_clase, id_cliente, delta)
+        SELECT fecha, id_clase, id_cliente, COUNT(*) FROM nuevas
+        WHERE id_clase IS NOT NULL AND id_cliente IS NOT NULL
+        GROUP BY fecha, id_clase, id_cliente;
+    END IF;
+    IF TG_OP IN ('DELETE', 'UPDATE') THEN
+        INSERT INTO asistencia_cambios (fecha, id_clase, id_cliente, delta)
+        SELECT fecha, id_clase, id_cliente, -COUNT(*) FROM borradas
+        WHERE id_clase IS NOT NULL AND id_cliente IS NOT NULL
+        GROUP BY fecha, id_clase, id_cliente;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_asistencia_cambios_insert ON asistencia;
+CREATE TRIGGER trg_asistencia_cambios_insert
+    AFTER INSERT ON asistencia
+    REFERENCING NEW TABLE AS nuevas
+    FOR EACH STATEMENT EXECUTE FUNCTION asistencia_cambios_registrar();
+
+DROP TRIGGER IF EXISTS trg_asistencia_cambios_delete ON asistencia;
+CREATE TRIGGER trg_asistencia_cambios_delete
+    AFTER DELETE ON asistencia
+    REFERENCING OLD TABLE AS borradas
+    FOR EACH STATEMENT EXECUTE FUNCTION asistencia_cambios_registrar();
+
+DROP TRIGGER IF EXISTS trg_asistencia_cambios_update ON asistencia;
+CREATE TRIGGER trg_asistencia_cambios_update
+    AFTER UPDATE ON asistencia
+    REFERENCING OLD TABLE AS borradas NEW TABLE AS nuevas
+    FOR EACH STATEMENT EXECUTE FUNCTION asistencia_cambios_registrar();
+
+-- Carga inicial (única vez que se recorre asistencia). El bloqueo evita que entre una
+-- asistencia entre el recuento y la creación de los triggers.
+LOCK TABLE asistencia IN SHARE MODE;
+
+TRUNCATE asistencia_diaria, asistencia_diaria_cliente, asistencia_cambios;
+
+INSERT INTO asistencia_diaria (fecha, id_clase, total)
+SELECT fecha, id_clase, COUNT(*)
+FROM asistencia
+WHERE id_clase IS NOT NULL AND id_cliente IS NOT NULL
+GROUP BY fecha, id_clase;
+
+INSERT INTO asistencia_diaria_cliente (fecha, id_cliente, total)
+SELECT fecha, id_cliente, COUNT(*)
+FROM asistencia
+WHERE id_clase IS NOT NULL AND id_cliente IS NOT NULL
+GROUP BY fecha, id_cliente;
+
+COMMIT;
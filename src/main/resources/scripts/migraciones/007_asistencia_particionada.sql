@@ -0,0 +1,187 @@
+-- ========================================
+-- MIGRACIÓN 007 (OPCIONAL): ASISTENCIA PARTICIONADA POR MES
+-- ========================================
+-- Convierte asistencia en una tabla particionada por rango de fecha, con una partición por mes
+-- (asistencia_yAAAAmMM) y una partición por defecto para fechas sin partición propia.
+-- Las consultas con condición sobre fecha solo leen las particiones del rango (partition pruning)
+-- y los meses antiguos se pueden desenganchar o archivar sin DELETE masivos
+-- (ParticionAsistenciaService).
+--
+-- Compatibilidad con la entidad Asistencia:
+-- - Mismas columnas y misma secuencia asistencia_id_seq (INCREMENT BY 50, migración 001).
+-- - La clave primaria pasa a ser (id, fecha), porque en una tabla particionada debe incluir
+--   la columna de partición. El id sigue saliendo de la secuencia y no se repite, así que
+--   Hibernate puede seguir usando solo id (WHERE id = ? recorre el índice de cada partición).
+--
+-- Índices y triggers: se copian todos los de la tabla original (los triggers de 004, 005, 006 y
+-- 009, el índice único de 008...), así que esta migración puede aplicarse antes o después de
+-- las demás. Un índice único que no incluya fecha no se puede crear en la tabla particionada:
+-- la migración se detiene sin cambiar nada.
+--
+-- Requiere PostgreSQL 13 o superior. Se ejecuta una sola vez, con la aplicación parada.
+-- La tabla original se conserva como asistencia_sin_particionar para poder comprobar los datos.
+
+BEGIN;
+
+LOCK TABLE asistencia IN ACCESS EXCLUSIVE MODE;
+
+-- Definiciones de los índices (salvo la clave primaria) y de los triggers de la tabla original,
+-- tomadas antes de renombrarla para que ya digan ON asistencia
+CREATE TEMP TABLE asistencia_indices ON COMMIT DROP AS
+SELECT c.relname AS nombre, pg_get_indexdef(i.indexrelid) AS definicion
+FROM pg_index i
+JOIN pg_class c ON c.oid = i.indexrelid
+WHERE i.indrelid = 'asistencia'::regclass AND NOT i.indisprimary;
+
+CREATE TEMP TABLE asistencia_triggers ON COMMIT DROP AS
+SELECT tgname AS nombre, pg_get_triggerdef(oid) AS definicion
+FROM pg_trigger
+WHERE tgrelid = 'asistencia'::regclass AND NOT tgisinternal;
+
+ALTER TABLE asistencia RENAME TO asistencia_sin_particionar;
+ALTER TABLE asistencia_sin_particionar ALTER COLUMN id DROP DEFAULT;
+
+-- Los índices conservan el nombre antiguo y chocarían con los de la tabla nueva
+DO $$
+DECLARE
+    pk TEXT;
+    indice RECORD;
+BEGIN
+    SELECT conname INTO pk FROM pg_constraint
+    WHERE conrelid = 'asistencia_sin_particionar'::regclass AND contype = 'p';
+    IF pk IS NOT NULL THEN
+        EXECUTE format('ALTER TABLE asistencia_sin_particionar RENAME CONSTRAINT %I TO %I',
+                       pk, 'asistencia_sin_particionar_pkey');
+    END IF;
+    FOR indice IN SELECT nombre FROM asistencia_indices LOOP
+        EXECUTE format('ALTER INDEX %I RENAME TO %I', indice.nombre, indice.nombre || '_sin_particionar');
+    END LOOP;
+END $$;
+ALTER SEQUENCE asistencia_id_seq OWNED BY NONE;
+
+-- Los triggers se vuelven a crear sobre la tabla nueva después de copiar los datos
+DO $$
+DECLARE
+    disparador RECORD;
+BEGIN
+    FOR disparador IN SELECT nombre FROM asistencia_triggers LOOP
+        EXECUTE format('DROP TRIGGER %I ON asistencia_sin_particionar', disparador.nombre);
+    END LOOP;
+END $$;
+
+CREATE TABLE asistencia (
+    id         BIGINT  NOT NULL DEFAULT nextval('asistencia_id_seq'),
+    id_cliente INTEGER,
+    id_clase   INTEGER,
+    fecha      DATE    NOT NULL,
+    PRIMARY KEY (id, fecha)
+) PARTITION BY RANGE (fecha);
+
+ALTER SEQUENCE asistencia_id_seq OWNED BY asistencia.id;
+
+-- Las mismas claves ajenas que tenía la tabla original (con sus ON DELETE)
+DO $$
+DECLARE
+    fk RECORD;
+BEGIN
+    FOR fk IN
+        SELECT conname, pg_get_constraintdef(oid) AS definicion
+        FROM pg_constraint
+        WHERE conrelid = 'asistencia_sin_particionar'::regclass AND contype = 'f'
+    LOOP
+        EXECUTE format('ALTER TABLE asistencia ADD CONSTRAINT %I %s', fk.conname, fk.definicion);
+        EXECUTE format('ALTER TABLE asistencia_sin_particionar RENAME CONSTRAINT %I TO %I',
+                       fk.conname, fk.conname || '_sin_particionar');
+    END LOOP;
+END $$;
+
+-- Los índices de la tabla original (p. ej. el único de la migración 008), en cada partición
+DO $$
+DECLARE
+    indice RECORD;
+BEGIN
+    FOR indice IN SELECT nombre, definicion FROM asistencia_indices LOOP
+        BEGIN
+            EXECUTE indice.definicion;
+        EXCEPTION WHEN feature_not_supported OR invalid_table_definition THEN
+            RAISE EXCEPTION 'El índice % no se puede crear en asistencia particionada (%): %',
+                            indice.nombre, SQLERRM, indice.definicion;
+        END;
+    END LOOP;
+END $$;
+
+-- Se crean en cada partición: reservas (clase y fecha) e informes de un cliente
+CREATE INDEX IF NOT EXISTS idx_asistencia_clase_fecha ON asistencia (id_clase, fecha);
+CREATE INDEX IF NOT EXISTS idx_asistencia_cliente_fecha ON asistencia (id_cliente, fecha);
+
+CREATE TABLE asistencia_default PARTITION OF asistencia DEFAULT;
+
+-- Crea la partición del mes que contiene la fecha dada (si no existe).
+-- Si la partición por defecto ya tiene filas de ese mes, se pasan a la nueva partición antes
+-- de engancharla (ATTACH fallaría si no). Se mueven directamente entre particiones, así que
+-- los triggers de asistencia no las vuelven a contar.
+-- Devuelve true si la ha creado.
+CREATE OR REPLACE FUNCTION crear_particion_asistencia(dia DATE) RETURNS BOOLEAN AS $$
+DECLARE
+    desde  DATE := date_trunc('month', dia)::date;
+    hasta  DATE := (date_trunc('month', dia) + INTERVAL '1 month')::date;
+    nombre TEXT := format('asistencia_y%sm%s', to_char(desde, 'YYYY'), to_char(desde, 'MM'));
+BEGIN
+    IF to_regclass(nombre) IS NOT NULL THEN
+        RETURN FALSE;
+    END IF;
+
+    EXECUTE format('CREATE TABLE %I (LIKE asistencia INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', nombre);
+    EXECUTE format('ALTER TABLE %I ADD CONSTRAINT %I CHECK (fecha >= %L AND fecha < %L)',
+                   nombre, nombre || '_rango', desde, hasta);
+    EXECUTE format('WITH movidas AS (DELETE FROM asistencia_default WHERE fecha >= %L AND fecha < %L RETURNING *) '
+                   'INSERT INTO %I SELECT * FROM movidas', desde, hasta, nombre);
+    -- Con el CHECK ya puesto, ATTACH no necesita recorrer la tabla para validar el rango
+    EXECUTE format('ALTER TABLE asistencia ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                   nombre, desde, hasta);
+    EXECUTE format('ALTER TABLE %I DROP CONSTRAINT %I', nombre, nombre || '_rango');
+    RETURN TRUE;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Una partición por cada mes con datos, y hasta tres meses por delante
+DO $$
+DECLARE
+    mes DATE;
+    ultimo DATE;
+BEGIN
+    SELECT date_trunc('month', COALESCE(MIN(fecha), CURRENT_DATE))::date INTO mes FROM asistencia_sin_particionar;
+    SELECT date_trunc('month', GREATEST(COALESCE(MAX(fecha), CURRENT_DATE), CURRENT_DATE + INTERVAL '3 months'))::date
+        INTO ultimo FROM asistencia_sin_particionar;
+    WHILE mes <= ultimo LOOP
+        PERFORM crear_particion_asistencia(mes);
+        mes := (mes + INTERVAL '1 month')::date;
+    END LOOP;
+END $$;
+
+INSERT INTO asistencia (id, id_cliente, id_clase, fecha)
+SELECT id, id_cliente, id_clase, fecha FROM asistencia_sin_particionar;
+
+-- Los triggers de la tabla original, ahora que los datos ya están copiados y no se cuentan dos veces.
+-- Son de sentencia (ver 004, 005, 006 y 009): sobre la tabla particionada cubren todas las particiones
+DO $$
+DECLARE
+    disparador RECORD;
+BEGIN
+    FOR disparador IN SELECT definicion FROM asistencia_triggers LOOP
+        EXECUTE disparador.definicion;
+    END LOOP;
+END $$;
+
+COMMIT;
+
+ANALYZE asistencia;
+
+-- Verificar: solo aparece la partición del mes consultado (partition pruning)
+EXPLAIN
+SELECT COUNT(*) FROM asistencia
+WHERE fecha >= date_trunc('month', CURRENT_DATE)::date
+  AND fecha < (date_trunc('month', CURRENT_DATE) + INTERVAL '1 month')::date;
+
+-- Cuando se haya comprobado que los datos coinciden:
+-- DROP TABLE asistencia_sin_particionar;
@@ -0,0 +1,26 @@
+-- ========================================
+-- MIGRACIÓN 008: UNA SOLA ASISTENCIA POR CLIENTE, CLASE Y FECHA
+-- ========================================
+-- Los clientes pasan la tarjeta dos o tres veces seguidas. DeduplicadorFichajes descarta esos
+-- toques en memoria; esta restricción es la última barrera (tras un reinicio, con varias
+-- instancias o para los INSERT que no pasan por IngestaAsistenciasService).
+-- Incluye fecha, así que vale también con asistencia particionada (migración 007).
+--
+-- Antes se borran los duplicados que ya existan, conservando el de menor id. El borrado pasa por
+-- los triggers de asistencia, así que contadores y resúmenes (005, 006) quedan ajustados.
+
+BEGIN;
+
+LOCK TABLE asistencia IN SHARE ROW EXCLUSIVE MODE;
+
+DELETE FROM asistencia a
+USING asistencia b
+WHERE a.id_cliente = b.id_cliente
+  AND a.id_clase = b.id_clase
+  AND a.fecha = b.fecha
+  AND a.id > b.id;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_asistencia_cliente_clase_fecha
+    ON asistencia (id_cliente, id_clase, fecha);
+
+COMMIT;
@@ -0,0 +1,103 @@
+-- ========================================
+-- MIGRACIÓN 009: ACTIVIDAD POR CLIENTE (ÚLTIMA VISITA Y NÚMERO DE VISITAS)
+-- ========================================
+-- Buscar clientes que llevan N días sin venir era un MAX(fecha) ... GROUP BY id_cliente sobre toda
+-- la tabla asistencia. cliente_actividad guarda una fila por cliente con su última visita y su
+-- número de visitas, mantenida por triggers de sentencia como asistencia_conteo (005):
+-- - INSERT: se suma sin tocar asistencia (la última visita solo puede avanzar)
+-- - DELETE / UPDATE: se recalculan desde asistencia solo los clientes afectados; la búsqueda por
+--   cliente usa el índice único de la migración 008, que empieza por id_cliente
+--
+-- Las visitas de los últimos 30 días cambian cada día aunque no haya asistencias nuevas, así que
+-- no se guardan aquí: las calcula en memoria IndiceActividad.
+--
+-- ActividadClientesService.reconstruir() rehace la tabla en paralelo por tramos de clientes.
+
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS cliente_actividad (
+    id_cliente    INTEGER NOT NULL PRIMARY KEY REFERENCES cliente(id) ON DELETE CASCADE,
+    ultima_visita DATE    NOT NULL,
+    visitas       BIGINT  NOT NULL CHECK (visitas > 0)
+);
+
+-- "Inactivos desde X" en SQL: rango sobre el índice, sin recorrer la tabla
+CREATE INDEX IF NOT EXISTS idx_cliente_actividad_ultima_visita ON cliente_actividad (ultima_visita);
+
+CREATE OR REPLACE FUNCTION cliente_actividad_recalcular(ids INTEGER[]) RETURNS void AS $$
+BEGIN
+    DELETE FROM cliente_actividad ca
+    WHERE ca.id_cliente = ANY(ids)
+      AND NOT EXISTS (SELECT 1 FROM asistencia a WHERE a.id_cliente = ca.id_cliente);
+
+    INSERT INTO cliente_actividad (id_cliente, ultima_visita, visitas)
+    SELECT a.id_cliente, MAX(a.fecha), COUNT(*)
+    FROM asistencia a
+    WHERE a.id_cliente = ANY(ids)
+    GROUP BY a.id_cliente
+    ON CONFLICT (id_cliente) DO UPDATE
+        SET ultima_visita = EXCLUDED.ultima_visita, visitas = EXCLUDED.visitas;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION cliente_actividad_sumar() RETURNS trigger AS $$
+BEGIN
+    INSERT INTO cliente_actividad (id_cliente, ultima_visita, visitas)
+    SELECT id_cliente, MAX(fecha), COUNT(*) FROM nuevas
+    WHERE id_cliente IS NOT NULL
+    GROUP BY id_cliente
+    ON CONFLICT (id_cliente) DO UPDATE
+        SET ultima_visita = GREATEST(cliente_actividad.ultima_visita, EXCLUDED.ultima_visita),
+            visitas = cliente_actividad.visitas + EXCLUDED.visitas;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION cliente_actividad_restar() RETURNS trigger AS $$
+BEGIN
+    PERFORM cliente_actividad_recalcular(
+        ARRAY(SELECT DISTINCT id_cliente FROM borradas WHERE id_cliente IS NOT NULL));
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION cliente_actividad_mover() RETURNS trigger AS $$
+BEGIN
+    PERFORM cliente_actividad_recalcular(
+        ARRAY(SELECT id_cliente FROM borradas WHERE id_cliente IS NOT NULL
+              UNION
+              SELECT id_cliente FROM nuevas WHERE id_cliente IS NOT NULL));
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_cliente_actividad_insert ON asistencia;
+CREATE TRIGGER trg_cliente_actividad_insert
+    AFTER INSERT ON asistencia
+    REFERENCING NEW TABLE AS nuevas
+    FOR EACH STATEMENT EXECUTE FUNCTION cliente_actividad_sumar();
+
+DROP TRIGGER IF EXISTS trg_cliente_actividad_delete ON asistencia;
+CREATE TRIGGER trg_cliente_actividad_delete
+    AFTER DELETE ON asistencia
+    REFERENCING OLD TABLE AS borradas
+    FOR EACH STATEMENT EXECUTE FUNCTION cliente_actividad_restar();
+
+DROP TRIGGER IF EXISTS trg_cliente_actividad_update ON asistencia;
+CREATE TRIGGER trg_cliente_actividad_update
+    AFTER UPDATE ON asistencia
+    REFERENCING OLD TABLE AS borradas NEW TABLE AS nuevas
+    FOR EACH STATEMENT EXECUTE FUNCTION cliente_actividad_mover();
+
+-- Partir de las asistencias ya registradas (sin inserciones nuevas mientras tanto)
+LOCK TABLE asistencia IN SHARE MODE;
+
+INSERT INTO cliente_actividad (id_cliente, ultima_visita, visitas)
+SELECT id_cliente, MAX(fecha), COUNT(*)
+FROM asistencia
+WHERE id_cliente IS NOT NULL
+GROUP BY id_cliente
+ON CONFLICT (id_cliente) DO UPDATE
+    SET ultima_visita = EXCLUDED.ultima_visita, visitas = EXCLUDED.visitas;
+
+COMMIT;
@@ -0,0 +1,23 @@
+-- ========================================
+-- MIGRACIÓN 010: BÚSQUEDA DE CLASES POR NOMBRE NORMALIZADO
+-- ========================================
+-- Sin el catálogo en memoria, ClaseService busca las clases de un nombre (sin distinguir
+-- mayúsculas, tildes ni espacios alrededor) o con más cupo que un mínimo con
+-- ClaseDAO.getByNombreOrCupoMayor. La comparación normaliza la columna, así que necesita un
+-- índice sobre la misma expresión; el del cupo permite combinar los dos con un BitmapOr en
+-- lugar de recorrer la tabla.
+--
+-- La expresión debe ser idéntica a la de ClaseDAO.normalizado(). translate() en lugar de
+-- unaccent(): no hace falta la extensión y la expresión es IMMUTABLE, como exige un índice.
+
+CREATE INDEX IF NOT EXISTS idx_clase_nombre_normalizado
+    ON clase (lower(translate(btrim(nombre), 'ÁÀÂÄÃÉÈÊËÍÌÎÏÓÒÔÖÕÚÙÛÜÑÇáàâäãéèêëíìîïóòôöõúùûüñç', 'AAAAAEEEEIIIIOOOOOUUUUNCaaaaaeeeeiiiiooooouuuunc')));
+
+CREATE INDEX IF NOT EXISTS idx_clase_cupo_maximo ON clase (cupo_maximo);
+
+-- Verificar que la consulta usa los índices (Bitmap Index Scan sobre los dos, BitmapOr)
+EXPLAIN
+SELECT id, nombre, cupo_maximo FROM clase
+WHERE lower(translate(btrim(nombre), 'ÁÀÂÄÃÉÈÊËÍÌÎÏÓÒÔÖÕÚÙÛÜÑÇáàâäãéèêëíìîïóòôöõúùûüñç', 'AAAAAEEEEIIIIOOOOOUUUUNCaaaaaeeeeiiiiooooouuuunc'))
+      = lower(translate(btrim('Crossfit'), 'ÁÀÂÄÃÉÈÊËÍÌÎÏÓÒÔÖÕÚÙÛÜÑÇáàâäãéèêëíìîïóòôöõúùûüñç', 'AAAAAEEEEIIIIOOOOOUUUUNCaaaaaeeeeiiiiooooouuuunc'))
+   OR cupo_maximo > 20;
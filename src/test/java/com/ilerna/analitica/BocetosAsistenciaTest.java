@@ -0,0 +1,111 @@
+package com.ilerna.analitica;
+
+import com.ilerna.dto.Periodo;
+
+import java.time.LocalDate;
+import java.util.NavigableMap;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Pruebas de los bocetos diarios de asistencia
+ */
+public class BocetosAsistenciaTest extends TestCase
+{
+    // Lunes
+    private static final LocalDate INICIO = LocalDate.of(2024, 4, 1);
+
+    public BocetosAsistenciaTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( BocetosAsistenciaTest.class );
+    }
+
+    public void testDiasSeAgrupanEnSemanasYMeses()
+    {
+        BocetosAsistencia bocetos = new BocetosAsistencia(0.01, 0.001, 0.01, 100, 92);
+        // 61 días; cada día van los clientes [dia*10, dia*10 + 1000) a la clase 1
+        for (int d = 0; d < 61; d++) {
+            LocalDate dia = INICIO.plusDays(d);
+            for (int c = d * 10; c < d * 10 + 1000; c++) {
+                bocetos.anadir(c, 1, dia);
+            }
+        }
+        LocalDate fin = INICIO.plusDays(60);
+
+        NavigableMap<LocalDate, Long> porDia = bocetos.clientesDistintosPorPeriodo(1, Periodo.DIA, INICIO, fin);
+        assertEquals(61, porDia.size());
+        assertCerca(1000, porDia.firstEntry().getValue());
+
+        NavigableMap<LocalDate, Long> porSemana = bocetos.clientesDistintosPorPeriodo(1, Periodo.SEMANA, INICIO, fin);
+        assertEquals(INICIO, porSemana.firstKey());
+        // Una semana completa: clientes [0, 1060)
+        assertCerca(1060, porSemana.firstEntry().getValue());
+
+        NavigableMap<LocalDate, Long> porMes = bocetos.clientesDistintosPorPeriodo(1, Periodo.MES, INICIO, fin);
+        assertEquals(2, porMes.size());
+        // Abril: clientes [0, 1290)
+        assertCerca(1290, porMes.get(INICIO));
+
+        assertEquals(61_000, bocetos.asistencias(INICIO, fin));
+        assertTrue(bocetos.clientesDistintosPorPeriodo(2, Periodo.MES, INICIO, fin).isEmpty());
+    }
+
+    public void testClientesMasActivosEnUnRango()
+    {
+        BocetosAsistencia bocetos = new BocetosAsistencia();
+        for (int d = 0; d < 30; d++) {
+            LocalDate dia = INICIO.plusDays(d);
+            // El cliente 7 viene todos los días a dos clases; el resto, una vez en todo el mes
+            bocetos.anadir(7, 1, dia);
+            bocetos.anadir(7, 2, dia);
+            for (int c = 0; c < 300; c++) {
+                bocetos.anadir(1_000 + d * 300 + c, 1, dia);
+            }
+        }
+        ContadorFrecuentes.Frecuente primero = bocetos.clientesMasActivos(5, INICIO, INICIO.plusDays(29)).get(0);
+        assertEquals(7, primero.getClave());
+        assertEquals(60, primero.getCuenta());
+        assertTrue(bocetos.asistenciasEstimadas(7, INICIO, INICIO.plusDays(9)) >= 20);
+    }
+
+    public void testSoloSeConservanLosUltimosDias()
+    {
+        BocetosAsistencia bocetos = new BocetosAsistencia(0.02, 0.01, 0.01, 10, 7);
+        bocetos.anadir(1, 1, INICIO);
+        bocetos.anadir(1, 1, INICIO.plusDays(6));
+        assertEquals(2, bocetos.asistencias(INICIO, INICIO.plusDays(6)));
+
+        // El día 7 saca de la ventana al día 0
+        bocetos.anadir(1, 1, INICIO.plusDays(7));
+        assertEquals(2, bocetos.asistencias(INICIO, INICIO.plusDays(7)));
+        // Lo que llega fuera de la ventana se ignora
+        bocetos.anadir(1, 1, INICIO);
+        assertEquals(2, bocetos.asistencias(INICIO, INICIO.plusDays(7)));
+    }
+
+    public void testVaciosConservaLosParametrosSinLosDatos()
+    {
+        BocetosAsistencia bocetos = new BocetosAsistencia(0.02, 0.01, 0.01, 10, 7);
+        bocetos.anadir(1, 1, INICIO);
+        BocetosAsistencia vacios = bocetos.vacios();
+        assertEquals(7, vacios.getDiasRetenidos());
+        assertEquals(0, vacios.asistencias(INICIO, INICIO.plusDays(6)));
+        // Se rellenan por separado: volver a leer no suma a lo que ya tenían los anteriores
+        vacios.anadir(1, 1, INICIO);
+        assertEquals(1, vacios.asistencias(INICIO, INICIO));
+        assertEquals(1, bocetos.asistencias(INICIO, INICIO));
+    }
+
+    private static void assertCerca(long esperado, long estimado)
+    {
+        assertTrue("esperado " + esperado + ", estimado " + estimado,
+                Math.abs(estimado - esperado) <= esperado * 0.05);
+    }
+}
@@ -0,0 +1,98 @@
+package com.ilerna.analitica;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Pruebas de Space-Saving y Count-Min frente a un recuento exacto
+ */
+public class ContadorFrecuentesTest extends TestCase
+{
+    public ContadorFrecuentesTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( ContadorFrecuentesTest.class );
+    }
+
+    public void testEncuentraLosMasFrecuentes()
+    {
+        ContadorFrecuentes contador = new ContadorFrecuentes(100);
+        Map<Integer, Long> exacto = new HashMap<>();
+        flujo(new Random(1), contador, null, exacto, 200_000);
+
+        List<ContadorFrecuentes.Frecuente> top = contador.top(10);
+        assertEquals(10, top.size());
+        for (int i = 0; i < 10; i++) {
+            ContadorFrecuentes.Frecuente frecuente = top.get(i);
+            long real = exacto.get(frecuente.getClave());
+            assertTrue(frecuente.getCuenta() >= real);
+            assertTrue(frecuente.getMinimo() <= real);
+            // Los diez clientes "habituales" del flujo son los del top
+            assertTrue("clave " + frecuente.getClave(), frecuente.getClave() < 10);
+        }
+    }
+
+    public void testFusionarConservaLasGarantias()
+    {
+        Random random = new Random(2);
+        ContadorFrecuentes lunes = new ContadorFrecuentes(50);
+        ContadorFrecuentes martes = new ContadorFrecuentes(50);
+        Map<Integer, Long> exacto = new HashMap<>();
+        flujo(random, lunes, null, exacto, 50_000);
+        flujo(random, martes, null, exacto, 50_000);
+
+        lunes.fusionar(martes);
+        assertEquals(100_000, lunes.getTotal());
+        for (ContadorFrecuentes.Frecuente frecuente : lunes.top(10)) {
+            long real = exacto.get(frecuente.getClave());
+            assertTrue(frecuente.getCuenta() >= real);
+            assertTrue(frecuente.getMinimo() <= real);
+            assertTrue(frecuente.getClave() < 10);
+        }
+    }
+
+    public void testCountMinNuncaSeQuedaCorto()
+    {
+        CountMin cm = new CountMin(0.001, 0.01);
+        Map<Integer, Long> exacto = new HashMap<>();
+        flujo(new Random(3), null, cm, exacto, 200_000);
+
+        int fueraDeMargen = 0;
+        for (Map.Entry<Integer, Long> entrada : exacto.entrySet()) {
+            long estimado = cm.estimar(entrada.getKey());
+            assertTrue(estimado >= entrada.getValue());
+            if (estimado - entrada.getValue() > 0.001 * cm.getTotal()) {
+                fueraDeMargen++;
+            }
+        }
+        assertTrue("Fuera de margen: " + fueraDeMargen, fueraDeMargen <= exacto.size() * 0.01 + 1);
+    }
+
+    /**
+     * Diez clientes habituales (la mitad de las asistencias) y el resto repartido entre 20000
+     */
+    private static void flujo(Random random, ContadorFrecuentes contador, CountMin cm,
+                              Map<Integer, Long> exacto, int n)
+    {
+        for (int i = 0; i < n; i++) {
+            int clave = random.nextBoolean() ? random.nextInt(10) : 10 + random.nextInt(20_000);
+            if (contador != null) {
+                contador.anadir(clave, 1);
+            }
+            if (cm != null) {
+                cm.anadir(clave, 1);
+            }
+            exacto.merge(clave, 1L, Long::sum);
+        }
+    }
+}
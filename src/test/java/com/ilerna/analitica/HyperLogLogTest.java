@@ -0,0 +1,70 @@
+package com.ilerna.analitica;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Pruebas del estimador de distintos
+ */
+public class HyperLogLogTest extends TestCase
+{
+    public HyperLogLogTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( HyperLogLogTest.class );
+    }
+
+    public void testErrorDentroDelMargen()
+    {
+        HyperLogLog hll = new HyperLogLog(HyperLogLog.precisionPara(0.02));
+        for (int n : new int[] {10, 1_000, 100_000, 1_000_000}) {
+            HyperLogLog estimador = new HyperLogLog(hll.getPrecision());
+            for (int i = 0; i < n; i++) {
+                // Repetidos: no deben contar
+                estimador.anadir(i * 50L + 1);
+                estimador.anadir(i * 50L + 1);
+            }
+            double error = Math.abs(estimador.estimar() - n) / (double) n;
+            // Tres errores típicos
+            assertTrue("n=" + n + " error=" + error, error < 3 * estimador.getErrorTipico());
+        }
+    }
+
+    public void testFusionarEquivaleAAnadirTodo()
+    {
+        HyperLogLog a = new HyperLogLog(12);
+        HyperLogLog b = new HyperLogLog(12);
+        HyperLogLog todo = new HyperLogLog(12);
+        for (long i = 0; i < 50_000; i++) {
+            (i % 3 == 0 ? a : b).anadir(i);
+            todo.anadir(i);
+            if (i % 5 == 0) {
+                // Solapados entre los dos
+                a.anadir(i);
+            }
+        }
+        a.fusionar(b);
+        assertEquals(todo.estimar(), a.estimar());
+    }
+
+    public void testPrecisionesDistintasNoSeFusionan()
+    {
+        try {
+            new HyperLogLog(10).fusionar(new HyperLogLog(11));
+            fail("Debería rechazar precisiones distintas");
+        } catch (IllegalArgumentException e) {
+            // esperado
+        }
+    }
+
+    public void testPrecisionParaUnError()
+    {
+        assertEquals(11, HyperLogLog.precisionPara(0.023));
+        assertEquals(14, HyperLogLog.precisionPara(0.0082));
+    }
+}
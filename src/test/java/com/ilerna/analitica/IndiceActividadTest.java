@@ -0,0 +1,97 @@
+package com.ilerna.analitica;
+
+import com.ilerna.dto.ActividadCliente;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Pruebas del índice de actividad por cliente
+ */
+public class IndiceActividadTest extends TestCase
+{
+    private static final LocalDate HOY = LocalDate.of(2024, 6, 30);
+
+    public IndiceActividadTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( IndiceActividadTest.class );
+    }
+
+    public void testUltimaVisitaTotalYVentana()
+    {
+        IndiceActividad indice = new IndiceActividad(16);
+        indice.registrar(1, HOY.minusDays(40));
+        indice.registrar(1, HOY.minusDays(10));
+        indice.registrar(1, HOY.minusDays(29));
+        // Una visita antigua que llega tarde no retrasa la última visita
+        indice.registrar(1, HOY.minusDays(100));
+
+        ActividadCliente actividad = indice.getActividad(1, HOY);
+        assertEquals(HOY.minusDays(10), actividad.getUltimaVisita());
+        assertEquals(Long.valueOf(4), actividad.getVisitas());
+        assertEquals(Integer.valueOf(2), actividad.getVisitasUltimos30Dias());
+        assertNull(indice.getActividad(2, HOY));
+    }
+
+    public void testLaVentanaAvanzaConLosDias()
+    {
+        IndiceActividad indice = new IndiceActividad(16);
+        indice.registrar(1, HOY);
+        indice.registrar(2, HOY.minusDays(1));
+        assertEquals(Integer.valueOf(1), indice.getActividad(2, HOY).getVisitasUltimos30Dias());
+
+        // 29 días después la visita de hoy sigue dentro de la ventana y la de ayer ya no
+        LocalDate despues = HOY.plusDays(29);
+        indice.registrar(1, despues);
+        assertEquals(Integer.valueOf(2), indice.getActividad(1, despues).getVisitasUltimos30Dias());
+        // El día nuevo usa la casilla de ayer: se vació antes de reutilizarla
+        assertEquals(Integer.valueOf(0), indice.getActividad(2, despues).getVisitasUltimos30Dias());
+        // Sin más visitas, la de despues sale de la ventana a los 30 días
+        assertEquals(Integer.valueOf(1), indice.getActividad(1, despues.plusDays(29)).getVisitasUltimos30Dias());
+        assertEquals(Integer.valueOf(0), indice.getActividad(1, despues.plusDays(30)).getVisitasUltimos30Dias());
+    }
+
+    public void testInactivosDesde()
+    {
+        IndiceActividad indice = new IndiceActividad(2);
+        for (int id = 1; id <= 100; id++) {
+            indice.registrar(id, HOY.minusDays(id));
+        }
+        // El 5 vuelve hoy: sale de su grupo antiguo
+        indice.registrar(5, HOY);
+
+        MapaBits inactivos = indice.inactivosDesde(HOY.minusDays(95));
+        assertTrue(Arrays.equals(new int[] {96, 97, 98, 99, 100}, inactivos.toArray()));
+        assertEquals(99, indice.contarInactivosDesde(HOY));
+        assertFalse(indice.inactivosDesde(HOY.minusDays(4)).contiene(5));
+        assertEquals(100, indice.getNumeroClientes());
+    }
+
+    public void testResumenMasVentana()
+    {
+        IndiceActividad indice = new IndiceActividad(16);
+        indice.fijarResumen(7, HOY.minusDays(3), 250);
+        indice.anadirVentanaTodas(new int[] {7, 7, 8}, new int[] {1, 2, 1},
+                new int[] {(int) HOY.minusDays(3).toEpochDay(), (int) HOY.minusDays(20).toEpochDay(),
+                           (int) HOY.toEpochDay()}, 0, 3);
+
+        ActividadCliente actividad = indice.getActividad(7, HOY);
+        assertEquals(Long.valueOf(250), actividad.getVisitas());
+        assertEquals(Integer.valueOf(2), actividad.getVisitasUltimos30Dias());
+        // Solo en la ventana, sin resumen todavía
+        assertNull(indice.getActividad(8, HOY));
+
+        indice.registrar(7, HOY);
+        assertEquals(Long.valueOf(251), indice.getActividad(7, HOY).getVisitas());
+        assertEquals(0, indice.contarInactivosDesde(HOY));
+    }
+}
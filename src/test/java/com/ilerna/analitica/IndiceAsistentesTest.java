@@ -0,0 +1,132 @@
+package com.ilerna.analitica;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Pruebas del índice de asistentes por clase y día
+ */
+public class IndiceAsistentesTest extends TestCase
+{
+    private static final int YOGA = 1;
+    private static final int CROSSFIT = 51;
+    private static final int PILATES = 101;
+    private static final int CARDIO = 151;
+    private static final LocalDate UNO_MAYO = LocalDate.of(2024, 5, 1);
+    private static final LocalDate TREINTA_Y_UNO_MAYO = LocalDate.of(2024, 5, 31);
+
+    private IndiceAsistentes indice;
+
+    public IndiceAsistentesTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( IndiceAsistentesTest.class );
+    }
+
+    @Override
+    protected void setUp()
+    {
+        indice = new IndiceAsistentes();
+        // Clientes 1..3 hacen Yoga en mayo; 2 y 3 también Crossfit (3 en abril, fuera del mes)
+        indice.anadir(1, YOGA, UNO_MAYO);
+        indice.anadir(2, YOGA, UNO_MAYO.plusDays(3));
+        indice.anadir(3, YOGA, UNO_MAYO.plusDays(10));
+        indice.anadir(2, CROSSFIT, UNO_MAYO.plusDays(20));
+        indice.anadir(3, CROSSFIT, UNO_MAYO.minusDays(5));
+        // Pilates: 4, 5 y 6; 5 también va a Cardio
+        indice.anadir(4, PILATES, UNO_MAYO);
+        indice.anadir(5, PILATES, UNO_MAYO);
+        indice.anadir(6, PILATES, UNO_MAYO.plusDays(1));
+        indice.anadir(5, CARDIO, UNO_MAYO.plusDays(2));
+    }
+
+    public void testDeTodasEnElRango()
+    {
+        MapaBits ambos = indice.asistentesDeTodas(Arrays.asList(YOGA, CROSSFIT), UNO_MAYO, TREINTA_Y_UNO_MAYO);
+        assertTrue(Arrays.equals(new int[] {2}, ambos.toArray()));
+    }
+
+    public void testDeAlguna()
+    {
+        MapaBits alguna = indice.asistentesDeAlguna(Arrays.asList(YOGA, CARDIO), UNO_MAYO, TREINTA_Y_UNO_MAYO);
+        assertTrue(Arrays.equals(new int[] {1, 2, 3, 5}, alguna.toArray()));
+    }
+
+    public void testSinIr()
+    {
+        MapaBits soloPilates = indice.asistentesSinIr(Collections.singletonList(PILATES),
+                Collections.singletonList(CARDIO), UNO_MAYO, TREINTA_Y_UNO_MAYO);
+        assertTrue(Arrays.equals(new int[] {4, 6}, soloPilates.toArray()));
+    }
+
+    public void testClaseSinAsistencias()
+    {
+        assertTrue(indice.asistentes(999, UNO_MAYO, TREINTA_Y_UNO_MAYO).isEmpty());
+    }
+
+    public void testRepetirNoCambiaNada()
+    {
+        int conjuntos = indice.getNumeroConjuntos();
+        indice.anadir(1, YOGA, UNO_MAYO);
+        assertEquals(conjuntos, indice.getNumeroConjuntos());
+        assertEquals(3, indice.asistentes(YOGA, UNO_MAYO, TREINTA_Y_UNO_MAYO).cardinalidad());
+    }
+
+    public void testQuitarDeshaceLaAsistencia()
+    {
+        int conjuntos = indice.getNumeroConjuntos();
+        assertTrue(indice.quitar(5, CARDIO, UNO_MAYO.plusDays(2)));
+        assertFalse(indice.quitar(5, CARDIO, UNO_MAYO.plusDays(2)));
+        assertFalse(indice.quitar(5, YOGA, UNO_MAYO));
+        // Cardio se queda sin nadie: no deja conjuntos vacíos
+        assertEquals(conjuntos - 1, indice.getNumeroConjuntos());
+        MapaBits soloPilates = indice.asistentesSinIr(Collections.singletonList(PILATES),
+                Collections.singletonList(CARDIO), UNO_MAYO, TREINTA_Y_UNO_MAYO);
+        assertTrue(Arrays.equals(new int[] {4, 5, 6}, soloPilates.toArray()));
+    }
+
+    public void testGuardarYCargar() throws IOException
+    {
+        Path archivo = Files.createTempFile("indice-asistentes", ".bin");
+        try {
+            indice.setUltimoId(123456789012L);
+            indice.guardar(archivo);
+            IndiceAsistentes cargado = IndiceAsistentes.cargar(archivo);
+            assertEquals(123456789012L, cargado.getUltimoId());
+            assertEquals(indice.getUltimoDia(), cargado.getUltimoDia());
+            assertEquals(indice.getNumeroConjuntos(), cargado.getNumeroConjuntos());
+            assertEquals(indice.asistentesDeAlguna(Arrays.asList(YOGA, CROSSFIT, PILATES, CARDIO),
+                            UNO_MAYO.minusMonths(1), TREINTA_Y_UNO_MAYO),
+                    cargado.asistentesDeAlguna(Arrays.asList(YOGA, CROSSFIT, PILATES, CARDIO),
+                            UNO_MAYO.minusMonths(1), TREINTA_Y_UNO_MAYO));
+        } finally {
+            Files.deleteIfExists(archivo);
+        }
+    }
+
+    public void testArchivoAjenoSeRechaza() throws IOException
+    {
+        Path archivo = Files.createTempFile("indice-asistentes", ".bin");
+        try {
+            Files.write(archivo, "no es un índice".getBytes("UTF-8"));
+            IndiceAsistentes.cargar(archivo);
+            fail("Debería rechazar un archivo que no es un índice");
+        } catch (IOException e) {
+            // esperado
+        } finally {
+            Files.deleteIfExists(archivo);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.ilerna.analitica;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Pruebas del conjunto de bits comprimido: cada operación se compara con un TreeSet
+ */
+public class MapaBitsTest extends TestCase
+{
+    public MapaBitsTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( MapaBitsTest.class );
+    }
+
+    public void testAnadirYContiene()
+    {
+        MapaBits mapa = new MapaBits();
+        assertTrue(mapa.anadir(7));
+        assertFalse(mapa.anadir(7));
+        assertTrue(mapa.anadir(70_000));
+        assertTrue(mapa.contiene(7));
+        assertTrue(mapa.contiene(70_000));
+        assertFalse(mapa.contiene(8));
+        assertEquals(2, mapa.cardinalidad());
+        assertTrue(Arrays.equals(new int[] {7, 70_000}, mapa.toArray()));
+    }
+
+    public void testOperacionesConGruposDispersosYDensos()
+    {
+        Random random = new Random(3);
+        // Grupo 0 denso (pasa a mapa de bits), grupo 1 disperso, resto muy disperso
+        TreeSet<Integer> a = aleatorio(random, 20_000, 65_536);
+        a.addAll(aleatorio(random, 500, 200_000));
+        TreeSet<Integer> b = aleatorio(random, 30_000, 131_072);
+        b.addAll(aleatorio(random, 2_000, 5_000_000));
+
+        MapaBits ma = de(a);
+        MapaBits mb = de(b);
+        assertEquals(a.size(), ma.cardinalidad());
+
+        TreeSet<Integer> y = new TreeSet<>(a);
+        y.retainAll(b);
+        TreeSet<Integer> o = new TreeSet<>(a);
+        o.addAll(b);
+        TreeSet<Integer> menos = new TreeSet<>(a);
+        menos.removeAll(b);
+
+        assertEquals(y, aSet(ma.y(mb)));
+        assertEquals(o, aSet(ma.o(mb)));
+        assertEquals(menos, aSet(ma.menos(mb)));
+        TreeSet<Integer> menosAlReves = new TreeSet<>(b);
+        menosAlReves.removeAll(a);
+        assertEquals(menosAlReves, aSet(mb.menos(ma)));
+
+        // Los operandos no cambian
+        assertEquals(a, aSet(ma));
+        assertEquals(b, aSet(mb));
+    }
+
+    public void testQuitarVuelveAArrayYVaciaGrupos()
+    {
+        Random random = new Random(7);
+        // Grupo 0 denso (mapa de bits) y grupo 2 disperso
+        TreeSet<Integer> valores = aleatorio(random, 10_000, 65_536);
+        valores.addAll(Arrays.asList(131_072, 131_073));
+        MapaBits mapa = de(valores);
+
+        assertFalse(mapa.quitar(65_536));
+        TreeSet<Integer> quitados = new TreeSet<>();
+        for (int v : valores) {
+            if (v < 65_536 && quitados.size() < valores.size() - 3_000 - 2) {
+                assertTrue(mapa.quitar(v));
+                quitados.add(v);
+            }
+        }
+        valores.removeAll(quitados);
+        assertEquals(valores, aSet(mapa));
+
+        assertTrue(mapa.quitar(131_072));
+        assertTrue(mapa.quitar(131_073));
+        assertFalse(mapa.contiene(131_073));
+        assertEquals(3_000, mapa.cardinalidad());
+        for (int v : aSet(mapa)) {
+            mapa.quitar(v);
+        }
+        assertTrue(mapa.isEmpty());
+    }
+
+    public void testMenosConsigoMismoQuedaVacio()
+    {
+        MapaBits mapa = de(aleatorio(new Random(5), 10_000, 65_536));
+        assertTrue(mapa.menos(mapa).isEmpty());
+        assertEquals(mapa, mapa.y(mapa));
+    }
+
+    public void testEscribirYLeer() throws IOException
+    {
+        Random random = new Random(11);
+        TreeSet<Integer> valores = aleatorio(random, 10_000, 65_536);
+        valores.addAll(aleatorio(random, 100, 10_000_000));
+        MapaBits mapa = de(valores);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        mapa.escribir(new DataOutputStream(bytes));
+        MapaBits leido = MapaBits.leer(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(valores, aSet(leido));
+    }
+
+    public void testArchivoCorruptoSeRechaza()
+    {
+        byte[] basura = {0, 0, 0, 1, 0, 0, 7};
+        try {
+            MapaBits.leer(new DataInputStream(new ByteArrayInputStream(basura)));
+            fail("Debería rechazar un tipo de grupo desconocido");
+        } catch (IOException e) {
+            // esperado
+        }
+    }
+
+    private static TreeSet<Integer> aleatorio(Random random, int n, int limite)
+    {
+        TreeSet<Integer> valores = new TreeSet<>();
+        for (int i = 0; i < n; i++) {
+            valores.add(random.nextInt(limite));
+        }
+        return valores;
+    }
+
+    private static MapaBits de(TreeSet<Integer> valores)
+    {
+        MapaBits mapa = new MapaBits();
+        for (int v : valores) {
+            mapa.anadir(v);
+        }
+        return mapa;
+    }
+
+    private static TreeSet<Integer> aSet(MapaBits mapa)
+    {
+        TreeSet<Integer> valores = new TreeSet<>();
+        mapa.paraCada(valores::add);
+        return valores;
+    }
+}
@@ -0,0 +1,67 @@
+package com.ilerna.analitica;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Pruebas del mapa de int a int
+ */
+public class MapaIntIntTest extends TestCase
+{
+    public MapaIntIntTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( MapaIntIntTest.class );
+    }
+
+    public void testCoincideConHashMap()
+    {
+        MapaIntInt mapa = new MapaIntInt(4);
+        Map<Integer, Integer> esperado = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 50_000; i++) {
+            int clave = random.nextInt(20_000) * 50 + 1;
+            int valor = random.nextInt();
+            if (valor == MapaIntInt.AUSENTE) {
+                continue;
+            }
+            mapa.put(clave, valor);
+            esperado.put(clave, valor);
+        }
+        assertEquals(esperado.size(), mapa.size());
+        for (Map.Entry<Integer, Integer> entrada : esperado.entrySet()) {
+            assertEquals(entrada.getValue().intValue(), mapa.get(entrada.getKey()));
+        }
+        assertEquals(MapaIntInt.AUSENTE, mapa.get(2));
+    }
+
+    public void testClaveIgualAlMarcadorDeHuecoLibre()
+    {
+        MapaIntInt mapa = new MapaIntInt();
+        assertEquals(MapaIntInt.AUSENTE, mapa.get(Integer.MIN_VALUE));
+        mapa.put(Integer.MIN_VALUE, 5);
+        mapa.sumar(Integer.MIN_VALUE, 2);
+        assertEquals(7, mapa.get(Integer.MIN_VALUE));
+        assertEquals(1, mapa.size());
+    }
+
+    public void testSumarYCopia()
+    {
+        MapaIntInt mapa = new MapaIntInt();
+        mapa.sumar(10, 3);
+        mapa.sumar(10, 4);
+        MapaIntInt copia = mapa.copia();
+        mapa.sumar(10, 1);
+        assertEquals(8, mapa.get(10));
+        assertEquals(7, copia.get(10));
+    }
+}
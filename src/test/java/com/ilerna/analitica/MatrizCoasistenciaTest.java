@@ -0,0 +1,133 @@
+package com.ilerna.analitica;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Pruebas de la matriz de coasistencia: la incremental y la recalculada se comparan con un
+ * recuento directo de pares
+ */
+public class MatrizCoasistenciaTest extends TestCase
+{
+    private static final int CLIENTES = 20_000;
+    private static final int CLASES = 40;
+
+    public MatrizCoasistenciaTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( MatrizCoasistenciaTest.class );
+    }
+
+    public void testEjemploPequeno()
+    {
+        MatrizCoasistencia matriz = new MatrizCoasistencia();
+        // Yoga (1) con Pilates (2) dos clientes, con Crossfit (3) uno; repetir no cuenta
+        matriz.registrar(10, 1);
+        matriz.registrar(10, 2);
+        matriz.registrar(10, 2);
+        matriz.registrar(11, 1);
+        matriz.registrar(11, 3);
+        matriz.registrar(12, 2);
+        matriz.registrar(12, 1);
+
+        List<ConteoPorId> relacionadas = matriz.relacionadas(1, 5);
+        assertEquals(2, relacionadas.size());
+        assertEquals(2, relacionadas.get(0).getId());
+        assertEquals(2, relacionadas.get(0).getTotal());
+        assertEquals(3, relacionadas.get(1).getId());
+        assertEquals(1, relacionadas.get(1).getTotal());
+        assertEquals(1, matriz.relacionadas(1, 1).size());
+        assertEquals(3, matriz.asistentes(1));
+        assertEquals(0, matriz.coasistencia(2, 3));
+        assertTrue(matriz.relacionadas(99, 3).isEmpty());
+    }
+
+    public void testIncrementalYRecalculadaCoincidenConElRecuento()
+    {
+        Random random = new Random(11);
+        int filas = 100_000;
+        int[] clientes = new int[filas];
+        int[] clases = new int[filas];
+        for (int i = 0; i < filas; i++) {
+            clientes[i] = 1 + random.nextInt(CLIENTES);
+            // Clases con popularidad muy distinta
+            clases[i] = 1 + (int) (CLASES * Math.pow(random.nextDouble(), 2));
+        }
+
+        MatrizCoasistencia incremental = new MatrizCoasistencia();
+        incremental.registrarTodas(clientes, clases, null, 0, filas);
+        MatrizCoasistencia recalculada = new MatrizCoasistencia();
+        recalculada.anotarTodas(clientes, clases, null, 0, filas / 2);
+        recalculada.recalcular();
+        // Después de recalcular sigue siendo incremental
+        recalculada.registrarTodas(clientes, clases, null, filas / 2, filas);
+
+        Map<Long, Integer> esperado = recuento(clientes, clases);
+        for (MatrizCoasistencia matriz : new MatrizCoasistencia[] {incremental, recalculada}) {
+            for (int clase = 1; clase <= CLASES; clase++) {
+                List<ConteoPorId> relacionadas = matriz.relacionadas(clase, CLASES);
+                for (int i = 0; i < relacionadas.size(); i++) {
+                    ConteoPorId relacionada = relacionadas.get(i);
+                    assertEquals(esperado.get(par(clase, relacionada.getId())).longValue(), relacionada.getTotal());
+                    if (i > 0) {
+                        assertTrue(relacionadas.get(i - 1).getTotal() >= relacionada.getTotal());
+                    }
+                }
+                for (int otra = 1; otra <= CLASES; otra++) {
+                    Integer cuenta = esperado.get(par(clase, otra));
+                    assertEquals(cuenta == null ? 0 : cuenta.intValue(), matriz.coasistencia(clase, otra));
+                }
+            }
+        }
+    }
+
+    public void testConsultarConAnotacionesPendientesFalla()
+    {
+        MatrizCoasistencia matriz = new MatrizCoasistencia();
+        matriz.anotarTodas(new int[] {1, 1}, new int[] {1, 2}, null, 0, 2);
+        try {
+            matriz.relacionadas(1, 3);
+            fail("Debería exigir recalcular()");
+        } catch (IllegalStateException e) {
+            // esperado
+        }
+        matriz.recalcular();
+        assertEquals(1, matriz.coasistencia(1, 2));
+    }
+
+    private static Map<Long, Integer> recuento(int[] clientes, int[] clases)
+    {
+        Map<Integer, Set<Integer>> porCliente = new HashMap<>();
+        for (int i = 0; i < clientes.length; i++) {
+            porCliente.computeIfAbsent(clientes[i], k -> new TreeSet<>()).add(clases[i]);
+        }
+        Map<Long, Integer> pares = new HashMap<>();
+        for (Set<Integer> conjunto : porCliente.values()) {
+            for (int a : conjunto) {
+                for (int b : conjunto) {
+                    if (a != b) {
+                        pares.merge(par(a, b), 1, Integer::sum);
+                    }
+                }
+            }
+        }
+        return pares;
+    }
+
+    private static long par(int a, int b)
+    {
+        return ((long) a << 32) | b;
+    }
+}
@@ -0,0 +1,163 @@
+package com.ilerna.analitica;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Pruebas del motor de analítica: cada consulta se compara con un recuento directo
+ */
+public class MotorAnaliticaTest extends TestCase
+{
+    private static final LocalDate INICIO = LocalDate.of(2024, 1, 1);
+    // Más filas que un tramo, para que el recorrido se reparta entre hilos
+    private static final int FILAS = 300_000;
+
+    private int[] clientes;
+    private int[] clases;
+    private int[] fechas;
+    private ColumnasAsistencia columnas;
+    private MotorAnalitica motor;
+
+    public MotorAnaliticaTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( MotorAnaliticaTest.class );
+    }
+
+    @Override
+    protected void setUp()
+    {
+        Random random = new Random(42);
+        clientes = new int[FILAS];
+        clases = new int[FILAS];
+        fechas = new int[FILAS];
+        for (int i = 0; i < FILAS; i++) {
+            // Ids dispersos como los de las secuencias con INCREMENT BY 50
+            clientes[i] = 1 + 50 * random.nextInt(5_000);
+            clases[i] = 1 + 50 * (int) Math.abs(random.nextGaussian() * 4) % 1_000;
+            fechas[i] = (int) INICIO.toEpochDay() + random.nextInt(365);
+        }
+        columnas = new ColumnasAsistencia(16);
+        // En dos bloques, como una carga seguida de fichajes nuevos
+        columnas.anadirTodas(clientes, clases, fechas, 0, FILAS / 2);
+        columnas.anadirTodas(clientes, clases, fechas, FILAS / 2, FILAS);
+        motor = new MotorAnalitica(columnas);
+    }
+
+    public void testVistaOcupaDoceBytesPorFila()
+    {
+        ColumnasAsistencia.Vista vista = columnas.getVista();
+        assertEquals(FILAS, vista.getFilas());
+        assertEquals(12L * FILAS, vista.getBytesColumnas());
+    }
+
+    public void testVisitasPorClienteEnRango()
+    {
+        LocalDate desde = INICIO.plusDays(30);
+        LocalDate hasta = INICIO.plusDays(90);
+        Map<Integer, Integer> esperado = new HashMap<>();
+        for (int i = 0; i < FILAS; i++) {
+            if (fechas[i] >= desde.toEpochDay() && fechas[i] <= hasta.toEpochDay()) {
+                esperado.merge(clientes[i], 1, Integer::sum);
+            }
+        }
+
+        List<ConteoPorId> visitas = motor.visitasPorCliente(MotorAnalitica.Filtro.todas().entre(desde, hasta));
+        assertEquals(esperado.size(), visitas.size());
+        long anterior = Long.MAX_VALUE;
+        for (ConteoPorId conteo : visitas) {
+            assertEquals(esperado.get(conteo.getId()).longValue(), conteo.getTotal());
+            assertTrue("Orden descendente", conteo.getTotal() <= anterior);
+            anterior = conteo.getTotal();
+        }
+    }
+
+    public void testClientesConAlMenos()
+    {
+        Map<Integer, Integer> visitas = new HashMap<>();
+        for (int i = 0; i < FILAS; i++) {
+            visitas.merge(clientes[i], 1, Integer::sum);
+        }
+        int minimo = 70;
+        long esperados = visitas.values().stream().filter(n -> n >= minimo).count();
+
+        List<ConteoPorId> resultado = motor.clientesConAlMenos(minimo, MotorAnalitica.Filtro.todas());
+        assertEquals(esperados, resultado.size());
+        for (ConteoPorId conteo : resultado) {
+            assertTrue(conteo.getTotal() >= minimo);
+        }
+    }
+
+    public void testClaseMasConcurridaPorDiaSemana()
+    {
+        Map<DayOfWeek, ConteoPorId> resultado = motor.claseMasConcurridaPorDiaSemana(MotorAnalitica.Filtro.todas());
+        assertEquals(7, resultado.size());
+        for (DayOfWeek dia : DayOfWeek.values()) {
+            Map<Integer, Integer> porClase = new HashMap<>();
+            for (int i = 0; i < FILAS; i++) {
+                if (LocalDate.ofEpochDay(fechas[i]).getDayOfWeek() == dia) {
+                    porClase.merge(clases[i], 1, Integer::sum);
+                }
+            }
+            int maximo = porClase.values().stream().max(Integer::compare).get();
+            ConteoPorId mejor = resultado.get(dia);
+            assertEquals(maximo, mejor.getTotal());
+            assertEquals(maximo, porClase.get(mejor.getId()).intValue());
+        }
+    }
+
+    public void testFiltroPorClaseYDia()
+    {
+        int idClase = clases[0];
+        long esperado = 0;
+        for (int i = 0; i < FILAS; i++) {
+            if (clases[i] == idClase && LocalDate.ofEpochDay(fechas[i]).getDayOfWeek() == DayOfWeek.MONDAY) {
+                esperado++;
+            }
+        }
+        MotorAnalitica.Filtro filtro = MotorAnalitica.Filtro.todas().deClase(idClase).enDia(DayOfWeek.MONDAY);
+        assertEquals(esperado, motor.contarAsistencias(filtro));
+
+        // Una clase sin asistencias no da resultados
+        assertEquals(0, motor.contarAsistencias(MotorAnalitica.Filtro.todas().deClase(2)));
+        assertTrue(motor.asistenciasPorClase(MotorAnalitica.Filtro.todas().deClase(2)).isEmpty());
+    }
+
+    public void testVistaAnteriorNoVeFilasNuevas()
+    {
+        ColumnasAsistencia.Vista antes = columnas.getVista();
+        columnas.anadir(999_999, 999_999, INICIO);
+        assertEquals(FILAS, antes.getFilas());
+        assertEquals(FILAS + 1, columnas.getVista().getFilas());
+        assertEquals(1, motor.contarAsistencias(MotorAnalitica.Filtro.todas().deClase(999_999)));
+    }
+
+    public void testDiaSemanaDesdeLaEpoca()
+    {
+        for (int d = -10; d < 400; d++) {
+            assertEquals(LocalDate.ofEpochDay(d).getDayOfWeek().getValue() - 1, MotorAnalitica.diaSemana(d));
+        }
+    }
+
+    public void testRangoInvalido()
+    {
+        try {
+            MotorAnalitica.Filtro.todas().entre(INICIO.plusDays(1), INICIO);
+            fail("Debería rechazar un rango invertido");
+        } catch (IllegalArgumentException e) {
+            // esperado
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.ilerna.benchmark;
+
+import com.ilerna.config.HibernateUtil;
+import com.ilerna.entity.Cliente;
+import com.ilerna.service.AsistenciaHibernateService;
+import com.ilerna.service.HibernateEjemploService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmark de inserción masiva con Hibernate: 1.000 clientes y 100.000 asistencias
+ * (1.000 clientes x 100 días) a una clase existente.
+ *
+ * Para comparar IDENTITY frente a secuencias pooled-lo, ejecutar con el perfil prod
+ * (-Dhibernate.profile=prod) antes y después de aplicar la migración 001 y el nuevo mapeo.
+ * Con IDENTITY cada INSERT se ejecuta al momento y el batching queda desactivado.
+ *
+ * Argumentos opcionales: id de clase (defecto 1), número de clientes (1000), días (100).
+ */
+public class AsistenciaInsercionBenchmark {
+
+    public static void main(String[] args) {
+        int idClase = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        int numClientes = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int dias = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+
+        HibernateEjemploService clienteService = new HibernateEjemploService();
+        AsistenciaHibernateService asistenciaService = new AsistenciaHibernateService();
+        String prefijo = Long.toString(System.currentTimeMillis(), 36);
+
+        List<Cliente> clientes = new ArrayList<>();
+        for (int i = 0; i < numClientes; i++) {
+            clientes.add(new Cliente("Bench " + prefijo + i, "bench" + prefijo + i + "@bench.local", "000"));
+        }
+
+        long inicio = System.nanoTime();
+        clienteService.insertarClientes(clientes);
+        long nanosClientes = System.nanoTime() - inicio;
+
+        List<Integer> ids = new ArrayList<>();
+        for (Cliente cliente : clientes) {
+            ids.add(cliente.getId());
+        }
+
+        LocalDate primerDia = LocalDate.now().minusDays(dias);
+        int insertadas = 0;
+        inicio = System.nanoTime();
+        for (int d = 0; d < dias; d++) {
+            insertadas += asistenciaService.insertarAsistencias(idClase, primerDia.plusDays(d), ids);
+        }
+        long nanosAsistencias = System.nanoTime() - inicio;
+
+        System.err.println("Perfil Hibernate: " + HibernateUtil.getPerfil()
+                + " (batch_size=" + HibernateUtil.getJdbcBatchSize() + ")");
+        imprimir("Clientes", numClientes, nanosClientes);
+        imprimir("Asistencias", insertadas, nanosAsistencias);
+
+        HibernateUtil.shutdown();
+    }
+
+    private static void imprimir(String entidad, int filas, long nanos) {
+        System.err.printf("  %-12s %8d filas en %8.1f ms -> %10.0f filas/s%n",
+                entidad, filas, nanos / 1e6, filas / (nanos / 1e9));
+    }
+}
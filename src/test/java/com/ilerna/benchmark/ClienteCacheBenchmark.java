@@ -0,0 +1,85 @@
+package com.ilerna.benchmark;
+
+import com.ilerna.dao.ClienteDAOEnMemoria;
+import com.ilerna.dto.Cliente;
+import com.ilerna.service.ClienteService;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark de ClienteService.buscarClientePorId con y sin caché.
+ * Usa un DAO en memoria con latencia simulada, así que no necesita base de datos.
+ *
+ * Los IDs siguen una distribución sesgada (unos pocos socios hacen la mayoría de los accesos,
+ * como en los fichajes reales) e incluyen un 5% de IDs inexistentes.
+ *
+ * Argumentos opcionales: clientes (defecto 20000), búsquedas (200000), latencia en µs (200),
+ * tamaño de la caché (5000).
+ */
+public class ClienteCacheBenchmark {
+
+    public static void main(String[] args) throws SQLException {
+        int numClientes = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int busquedas = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+        long latenciaMicros = args.length > 2 ? Long.parseLong(args[2]) : 200;
+        int tamanoCache = args.length > 3 ? Integer.parseInt(args[3]) : 5000;
+
+        int[] ids = generarIds(numClientes, busquedas);
+
+        System.err.println("Clientes: " + numClientes + ", búsquedas: " + busquedas
+                + ", latencia simulada: " + latenciaMicros + " µs");
+        ejecutar("Sin caché", numClientes, latenciaMicros, 0, ids);
+        ejecutar("Con caché (" + tamanoCache + ")", numClientes, latenciaMicros, tamanoCache, ids);
+    }
+
+    private static void ejecutar(String nombre, int numClientes, long latenciaMicros, int tamanoCache, int[] ids)
+            throws SQLException {
+        List<Cliente> clientes = new ArrayList<>();
+        for (int i = 0; i < numClientes; i++) {
+            clientes.add(new Cliente("Socio " + i, "socio" + i + "@bench.local", "000"));
+        }
+        ClienteDAOEnMemoria lento = new ClienteDAOEnMemoria(latenciaMicros);
+        lento.insertAll(clientes);
+        ClienteService service = new ClienteService(lento);
+        if (tamanoCache > 0) {
+            service.activarCache(tamanoCache, 30_000);
+        }
+        long consultasIniciales = lento.getConsultas();
+
+        long[] latencias = new long[ids.length];
+        long inicio = System.nanoTime();
+        for (int i = 0; i < ids.length; i++) {
+            long t = System.nanoTime();
+            service.buscarClientePorId(ids[i]);
+            latencias[i] = System.nanoTime() - t;
+        }
+        long total = System.nanoTime() - inicio;
+
+        Arrays.sort(latencias);
+        System.err.printf("  %-20s media %7.1f µs  p50 %7.1f µs  p99 %7.1f µs  consultas %8d%n",
+                nombre, total / 1e3 / ids.length, latencias[ids.length / 2] / 1e3,
+                latencias[(int) (ids.length * 0.99)] / 1e3, lento.getConsultas() - consultasIniciales);
+        service.obtenerEstadisticasCache().ifPresent(stats -> System.err.println("  " + stats));
+    }
+
+    /**
+     * IDs con sesgo cuadrático hacia los primeros y un 5% fuera de rango
+     */
+    private static int[] generarIds(int numClientes, int busquedas) {
+        Random random = new Random(42);
+        int[] ids = new int[busquedas];
+        for (int i = 0; i < busquedas; i++) {
+            if (random.nextInt(100) < 5) {
+                ids[i] = numClientes + 1 + random.nextInt(1000);
+            } else {
+                double u = random.nextDouble();
+                ids[i] = 1 + (int) (u * u * numClientes);
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,59 @@
+package com.ilerna.benchmark;
+
+import com.ilerna.config.HibernateUtil;
+import com.ilerna.service.AsistenciaHibernateService;
+import com.ilerna.service.HibernateEjemploService;
+
+import java.time.LocalDate;
+
+/**
+ * Benchmark de escrituras con Hibernate según el perfil de configuración.
+ *
+ * Ejecutar una vez por perfil y comparar (los resultados salen por stderr):
+ *   -Dhibernate.profile=dev   (eco de SQL, proveedor interno de Hibernate)
+ *   -Dhibernate.profile=prod  (sin eco, batching, pool propio)
+ *
+ * Argumentos opcionales: número de operaciones (defecto 2000), id de cliente e id de clase
+ * existentes para las asistencias (defecto 1 y 1).
+ */
+public class HibernateEscrituraBenchmark {
+
+    public static void main(String[] args) {
+        int operaciones = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int idCliente = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        int idClase = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+
+        HibernateEjemploService clienteService = new HibernateEjemploService();
+        AsistenciaHibernateService asistenciaService = new AsistenciaHibernateService();
+        String prefijo = Long.toString(System.currentTimeMillis(), 36);
+
+        // Calentamiento: carga de clases, SessionFactory y conexiones
+        for (int i = 0; i < 50; i++) {
+            clienteService.insertarCliente("Warmup " + prefijo + i, "warmup" + prefijo + i + "@bench.local", "000");
+        }
+
+        long inicio = System.nanoTime();
+        for (int i = 0; i < operaciones; i++) {
+            clienteService.insertarCliente("Bench " + prefijo + i, "bench" + prefijo + i + "@bench.local", "000");
+        }
+        long nanosClientes = System.nanoTime() - inicio;
+
+        inicio = System.nanoTime();
+        LocalDate fecha = LocalDate.now();
+        for (int i = 0; i < operaciones; i++) {
+            asistenciaService.insertarAsistencia(idCliente, idClase, fecha);
+        }
+        long nanosAsistencias = System.nanoTime() - inicio;
+
+        System.err.println("Perfil Hibernate: " + HibernateUtil.getPerfil());
+        imprimir("HibernateEjemploService.insertarCliente", operaciones, nanosClientes);
+        imprimir("AsistenciaHibernateService.insertarAsistencia", operaciones, nanosAsistencias);
+
+        HibernateUtil.shutdown();
+    }
+
+    private static void imprimir(String operacion, int n, long nanos) {
+        System.err.printf("  %-48s %8.0f ops/s  (%.3f ms/op)%n",
+                operacion, n / (nanos / 1e9), nanos / 1e6 / n);
+    }
+}
@@ -0,0 +1,93 @@
+package com.ilerna.cache;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pruebas de la caché LRU
+ */
+public class CacheLRUTest extends TestCase
+{
+    public CacheLRUTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( CacheLRUTest.class );
+    }
+
+    public void testLecturaATravesYAciertos() throws Exception
+    {
+        AtomicInteger cargas = new AtomicInteger();
+        CacheLRU<Integer, String> cache = new CacheLRU<>(100, 0);
+        CacheLRU.Cargador<Integer, String> cargador = k -> {
+            cargas.incrementAndGet();
+            return Optional.of("v" + k);
+        };
+
+        assertEquals(Optional.of("v1"), cache.get(1, cargador));
+        assertEquals(Optional.of("v1"), cache.get(1, cargador));
+        assertEquals(1, cargas.get());
+        assertEquals(1, cache.getEstadisticas().getAciertos());
+        assertEquals(1, cache.getEstadisticas().getFallos());
+    }
+
+    public void testExpulsaLaMenosUsada() throws Exception
+    {
+        // Un solo segmento para que el orden LRU sea global
+        CacheLRU<Integer, String> cache = new CacheLRU<>(1, 0);
+        CacheLRU.Cargador<Integer, String> cargador = k -> Optional.of("v" + k);
+
+        cache.get(1, cargador);
+        cache.get(2, cargador);
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getEstadisticas().getExpulsiones());
+    }
+
+    public void testCacheNegativaCaduca() throws Exception
+    {
+        AtomicInteger cargas = new AtomicInteger();
+        CacheLRU<Integer, String> cache = new CacheLRU<>(100, 50);
+        CacheLRU.Cargador<Integer, String> cargador = k -> {
+            cargas.incrementAndGet();
+            return Optional.empty();
+        };
+
+        assertFalse(cache.get(7, cargador).isPresent());
+        assertFalse(cache.get(7, cargador).isPresent());
+        assertEquals(1, cargas.get());
+        assertEquals(1, cache.getEstadisticas().getAciertosNegativos());
+
+        Thread.sleep(80);
+        cache.get(7, cargador);
+        assertEquals(2, cargas.get());
+        assertEquals(1, cache.getEstadisticas().getCaducadas());
+    }
+
+    public void testSinTtlNegativoNoSeGuardanAusentes() throws Exception
+    {
+        CacheLRU<Integer, String> cache = new CacheLRU<>(100, 0);
+        cache.get(7, k -> Optional.empty());
+        assertEquals(0, cache.size());
+    }
+
+    public void testCargaConcurrenteConInvalidacionNoSeGuarda() throws Exception
+    {
+        CacheLRU<Integer, String> cache = new CacheLRU<>(100, 0);
+
+        // Mientras se carga el valor antiguo, otro hilo modifica e invalida la clave
+        Optional<String> leido = cache.get(1, k -> {
+            cache.invalidar(1);
+            return Optional.of("antiguo");
+        });
+
+        assertEquals(Optional.of("antiguo"), leido);
+        assertEquals(Optional.of("nuevo"), cache.get(1, k -> Optional.of("nuevo")));
+    }
+}
@@ -0,0 +1,190 @@
+package com.ilerna.cache;
+
+import com.ilerna.dao.IClaseDAO;
+import com.ilerna.dto.Clase;
+import com.ilerna.dto.Pagina;
+import com.ilerna.service.ClaseService;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pruebas del catálogo de clases en memoria (con un DAO falso)
+ */
+public class CatalogoClasesTest extends TestCase
+{
+    private ClaseDAOFalso dao;
+
+    public CatalogoClasesTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( CatalogoClasesTest.class );
+    }
+
+    @Override
+    protected void setUp()
+    {
+        dao = new ClaseDAOFalso();
+        dao.clases.add(new Clase(1, "crossfit", 10));
+        dao.clases.add(new Clase(2, "yoga", 25));
+        dao.clases.add(new Clase(3, "pilates", 15));
+    }
+
+    public void testLecturasSinConsultas() throws Exception
+    {
+        try (CatalogoClases catalogo = new CatalogoClases(dao, 60_000, 60_000)) {
+            catalogo.iniciar();
+            catalogo.getAll();
+            catalogo.getByNombreOrCupoMayor("crossfit", 20);
+
+            assertEquals(1, dao.consultas.get());
+        }
+    }
+
+    public void testFiltroComoElDeLaConsulta() throws Exception
+    {
+        try (CatalogoClases catalogo = new CatalogoClases(dao, 60_000, 60_000)) {
+            catalogo.iniciar();
+            List<Clase> clases = catalogo.getByNombreOrCupoMayor("crossfit", 20);
+
+            assertEquals(2, clases.size());
+            assertEquals("crossfit", clases.get(0).getNombre());
+            assertEquals("yoga", clases.get(1).getNombre());
+        }
+    }
+
+    public void testConYSinCatalogoElNombreCoincideIgual() throws Exception
+    {
+        dao.clases.add(new Clase(4, " CrossFit Ñú ", 5));
+        dao.clases.add(new Clase(5, "Crossfít", 5));
+        ClaseService servicio = new ClaseService(dao);
+
+        List<Clase> sinCatalogo = servicio.buscarClasesCrossfitOCupoMayor(20);
+        servicio.activarCatalogo(60_000, 60_000);
+        List<Clase> conCatalogo = servicio.buscarClasesCrossfitOCupoMayor(20);
+
+        assertEquals(ids(conCatalogo), ids(sinCatalogo));
+        assertEquals("[1, 2, 5]", ids(sinCatalogo).toString());
+    }
+
+    private static List<Integer> ids(List<Clase> clases)
+    {
+        List<Integer> ids = new ArrayList<>();
+        for (Clase clase : clases) {
+            ids.add(clase.getId());
+        }
+        ids.sort(null);
+        return ids;
+    }
+
+    public void testLaInstantaneaNoSeModificaDesdeFuera() throws Exception
+    {
+        try (CatalogoClases catalogo = new CatalogoClases(dao, 60_000, 60_000)) {
+            catalogo.iniciar();
+            catalogo.getAll().get(0).setNombre("cambiado");
+            dao.clases.get(1).setNombre("cambiado en la tabla");
+
+            assertEquals("crossfit", catalogo.getAll().get(0).getNombre());
+            assertEquals("yoga", catalogo.getAll().get(1).getNombre());
+        }
+    }
+
+    public void testCambioIncrementalSinRecargar() throws Exception
+    {
+        try (CatalogoClases catalogo = new CatalogoClases(dao, 60_000, 60_000)) {
+            catalogo.iniciar();
+            catalogo.registrarCambio(new Clase(4, "spinning", 30));
+            catalogo.registrarBaja(2);
+
+            assertEquals(1, dao.consultas.get());
+            assertEquals(3, catalogo.getAll().size());
+            assertEquals("spinning", catalogo.getByCupoEntre(20, 40).get(0).getNombre());
+        }
+    }
+
+    public void testRefrescoBajoDemanda() throws Exception
+    {
+        try (CatalogoClases catalogo = new CatalogoClases(dao, 60_000, 60_000)) {
+            catalogo.iniciar();
+            dao.clases.add(new Clase(4, "spinning", 30));
+
+            assertEquals(3, catalogo.getAll().size());
+            catalogo.refrescar();
+            assertEquals(4, catalogo.getAll().size());
+        }
+    }
+
+    public void testInstantaneaCaducadaSeRecargaAlLeer() throws Exception
+    {
+        try (CatalogoClases catalogo = new CatalogoClases(dao, 30, 30)) {
+            catalogo.iniciar();
+            catalogo.close(); // sin refresco en segundo plano
+            dao.clases.add(new Clase(4, "spinning", 30));
+
+            Thread.sleep(60);
+            assertEquals(4, catalogo.getAll().size());
+            assertEquals(2, dao.consultas.get());
+        }
+    }
+
+    /**
+     * DAO de clases en memoria que cuenta las consultas
+     */
+    private static class ClaseDAOFalso implements IClaseDAO
+    {
+        final List<Clase> clases = new CopyOnWriteArrayList<>();
+        final AtomicInteger consultas = new AtomicInteger();
+
+        @Override
+        public List<Clase> getAll()
+        {
+            consultas.incrementAndGet();
+            return new ArrayList<>(clases);
+        }
+
+        @Override
+        public List<Clase> getByNombreOrCupoMayor(String nombre, Integer cupoMinimo)
+        {
+            // Como la consulta de ClaseDAO: nombre normalizado en los dos lados o cupo mayor
+            consultas.incrementAndGet();
+            List<Clase> resultado = new ArrayList<>();
+            for (Clase clase : clases) {
+                Integer cupo = clase.getCupoMaximo();
+                if (IndiceClases.normalizar(clase.getNombre()).equals(IndiceClases.normalizar(nombre))
+                        || (cupoMinimo != null && cupo != null && cupo > cupoMinimo)) {
+                    resultado.add(clase);
+                }
+            }
+            return resultado;
+        }
+
+        @Override
+        public Map<Integer, Clase> getByIds(Collection<Integer> ids)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Pagina<Clase> findPage(Integer despuesDeId, int limite)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Pagina<Clase> findPageOrderByNombre(Clase despuesDe, int limite)
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.ilerna.cache;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Pruebas del conjunto de long primitivos
+ */
+public class ConjuntoLongTest extends TestCase
+{
+    public ConjuntoLongTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( ConjuntoLongTest.class );
+    }
+
+    public void testAnadirYQuitarComoHashSet()
+    {
+        ConjuntoLong conjunto = new ConjuntoLong(4);
+        Set<Long> esperado = new HashSet<>();
+        Random random = new Random(11);
+        for (int i = 0; i < 200_000; i++) {
+            // Claves (cliente, clase) con pocos valores distintos: muchas colisiones y tramos largos
+            long clave = ((long) random.nextInt(3_000) << 32) | random.nextInt(20);
+            if (random.nextInt(3) == 0) {
+                assertEquals(esperado.remove(clave), conjunto.quitar(clave));
+            } else {
+                assertEquals(esperado.add(clave), conjunto.anadir(clave));
+            }
+        }
+        assertEquals(esperado.size(), conjunto.size());
+        for (int cliente = 0; cliente < 3_000; cliente++) {
+            for (int clase = 0; clase < 20; clase++) {
+                long clave = ((long) cliente << 32) | clase;
+                assertEquals(esperado.contains(clave), conjunto.contiene(clave));
+            }
+        }
+    }
+
+    public void testClaveIgualAlMarcadorDeHuecoLibre()
+    {
+        ConjuntoLong conjunto = new ConjuntoLong();
+        assertFalse(conjunto.contiene(Long.MIN_VALUE));
+        assertTrue(conjunto.anadir(Long.MIN_VALUE));
+        assertFalse(conjunto.anadir(Long.MIN_VALUE));
+        assertTrue(conjunto.contiene(Long.MIN_VALUE));
+        assertEquals(1, conjunto.size());
+        assertTrue(conjunto.quitar(Long.MIN_VALUE));
+        assertFalse(conjunto.quitar(Long.MIN_VALUE));
+        assertEquals(0, conjunto.size());
+    }
+}
@@ -0,0 +1,133 @@
+package com.ilerna.cache;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pruebas del descarte de fichajes repetidos
+ */
+public class DeduplicadorFichajesTest extends TestCase
+{
+    private static final LocalDate LUNES = LocalDate.of(2024, 5, 6);
+
+    public DeduplicadorFichajesTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( DeduplicadorFichajesTest.class );
+    }
+
+    public void testSegundoToqueEsDuplicado()
+    {
+        DeduplicadorFichajes dedup = new DeduplicadorFichajes(1000);
+        assertTrue(dedup.registrarSiNuevo(1, 10, LUNES));
+        assertFalse(dedup.registrarSiNuevo(1, 10, LUNES));
+        assertFalse(dedup.registrarSiNuevo(1, 10, LUNES));
+        // Otra clase u otro cliente no son duplicados
+        assertTrue(dedup.registrarSiNuevo(1, 11, LUNES));
+        assertTrue(dedup.registrarSiNuevo(2, 10, LUNES));
+        assertEquals(3, dedup.getNuevos());
+        assertEquals(2, dedup.getDuplicados());
+    }
+
+    public void testRotaAMedianocheYConservaElDiaAnterior()
+    {
+        DeduplicadorFichajes dedup = new DeduplicadorFichajes(1000);
+        LocalDate martes = LUNES.plusDays(1);
+        assertTrue(dedup.registrarSiNuevo(1, 10, LUNES));
+        assertTrue(dedup.registrarSiNuevo(1, 10, martes));
+        // Un toque del lunes que llega tarde se sigue reconociendo
+        assertFalse(dedup.registrarSiNuevo(1, 10, LUNES));
+
+        // El miércoles el lunes sale de la ventana y se deja pasar (decide la base de datos)
+        assertTrue(dedup.registrarSiNuevo(1, 10, martes.plusDays(1)));
+        assertFalse(dedup.registrarSiNuevo(1, 10, martes));
+        assertTrue(dedup.registrarSiNuevo(1, 10, LUNES));
+    }
+
+    public void testFechaMuyAdelantadaNoDescartaElDiaDeHoy()
+    {
+        Clock reloj = Clock.fixed(LUNES.atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        DeduplicadorFichajes dedup = new DeduplicadorFichajes(1000, reloj);
+        assertTrue(dedup.registrarSiNuevo(1, 10, LUNES));
+
+        // Pasado mañana o más: se deja pasar sin rotar (decide la base de datos)
+        assertTrue(dedup.registrarSiNuevo(1, 10, LUNES.plusYears(1)));
+        assertTrue(dedup.registrarSiNuevo(1, 10, LUNES.plusYears(1)));
+        assertFalse(dedup.registrarSiNuevo(1, 10, LUNES));
+
+        // Mañana sí rota, y hoy pasa a ser el día anterior
+        assertTrue(dedup.registrarSiNuevo(1, 10, LUNES.plusDays(1)));
+        assertFalse(dedup.registrarSiNuevo(1, 10, LUNES));
+    }
+
+    public void testOlvidarPermiteVolverAFichar()
+    {
+        DeduplicadorFichajes dedup = new DeduplicadorFichajes(1000);
+        assertTrue(dedup.registrarSiNuevo(1, 10, LUNES));
+        dedup.olvidar(1, 10, LUNES);
+        assertTrue(dedup.registrarSiNuevo(1, 10, LUNES));
+    }
+
+    public void testToquesSimultaneosSoloPasaUno() throws Exception
+    {
+        DeduplicadorFichajes dedup = new DeduplicadorFichajes(1000);
+        int hilos = 16;
+        int clientes = 500;
+        AtomicInteger aceptados = new AtomicInteger();
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Thread> tornos = new ArrayList<>();
+        for (int h = 0; h < hilos; h++) {
+            Thread t = new Thread(() -> {
+                try {
+                    salida.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int c = 0; c < clientes; c++) {
+                    if (dedup.registrarSiNuevo(c, 1, LUNES)) {
+                        aceptados.incrementAndGet();
+                    }
+                }
+            });
+            tornos.add(t);
+            t.start();
+        }
+        salida.countDown();
+        for (Thread t : tornos) {
+            t.join();
+        }
+        assertEquals(clientes, aceptados.get());
+    }
+
+    public void testVelocidadDelDescarte()
+    {
+        DeduplicadorFichajes dedup = new DeduplicadorFichajes(100_000);
+        int clientes = 100_000;
+        for (int c = 0; c < clientes; c++) {
+            dedup.registrarSiNuevo(c, c % 20, LUNES);
+        }
+        long inicio = System.nanoTime();
+        int repetidos = 0;
+        for (int c = 0; c < clientes; c++) {
+            if (!dedup.registrarSiNuevo(c, c % 20, LUNES)) {
+                repetidos++;
+            }
+        }
+        long nanos = System.nanoTime() - inicio;
+        assertEquals(clientes, repetidos);
+        System.out.printf("Descarte de duplicados: %.0f ns por toque%n", (double) nanos / clientes);
+    }
+}
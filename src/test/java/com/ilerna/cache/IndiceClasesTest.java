@@ -0,0 +1,107 @@
+package com.ilerna.cache;
+
+import com.ilerna.dto.Clase;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Pruebas del índice primitivo de clases
+ */
+public class IndiceClasesTest extends TestCase
+{
+    public IndiceClasesTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( IndiceClasesTest.class );
+    }
+
+    private static IndiceClases ejemplo()
+    {
+        return IndiceClases.construir(Arrays.asList(
+                new Clase(1, "CrossFit", 10),
+                new Clase(2, "Yoga", 25),
+                new Clase(3, "Pilates", 15),
+                new Clase(4, "Spinning", 25),
+                new Clase(5, "Meditación", null)));
+    }
+
+    public void testRangosDeCupo()
+    {
+        IndiceClases indice = ejemplo();
+
+        assertTrue(Arrays.equals(new int[]{3, 2, 4}, indice.idsConCupoMayorQue(10)));
+        assertTrue(Arrays.equals(new int[]{2, 4}, indice.idsConCupoEntre(20, 25)));
+        assertEquals(0, indice.idsConCupoMayorQue(25).length);
+        assertEquals(0, indice.idsConCupoEntre(30, 20).length);
+        assertEquals(4, indice.size());
+    }
+
+    public void testNombreNormalizado()
+    {
+        IndiceClases indice = ejemplo();
+
+        assertTrue(Arrays.equals(new int[]{1}, indice.idsPorNombre("crossfit")));
+        assertTrue(Arrays.equals(new int[]{5}, indice.idsPorNombre("  meditacion ")));
+        assertEquals(0, indice.idsPorNombre("boxeo").length);
+    }
+
+    public void testNombreOCupoSinRepetidos()
+    {
+        IndiceClases indice = ejemplo();
+
+        assertTrue(Arrays.equals(new int[]{1, 2, 4}, indice.idsPorNombreOCupoMayor("crossfit", 20)));
+        assertTrue(Arrays.equals(new int[]{2, 4}, indice.idsPorNombreOCupoMayor("yoga", 20)));
+    }
+
+    public void testCambiosIncrementales()
+    {
+        IndiceClases original = ejemplo();
+        IndiceClases indice = original
+                .conClase(new Clase(6, "Boxeo", 12))
+                .conClase(new Clase(1, "CrossFit", 30))
+                .sinClase(2);
+
+        assertTrue(Arrays.equals(new int[]{6, 3, 4, 1}, indice.idsConCupoMayorQue(10)));
+        assertTrue(Arrays.equals(new int[]{6}, indice.idsPorNombre("boxeo")));
+        assertEquals(0, indice.idsPorNombre("yoga").length);
+
+        // El índice original no cambia
+        assertTrue(Arrays.equals(new int[]{3, 2, 4}, original.idsConCupoMayorQue(10)));
+    }
+
+    public void testIncrementalCoincideConReconstruccion()
+    {
+        Random random = new Random(7);
+        List<Clase> clases = new ArrayList<>();
+        IndiceClases incremental = IndiceClases.construir(clases);
+        for (int i = 0; i < 500; i++) {
+            int id = 1 + random.nextInt(100);
+            clases.removeIf(c -> c.getId() == id);
+            if (random.nextInt(4) == 0) {
+                incremental = incremental.sinClase(id);
+            } else {
+                Clase clase = new Clase(id, "Clase " + random.nextInt(10), random.nextInt(40));
+                clases.add(clase);
+                incremental = incremental.conClase(clase);
+            }
+        }
+        IndiceClases reconstruido = IndiceClases.construir(clases);
+
+        for (int cupo = -1; cupo <= 40; cupo++) {
+            assertTrue(Arrays.equals(reconstruido.idsConCupoMayorQue(cupo), incremental.idsConCupoMayorQue(cupo)));
+        }
+        for (int n = 0; n < 10; n++) {
+            assertTrue(Arrays.equals(reconstruido.idsPorNombre("clase " + n), incremental.idsPorNombre("Clase " + n)));
+        }
+    }
+}
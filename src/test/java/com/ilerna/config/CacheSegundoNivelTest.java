@@ -0,0 +1,129 @@
+package com.ilerna.config;
+
+import com.ilerna.entity.Clase;
+import com.ilerna.entity.Entrenador;
+import com.ilerna.service.ReferenciasHibernateService;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Pruebas de la caché de segundo nivel de Hibernate contra la base de datos real:
+ * repetir un find de Clase o Entrenador, o una consulta de referencia, no ejecuta SQL.
+ * Las filas creadas se borran al final. Si no hay base de datos disponible, la prueba se omite.
+ */
+public class CacheSegundoNivelTest extends TestCase
+{
+    public CacheSegundoNivelTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( CacheSegundoNivelTest.class );
+    }
+
+    @Override
+    protected void tearDown()
+    {
+        DataBaseConnection.shutdown();
+    }
+
+    public void testRatioAciertos()
+    {
+        assertEquals(0.0, new CacheRegionStats("r", 0, 0, 0, 0).getRatioAciertos(), 0.0);
+        assertEquals(0.75, new CacheRegionStats("r", 3, 1, 1, 1).getRatioAciertos(), 1e-9);
+    }
+
+    public void testFindRepetidoNoEjecutaSql()
+    {
+        try (Connection prueba = DataBaseConnection.getDataSource().getConnection()) {
+            prueba.isValid(1);
+        } catch (SQLException e) {
+            System.out.println("Base de datos no disponible, se omite la prueba de la caché: " + e.getMessage());
+            return;
+        }
+
+        SessionFactory sessionFactory = HibernateUtil.getSessionFactory();
+        Statistics estadisticas = sessionFactory.getStatistics();
+        ReferenciasHibernateService referencias = new ReferenciasHibernateService();
+        String nombre = "Cache " + Long.toString(System.currentTimeMillis(), 36);
+
+        Clase clase = new Clase(nombre, 10);
+        Entrenador entrenador = new Entrenador(nombre, "Pruebas");
+        guardar(sessionFactory, clase, entrenador);
+        try {
+            // Empezar con la caché fría para estas filas
+            sessionFactory.getCache().evictEntityData(Clase.class, clase.getId());
+            sessionFactory.getCache().evictEntityData(Entrenador.class, entrenador.getId());
+
+            // Primera vez: un SELECT por entidad
+            long sentencias = estadisticas.getPrepareStatementCount();
+            assertEquals(nombre, referencias.getClase(clase.getId()).getNombre());
+            assertEquals(nombre, referencias.getEntrenador(entrenador.getId()).getNombre());
+            assertEquals(2, estadisticas.getPrepareStatementCount() - sentencias);
+
+            // Después, en sesiones nuevas, todo sale de la caché
+            long aciertos = estadisticas.getSecondLevelCacheHitCount();
+            sentencias = estadisticas.getPrepareStatementCount();
+            for (int i = 0; i < 5; i++) {
+                assertEquals(nombre, referencias.getClase(clase.getId()).getNombre());
+                assertEquals(nombre, referencias.getEntrenador(entrenador.getId()).getNombre());
+            }
+            assertEquals(0, estadisticas.getPrepareStatementCount() - sentencias);
+            assertEquals(10, estadisticas.getSecondLevelCacheHitCount() - aciertos);
+
+            // Consultas de referencia: la segunda no ejecuta SQL
+            List<Clase> primera = referencias.getClasesPorNombre(nombre);
+            sentencias = estadisticas.getPrepareStatementCount();
+            long aciertosConsultas = estadisticas.getQueryCacheHitCount();
+            List<Clase> segunda = referencias.getClasesPorNombre(nombre);
+            assertEquals(0, estadisticas.getPrepareStatementCount() - sentencias);
+            assertEquals(1, estadisticas.getQueryCacheHitCount() - aciertosConsultas);
+            assertEquals(1, segunda.size());
+            assertEquals(primera.get(0).getId(), segunda.get(0).getId());
+
+            boolean conRegionDeClase = false;
+            for (CacheRegionStats region : HibernateUtil.getEstadisticasCache()) {
+                if (region.getRegion().equals(CacheSegundoNivel.REGION_CLASE)) {
+                    conRegionDeClase = true;
+                    assertTrue(region.getAciertos() >= 5);
+                    assertTrue(region.getRatioAciertos() > 0);
+                }
+            }
+            assertTrue(conRegionDeClase);
+        } finally {
+            borrar(sessionFactory, clase, entrenador);
+        }
+    }
+
+    private static void guardar(SessionFactory sessionFactory, Object... entidades)
+    {
+        try (Session session = sessionFactory.openSession()) {
+            session.beginTransaction();
+            for (Object entidad : entidades) {
+                session.persist(entidad);
+            }
+            session.getTransaction().commit();
+        }
+    }
+
+    private static void borrar(SessionFactory sessionFactory, Object... entidades)
+    {
+        try (Session session = sessionFactory.openSession()) {
+            session.beginTransaction();
+            for (Object entidad : entidades) {
+                session.remove(session.merge(entidad));
+            }
+            session.getTransaction().commit();
+        }
+    }
+}
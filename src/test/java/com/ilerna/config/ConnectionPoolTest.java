@@ -0,0 +1,181 @@
+package com.ilerna.config;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pruebas del pool de conexiones con conexiones físicas simuladas (sin base de datos)
+ */
+public class ConnectionPoolTest extends TestCase
+{
+    private final AtomicInteger abiertas = new AtomicInteger();
+    private final AtomicInteger cerradas = new AtomicInteger();
+    private ConnectionPool pool;
+
+    public ConnectionPoolTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( ConnectionPoolTest.class );
+    }
+
+    @Override
+    protected void tearDown()
+    {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    public void testReutilizaLaConexionDevuelta() throws Exception
+    {
+        pool = crearPool(0, 2, 1000);
+
+        Connection primera = pool.getConnection();
+        Connection real = primera.unwrap(Connection.class);
+        primera.close();
+        assertTrue(primera.isClosed());
+
+        Connection segunda = pool.getConnection();
+        assertSame(real, segunda.unwrap(Connection.class));
+        segunda.close();
+
+        assertEquals(1, abiertas.get());
+        assertEquals(1, pool.getStats().getLibres());
+        assertEquals(0, pool.getStats().getActivas());
+    }
+
+    public void testRespetaElMaximoYAgotaElTiempoDeEspera() throws Exception
+    {
+        pool = crearPool(0, 2, 100);
+
+        Connection a = pool.getConnection();
+        Connection b = pool.getConnection();
+        try {
+            pool.getConnection();
+            fail("Se esperaba SQLTimeoutException con el pool agotado");
+        } catch (SQLTimeoutException e) {
+            // esperado
+        }
+        assertEquals(2, pool.getStats().getActivas());
+        assertEquals(1, pool.getStats().getTimeouts());
+
+        a.close();
+        b.close();
+        assertEquals(2, abiertas.get());
+    }
+
+    public void testConexionDevueltaNoSePuedeUsar() throws Exception
+    {
+        pool = crearPool(0, 1, 1000);
+
+        Connection c = pool.getConnection();
+        c.close();
+        c.close(); // cerrar dos veces no devuelve dos veces
+        try {
+            c.createStatement();
+            fail("Se esperaba SQLException al usar una conexión devuelta");
+        } catch (SQLException e) {
+            // esperado
+        }
+        assertEquals(1, pool.getStats().getLibres());
+    }
+
+    public void testDetectaFugas() throws Exception
+    {
+        PoolConfig config = configuracion(0, 1, 1000);
+        config.setLeakDetectionThresholdMs(20);
+        config.setHousekeepingIntervalMs(10);
+        pool = new PoolSimulado(config);
+
+        Connection retenida = pool.getConnection();
+        long limite = System.currentTimeMillis() + 2000;
+        while (pool.getStats().getFugasDetectadas() == 0 && System.currentTimeMillis() < limite) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, pool.getStats().getFugasDetectadas());
+        retenida.close();
+    }
+
+    public void testCerrarElPoolCierraLasLibres() throws Exception
+    {
+        pool = crearPool(0, 2, 1000);
+        pool.getConnection().close();
+        pool.close();
+
+        assertEquals(1, cerradas.get());
+        try {
+            pool.getConnection();
+            fail("Se esperaba SQLException con el pool cerrado");
+        } catch (SQLException e) {
+            // esperado
+        }
+    }
+
+    private ConnectionPool crearPool(int min, int max, long timeoutMs)
+    {
+        return new PoolSimulado(configuracion(min, max, timeoutMs));
+    }
+
+    private PoolConfig configuracion(int min, int max, long timeoutMs)
+    {
+        PoolConfig config = new PoolConfig("jdbc:simulada", "test", "test");
+        config.setMinSize(min);
+        config.setMaxSize(max);
+        config.setAcquireTimeoutMs(timeoutMs);
+        config.setLeakDetectionThresholdMs(0);
+        return config;
+    }
+
+    /**
+     * Pool que abre conexiones simuladas en lugar de conectar a PostgreSQL
+     */
+    private class PoolSimulado extends ConnectionPool
+    {
+        PoolSimulado(PoolConfig config)
+        {
+            super(config);
+        }
+
+        @Override
+        protected Connection abrirConexionFisica()
+        {
+            abiertas.incrementAndGet();
+            final boolean[] cerrada = {false};
+            return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            cerrada[0] = true;
+                            cerradas.incrementAndGet();
+                            return null;
+                        case "isClosed":
+                            return cerrada[0];
+                        case "isValid":
+                        case "getAutoCommit":
+                            return true;
+                        case "unwrap":
+                            return proxy;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return null;
+                    }
+                });
+        }
+    }
+}
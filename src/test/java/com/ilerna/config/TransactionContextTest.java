@@ -0,0 +1,223 @@
+package com.ilerna.config;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pruebas del contexto transaccional con un pool de conexiones simuladas
+ */
+public class TransactionContextTest extends TestCase
+{
+    private final AtomicInteger commits = new AtomicInteger();
+    private final AtomicInteger rollbacks = new AtomicInteger();
+    private ConnectionPool pool;
+
+    public TransactionContextTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( TransactionContextTest.class );
+    }
+
+    @Override
+    protected void setUp()
+    {
+        PoolConfig config = new PoolConfig("jdbc:simulada", "test", "test");
+        config.setMinSize(0);
+        config.setMaxSize(4);
+        config.setLeakDetectionThresholdMs(0);
+        pool = new ConnectionPool(config) {
+            @Override
+            protected Connection abrirConexionFisica()
+            {
+                return conexionSimulada();
+            }
+        };
+    }
+
+    @Override
+    protected void tearDown()
+    {
+        pool.close();
+    }
+
+    public void testFueraDeTransaccionCadaOperacionUsaSuConexion() throws Exception
+    {
+        Connection a = TransactionContext.getConnection(pool);
+        assertEquals(1, pool.getStats().getActivas());
+        TransactionContext.releaseConnection(a, pool);
+        assertEquals(0, pool.getStats().getActivas());
+    }
+
+    public void testLasOperacionesSeUnenALaTransaccion() throws Exception
+    {
+        String resultado = TransactionContext.executeInTransaction(pool, connection -> {
+            assertTrue(TransactionContext.isTransactionActive(pool));
+            Connection operacion = TransactionContext.getConnection(pool);
+            assertSame(connection, operacion);
+            TransactionContext.releaseConnection(operacion, pool);
+            assertFalse(operacion.isClosed());
+
+            // Una transacción anidada se une a la actual
+            TransactionContext.executeInTransaction(pool, anidada -> {
+                assertSame(connection, anidada);
+                return null;
+            });
+            assertEquals(1, pool.getStats().getActivas());
+            return "ok";
+        });
+
+        assertEquals("ok", resultado);
+        assertEquals(1, commits.get());
+        assertEquals(0, rollbacks.get());
+        assertFalse(TransactionContext.isTransactionActive(pool));
+        assertEquals(0, pool.getStats().getActivas());
+    }
+
+    public void testRollbackSiFallaElTrabajo() throws Exception
+    {
+        try {
+            TransactionContext.executeInTransaction(pool, connection -> {
+                throw new SQLException("fallo simulado");
+            });
+            fail("Se esperaba SQLException");
+        } catch (SQLException e) {
+            assertEquals("fallo simulado", e.getMessage());
+        }
+        assertEquals(0, commits.get());
+        assertEquals(1, rollbacks.get());
+        assertFalse(TransactionContext.isTransactionActive(pool));
+        assertEquals(0, pool.getStats().getActivas());
+    }
+
+    public void testAlTerminarEsperaAlCommitDeLaTransaccionExterna() throws Exception
+    {
+        final AtomicInteger ejecutadas = new AtomicInteger();
+        TransactionContext.alTerminar(ejecutadas::incrementAndGet);
+        assertEquals(1, ejecutadas.get());
+
+        TransactionContext.executeInTransaction(pool, connection -> {
+            TransactionContext.executeInTransaction(pool, anidada -> {
+                TransactionContext.alTerminar(() -> {
+                    assertEquals(1, commits.get());
+                    ejecutadas.incrementAndGet();
+                });
+                return null;
+            });
+            assertEquals(1, ejecutadas.get());
+            return null;
+        });
+        assertEquals(2, ejecutadas.get());
+
+        // También tras un rollback (la acción no sabe si la transacción llegó a escribir)
+        try {
+            TransactionContext.executeInTransaction(pool, connection -> {
+                TransactionContext.alTerminar(ejecutadas::incrementAndGet);
+                throw new SQLException("fallo simulado");
+            });
+            fail("Se esperaba SQLException");
+        } catch (SQLException e) {
+            assertEquals(3, ejecutadas.get());
+        }
+    }
+
+    public void testAlConfirmarSoloTrasElCommit() throws Exception
+    {
+        final AtomicInteger ejecutadas = new AtomicInteger();
+        TransactionContext.alConfirmar(ejecutadas::incrementAndGet);
+        assertEquals(1, ejecutadas.get());
+
+        TransactionContext.executeInTransaction(pool, connection -> {
+            TransactionContext.alConfirmar(() -> {
+                assertEquals(1, commits.get());
+                ejecutadas.incrementAndGet();
+            });
+            assertEquals(1, ejecutadas.get());
+            return null;
+        });
+        assertEquals(2, ejecutadas.get());
+
+        try {
+            TransactionContext.executeInTransaction(pool, connection -> {
+                TransactionContext.alConfirmar(ejecutadas::incrementAndGet);
+                throw new SQLException("fallo simulado");
+            });
+            fail("Se esperaba SQLException");
+        } catch (SQLException e) {
+            assertEquals(2, ejecutadas.get());
+        }
+
+        // Lo descartado por el rollback no se arrastra a la siguiente transacción
+        TransactionContext.executeInTransaction(pool, connection -> null);
+        assertEquals(2, ejecutadas.get());
+    }
+
+    public void testCadaHiloTieneSuTransaccion() throws Exception
+    {
+        final Connection[] otra = new Connection[1];
+        TransactionContext.executeInTransaction(pool, connection -> {
+            Thread hilo = new Thread(() -> {
+                try {
+                    otra[0] = TransactionContext.getConnection(pool);
+                    TransactionContext.releaseConnection(otra[0], pool);
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            hilo.start();
+            try {
+                hilo.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            assertFalse(connection == otra[0]);
+            return null;
+        });
+        assertTrue(otra[0].isClosed());
+    }
+
+    private Connection conexionSimulada()
+    {
+        final boolean[] estado = {true, false}; // autoCommit, cerrada
+        return (Connection) Proxy.newProxyInstance(
+            Connection.class.getClassLoader(),
+            new Class<?>[]{Connection.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getAutoCommit":
+                        return estado[0];
+                    case "setAutoCommit":
+                        estado[0] = (Boolean) args[0];
+                        return null;
+                    case "commit":
+                        commits.incrementAndGet();
+                        return null;
+                    case "rollback":
+                        rollbacks.incrementAndGet();
+                        return null;
+                    case "close":
+                        estado[1] = true;
+                        return null;
+                    case "isClosed":
+                        return estado[1];
+                    case "isValid":
+                        return true;
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    default:
+                        return null;
+                }
+            });
+    }
+}
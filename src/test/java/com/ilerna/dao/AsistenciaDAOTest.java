@@ -0,0 +1,208 @@
+package com.ilerna.dao;
+
+import com.ilerna.config.DataBaseConnection;
+import com.ilerna.config.TransactionContext;
+import com.ilerna.dto.ClaseConConteo;
+import com.ilerna.dto.ConteoPeriodo;
+import com.ilerna.dto.Periodo;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Pruebas de los contadores y del resumen diario de asistencias (migraciones 005 y 006)
+ * contra la base de datos real.
+ * Los datos se insertan dentro de una transacción que se deshace al final.
+ * Si no hay base de datos o no se ha aplicado la migración, las pruebas se omiten.
+ */
+public class AsistenciaDAOTest extends TestCase
+{
+    public AsistenciaDAOTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( AsistenciaDAOTest.class );
+    }
+
+    @Override
+    protected void tearDown()
+    {
+        DataBaseConnection.shutdown();
+    }
+
+    /**
+     * Los triggers mantienen el contador al insertar y borrar, y la reconciliación corrige un desajuste
+     */
+    public void testContadoresSeMantienenYReconcilian() throws Exception
+    {
+        DataSource dataSource = DataBaseConnection.getDataSource();
+        if (!existeTabla(dataSource, "asistencia_conteo")) {
+            return;
+        }
+
+        AsistenciaDAO dao = new AsistenciaDAO(dataSource);
+        String nombreClase = "Conteo " + Long.toString(System.currentTimeMillis(), 36);
+
+        try {
+            TransactionContext.executeInTransaction(dataSource, conn -> {
+                int idClase = insertarYDevolverId(conn,
+                        "INSERT INTO clase (nombre, cupo_maximo) VALUES (?, 10) RETURNING id", nombreClase);
+                int idCliente = insertarYDevolverId(conn,
+                        "INSERT INTO cliente (nombre, email, telefono) VALUES (?, ?, '000') RETURNING id",
+                        nombreClase, nombreClase.replace(' ', '.') + "@test.local");
+
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.executeUpdate("INSERT INTO asistencia (id_cliente, id_clase, fecha) " +
+                            "SELECT " + idCliente + ", " + idClase + ", DATE '2024-01-01' + d " +
+                            "FROM generate_series(0, 2) d");
+                    assertEquals(3, conteoDe(dao, nombreClase));
+
+                    stmt.executeUpdate("DELETE FROM asistencia WHERE id_clase = " + idClase +
+                            " AND fecha = DATE '2024-01-01'");
+                    assertEquals(2, conteoDe(dao, nombreClase));
+
+                    stmt.executeUpdate("UPDATE asistencia_conteo SET total = 99 WHERE id_clase = " + idClase);
+                    assertEquals(99, conteoDe(dao, nombreClase));
+                }
+
+                assertTrue(dao.reconciliarConteos() >= 1);
+                assertEquals(2, conteoDe(dao, nombreClase));
+                throw new DeshacerPrueba();
+            });
+            fail("La transacción debería haberse deshecho");
+        } catch (DeshacerPrueba e) {
+            // Esperado: no quedan datos de prueba
+        }
+    }
+
+    /**
+     * Los informes por periodo cuentan igual antes y después de aplicar los cambios al resumen
+     */
+    public void testInformesPorPeriodo() throws Exception
+    {
+        DataSource dataSource = DataBaseConnection.getDataSource();
+        if (!existeTabla(dataSource, "asistencia_diaria")) {
+            return;
+        }
+
+        AsistenciaDAO dao = new AsistenciaDAO(dataSource);
+        String nombre = "Periodo " + Long.toString(System.currentTimeMillis(), 36);
+        LocalDate desde = LocalDate.of(2031, 1, 1);
+        LocalDate hasta = LocalDate.of(2031, 2, 28);
+
+        try {
+            TransactionContext.executeInTransaction(dataSource, conn -> {
+                int idClase = insertarYDevolverId(conn,
+                        "INSERT INTO clase (nombre, cupo_maximo) VALUES (?, 10) RETURNING id", nombre);
+                int idCliente = insertarYDevolverId(conn,
+                        "INSERT INTO cliente (nombre, email, telefono) VALUES (?, ?, '000') RETURNING id",
+                        nombre, nombre.replace(' ', '.') + "@test.local");
+
+                // Un día sí y otro no desde el 1 de enero: 16 en enero y 14 en febrero
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.executeUpdate("INSERT INTO asistencia (id_cliente, id_clase, fecha) " +
+                            "SELECT " + idCliente + ", " + idClase + ", DATE '2031-01-01' + d " +
+                            "FROM generate_series(0, 58, 2) d");
+                }
+                comprobarMeses(dao.getAsistenciasPorClase(Periodo.MES, desde, hasta), idClase);
+                comprobarMeses(dao.getAsistenciasDeCliente(idCliente, Periodo.MES, desde, hasta), idCliente);
+
+                assertTrue(dao.actualizarResumenDiario() > 0);
+                comprobarMeses(dao.getAsistenciasPorClase(Periodo.MES, desde, hasta), idClase);
+                comprobarMeses(dao.getAsistenciasDeCliente(idCliente, Periodo.MES, desde, hasta), idCliente);
+
+                long total = 0;
+                for (ConteoPeriodo conteo : dao.getAsistenciasPorClase(Periodo.SEMANA, desde, hasta)) {
+                    if (conteo.getId() == idClase) {
+                        assertEquals(1, conteo.getInicioPeriodo().getDayOfWeek().getValue());
+                        total += conteo.getAsistencias();
+                    }
+                }
+                assertEquals(30, total);
+
+                long inicio = System.nanoTime();
+                dao.getAsistenciasPorClase(Periodo.DIA, hasta.minusYears(1), hasta);
+                System.out.printf("Informe diario de un año: %.1f ms%n", (System.nanoTime() - inicio) / 1e6);
+                throw new DeshacerPrueba();
+            });
+            fail("La transacción debería haberse deshecho");
+        } catch (DeshacerPrueba e) {
+            // Esperado: no quedan datos de prueba
+        }
+    }
+
+    private static void comprobarMeses(List<ConteoPeriodo> conteos, int id)
+    {
+        long enero = 0;
+        long febrero = 0;
+        for (ConteoPeriodo conteo : conteos) {
+            if (conteo.getId() == id) {
+                if (conteo.getInicioPeriodo().equals(LocalDate.of(2031, 1, 1))) {
+                    enero = conteo.getAsistencias();
+                } else if (conteo.getInicioPeriodo().equals(LocalDate.of(2031, 2, 1))) {
+                    febrero = conteo.getAsistencias();
+                }
+            }
+        }
+        assertEquals(16, enero);
+        assertEquals(14, febrero);
+    }
+
+    private static boolean existeTabla(DataSource dataSource, String tabla)
+    {
+        try (Connection prueba = dataSource.getConnection();
+             PreparedStatement ps = prueba.prepareStatement("SELECT to_regclass(?) IS NOT NULL")) {
+            ps.setString(1, tabla);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                if (!rs.getBoolean(1)) {
+                    System.out.println("Tabla " + tabla + " no creada (falta la migración), se omite la prueba");
+                    return false;
+                }
+                return true;
+            }
+        } catch (SQLException e) {
+            System.out.println("Base de datos no disponible, se omite la prueba: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static int insertarYDevolverId(Connection conn, String sql, String... valores) throws SQLException
+    {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < valores.length; i++) {
+                ps.setString(i + 1, valores[i]);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    private static int conteoDe(AsistenciaDAO dao, String nombreClase) throws SQLException
+    {
+        for (ClaseConConteo conteo : dao.getNumeroClientesPorClase()) {
+            if (nombreClase.equals(conteo.getNombreClase())) {
+                return conteo.getNumeroClientes();
+            }
+        }
+        fail("La clase " + nombreClase + " no aparece en el reporte");
+        return -1;
+    }
+
+    private static class DeshacerPrueba extends RuntimeException {
+    }
+}
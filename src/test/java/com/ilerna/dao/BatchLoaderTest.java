@@ -0,0 +1,132 @@
+package com.ilerna.dao;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pruebas del agrupador de búsquedas por lote (sin base de datos)
+ */
+public class BatchLoaderTest extends TestCase
+{
+    public BatchLoaderTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( BatchLoaderTest.class );
+    }
+
+    /**
+     * Búsqueda por lote falsa: devuelve el doble de cada clave positiva y cuenta las llamadas
+     */
+    private static BatchLoader.BatchFunction<Integer, Integer> dobles(AtomicInteger llamadas)
+    {
+        return claves -> {
+            llamadas.incrementAndGet();
+            Map<Integer, Integer> resultado = new HashMap<>();
+            for (Integer clave : claves) {
+                if (clave > 0) {
+                    resultado.put(clave, clave * 2);
+                }
+            }
+            return resultado;
+        };
+    }
+
+    public void testBusquedasConcurrentesVanEnUnLote() throws Exception
+    {
+        AtomicInteger llamadas = new AtomicInteger();
+        try (BatchLoader<Integer, Integer> loader = new BatchLoader<>(dobles(llamadas), 200, 1000)) {
+            int hilos = 20;
+            CountDownLatch salida = new CountDownLatch(1);
+            List<Thread> trabajadores = new ArrayList<>();
+            List<Optional<Integer>> resultados = new ArrayList<>();
+            for (int i = 0; i < hilos; i++) {
+                resultados.add(null);
+            }
+            for (int i = 0; i < hilos; i++) {
+                int indice = i;
+                Thread t = new Thread(() -> {
+                    try {
+                        salida.await();
+                        Optional<Integer> valor = loader.get(indice);
+                        synchronized (resultados) {
+                            resultados.set(indice, valor);
+                        }
+                    } catch (InterruptedException | SQLException e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+                trabajadores.add(t);
+                t.start();
+            }
+            salida.countDown();
+            for (Thread t : trabajadores) {
+                t.join();
+            }
+
+            assertEquals(1, llamadas.get());
+            assertEquals(Optional.empty(), resultados.get(0));
+            assertEquals(Optional.of(38), resultados.get(19));
+        }
+    }
+
+    public void testLoteLlenoSeEnviaSinEsperar() throws Exception
+    {
+        AtomicInteger llamadas = new AtomicInteger();
+        try (BatchLoader<Integer, Integer> loader = new BatchLoader<>(dobles(llamadas), 60_000, 3)) {
+            loader.load(1);
+            loader.load(1);
+            loader.load(2);
+            assertEquals(0, llamadas.get());
+
+            long inicio = System.currentTimeMillis();
+            assertEquals(Optional.of(6), loader.get(3));
+            assertTrue(System.currentTimeMillis() - inicio < 10_000);
+            assertEquals(1, llamadas.get());
+            assertEquals(3, loader.getClavesCargadas());
+        }
+    }
+
+    public void testErrorSePropagaATodoElLote()
+    {
+        BatchLoader.BatchFunction<Integer, Integer> falla = claves -> {
+            throw new SQLException("sin conexión");
+        };
+        try (BatchLoader<Integer, Integer> loader = new BatchLoader<>(falla, 1, 10)) {
+            loader.get(1);
+            fail("Debería propagar la SQLException");
+        } catch (SQLException e) {
+            assertEquals("sin conexión", e.getMessage());
+        }
+    }
+
+    public void testCerrarEnviaLoPendiente() throws Exception
+    {
+        AtomicInteger llamadas = new AtomicInteger();
+        BatchLoader<Integer, Integer> loader = new BatchLoader<>(dobles(llamadas), 60_000, 100);
+        CompletableFuture<Optional<Integer>> futuro = loader.load(5);
+        loader.close();
+
+        assertEquals(Optional.of(10), futuro.get());
+        try {
+            loader.load(6);
+            fail("Un BatchLoader cerrado no debería aceptar búsquedas");
+        } catch (IllegalStateException e) {
+            // Esperado
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.ilerna.dao;
+
+import com.ilerna.dto.Cliente;
+import com.ilerna.dto.Pagina;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * IClienteDAO en memoria para pruebas y benchmarks sin base de datos
+ * Cada operación espera la latencia indicada (simula el viaje a la base de datos) y se cuenta
+ */
+public class ClienteDAOEnMemoria implements IClienteDAO {
+
+    private final ConcurrentSkipListMap<Integer, Cliente> clientes = new ConcurrentSkipListMap<>();
+    private final AtomicInteger siguienteId = new AtomicInteger(1);
+    private final AtomicLong consultas = new AtomicLong();
+    private final long latenciaNanos;
+
+    public ClienteDAOEnMemoria(long latenciaMicros) {
+        this.latenciaNanos = TimeUnit.MICROSECONDS.toNanos(latenciaMicros);
+    }
+
+    /**
+     * Número de operaciones recibidas (equivalente a consultas a la base de datos)
+     */
+    public long getConsultas() {
+        return consultas.get();
+    }
+
+    private void viaje() {
+        consultas.incrementAndGet();
+        if (latenciaNanos > 0) {
+            LockSupport.parkNanos(latenciaNanos);
+        }
+    }
+
+    private static Cliente copiar(Cliente c) {
+        return new Cliente(c.getId(), c.getNombre(), c.getEmail(), c.getTelefono());
+    }
+
+    @Override
+    public List<Cliente> findAll() {
+        viaje();
+        List<Cliente> todos = new ArrayList<>();
+        for (Cliente c : clientes.values()) {
+            todos.add(copiar(c));
+        }
+        return todos;
+    }
+
+    @Override
+    public Stream<Cliente> streamAll(int fetchSize) {
+        return findAll().stream();
+    }
+
+    @Override
+    public Optional<Cliente> getById(Integer id) {
+        viaje();
+        Cliente c = clientes.get(id);
+        return c == null ? Optional.empty() : Optional.of(copiar(c));
+    }
+
+    @Override
+    public Map<Integer, Cliente> getByIds(Collection<Integer> ids) {
+        viaje();
+        Map<Integer, Cliente> encontrados = new HashMap<>();
+        for (Integer id : ids) {
+            Cliente c = clientes.get(id);
+            if (c != null) {
+                encontrados.put(id, copiar(c));
+            }
+        }
+        return encontrados;
+    }
+
+    @Override
+    public Cliente insert(Cliente cliente) {
+        viaje();
+        cliente.setId(siguienteId.getAndIncrement());
+        clientes.put(cliente.getId(), copiar(cliente));
+        return cliente;
+    }
+
+    @Override
+    public List<Cliente> insertAll(List<Cliente> nuevos) {
+        viaje();
+        for (Cliente cliente : nuevos) {
+            cliente.setId(siguienteId.getAndIncrement());
+            clientes.put(cliente.getId(), copiar(cliente));
+        }
+        return nuevos;
+    }
+
+    @Override
+    public boolean update(Cliente cliente) {
+        viaje();
+        return clientes.replace(cliente.getId(), copiar(cliente)) != null;
+    }
+
+    @Override
+    public boolean delete(Integer id) {
+        viaje();
+        return clientes.remove(id) != null;
+    }
+
+    @Override
+    public Pagina<Cliente> findPage(Integer despuesDeId, int limite) {
+        viaje();
+        List<Cliente> pagina = new ArrayList<>();
+        Collection<Cliente> resto = despuesDeId == null ? clientes.values() : clientes.tailMap(despuesDeId, false).values();
+        for (Cliente c : resto) {
+            if (pagina.size() == limite) {
+                return new Pagina<>(pagina, true);
+            }
+            pagina.add(copiar(c));
+        }
+        return new Pagina<>(pagina, false);
+    }
+
+    @Override
+    public Pagina<Cliente> findPageOrderByNombre(Cliente despuesDe, int limite) {
+        throw new UnsupportedOperationException("No se usa en las pruebas en memoria");
+    }
+}
@@ -0,0 +1,81 @@
+package com.ilerna.dao;
+
+import com.ilerna.config.DataBaseConnection;
+import com.ilerna.config.TransactionContext;
+import com.ilerna.dto.Cliente;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pruebas de ClienteDAO contra la base de datos real.
+ * Los datos se insertan dentro de una transacción que se deshace al final.
+ * Si no hay base de datos disponible, las pruebas se omiten.
+ */
+public class ClienteDAOTest extends TestCase
+{
+    public ClienteDAOTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( ClienteDAOTest.class );
+    }
+
+    @Override
+    protected void tearDown()
+    {
+        DataBaseConnection.shutdown();
+    }
+
+    /**
+     * insertAll en varios bloques: cada cliente recibe el id de su propia fila
+     */
+    public void testInsertAllAsignaIdsEnOrden() throws Exception
+    {
+        DataSource dataSource = DataBaseConnection.getDataSource();
+        try (Connection prueba = dataSource.getConnection()) {
+            prueba.isValid(1);
+        } catch (SQLException e) {
+            System.out.println("Base de datos no disponible, se omite la prueba de insertAll: " + e.getMessage());
+            return;
+        }
+
+        ClienteDAO dao = new ClienteDAO(dataSource, 3);
+        String prefijo = Long.toString(System.currentTimeMillis(), 36);
+        List<Cliente> clientes = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            clientes.add(new Cliente("Lote " + prefijo + i, "lote" + prefijo + i + "@test.local", "000"));
+        }
+
+        try {
+            TransactionContext.executeInTransaction(dataSource, conn -> {
+                dao.insertAll(clientes);
+                Integer anterior = null;
+                for (Cliente cliente : clientes) {
+                    assertNotNull(cliente.getId());
+                    if (anterior != null) {
+                        assertTrue(cliente.getId() > anterior);
+                    }
+                    anterior = cliente.getId();
+                    assertEquals(cliente.getEmail(), dao.getById(cliente.getId()).get().getEmail());
+                }
+                throw new DeshacerPrueba();
+            });
+            fail("La transacción debería haberse deshecho");
+        } catch (DeshacerPrueba e) {
+            // Esperado: no quedan datos de prueba
+        }
+    }
+
+    private static class DeshacerPrueba extends RuntimeException {
+    }
+}
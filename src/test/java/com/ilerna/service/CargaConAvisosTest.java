@@ -0,0 +1,99 @@
+package com.ilerna.service;
+
+import com.ilerna.dto.Asistencia;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.sql.DataSource;
+
+/**
+ * Avisos recibidos mientras se carga una estructura: se retienen y no se pierden aunque la carga falle
+ * (el caso con base de datos, que filtra por la instantánea, no se puede probar sin PostgreSQL)
+ */
+public class CargaConAvisosTest extends TestCase
+{
+    private static final LocalDate HOY = LocalDate.of(2024, 5, 6);
+
+    public CargaConAvisosTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite(CargaConAvisosTest.class);
+    }
+
+    public void testSinCargaNoRetiene()
+    {
+        OyenteEnMemoria oyente = new OyenteEnMemoria();
+        assertFalse(oyente.carga.retener(Collections.singletonList(asistencia(1)), true));
+        assertTrue(oyente.anadidas.isEmpty());
+    }
+
+    public void testCargaFallidaAplicaLoRetenidoALaEstructuraAnterior()
+    {
+        OyenteEnMemoria oyente = new OyenteEnMemoria();
+        // La conexión falla después de que se publique una alta y una baja durante la carga
+        DataSource dataSource = (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(),
+                new Class<?>[] { DataSource.class }, (proxy, metodo, argumentos) -> {
+                    oyente.anadir(Collections.singletonList(asistencia(1)));
+                    oyente.quitar(Collections.singletonList(asistencia(2)));
+                    assertTrue("Durante la carga no se aplica nada", oyente.anadidas.isEmpty());
+                    throw new SQLException("sin conexión");
+                });
+        try {
+            oyente.carga.cargar(dataSource, conn -> "nueva", nueva -> fail("No debe instalarse"));
+            fail("Debería propagar el error de la carga");
+        } catch (SQLException e) {
+            assertEquals("sin conexión", e.getMessage());
+        }
+        assertEquals(1, oyente.anadidas.size());
+        assertEquals(Integer.valueOf(1), oyente.anadidas.get(0).getIdCliente());
+        assertEquals(1, oyente.quitadas.size());
+        assertEquals(Integer.valueOf(2), oyente.quitadas.get(0).getIdCliente());
+
+        // Tras la carga los avisos vuelven a aplicarse en el momento
+        oyente.anadir(Collections.singletonList(asistencia(3)));
+        assertEquals(2, oyente.anadidas.size());
+    }
+
+    private static Asistencia asistencia(int idCliente)
+    {
+        Asistencia asistencia = new Asistencia();
+        asistencia.setIdCliente(idCliente);
+        asistencia.setIdClase(7);
+        asistencia.setFecha(HOY);
+        return asistencia;
+    }
+
+    private static class OyenteEnMemoria implements PublicadorAsistencias.Oyente
+    {
+        final CargaConAvisos carga = new CargaConAvisos(this);
+        final List<Asistencia> anadidas = new ArrayList<>();
+        final List<Asistencia> quitadas = new ArrayList<>();
+
+        @Override
+        public void anadir(List<Asistencia> asistencias)
+        {
+            if (!carga.retener(asistencias, true)) {
+                anadidas.addAll(asistencias);
+            }
+        }
+
+        @Override
+        public void quitar(List<Asistencia> asistencias)
+        {
+            if (!carga.retener(asistencias, false)) {
+                quitadas.addAll(asistencias);
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.ilerna.service;
+
+import com.ilerna.dao.ClienteDAOEnMemoria;
+import com.ilerna.dto.Cliente;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Pruebas de la caché de clientes de ClienteService (con un DAO en memoria)
+ */
+public class ClienteServiceCacheTest extends TestCase
+{
+    private ClienteDAOEnMemoria dao;
+    private ClienteService service;
+
+    public ClienteServiceCacheTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( ClienteServiceCacheTest.class );
+    }
+
+    @Override
+    protected void setUp()
+    {
+        dao = new ClienteDAOEnMemoria(0);
+        service = new ClienteService(dao);
+        service.activarCache(100, 60_000);
+    }
+
+    public void testSegundaBusquedaNoConsultaLaBaseDeDatos() throws Exception
+    {
+        Integer id = service.registrarCliente(new Cliente("Ana", "ana@x.com", "600")).getId();
+        long consultas = dao.getConsultas();
+
+        service.buscarClientePorId(id);
+        service.buscarClientePorId(id);
+
+        assertEquals(consultas + 1, dao.getConsultas());
+    }
+
+    public void testActualizarYEliminarInvalidan() throws Exception
+    {
+        Cliente ana = service.registrarCliente(new Cliente("Ana", "ana@x.com", "600"));
+        service.buscarClientePorId(ana.getId());
+
+        ana.setEmail("ana@nuevo.com");
+        service.actualizarCliente(ana);
+        assertEquals("ana@nuevo.com", service.buscarClientePorId(ana.getId()).get().getEmail());
+
+        service.eliminarCliente(ana.getId());
+        assertFalse(service.buscarClientePorId(ana.getId()).isPresent());
+    }
+
+    public void testAltaInvalidaLaEntradaNegativa() throws Exception
+    {
+        // El siguiente ID que asignará el DAO en memoria es 1
+        assertFalse(service.buscarClientePorId(1).isPresent());
+
+        service.registrarCliente(new Cliente("Luis", "luis@x.com", null));
+        assertTrue(service.buscarClientePorId(1).isPresent());
+    }
+
+    public void testModificarLaCopiaDevueltaNoAfectaALaCache() throws Exception
+    {
+        Integer id = service.registrarCliente(new Cliente("Ana", "ana@x.com", "600")).getId();
+
+        service.buscarClientePorId(id).get().setNombre("Cambiado sin guardar");
+        assertEquals("Ana", service.buscarClientePorId(id).get().getNombre());
+    }
+}
@@ -0,0 +1,48 @@
+package com.ilerna.service;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.time.LocalDate;
+
+/**
+ * Pruebas de las consultas que genera el servicio de exportación
+ */
+public class ExportacionServiceTest extends TestCase
+{
+    public ExportacionServiceTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( ExportacionServiceTest.class );
+    }
+
+    public void testAsistenciasSinFiltro()
+    {
+        assertEquals("SELECT id, id_cliente, id_clase, fecha FROM asistencia",
+                ExportacionService.consultaAsistencias(null, null));
+    }
+
+    public void testAsistenciasConRangoDeFechas()
+    {
+        String sql = ExportacionService.consultaAsistencias(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 3, 31));
+        assertTrue(sql.endsWith(" WHERE fecha >= DATE '2024-01-01' AND fecha <= DATE '2024-03-31'"));
+
+        sql = ExportacionService.consultaAsistencias(null, LocalDate.of(2024, 3, 31));
+        assertTrue(sql.endsWith(" WHERE fecha <= DATE '2024-03-31'"));
+    }
+
+    public void testRangoInvertido()
+    {
+        try {
+            ExportacionService.consultaAsistencias(LocalDate.of(2024, 2, 1), LocalDate.of(2024, 1, 1));
+            fail("Debería rechazar un rango con la fecha inicial posterior a la final");
+        } catch (IllegalArgumentException e) {
+            // Esperado
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package com.ilerna.service;
+
+import com.ilerna.analitica.ColumnasAsistencia;
+import com.ilerna.cache.DeduplicadorFichajes;
+import com.ilerna.dao.IAsistenciaDAO;
+import com.ilerna.dto.Asistencia;
+import com.ilerna.dto.ClaseConConteo;
+import com.ilerna.dto.ConteoPeriodo;
+import com.ilerna.dto.Periodo;
+import com.ilerna.service.IngestaAsistenciasService.PoliticaColaLlena;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Pruebas del registro de asistencias por lotes con un DAO en memoria
+ * que simula el coste fijo de cada COMMIT
+ */
+public class IngestaAsistenciasServiceTest extends TestCase
+{
+    private static final LocalDate HOY = LocalDate.of(2024, 5, 6);
+
+    public IngestaAsistenciasServiceTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( IngestaAsistenciasServiceTest.class );
+    }
+
+    public void testMuchosFichajesEnPocosLotes() throws Exception
+    {
+        AsistenciaDAOEnMemoria dao = new AsistenciaDAOEnMemoria(500);
+        int hilos = 16;
+        int porHilo = 1000;
+        List<CompletableFuture<Asistencia>> futuros = new ArrayList<>();
+
+        long inicio = System.nanoTime();
+        try (IngestaAsistenciasService ingesta =
+                     new IngestaAsistenciasService(dao, 1000, 200, 5, PoliticaColaLlena.BLOQUEAR)) {
+            List<Thread> tornos = new ArrayList<>();
+            for (int h = 0; h < hilos; h++) {
+                int torno = h;
+                Thread t = new Thread(() -> {
+                    for (int i = 0; i < porHilo; i++) {
+                        try {
+                            CompletableFuture<Asistencia> f = ingesta.registrar(torno * porHilo + i, 1 + i % 5, HOY);
+                            synchronized (futuros) {
+                                futuros.add(f);
+                            }
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                    }
+                });
+                tornos.add(t);
+                t.start();
+            }
+            for (Thread t : tornos) {
+                t.join();
+            }
+            CompletableFuture.allOf(futuros.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+
+            assertEquals(hilos * porHilo, ingesta.getAsistenciasEscritas());
+            assertEquals(0, ingesta.getAsistenciasFallidas());
+            assertTrue("Demasiados lotes: " + ingesta.getLotesEscritos(),
+                    ingesta.getLotesEscritos() <= hilos * porHilo / 10);
+        }
+        long nanos = System.nanoTime() - inicio;
+
+        Set<Long> ids = new HashSet<>();
+        for (CompletableFuture<Asistencia> f : futuros) {
+            assertTrue(ids.add(f.get().getId()));
+        }
+        assertTrue(dao.mayorLote.get() <= 200);
+        System.out.printf("Ingesta: %d fichajes en %d lotes, %.1f ms (%.0f fichajes/s)%n",
+                hilos * porHilo, dao.lotes.get(), nanos / 1e6, hilos * porHilo / (nanos / 1e9));
+    }
+
+    public void testUnFichajeSoloEsperaComoMuchoElMaximo() throws Exception
+    {
+        AsistenciaDAOEnMemoria dao = new AsistenciaDAOEnMemoria(0);
+        try (IngestaAsistenciasService ingesta =
+                     new IngestaAsistenciasService(dao, 10, 100, 20, PoliticaColaLlena.BLOQUEAR)) {
+            long inicio = System.nanoTime();
+            Asistencia asistencia = ingesta.registrar(1, 1, HOY).get(2, TimeUnit.SECONDS);
+            long ms = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+            assertNotNull(asistencia.getId());
+            assertTrue("Ha tardado " + ms + " ms", ms < 1000);
+        }
+    }
+
+    public void testColaLlenaRechaza() throws Exception
+    {
+        AsistenciaDAOEnMemoria dao = new AsistenciaDAOEnMemoria(0);
+        dao.bloqueo = new CountDownLatch(1);
+        try (IngestaAsistenciasService ingesta =
+                     new IngestaAsistenciasService(dao, 2, 1, 0, PoliticaColaLlena.RECHAZAR)) {
+            // El primero lo coge el escritor y se queda bloqueado en el DAO; luego se llena la cola
+            ingesta.registrar(1, 1, HOY);
+            dao.dentro.await(2, TimeUnit.SECONDS);
+            ingesta.registrar(2, 1, HOY);
+            ingesta.registrar(3, 1, HOY);
+            try {
+                ingesta.registrar(4, 1, HOY);
+                fail("Con la cola llena debería rechazarse");
+            } catch (RejectedExecutionException e) {
+                // Esperado
+            }
+            dao.bloqueo.countDown();
+        }
+        assertEquals(3, dao.filas.get());
+    }
+
+    public void testUnFichajeErroneoNoTumbaElLote() throws Exception
+    {
+        AsistenciaDAOEnMemoria dao = new AsistenciaDAOEnMemoria(0);
+        List<CompletableFuture<Asistencia>> futuros = new ArrayList<>();
+        try (IngestaAsistenciasService ingesta =
+                     new IngestaAsistenciasService(dao, 100, 50, 50, PoliticaColaLlena.BLOQUEAR)) {
+            for (int i = 0; i < 10; i++) {
+                // El cliente -1 no existe: el DAO rechaza cualquier lote que lo contenga
+                futuros.add(ingesta.registrar(i == 4 ? -1 : i, 1, HOY));
+            }
+        }
+
+        for (int i = 0; i < 10; i++) {
+            if (i == 4) {
+                try {
+                    futuros.get(i).get();
+                    fail("El fichaje del cliente inexistente debería fallar");
+                } catch (ExecutionException e) {
+                    assertTrue(e.getCause() instanceof SQLException);
+                }
+            } else {
+                assertNotNull(futuros.get(i).get().getId());
+            }
+        }
+        assertEquals(9, dao.filas.get());
+    }
+
+    public void testSoloLasConfirmadasSePublican() throws Exception
+    {
+        AsistenciaDAOEnMemoria dao = new AsistenciaDAOEnMemoria(0);
+        ColumnasAsistencia columnas = new ColumnasAsistencia();
+        try (IngestaAsistenciasService ingesta =
+                     new IngestaAsistenciasService(dao, 100, 50, 50, PoliticaColaLlena.BLOQUEAR)) {
+            PublicadorAsistencias publicador = new PublicadorAsistencias();
+            publicador.suscribir(asistencias -> {
+                for (Asistencia a : asistencias) {
+                    columnas.anadir(a.getIdCliente(), a.getIdClase(), a.getFecha());
+                }
+            });
+            ingesta.setPublicador(publicador);
+            for (int i = 0; i < 10; i++) {
+                ingesta.registrar(i == 4 ? -1 : i, 1, HOY);
+            }
+        }
+        // close() espera al escritor: el oyente ya ha recibido todo lo confirmado
+        assertEquals(9, columnas.getVista().getFilas());
+    }
+
+    public void testCerrarEscribeLoPendienteYRechazaNuevos() throws Exception
+    {
+        AsistenciaDAOEnMemoria dao = new AsistenciaDAOEnMemoria(0);
+        IngestaAsistenciasService ingesta =
+                new IngestaAsistenciasService(dao, 100, 100, 10_000, PoliticaColaLlena.BLOQUEAR);
+        CompletableFuture<Asistencia> f = ingesta.registrar(1, 1, HOY);
+        ingesta.close();
+        assertTrue(f.isDone());
+        assertNotNull(f.get().getId());
+        try {
+            ingesta.registrar(2, 1, HOY);
+            fail("Tras cerrar no deberían aceptarse fichajes");
+        } catch (RejectedExecutionException e) {
+            // Esperado
+        }
+    }
+
+    public void testToquesRepetidosSeDescartanAntesDeLaCola() throws Exception
+    {
+        AsistenciaDAOEnMemoria dao = new AsistenciaDAOEnMemoria(0);
+        try (IngestaAsistenciasService ingesta =
+                     new IngestaAsistenciasService(dao, 100, 100, 5, PoliticaColaLlena.BLOQUEAR)) {
+            ingesta.setDeduplicador(new DeduplicadorFichajes(1000));
+            CompletableFuture<Asistencia> primero = ingesta.registrar(1, 1, HOY);
+            CompletableFuture<Asistencia> segundo = ingesta.registrar(1, 1, HOY);
+
+            assertNotNull(primero.get().getId());
+            try {
+                segundo.get();
+                fail("El segundo toque debería descartarse");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof FichajeDuplicadoException);
+            }
+        }
+        assertEquals(1, dao.filas.get());
+    }
+
+    public void testViolacionDeUnicidadEsDuplicado() throws Exception
+    {
+        AsistenciaDAOEnMemoria dao = new AsistenciaDAOEnMemoria(0);
+        CompletableFuture<Asistencia> futuro;
+        try (IngestaAsistenciasService ingesta =
+                     new IngestaAsistenciasService(dao, 100, 100, 5, PoliticaColaLlena.BLOQUEAR)) {
+            // Sin deduplicador (p. ej. tras reiniciar): el duplicado llega a la base de datos
+            futuro = ingesta.registrar(AsistenciaDAOEnMemoria.CLIENTE_YA_FICHADO, 1, HOY);
+        }
+        try {
+            futuro.get();
+            fail("Debería fallar por la restricción única");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof FichajeDuplicadoException);
+        }
+    }
+
+    /**
+     * DAO de asistencias en memoria: cada insertAll cuesta un COMMIT simulado
+     */
+    private static class AsistenciaDAOEnMemoria implements IAsistenciaDAO
+    {
+        static final int CLIENTE_YA_FICHADO = -2;
+
+        final AtomicLong siguienteId = new AtomicLong(1);
+        final AtomicInteger filas = new AtomicInteger();
+        final AtomicInteger lotes = new AtomicInteger();
+        final AtomicInteger mayorLote = new AtomicInteger();
+        final CountDownLatch dentro = new CountDownLatch(1);
+        volatile CountDownLatch bloqueo;
+        private final long commitNanos;
+
+        AsistenciaDAOEnMemoria(long commitMicros)
+        {
+            this.commitNanos = TimeUnit.MICROSECONDS.toNanos(commitMicros);
+        }
+
+        @Override
+        public List<Asistencia> insertAll(List<Asistencia> asistencias) throws SQLException
+        {
+            dentro.countDown();
+            CountDownLatch b = bloqueo;
+            if (b != null) {
+                try {
+                    b.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (commitNanos > 0) {
+                LockSupport.parkNanos(commitNanos);
+            }
+            for (Asistencia asistencia : asistencias) {
+                if (asistencia.getIdCliente() == CLIENTE_YA_FICHADO) {
+                    throw new SQLException("duplicate key value violates unique constraint", "23505");
+                }
+                if (asistencia.getIdCliente() < 0) {
+                    throw new SQLException("violates foreign key constraint \"asistencia_id_cliente_fkey\"");
+                }
+            }
+            for (Asistencia asistencia : asistencias) {
+                asistencia.setId(siguienteId.getAndIncrement());
+            }
+            filas.addAndGet(asistencias.size());
+            lotes.incrementAndGet();
+            mayorLote.accumulateAndGet(asistencias.size(), Math::max);
+            return asistencias;
+        }
+
+        @Override
+        public List<ClaseConConteo> getNumeroClientesPorClase()
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int reconciliarConteos()
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<ConteoPeriodo> getAsistenciasPorClase(Periodo periodo, LocalDate desde, LocalDate hasta)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<ConteoPeriodo> getAsistenciasPorCliente(Periodo periodo, LocalDate desde, LocalDate hasta)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<ConteoPeriodo> getAsistenciasDeCliente(int idCliente, Periodo periodo, LocalDate desde,
+                                                           LocalDate hasta)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int actualizarResumenDiario()
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.ilerna.service;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Pruebas del lector CSV usado en la importación masiva de clientes
+ */
+public class LectorCsvTest extends TestCase
+{
+    public LectorCsvTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( LectorCsvTest.class );
+    }
+
+    public void testCamposSimplesYFinalSinSaltoDeLinea() throws IOException
+    {
+        LectorCsv lector = new LectorCsv(new StringReader("nombre,email,telefono\r\nAna,ana@x.com,600\nLuis,luis@x.com,"));
+
+        assertEquals(Arrays.asList("nombre", "email", "telefono"), lector.siguiente());
+        assertEquals(Arrays.asList("Ana", "ana@x.com", "600"), lector.siguiente());
+        assertEquals(2, lector.getLineaRegistro());
+        assertEquals(Arrays.asList("Luis", "luis@x.com", ""), lector.siguiente());
+        assertEquals(3, lector.getLineaRegistro());
+        assertNull(lector.siguiente());
+    }
+
+    public void testComillasConComasSaltosYComillasDobles() throws IOException
+    {
+        LectorCsv lector = new LectorCsv(new StringReader(
+                "\"Pérez, Ana\",ana@x.com,600\n\"Dice \"\"hola\"\"\nen dos líneas\",b@x.com,\nFin,f@x.com,1\n"));
+
+        assertEquals(Arrays.asList("Pérez, Ana", "ana@x.com", "600"), lector.siguiente());
+        List<String> multilinea = lector.siguiente();
+        assertEquals("Dice \"hola\"\nen dos líneas", multilinea.get(0));
+        assertEquals(2, lector.getLineaRegistro());
+        lector.siguiente();
+        assertEquals(4, lector.getLineaRegistro());
+        assertNull(lector.siguiente());
+    }
+
+    public void testComillasSinCerrar()
+    {
+        LectorCsv lector = new LectorCsv(new StringReader("\"Ana,ana@x.com,600\n"));
+        try {
+            lector.siguiente();
+            fail("Debería fallar con comillas sin cerrar");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("línea 1"));
+        }
+    }
+
+    public void testEscribirCampoEsSimetricoConLaLectura() throws IOException
+    {
+        StringBuilder csv = new StringBuilder();
+        LectorCsv.escribirCampo(csv, "a \"b\", c");
+        csv.append(',');
+        LectorCsv.escribirCampo(csv, "");
+
+        assertEquals(Arrays.asList("a \"b\", c", ""), new LectorCsv(new StringReader(csv.toString())).siguiente());
+    }
+}
@@ -0,0 +1,47 @@
+package com.ilerna.service;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.time.YearMonth;
+
+/**
+ * Pruebas del formato de nombre de las particiones mensuales de asistencia
+ */
+public class ParticionAsistenciaServiceTest extends TestCase
+{
+    public ParticionAsistenciaServiceTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( ParticionAsistenciaServiceTest.class );
+    }
+
+    public void testNombreYMesSonInversos()
+    {
+        YearMonth mes = YearMonth.of(2024, 3);
+        assertEquals("asistencia_y2024m03", ParticionAsistenciaService.nombreParticion(mes));
+        assertEquals(mes, ParticionAsistenciaService.mesDeParticion("asistencia_y2024m03"));
+    }
+
+    public void testNombresAjenosSeIgnoran()
+    {
+        assertNull(ParticionAsistenciaService.mesDeParticion("asistencia_default"));
+        assertNull(ParticionAsistenciaService.mesDeParticion("asistencia_y2024m3"));
+        assertNull(ParticionAsistenciaService.mesDeParticion("asistencia_y2024m03_old"));
+    }
+
+    /**
+     * El orden alfabético de los nombres coincide con el orden de los meses
+     */
+    public void testOrdenDeNombres()
+    {
+        String diciembre = ParticionAsistenciaService.nombreParticion(YearMonth.of(2023, 12));
+        String enero = ParticionAsistenciaService.nombreParticion(YearMonth.of(2024, 1));
+        assertTrue(diciembre.compareTo(enero) < 0);
+    }
+}
@@ -0,0 +1,286 @@
+package com.ilerna.service;
+
+import com.ilerna.dao.IReservaDAO;
+import com.ilerna.dto.Asistencia;
+import com.ilerna.service.ReservaService.ResultadoReserva;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Prueba de carga del motor de reservas con un DAO en memoria que imita el UPDATE condicional
+ * Muchos hilos reservan a la vez en pocas clases: nunca debe superarse el cupo
+ */
+public class ReservaServiceTest extends TestCase
+{
+    private static final LocalDate HOY = LocalDate.of(2024, 5, 6);
+
+    public ReservaServiceTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( ReservaServiceTest.class );
+    }
+
+    public void testSinOverbookingConMuchosHilos() throws Exception
+    {
+        ReservaDAOEnMemoria dao = new ReservaDAOEnMemoria(50);
+        int clases = 8;
+        int cupo = 50;
+        for (int id = 1; id <= clases; id++) {
+            dao.cupos.put(id, cupo);
+        }
+        ReservaService service = new ReservaService(dao);
+
+        int hilos = 64;
+        int intentosPorHilo = 200;
+        AtomicLong confirmadas = new AtomicLong();
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Thread> trabajadores = new ArrayList<>();
+        for (int h = 0; h < hilos; h++) {
+            int idCliente = h;
+            Thread t = new Thread(() -> {
+                try {
+                    salida.await();
+                    for (int i = 0; i < intentosPorHilo; i++) {
+                        int idClase = 1 + ThreadLocalRandom.current().nextInt(clases);
+                        if (service.reservar(idCliente, idClase, HOY) == ResultadoReserva.CONFIRMADA) {
+                            confirmadas.incrementAndGet();
+                        }
+                    }
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            trabajadores.add(t);
+            t.start();
+        }
+
+        long inicio = System.nanoTime();
+        salida.countDown();
+        for (Thread t : trabajadores) {
+            t.join();
+        }
+        long nanos = System.nanoTime() - inicio;
+
+        for (int id = 1; id <= clases; id++) {
+            assertEquals("Clase " + id, cupo, dao.reservadas(id, HOY));
+        }
+        assertEquals(clases * cupo, confirmadas.get());
+        assertEquals(clases * cupo, service.getConfirmadas());
+        // Una vez llenas, casi todos los rechazos se resuelven sin llegar a la "base de datos"
+        assertTrue(service.getRechazadasEnMemoria() > service.getRechazadasPorBaseDeDatos());
+
+        int intentos = hilos * intentosPorHilo;
+        System.out.printf("Reservas: %d peticiones en %.1f ms (%.0f peticiones/s), %d confirmadas, %d llamadas al DAO%n",
+                intentos, nanos / 1e6, intentos / (nanos / 1e9), confirmadas.get(), dao.llamadas.get());
+    }
+
+    public void testDosInstanciasNoSuperanElCupo() throws Exception
+    {
+        ReservaDAOEnMemoria dao = new ReservaDAOEnMemoria(0);
+        dao.cupos.put(1, 10);
+        ReservaService a = new ReservaService(dao);
+        ReservaService b = new ReservaService(dao);
+
+        // Cada instancia cree que hay 10 plazas
+        a.reservar(100, 1, HOY);
+        b.reservar(200, 1, HOY);
+
+        int confirmadas = 2;
+        for (int i = 0; i < 20; i++) {
+            if (a.reservar(i, 1, HOY) == ResultadoReserva.CONFIRMADA) {
+                confirmadas++;
+            }
+            if (b.reservar(1000 + i, 1, HOY) == ResultadoReserva.CONFIRMADA) {
+                confirmadas++;
+            }
+        }
+
+        assertEquals(10, confirmadas);
+        assertEquals(10, dao.reservadas(1, HOY));
+        assertTrue(a.getRechazadasPorBaseDeDatos() + b.getRechazadasPorBaseDeDatos() > 0);
+    }
+
+    public void testCancelarLiberaLaPlaza() throws Exception
+    {
+        ReservaDAOEnMemoria dao = new ReservaDAOEnMemoria(0);
+        dao.cupos.put(1, 1);
+        ReservaService service = new ReservaService(dao);
+
+        assertEquals(ResultadoReserva.CONFIRMADA, service.reservar(1, 1, HOY));
+        assertEquals(ResultadoReserva.COMPLETA, service.reservar(2, 1, HOY));
+        assertTrue(service.cancelar(1, 1, HOY));
+        assertEquals(ResultadoReserva.CONFIRMADA, service.reservar(2, 1, HOY));
+    }
+
+    public void testReservasYCancelacionesSePublican() throws Exception
+    {
+        ReservaDAOEnMemoria dao = new ReservaDAOEnMemoria(0);
+        dao.cupos.put(1, 1);
+        ReservaService service = new ReservaService(dao);
+        List<Asistencia> registradas = new ArrayList<>();
+        List<Asistencia> borradas = new ArrayList<>();
+        PublicadorAsistencias publicador = new PublicadorAsistencias();
+        publicador.suscribir(new PublicadorAsistencias.Oyente() {
+            @Override
+            public void anadir(List<Asistencia> asistencias)
+            {
+                registradas.addAll(asistencias);
+            }
+
+            @Override
+            public void quitar(List<Asistencia> asistencias)
+            {
+                borradas.addAll(asistencias);
+            }
+        });
+        service.setPublicador(publicador);
+
+        service.reservar(1, 1, HOY);
+        service.reservar(2, 1, HOY);
+        assertFalse(service.cancelar(2, 1, HOY));
+        assertTrue(service.cancelar(1, 1, HOY));
+
+        // Solo lo que ha llegado a la base de datos: la reserva rechazada y la cancelación sin reserva no
+        assertEquals(1, registradas.size());
+        assertEquals(Integer.valueOf(1), registradas.get(0).getIdCliente());
+        assertEquals(1, borradas.size());
+        assertEquals(HOY, borradas.get(0).getFecha());
+    }
+
+    public void testCancelacionDesdeOtroProcesoSeVeTrasResincronizar() throws Exception
+    {
+        ReservaDAOEnMemoria dao = new ReservaDAOEnMemoria(0);
+        dao.cupos.put(1, 1);
+        ReservaService service = new ReservaService(dao, 20);
+
+        assertEquals(ResultadoReserva.CONFIRMADA, service.reservar(1, 1, HOY));
+        dao.cancelar(1, HOY, 1);
+        assertEquals(ResultadoReserva.COMPLETA, service.reservar(2, 1, HOY));
+
+        Thread.sleep(40);
+        assertEquals(ResultadoReserva.CONFIRMADA, service.reservar(2, 1, HOY));
+    }
+
+    public void testReservaRepetidaEsDuplicadaYNoOcupaPlaza() throws Exception
+    {
+        ReservaDAOEnMemoria dao = new ReservaDAOEnMemoria(0);
+        dao.cupos.put(1, 2);
+        dao.asistenciaUnica = true;
+        ReservaService service = new ReservaService(dao);
+
+        assertEquals(ResultadoReserva.CONFIRMADA, service.reservar(1, 1, HOY));
+        assertEquals(ResultadoReserva.DUPLICADA, service.reservar(1, 1, HOY));
+        assertEquals(1, dao.reservadas(1, HOY));
+        // La plaza que tomó el contador en memoria se devuelve
+        assertEquals(ResultadoReserva.CONFIRMADA, service.reservar(2, 1, HOY));
+        assertEquals(2, service.getConfirmadas());
+    }
+
+    public void testClaseInexistente() throws Exception
+    {
+        ReservaService service = new ReservaService(new ReservaDAOEnMemoria(0));
+        assertEquals(ResultadoReserva.CLASE_NO_EXISTE, service.reservar(1, 99, HOY));
+    }
+
+    /**
+     * DAO de reservas en memoria: la reserva es un incremento condicional atómico, como el
+     * UPDATE ... WHERE reservadas &lt; cupo de la base de datos, con una latencia simulada
+     */
+    private static class ReservaDAOEnMemoria implements IReservaDAO
+    {
+        final Map<Integer, Integer> cupos = new HashMap<>();
+        final ConcurrentHashMap<String, AtomicInteger> ocupacion = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<String, AtomicInteger> asistencias = new ConcurrentHashMap<>();
+        final AtomicLong llamadas = new AtomicLong();
+        // Como el índice único de la migración 008: repetir cliente, clase y fecha da 23505
+        boolean asistenciaUnica;
+        private final long latenciaNanos;
+
+        ReservaDAOEnMemoria(long latenciaMicros)
+        {
+            this.latenciaNanos = TimeUnit.MICROSECONDS.toNanos(latenciaMicros);
+        }
+
+        int reservadas(int idClase, LocalDate fecha)
+        {
+            AtomicInteger n = ocupacion.get(idClase + "/" + fecha);
+            return n == null ? 0 : n.get();
+        }
+
+        private void viaje()
+        {
+            llamadas.incrementAndGet();
+            if (latenciaNanos > 0) {
+                LockSupport.parkNanos(latenciaNanos);
+            }
+        }
+
+        @Override
+        public OptionalInt getPlazasLibres(int idClase, LocalDate fecha)
+        {
+            viaje();
+            Integer cupo = cupos.get(idClase);
+            return cupo == null ? OptionalInt.empty() : OptionalInt.of(cupo - reservadas(idClase, fecha));
+        }
+
+        @Override
+        public boolean reservar(int idClase, LocalDate fecha, int idCliente) throws SQLException
+        {
+            viaje();
+            Integer cupo = cupos.get(idClase);
+            if (cupo == null) {
+                return false;
+            }
+            AtomicInteger n = ocupacion.computeIfAbsent(idClase + "/" + fecha, k -> new AtomicInteger());
+            while (true) {
+                int actual = n.get();
+                if (actual >= cupo) {
+                    return false;
+                }
+                if (n.compareAndSet(actual, actual + 1)) {
+                    int previas = asistencias.computeIfAbsent(idClase + "/" + fecha + "/" + idCliente,
+                            k -> new AtomicInteger()).getAndIncrement();
+                    if (asistenciaUnica && previas > 0) {
+                        // Rollback de la transacción: ni asistencia ni plaza
+                        asistencias.get(idClase + "/" + fecha + "/" + idCliente).decrementAndGet();
+                        n.decrementAndGet();
+                        throw new SQLException("duplicate key value violates unique constraint", "23505");
+                    }
+                    return true;
+                }
+            }
+        }
+
+        @Override
+        public boolean cancelar(int idClase, LocalDate fecha, int idCliente)
+        {
+            viaje();
+            AtomicInteger reservas = asistencias.get(idClase + "/" + fecha + "/" + idCliente);
+            if (reservas == null || reservas.getAndUpdate(v -> Math.max(0, v - 1)) == 0) {
+                return false;
+            }
+            ocupacion.get(idClase + "/" + fecha).decrementAndGet();
+            return true;
+        }
+    }
+}
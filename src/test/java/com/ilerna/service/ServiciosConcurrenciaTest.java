@@ -0,0 +1,98 @@
+package com.ilerna.service;
+
+import com.ilerna.config.DataBaseConnection;
+import com.ilerna.dao.AsistenciaDAO;
+import com.ilerna.dao.ClaseDAO;
+import com.ilerna.dao.ClienteDAO;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prueba de concurrencia de los servicios JDBC contra la base de datos real.
+ * Varios hilos (mostradores) usan los mismos servicios a la vez y se mide el rendimiento
+ * con 1, 2, 4 y 8 hilos. Si no hay base de datos disponible, la prueba se omite.
+ */
+public class ServiciosConcurrenciaTest extends TestCase
+{
+    private static final long DURACION_MS = 1000;
+
+    public ServiciosConcurrenciaTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( ServiciosConcurrenciaTest.class );
+    }
+
+    @Override
+    protected void tearDown()
+    {
+        DataBaseConnection.shutdown();
+    }
+
+    public void testServiciosEscalanConElNumeroDeHilos() throws Exception
+    {
+        DataSource dataSource = DataBaseConnection.getDataSource();
+        try (Connection prueba = dataSource.getConnection()) {
+            prueba.isValid(1);
+        } catch (SQLException e) {
+            System.out.println("Base de datos no disponible, se omite la prueba de concurrencia: " + e.getMessage());
+            return;
+        }
+
+        ClienteService clienteService = new ClienteService(new ClienteDAO(dataSource));
+        ClaseService claseService = new ClaseService(new ClaseDAO(dataSource));
+        AsistenciaService asistenciaService = new AsistenciaService(new AsistenciaDAO(dataSource));
+
+        System.out.println("Hilos | Operaciones/s");
+        for (int hilos : new int[]{1, 2, 4, 8}) {
+            AtomicLong operaciones = new AtomicLong();
+            AtomicLong errores = new AtomicLong();
+            long fin = System.currentTimeMillis() + DURACION_MS;
+
+            List<Thread> trabajadores = new ArrayList<>();
+            for (int i = 0; i < hilos; i++) {
+                Thread t = new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.currentTimeMillis() < fin) {
+                        try {
+                            switch (random.nextInt(3)) {
+                                case 0:
+                                    clienteService.buscarClientePorId(1 + random.nextInt(1000));
+                                    break;
+                                case 1:
+                                    claseService.obtenerTodasLasClases();
+                                    break;
+                                default:
+                                    asistenciaService.obtenerReporteClientesPorClase();
+                            }
+                            operaciones.incrementAndGet();
+                        } catch (SQLException e) {
+                            errores.incrementAndGet();
+                        }
+                    }
+                });
+                trabajadores.add(t);
+                t.start();
+            }
+            for (Thread t : trabajadores) {
+                t.join();
+            }
+
+            System.out.printf("%5d | %d%n", hilos, operaciones.get() * 1000 / DURACION_MS);
+            assertEquals("Errores con " + hilos + " hilos", 0, errores.get());
+        }
+        System.out.println("Pool: " + DataBaseConnection.getStats());
+    }
+}